@@ -75,6 +75,10 @@ dependencies {
     implementation("androidx.documentfile:documentfile:1.0.1") // Provides a compatibility layer for working with documents and files.
     implementation("commons-codec:commons-codec:1.15") // Provides common encoding and decoding algorithms.
     implementation("commons-io:commons-io:2.11.0") // Provides utility classes for I/O operations.
+    // CameraX for the live scanning mode: camera access, lifecycle binding and the PreviewView.
+    implementation(libs.camera.camera2)
+    implementation(libs.camera.lifecycle)
+    implementation(libs.camera.view)
     
     // `testImplementation` dependencies are only used for running local unit tests on the JVM.
     testImplementation(libs.junit) // The standard testing framework for Java.
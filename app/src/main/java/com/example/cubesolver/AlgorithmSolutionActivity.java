@@ -1,70 +1,77 @@
 package com.example.cubesolver;
 
-import android.content.SharedPreferences;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.View;
 import android.widget.Button;
-import android.widget.GridLayout;
 import android.widget.ProgressBar;
+import android.widget.SeekBar;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
-import android.graphics.Color;
-import android.content.Context;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import org.json.JSONObject;
-import java.net.URLEncoder;
-import java.nio.charset.StandardCharsets;
-import org.json.JSONException;
+import java.util.concurrent.Future;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Iterator;
 import java.util.List;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.core.type.TypeReference;
 import java.util.ArrayList;
 import java.util.Arrays;
 import android.widget.LinearLayout;
-import android.graphics.drawable.GradientDrawable;
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.session.CubeSession;
+import com.example.cubesolver.session.SessionStore;
+import com.example.cubesolver.solver.CubeSymmetry;
+import com.example.cubesolver.solver.ParallelSearch;
+import com.example.cubesolver.solver.PocketSolver;
+import com.example.cubesolver.solver.Search;
+import com.example.cubesolver.solver.SolutionCache;
+import com.example.cubesolver.solver.SolverException;
+import com.example.cubesolver.solver.SolutionTimeline;
+import com.example.cubesolver.solver.SolverTables;
+import com.example.cubesolver.solver.StickerMoves;
+import com.example.cubesolver.solver.TableFile;
+import java.io.File;
 
 /**
  * AlgorithmSolutionActivity is the final screen of the application.
- * It receives the solver string from SolutionActivity, sends it to a solver API,
+ * It receives the solver string from SolutionActivity, solves it on-device (two-phase for 3x3, optimal for 2x2),
  * and then displays the solution steps to the user in an interactive stepper format.
- * It also shows the initial state of the cube as a 2D net for reference.
+ * It also shows the cube as a 2D net, which follows the stepper and animates each move.
  */
 public class AlgorithmSolutionActivity extends AppCompatActivity {
 
     private static final String TAG = "AlgorithmSolution";
-    // The endpoint for the solver API. This service takes a cube state string and returns the solution.
-    private static final String KOCIEMBA_API_ENDPOINT = "https://kociemba.onrender.com/solve";
+    private static final long IMPROVEMENT_BUDGET_MILLIS = 3000; // How long to keep looking for shorter 3x3 solutions.
+    private static final int TARGET_SOLUTION_LENGTH = 18; // A 3x3 solution this short is not worth waiting to improve.
+    // Search rotated and inverted copies of a 3x3 on all cores at once; false runs the single-threaded search.
+    private static final boolean PARALLEL_SEARCH = true;
     
     // Data from previous activity
     private String solverString; // The 54-char (3x3) or 24-char (2x2) string representing the cube state.
     private Map<Character, String> letterToColorNameMap = new HashMap<>(); // Maps face letters (U,R,F..) to color names for 3x3.
-    private Map<String, List<List<String>>> cubeMatrices = new HashMap<>(); // The detailed color matrix for each face.
+    private CubeState cubeState; // The scanned cube, used to draw the unfolded net; null if it could not be loaded.
     private int cubeSize = 3; // The size of the cube (2 or 3).
 
     // UI Elements
     private TextView currentMoveText; // Displays the current solution move and its description.
     private ProgressBar progressBar; // Shown while the solution is being calculated.
-    private GridLayout upFaceGrid, leftFaceGrid, frontFaceGrid, rightFaceGrid, backFaceGrid, downFaceGrid; // Grids for the 2D cube net.
+    private CubeNetView cubeNetView; // Draws the 2D cube net.
     private Button nextButton, previousButton; // Buttons for navigating the solution steps.
     private TextView stepIndicatorText; // Shows the current step number (e.g., "Step 1 of 20").
+    private SeekBar stepSeekBar; // Scrubs through the steps; the net jumps to the cube after the chosen move.
     private LinearLayout stepperControlsLayout; // The layout containing the stepper controls.
 
     // State for the solution stepper
-    private List<String> solutionMovesList; // The list of solution moves received from the API.
+    private List<String> solutionMovesList; // The list of solution moves returned by the solver.
+    private String shownSolution; // The solution in the stepper, as passed to showSolution.
+    private SolutionTimeline timeline; // Every cube state along the solution, or null if the net cannot follow it.
     private int currentMoveIndex = -1; // The index of the current move being displayed.
+    private boolean searchingShorter; // True while shorter 3x3 solutions may still replace the displayed one.
 
     // ExecutorService to run network operations on a background thread.
     private ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private Future<?> solveTask; // The running solve, cancelled once the user starts following the solution.
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -74,14 +81,12 @@ public class AlgorithmSolutionActivity extends AppCompatActivity {
         // Initialize all UI views from the layout file.
         initializeViews();
         
-        // Load all necessary data (cube state, solver string, color mappings) from SharedPreferences.
-        loadCubeData();
-        loadSolverString();
-        loadColorMapping();
+        // Take the cube state and solver string from the session and derive the color mapping from the centers.
+        loadSession();
         
         // Display the initial state of the cube as a 2D unfolded net.
-        if (!cubeMatrices.isEmpty()) {
-            displayCubeNet(cubeMatrices, cubeSize);
+        if (cubeState != null) {
+            displayCubeNet(cubeState);
         } else {
             Log.e(TAG, "Cube matrices data is missing, cannot display cube net.");
             Toast.makeText(this, "Could not load cube state", Toast.LENGTH_SHORT).show();
@@ -89,7 +94,7 @@ public class AlgorithmSolutionActivity extends AppCompatActivity {
         
         // Set up the listeners for the "Next" and "Previous" buttons.
         setupStepperListeners();
-        // Start the process of solving the cube by calling the API.
+        // Start the process of solving the cube on a background thread.
         solveCube();
     }
 
@@ -101,16 +106,12 @@ public class AlgorithmSolutionActivity extends AppCompatActivity {
         progressBar = findViewById(R.id.progressBar);
         Button backButton = findViewById(R.id.backButton);
         
-        upFaceGrid = findViewById(R.id.upFaceGrid);
-        leftFaceGrid = findViewById(R.id.leftFaceGrid);
-        frontFaceGrid = findViewById(R.id.frontFaceGrid);
-        rightFaceGrid = findViewById(R.id.rightFaceGrid);
-        backFaceGrid = findViewById(R.id.backFaceGrid);
-        downFaceGrid = findViewById(R.id.downFaceGrid);
+        cubeNetView = findViewById(R.id.cubeNetView);
 
         nextButton = findViewById(R.id.nextButton);
         previousButton = findViewById(R.id.previousButton);
         stepIndicatorText = findViewById(R.id.stepIndicatorText);
+        stepSeekBar = findViewById(R.id.stepSeekBar);
         stepperControlsLayout = findViewById(R.id.stepperControlsLayout);
         
         backButton.setOnClickListener(v -> finish());
@@ -122,168 +123,92 @@ public class AlgorithmSolutionActivity extends AppCompatActivity {
     private void setupStepperListeners() {
         nextButton.setOnClickListener(v -> {
             if (solutionMovesList != null && currentMoveIndex < solutionMovesList.size() - 1) {
+                // The user is turning the cube now; a shorter solution found later would not match their cube.
+                stopSearchingShorter();
                 currentMoveIndex++;
+                if (timeline != null) {
+                    cubeNetView.animateMove(timeline.getMove(currentMoveIndex));
+                }
                 updateStepUI();
             }
         });
 
         previousButton.setOnClickListener(v -> {
             if (solutionMovesList != null && currentMoveIndex > 0) {
+                if (timeline != null) {
+                    cubeNetView.animateMove(StickerMoves.inverse(timeline.getMove(currentMoveIndex)));
+                }
                 currentMoveIndex--;
                 updateStepUI();
             }
         });
-    }
-    
-    /**
-     * Loads the cube size and the detailed color matrices from SharedPreferences.
-     */
-    private void loadCubeData() {
-        SharedPreferences prefs = getSharedPreferences("CubeSolverData", MODE_PRIVATE);
-        cubeSize = prefs.getInt("cube_size", 3);
-        String jsonMatrices = prefs.getString("cube_matrices_json", null);
 
-        if (jsonMatrices != null) {
-            try {
-                ObjectMapper objectMapper = new ObjectMapper();
-                cubeMatrices = objectMapper.readValue(jsonMatrices, new TypeReference<Map<String, List<List<String>>>>() {});
-            } catch (Exception e) {
-                Log.e(TAG, "Error parsing cube matrices JSON", e);
-                cubeMatrices.clear();
+        // Dragging jumps straight to any step: the timeline holds every state, so nothing is replayed.
+        stepSeekBar.setOnSeekBarChangeListener(new SeekBar.OnSeekBarChangeListener() {
+            @Override
+            public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
+                if (!fromUser || solutionMovesList == null || progress == currentMoveIndex) {
+                    return;
+                }
+                if (progress > 0) {
+                    stopSearchingShorter();
+                }
+                currentMoveIndex = progress;
+                if (timeline != null) {
+                    cubeNetView.showStep(timeline, currentMoveIndex + 1);
+                }
+                updateStepUI();
             }
-        }
-    }
-    
-    /**
-     * Loads the solver string (e.g., "UUU...") from SharedPreferences.
-     */
-    private void loadSolverString() {
-        SharedPreferences prefs = getSharedPreferences("CubeSolverData", MODE_PRIVATE);
-        solverString = prefs.getString("solver_string", "");
-    }
-    
-    /**
-     * Loads the mapping from face letters (U, R, F, etc.) to color names, used for 3x3 cubes.
-     */
-    private void loadColorMapping() {
-        SharedPreferences prefs = getSharedPreferences("CubeSolverData", MODE_PRIVATE);
-        String jsonMap = prefs.getString("letter_color_map_json", null);
 
-        if (jsonMap != null) {
-            try {
-                letterToColorNameMap.clear();
-                JSONObject jsonObject = new JSONObject(jsonMap);
-                Iterator<String> keys = jsonObject.keys();
+            @Override
+            public void onStartTrackingTouch(SeekBar seekBar) {
+            }
 
-                while (keys.hasNext()) {
-                    String keyString = keys.next();
-                    if (keyString.length() == 1) {
-                        letterToColorNameMap.put(keyString.charAt(0), jsonObject.getString(keyString));
-                    }
-                }
-            } catch (JSONException e) {
-                Log.e(TAG, "Error parsing letter-color map JSON", e);
-                letterToColorNameMap.clear();
+            @Override
+            public void onStopTrackingTouch(SeekBar seekBar) {
             }
-        }
+        });
     }
-
+    
     /**
-     * Displays the initial state of the cube as a 2D unfolded net.
-     * @param matrices A map where the key is the face name (e.g., "U") and the value is the color matrix.
-     * @param size The size of the cube (2 or 3).
+     * Loads the cube state and solver string handed over by SolutionActivity, and for a 3x3 remembers which color
+     * each face letter stands for, e.g. 'U' -> "White".
      */
-    private void displayCubeNet(Map<String, List<List<String>>> matrices, int size) {
-        if (matrices == null || matrices.isEmpty()) {
-             return;
+    private void loadSession() {
+        CubeSession session = SessionStore.getInstance(getFilesDir()).get();
+        if (session == null) {
+            solverString = "";
+            return;
         }
-
-        Map<String, GridLayout> faceGridMap = new HashMap<>();
-        faceGridMap.put("U", upFaceGrid);
-        faceGridMap.put("R", rightFaceGrid);
-        faceGridMap.put("F", frontFaceGrid);
-        faceGridMap.put("D", downFaceGrid);
-        faceGridMap.put("L", leftFaceGrid);
-        faceGridMap.put("B", backFaceGrid);
-
-        int gridWidth = getResources().getDimensionPixelSize(R.dimen.face_size);
-        int stickerSize = gridWidth / size;
-
-        for (Map.Entry<String, List<List<String>>> entry : matrices.entrySet()) {
-            String faceName = entry.getKey();
-            List<List<String>> faceMatrix = entry.getValue();
-            GridLayout grid = faceGridMap.get(faceName);
-
-            if (grid != null && faceMatrix != null && !faceMatrix.isEmpty()) {
-                 if ((size == 3 && faceMatrix.size() == 3) || (size == 2 && faceMatrix.size() == 2)) {
-                     populateFaceGrid(grid, faceMatrix, this, stickerSize, size);
-                 } else {
-                      grid.removeAllViews();
-                 }
-            } else if (grid != null) {
-                 grid.removeAllViews();
+        cubeState = session.getState();
+        cubeSize = session.getSize();
+        solverString = session.getSolverString() != null ? session.getSolverString() : "";
+        letterToColorNameMap.clear();
+        if (cubeSize == 3) {
+            for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+                letterToColorNameMap.put(CubeState.FACES.charAt(face), cubeState.getCenter(face).getDisplayName());
             }
         }
     }
 
     /**
-     * Populates a single GridLayout with colored squares (stickers) based on a color matrix.
-     * @param grid The GridLayout to populate.
-     * @param faceMatrix The 2D list of color names for the face.
-     * @param context The application context.
-     * @param stickerSize The size of each sticker in pixels.
-     * @param size The size of the cube.
+     * Displays the initial state of the cube as a 2D unfolded net.
+     * Each face is @dimen/face_size wide, whatever the cube size, with a 1dp gap between faces.
+     * @param state The cube state to draw.
      */
-    private void populateFaceGrid(GridLayout grid, List<List<String>> faceMatrix, Context context, int stickerSize, int size) {
-        grid.removeAllViews();
-        grid.setColumnCount(size);
-        grid.setRowCount(size);
-
-        for (int row = 0; row < size; row++) {
-            for (int col = 0; col < size; col++) {
-                 if (row < faceMatrix.size() && col < faceMatrix.get(row).size()) {
-                    View sticker = new View(context);
-                    String colorName = faceMatrix.get(row).get(col);
-                    int stickerColor = getColorFromName(colorName);
-
-                    GradientDrawable borderDrawable = new GradientDrawable();
-                    borderDrawable.setColor(stickerColor);
-                    int borderWidth = dpToPx(1);
-                    int borderColor = (stickerColor == Color.WHITE || stickerColor == Color.YELLOW) ? Color.DKGRAY : Color.BLACK;
-                    borderDrawable.setStroke(borderWidth, borderColor);
-                    sticker.setBackground(borderDrawable);
-
-                    GridLayout.LayoutParams params = new GridLayout.LayoutParams();
-                    params.width = stickerSize; 
-                    params.height = stickerSize; 
-                    sticker.setLayoutParams(params);
-
-                    grid.addView(sticker);
-                 }
-            }
-        }
+    private void displayCubeNet(CubeState state) {
+        int faceSize = getResources().getDimensionPixelSize(R.dimen.face_size);
+        cubeNetView.setStickerSize(faceSize / state.getSize());
+        cubeNetView.setFaceGap(dpToPx(1));
+        cubeNetView.setState(state);
     }
 
     /**
-     * Converts a color name string to its corresponding integer color value.
-     * @param colorName The name of the color (e.g., "Red").
-     * @return The integer color value.
-     */
-    private int getColorFromName(String colorName) {
-        if (colorName == null) return Color.GRAY;
-        switch (colorName.toLowerCase()) {
-            case "white": return Color.WHITE;
-            case "yellow": return Color.YELLOW;
-            case "red": return Color.RED;
-            case "orange": return Color.rgb(255, 165, 0);
-            case "blue": return Color.BLUE;
-            case "green": return Color.GREEN;
-            default: return Color.GRAY;
-        }
-    }
-    
-    /**
-     * Initiates the cube solving process by calling the solver API in a background thread.
+     * Initiates the cube solving process in a background thread.
+     * 3x3 cubes are solved locally with the two-phase algorithm; 2x2 cubes are solved optimally with PocketSolver.
+     * Solutions are cached on disk, so solving the same cube again, in any orientation, returns instantly.
+     * A 3x3 solve shows its first solution right away and keeps searching for shorter ones for a few seconds;
+     * they replace the displayed solution until the user moves past the first step.
      */
     private void solveCube() {
          if (solverString == null || solverString.isEmpty()) {
@@ -303,78 +228,163 @@ public class AlgorithmSolutionActivity extends AppCompatActivity {
         currentMoveText.setText("Calculating solution...");
         stepperControlsLayout.setVisibility(View.GONE);
         stepIndicatorText.setVisibility(View.GONE);
+        stepSeekBar.setVisibility(View.GONE);
 
-        executorService.execute(() -> {
-            String solutionResult = "";
-            boolean apiSuccess = false;
+        searchingShorter = (cubeSize == 3);
+        solveTask = executorService.submit(() -> {
+            String solutionResult;
+            boolean solveSuccess = false;
 
             try {
-                String encodedCube = URLEncoder.encode(solverString, StandardCharsets.UTF_8.toString());
-                String apiUrl = KOCIEMBA_API_ENDPOINT + "?cube=" + encodedCube;
-                
-                URL url = new URL(apiUrl);
-                HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                connection.setRequestMethod("GET");
-                connection.setConnectTimeout(30000);
-                connection.setReadTimeout(30000);
-
-                int responseCode = connection.getResponseCode();
-
-                if (responseCode == HttpURLConnection.HTTP_OK) {
-                    StringBuilder response = new StringBuilder();
-                    try (BufferedReader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
-                        String line;
-                        while ((line = reader.readLine()) != null) {
-                            response.append(line);
-                        }
-                    }
-
-                    JSONObject jsonResponse = new JSONObject(response.toString());
-
-                    if (jsonResponse.has("solution")) {
-                        if (cubeSize == 2) {
-                            JSONArray solutionArray = jsonResponse.getJSONArray("solution");
-                            solutionResult = solutionArray.join(" ").replace("\"", "");
+                long startTime = System.currentTimeMillis();
+                // The same scramble is often solved again, e.g. after going back to fix a sticker; check the cache first.
+                SolutionCache cache = SolutionCache.getInstance(new File(getFilesDir(), SolutionCache.DIRECTORY_NAME));
+                int solverVersion = (cubeSize == 2) ? PocketSolver.VERSION : Search.VERSION;
+                // A 3x3 is looked up and solved in its canonical orientation, so every way of holding the cube
+                // shares one cache entry; the solution is translated back to the user's orientation at the end.
+                CubeSymmetry.Canonical canonical = (cubeSize == 3) ? CubeSymmetry.canonicalize(solverString) : null;
+                String cubeKey = (canonical != null) ? canonical.getFacelets() : solverString;
+                solutionResult = cache.get(cubeSize, solverVersion, cubeKey);
+                if (solutionResult != null) {
+                    Log.d(TAG, "Solution cache hit in " + (System.currentTimeMillis() - startTime) + " ms (" + cache + ")");
+                } else {
+                    Log.d(TAG, "Solution cache miss (" + cache + ")");
+                    if (cubeSize == 2) {
+                        // The 2x2 distance table is built on the first 2x2 solve and then kept for the process lifetime.
+                        solutionResult = PocketSolver.getInstance().solve(cubeKey);
+                    } else {
+                        // The tables are mapped from the app's table file; it is only generated on the very first solve.
+                        long tablesStart = System.currentTimeMillis();
+                        SolverTables tables = SolverTables.openOrCreate(new File(getFilesDir(), TableFile.FILE_NAME));
+                        Log.d(TAG, "Solver tables ready in " + (System.currentTimeMillis() - tablesStart) + " ms");
+                        Search.SolutionListener listener = (solution, length) -> {
+                            Log.d(TAG, "Found a " + length + " move solution after "
+                                    + (System.currentTimeMillis() - startTime) + " ms");
+                            String original = canonical.toOriginalSolution(solution);
+                            runOnUiThread(() -> showImprovedSolution(original));
+                        };
+                        if (PARALLEL_SEARCH) {
+                            try (ParallelSearch search = new ParallelSearch(tables)) {
+                                Log.d(TAG, "Searching on " + search.getThreadCount() + " threads");
+                                solutionResult = search.solveProgressively(cubeKey, TARGET_SOLUTION_LENGTH,
+                                        IMPROVEMENT_BUDGET_MILLIS, listener);
+                            }
                         } else {
-                             solutionResult = jsonResponse.getString("solution");
+                            solutionResult = new Search(tables).solveProgressively(cubeKey, TARGET_SOLUTION_LENGTH,
+                                    IMPROVEMENT_BUDGET_MILLIS, listener);
                         }
-                        apiSuccess = true;
-                    } else if (jsonResponse.has("error")) {
-                        solutionResult = "Error from API: " + jsonResponse.getString("error");
+                    }
+                    // A search cut short by the user moving on returns its best-so-far solution. The cache never
+                    // replaces an entry, so only solutions the search finished with are stored.
+                    if (Thread.currentThread().isInterrupted()) {
+                        Log.d(TAG, "Not caching the solution of an interrupted search");
                     } else {
-                        solutionResult = "Unknown response format from API";
+                        cache.put(cubeSize, solverVersion, cubeKey, solutionResult);
                     }
-                } else {
-                    solutionResult = "API Error: HTTP " + responseCode;
+                    Log.d(TAG, "Solve took " + (System.currentTimeMillis() - startTime) + " ms");
                 }
-
+                if (canonical != null) {
+                    solutionResult = canonical.toOriginalSolution(solutionResult);
+                }
+                solveSuccess = true;
+            } catch (SolverException e) {
+                Log.e(TAG, "Cube could not be solved", e);
+                solutionResult = "Error: " + e.getMessage();
             } catch (Exception e) {
                 Log.e(TAG, "Error solving cube", e);
                 solutionResult = "Error calculating solution: " + e.getMessage();
             }
 
             final String finalSolutionString = solutionResult;
-            final boolean finalApiSuccess = apiSuccess;
+            final boolean finalSolveSuccess = solveSuccess;
             runOnUiThread(() -> {
+                searchingShorter = false;
                 progressBar.setVisibility(View.GONE);
-                if (finalApiSuccess && !finalSolutionString.trim().isEmpty() && !finalSolutionString.toLowerCase().contains("error")) {
-                    String[] moves = finalSolutionString.trim().split("\\s+");
-                    if (moves.length > 0 && !moves[0].isEmpty()) {
-                        solutionMovesList = new ArrayList<>(Arrays.asList(moves));
-                        currentMoveIndex = 0;
-                        updateStepUI();
-                        stepperControlsLayout.setVisibility(View.VISIBLE);
-                        stepIndicatorText.setVisibility(View.VISIBLE);
-                    } else {
-                         currentMoveText.setText("Solution is empty. The cube might already be solved.");
-                    }
-                } else {
+                if (!finalSolveSuccess) {
                     currentMoveText.setText(finalSolutionString);
+                } else if (finalSolutionString.trim().isEmpty()) {
+                    currentMoveText.setText("Solution is empty. The cube might already be solved.");
+                } else if ((solutionMovesList == null || currentMoveIndex <= 0)
+                        && !finalSolutionString.equals(shownSolution)) {
+                    // Usually the last improvement is already on screen; showing it again would replay its first move.
+                    showSolution(finalSolutionString);
                 }
             });
         });
     }
 
+    /**
+     * Shows a solution found while the search goes on, if the user has not started following the current one.
+     * Called on the UI thread.
+     * @param solution The solution in the user's orientation.
+     */
+    private void showImprovedSolution(String solution) {
+        if (!searchingShorter) {
+            return;
+        }
+        if (solutionMovesList != null) {
+            Log.d(TAG, "Swapping to a shorter solution: " + solution);
+        }
+        progressBar.setVisibility(View.GONE);
+        showSolution(solution);
+    }
+
+    /**
+     * Displays a solution in the stepper, starting at its first move.
+     * The solution is expanded once into a timeline of cube states. The net shows the cube after the current step,
+     * so it goes back to the scanned cube and plays the first move.
+     * @param solution The solution as space-separated moves.
+     */
+    private void showSolution(String solution) {
+        shownSolution = solution;
+        String[] moves = solution.trim().split("\\s+");
+        solutionMovesList = new ArrayList<>(Arrays.asList(moves));
+        int[] moveIndices = parseMoves(moves);
+        timeline = moveIndices != null ? SolutionTimeline.expand(cubeState, moveIndices) : null;
+        currentMoveIndex = 0;
+        if (timeline != null) {
+            cubeNetView.showStep(timeline, 0);
+            cubeNetView.animateMove(timeline.getMove(0));
+        }
+        stepSeekBar.setMax(solutionMovesList.size() - 1);
+        updateStepUI();
+        stepperControlsLayout.setVisibility(View.VISIBLE);
+        stepIndicatorText.setVisibility(View.VISIBLE);
+        stepSeekBar.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * Converts solution moves to StickerMoves indices for playing them on the net.
+     * @param moves The moves in standard notation.
+     * @return The move indices, or null if there is no cube to play them on or a move is not a face turn.
+     */
+    private int[] parseMoves(String[] moves) {
+        if (cubeState == null) {
+            return null;
+        }
+        int[] indices = new int[moves.length];
+        for (int i = 0; i < moves.length; i++) {
+            indices[i] = StickerMoves.parse(moves[i]);
+            if (indices[i] < 0) {
+                Log.w(TAG, "Cannot show move " + moves[i] + " on the cube net");
+                return null;
+            }
+        }
+        return indices;
+    }
+
+    /**
+     * Keeps the displayed solution and ends the search for shorter ones; the best found so far is still cached.
+     */
+    private void stopSearchingShorter() {
+        if (searchingShorter) {
+            searchingShorter = false;
+            if (solveTask != null) {
+                solveTask.cancel(true);
+            }
+        }
+    }
+
     /**
      * Updates the UI for the current solution step.
      * It sets the text for the current move and its description, and updates the step indicator.
@@ -388,7 +398,12 @@ public class AlgorithmSolutionActivity extends AppCompatActivity {
         String move = solutionMovesList.get(currentMoveIndex);
         String description = getMoveDescription(move);
         currentMoveText.setText(String.format("%s\n%s", move, description));
-        stepIndicatorText.setText(String.format("Step %d of %d", currentMoveIndex + 1, solutionMovesList.size()));
+        String stepText = String.format("Step %d of %d", currentMoveIndex + 1, solutionMovesList.size());
+        if (searchingShorter) {
+            stepText += " (looking for a shorter solution)";
+        }
+        stepIndicatorText.setText(stepText);
+        stepSeekBar.setProgress(currentMoveIndex);
 
         previousButton.setEnabled(currentMoveIndex > 0);
         nextButton.setEnabled(currentMoveIndex < solutionMovesList.size() - 1);
@@ -430,8 +445,8 @@ public class AlgorithmSolutionActivity extends AppCompatActivity {
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // Shut down the executor service to prevent memory leaks.
-        executorService.shutdown();
+        // Interrupt a running search and shut down the executor service to prevent memory leaks.
+        executorService.shutdownNow();
     }
 
     /**
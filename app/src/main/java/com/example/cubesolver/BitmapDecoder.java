@@ -0,0 +1,180 @@
+package com.example.cubesolver;
+
+import android.content.ContentResolver;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.net.Uri;
+import android.util.Log;
+import com.example.cubesolver.pipeline.SampleSize;
+import com.example.cubesolver.pipeline.SizedPool;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * BitmapDecoder is the one place where the app decodes its face photos into Bitmaps.
+ * Every decode reads the image bounds first and subsamples while decoding, so a camera photo is never allocated
+ * at full resolution, and decodes into a recycled buffer (inBitmap) of the same config from a small shared pool
+ * when one fits.
+ * Bitmaps that are only shown on screen can use RGB_565, half the memory of ARGB_8888; bitmaps whose colors are
+ * analyzed or uploaded keep ARGB_8888.
+ */
+public final class BitmapDecoder {
+
+    private static final String TAG = "BitmapDecoder";
+
+    // Budget of the reuse pool: a few 1024 px ARGB_8888 bitmaps.
+    private static final long POOL_BYTES = 12L * 1024 * 1024;
+    // A pooled buffer may be at most this much larger than needed before it is considered a waste to use it.
+    private static final int MAX_POOL_WASTE = 2 * 1024 * 1024;
+
+    private static final BitmapDecoder INSTANCE = new BitmapDecoder();
+
+    private final SizedPool<Bitmap> pool = new SizedPool<>(POOL_BYTES, Bitmap::recycle);
+
+    private BitmapDecoder() {
+    }
+
+    /**
+     * Returns the decoder shared by all screens, so they share one pool.
+     */
+    public static BitmapDecoder getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Decodes an image so that both sides are at least the requested size, for views that crop the image to fill.
+     * The result may be larger by up to a factor of two; it is not scaled.
+     * @param resolver The resolver to open the image with.
+     * @param uri The image.
+     * @param reqWidth The minimum width.
+     * @param reqHeight The minimum height.
+     * @param config The bitmap config, RGB_565 for display-only bitmaps.
+     * @return The bitmap, or null if the image could not be decoded.
+     * @throws IOException If the image could not be read.
+     */
+    public Bitmap decodeToFill(ContentResolver resolver, Uri uri, int reqWidth, int reqHeight, Bitmap.Config config)
+            throws IOException {
+        BitmapFactory.Options bounds = readBounds(resolver, uri);
+        if (bounds == null) return null;
+        int sampleSize = SampleSize.toFill(bounds.outWidth, bounds.outHeight, reqWidth, reqHeight);
+        return decode(resolver, uri, bounds, sampleSize, config);
+    }
+
+    /**
+     * Decodes an image and scales it so that its longer side is at most maxSide pixels.
+     * @param resolver The resolver to open the image with.
+     * @param uri The image.
+     * @param maxSide The maximum width or height.
+     * @param config The bitmap config, ARGB_8888 where colors matter.
+     * @return The bitmap, or null if the image could not be decoded.
+     * @throws IOException If the image could not be read.
+     */
+    public Bitmap decodeToFit(ContentResolver resolver, Uri uri, int maxSide, Bitmap.Config config) throws IOException {
+        Bitmap bitmap = decodeSampled(resolver, uri, maxSide, config);
+        return bitmap == null ? null : scaleToFit(bitmap, maxSide);
+    }
+
+    /**
+     * Decodes an image with the largest subsample that keeps its longer side at least maxSide pixels.
+     * This is the first half of decodeToFit, for callers that time decoding and scaling separately.
+     * @param resolver The resolver to open the image with.
+     * @param uri The image.
+     * @param maxSide The size the longer side will be scaled to.
+     * @param config The bitmap config.
+     * @return The bitmap, or null if the image could not be decoded.
+     * @throws IOException If the image could not be read.
+     */
+    public Bitmap decodeSampled(ContentResolver resolver, Uri uri, int maxSide, Bitmap.Config config) throws IOException {
+        BitmapFactory.Options bounds = readBounds(resolver, uri);
+        if (bounds == null) return null;
+        int sampleSize = SampleSize.toFit(bounds.outWidth, bounds.outHeight, maxSide);
+        return decode(resolver, uri, bounds, sampleSize, config);
+    }
+
+    /**
+     * Scales a bitmap down so that its longer side is at most maxSide pixels, releasing the original to the pool.
+     * @param bitmap The bitmap, which the caller must no longer use unless it is returned.
+     * @param maxSide The maximum width or height.
+     * @return The scaled bitmap, or the original if it already fits.
+     */
+    public Bitmap scaleToFit(Bitmap bitmap, int maxSide) {
+        float scale = ((float) maxSide) / Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (scale >= 1f) {
+            return bitmap;
+        }
+        int newWidth = Math.max(1, Math.round(bitmap.getWidth() * scale));
+        int newHeight = Math.max(1, Math.round(bitmap.getHeight() * scale));
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap, newWidth, newHeight, true);
+        release(bitmap);
+        return scaled;
+    }
+
+    /**
+     * Hands a bitmap back for reuse by later decodes. The caller must no longer use or display it.
+     * Immutable bitmaps cannot be decoded into and are recycled instead.
+     * @param bitmap The bitmap, or null.
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) return;
+        if (!bitmap.isMutable()) {
+            bitmap.recycle();
+            return;
+        }
+        pool.release(bitmap, bitmap.getConfig(), bitmap.getAllocationByteCount());
+    }
+
+    /**
+     * Recycles all pooled bitmaps, e.g. when the system is low on memory.
+     */
+    public void trimMemory() {
+        pool.clear();
+    }
+
+    /**
+     * Logs how often decodes could reuse a pooled bitmap.
+     */
+    public void logStats() {
+        Log.d(TAG, "Bitmap pool: " + pool.getHits() + " reused, " + pool.getMisses() + " allocated, "
+                + pool.getPooledBytes() / 1024 + " KB pooled");
+    }
+
+    private static BitmapFactory.Options readBounds(ContentResolver resolver, Uri uri) throws IOException {
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        try (InputStream inputStream = resolver.openInputStream(uri)) {
+            if (inputStream == null) return null;
+            BitmapFactory.decodeStream(inputStream, null, bounds);
+        }
+        return bounds.outWidth > 0 && bounds.outHeight > 0 ? bounds : null;
+    }
+
+    private Bitmap decode(ContentResolver resolver, Uri uri, BitmapFactory.Options bounds, int sampleSize,
+                          Bitmap.Config config) throws IOException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize;
+        options.inPreferredConfig = config;
+        options.inMutable = true; // Only mutable bitmaps can be decoded into later.
+        int bytesPerPixel = config == Bitmap.Config.RGB_565 ? 2 : 4;
+        int bytes = SampleSize.sampled(bounds.outWidth, sampleSize) * SampleSize.sampled(bounds.outHeight, sampleSize)
+                * bytesPerPixel;
+        // Keyed by config: BitmapFactory decodes into inBitmap's config and ignores inPreferredConfig, so a pooled
+        // RGB_565 preview must never become the buffer of an ARGB_8888 decode.
+        options.inBitmap = pool.acquire(config, bytes, MAX_POOL_WASTE);
+
+        try (InputStream inputStream = resolver.openInputStream(uri)) {
+            if (inputStream == null) return null;
+            return BitmapFactory.decodeStream(inputStream, null, options);
+        } catch (IllegalArgumentException e) {
+            // The decoder rejected the pooled buffer (e.g. a JPEG whose decoded size differs from its bounds).
+            Log.w(TAG, "Could not decode into a pooled bitmap, allocating a new one", e);
+            if (options.inBitmap != null) {
+                options.inBitmap.recycle();
+            }
+            options.inBitmap = null;
+            try (InputStream inputStream = resolver.openInputStream(uri)) {
+                if (inputStream == null) return null;
+                return BitmapFactory.decodeStream(inputStream, null, options);
+            }
+        }
+    }
+}
@@ -0,0 +1,418 @@
+package com.example.cubesolver;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.util.AttributeSet;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+import android.view.View;
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.model.NetLayout;
+import com.example.cubesolver.solver.SolutionTimeline;
+import com.example.cubesolver.solver.StickerMoves;
+
+/**
+ * CubeNetView draws the stickers of a cube, either the whole unfolded net or a single face, in one onDraw pass.
+ * It replaces a grid of one child View and one GradientDrawable per sticker: the stickers are kept as a byte array
+ * of color ordinals, every Paint is created once, and a redraw is a single onDraw of the whole view with no child
+ * views or drawables to measure, lay out or draw. A new cube state that changes no sticker does not redraw at all.
+ * Taps are hit-tested against the sticker cells and reported through an OnStickerClickListener.
+ * animateMove turns a face of the shown cube: the stickers are permuted with the precomputed StickerMoves tables
+ * and the turn is drawn over a few hundred milliseconds, one frame per Choreographer callback. The turning face
+ * rotates in place and the stickers of the adjacent rows slide from their old cells to their new ones.
+ */
+public class CubeNetView extends View {
+
+    /**
+     * Receives taps on stickers.
+     */
+    public interface OnStickerClickListener {
+        /**
+         * Called when a sticker was tapped.
+         * @param face The face index in URFDLB order.
+         * @param row The row of the sticker.
+         * @param col The column of the sticker.
+         */
+        void onStickerClick(int face, int row, int col);
+    }
+
+    private static final float DEFAULT_STICKER_DP = 24f; // Matches @dimen/sticker_size.
+    private static final float BORDER_DP = 1f;
+    private static final float HIGHLIGHT_DP = 4f;
+    private static final long TURN_NANOS = 300_000_000L; // Duration of an animated turn.
+
+    private final Paint[] fillPaints = new Paint[CubeColor.COUNT]; // One fill per CubeColor ordinal.
+    private final Paint borderPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint lightBorderPaint = new Paint(Paint.ANTI_ALIAS_FLAG); // Darker gray outline of white and yellow.
+    private final Paint highlightPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final RectF cell = new RectF(); // Reused by onDraw for every sticker.
+
+    private byte[] stickers = new byte[0]; // CubeColor ordinals in CubeState order.
+    private byte[] incoming = new byte[0]; // Scratch copy of a new state, compared against stickers.
+    private boolean[] outlined = new boolean[0]; // Stickers drawn with the highlight outline.
+    private int face = -1; // The single face shown, or -1 for the whole net.
+    private float stickerSize;
+    private float stickerSpacing; // Empty space around each sticker inside its cell.
+    private float faceGap;
+    private float cornerRadius;
+    private NetLayout layout;
+    private OnStickerClickListener listener;
+    private int pressedSticker = -1; // The sticker under the finger since ACTION_DOWN, or -1.
+
+    // Turn animation. stickers already holds the state after the move; the move's sources give the old cells.
+    private final Choreographer.FrameCallback frameCallback = this::onAnimationFrame;
+    private StickerMoves stickerMoves;
+    private int animatingMove = -1; // The move being drawn, or -1 when no turn is animating.
+    private long animationStartNanos; // Frame time of the first animation frame, or -1 before it.
+    private float animationProgress; // Eased progress of the turn, 0 to 1.
+
+    public CubeNetView(Context context) {
+        this(context, null);
+    }
+
+    public CubeNetView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = getResources().getDisplayMetrics().density;
+        for (CubeColor color : CubeColor.values()) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setStyle(Paint.Style.FILL);
+            paint.setColor(color.getArgb());
+            fillPaints[color.ordinal()] = paint;
+        }
+        borderPaint.setStyle(Paint.Style.STROKE);
+        borderPaint.setStrokeWidth(BORDER_DP * density);
+        borderPaint.setColor(Color.BLACK);
+        lightBorderPaint.set(borderPaint);
+        lightBorderPaint.setColor(Color.DKGRAY);
+        highlightPaint.setStyle(Paint.Style.STROKE);
+        highlightPaint.setStrokeWidth(HIGHLIGHT_DP * density);
+        highlightPaint.setColor(Color.RED);
+        stickerSize = DEFAULT_STICKER_DP * density;
+        faceGap = BORDER_DP * density;
+    }
+
+    /**
+     * Shows a cube state. The first state, or one of another size, lays the view out again; after that the view is
+     * only redrawn if a sticker's color changed.
+     * @param state The cube state.
+     */
+    public void setState(CubeState state) {
+        finishAnimation();
+        int count = state.getStickerCount();
+        if (layout == null || layout.getSize() != state.getSize()) {
+            stickers = new byte[count];
+            incoming = new byte[count];
+            outlined = new boolean[count];
+            state.copyStickers(stickers);
+            updateLayout(state.getSize());
+            return;
+        }
+        state.copyStickers(incoming);
+        showIncoming();
+    }
+
+    /**
+     * Jumps to a step of a solution timeline without animating, e.g. while the user drags a scrubber. The state is
+     * copied straight out of the timeline, and the view is only redrawn if a sticker differs from the shown ones.
+     * @param timeline The expanded solution; must have been shown with setState of its size before.
+     * @param step The step, 0 for the scanned cube.
+     */
+    public void showStep(SolutionTimeline timeline, int step) {
+        if (layout == null || layout.getSize() != timeline.getSize()) {
+            setState(timeline.getState(step));
+            return;
+        }
+        finishAnimation();
+        timeline.copyState(step, incoming);
+        showIncoming();
+    }
+
+    /**
+     * Takes over the stickers in incoming that differ from the shown ones, and redraws if there were any.
+     */
+    private void showIncoming() {
+        boolean changed = false;
+        for (int sticker = 0; sticker < stickers.length; sticker++) {
+            if (incoming[sticker] != stickers[sticker]) {
+                stickers[sticker] = incoming[sticker];
+                changed = true;
+            }
+        }
+        if (changed) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Turns one face of the shown cube and animates the turn. A turn that is still animating is finished first,
+     * so quick taps never fall behind. Allocates nothing; the stickers are permuted between two arrays.
+     * @param move The move index, 3 * face + (quarter turns - 1) with faces in URFDLB order.
+     */
+    public void animateMove(int move) {
+        if (layout == null) {
+            return;
+        }
+        finishAnimation();
+        stickerMoves = StickerMoves.forSize(layout.getSize());
+        byte[] before = stickers;
+        stickerMoves.apply(before, incoming, move);
+        stickers = incoming;
+        incoming = before;
+        animatingMove = move;
+        animationStartNanos = -1;
+        animationProgress = 0f;
+        Choreographer.getInstance().postFrameCallback(frameCallback);
+        invalidate();
+    }
+
+    /**
+     * Jumps to the end of a running turn animation.
+     */
+    public void finishAnimation() {
+        if (animatingMove >= 0) {
+            Choreographer.getInstance().removeFrameCallback(frameCallback);
+            animatingMove = -1;
+            invalidate();
+        }
+    }
+
+    private void onAnimationFrame(long frameTimeNanos) {
+        if (animatingMove < 0) {
+            return;
+        }
+        if (animationStartNanos < 0) {
+            animationStartNanos = frameTimeNanos;
+        }
+        float t = Math.min(1f, (frameTimeNanos - animationStartNanos) / (float) TURN_NANOS);
+        animationProgress = t * t * (3f - 2f * t); // Ease in and out.
+        if (t < 1f) {
+            Choreographer.getInstance().postFrameCallback(frameCallback);
+        } else {
+            animatingMove = -1;
+        }
+        invalidate();
+    }
+
+    /**
+     * Outlines some stickers in red, e.g. the ones implicated by a failed validation, and removes the outline
+     * of all others.
+     * @param outline Whether to outline each sticker, by its CubeState index, or null to clear all outlines.
+     */
+    public void setOutlined(boolean[] outline) {
+        boolean changed = false;
+        for (int sticker = 0; sticker < outlined.length; sticker++) {
+            boolean value = outline != null && sticker < outline.length && outline[sticker];
+            if (outlined[sticker] != value) {
+                outlined[sticker] = value;
+                changed = true;
+            }
+        }
+        if (changed) {
+            invalidate();
+        }
+    }
+
+    /**
+     * Shows a single face instead of the whole net.
+     * @param face The face index in URFDLB order, or -1 for the whole net.
+     */
+    public void setFace(int face) {
+        this.face = face;
+        updateLayout();
+    }
+
+    /**
+     * Sets the side of one sticker cell, including its spacing.
+     * @param px The size in pixels.
+     */
+    public void setStickerSize(float px) {
+        stickerSize = px;
+        updateLayout();
+    }
+
+    /**
+     * Sets the empty space left around each sticker inside its cell.
+     * @param px The spacing in pixels on each side.
+     */
+    public void setStickerSpacing(float px) {
+        stickerSpacing = px;
+        invalidate();
+    }
+
+    /**
+     * Sets the space between neighboring faces of the net.
+     * @param px The gap in pixels.
+     */
+    public void setFaceGap(float px) {
+        faceGap = px;
+        updateLayout();
+    }
+
+    /**
+     * Rounds the corners of the stickers.
+     * @param px The corner radius in pixels.
+     */
+    public void setCornerRadius(float px) {
+        cornerRadius = px;
+        invalidate();
+    }
+
+    public void setOnStickerClickListener(OnStickerClickListener listener) {
+        this.listener = listener;
+    }
+
+    private void updateLayout() {
+        if (layout != null) {
+            updateLayout(layout.getSize());
+        }
+    }
+
+    private void updateLayout(int size) {
+        layout = face < 0 ? NetLayout.net(size, stickerSize, faceGap) : NetLayout.singleFace(size, face, stickerSize);
+        requestLayout();
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = getPaddingLeft() + getPaddingRight();
+        int height = getPaddingTop() + getPaddingBottom();
+        if (layout != null) {
+            width += (int) Math.ceil(layout.getWidth());
+            height += (int) Math.ceil(layout.getHeight());
+        }
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        if (layout == null) {
+            return;
+        }
+        int stickersPerFace = layout.getSize() * layout.getSize();
+        int turningFace = animatingMove >= 0 ? StickerMoves.getFace(animatingMove) : -1;
+        for (int sticker = layout.getFirstSticker(); sticker < layout.getEndSticker(); sticker++) {
+            if (turningFace >= 0 && isSliding(sticker, turningFace, stickersPerFace)) {
+                continue; // Drawn on top, below.
+            }
+            if (sticker / stickersPerFace != turningFace) {
+                drawSticker(canvas, sticker, getPaddingLeft() + layout.getLeft(sticker),
+                        getPaddingTop() + layout.getTop(sticker));
+            }
+        }
+        if (turningFace < 0) {
+            return;
+        }
+
+        // The turning face shows its new colors, rotated back by the part of the turn still to come.
+        int first = turningFace * stickersPerFace;
+        if (layout.contains(first)) {
+            int quarterTurns = StickerMoves.getQuarterTurns(animatingMove);
+            float degrees = quarterTurns == 3 ? -90f : 90f * quarterTurns;
+            float half = layout.getSize() * layout.getCellSize() / 2;
+            float centerX = getPaddingLeft() + layout.getLeft(first) + half;
+            float centerY = getPaddingTop() + layout.getTop(first) + half;
+            canvas.save();
+            canvas.rotate(-degrees * (1f - animationProgress), centerX, centerY);
+            for (int sticker = first; sticker < first + stickersPerFace; sticker++) {
+                drawSticker(canvas, sticker, getPaddingLeft() + layout.getLeft(sticker),
+                        getPaddingTop() + layout.getTop(sticker));
+            }
+            canvas.restore();
+        }
+
+        // The stickers next to the face slide from the cell they came from to their new cell.
+        for (int sticker = layout.getFirstSticker(); sticker < layout.getEndSticker(); sticker++) {
+            if (isSliding(sticker, turningFace, stickersPerFace)) {
+                int source = stickerMoves.getSource(animatingMove, sticker);
+                float left = lerp(layout.getLeft(source), layout.getLeft(sticker), animationProgress);
+                float top = lerp(layout.getTop(source), layout.getTop(sticker), animationProgress);
+                drawSticker(canvas, sticker, getPaddingLeft() + left, getPaddingTop() + top);
+            }
+        }
+    }
+
+    /**
+     * Returns whether a sticker slides in from another face during the current turn.
+     */
+    private boolean isSliding(int sticker, int turningFace, int stickersPerFace) {
+        int source = stickerMoves.getSource(animatingMove, sticker);
+        return source != sticker && sticker / stickersPerFace != turningFace && layout.contains(source);
+    }
+
+    private static float lerp(float from, float to, float t) {
+        return from + (to - from) * t;
+    }
+
+    /**
+     * Draws one sticker with its outline.
+     * @param left The left edge of the sticker's cell in view coordinates.
+     * @param top The top edge of the sticker's cell in view coordinates.
+     */
+    private void drawSticker(Canvas canvas, int sticker, float left, float top) {
+        int color = stickers[sticker];
+        float cellSize = layout.getCellSize();
+        cell.set(left + stickerSpacing, top + stickerSpacing,
+                left + cellSize - stickerSpacing, top + cellSize - stickerSpacing);
+        canvas.drawRoundRect(cell, cornerRadius, cornerRadius, fillPaints[color]);
+
+        Paint outline;
+        if (outlined[sticker]) {
+            outline = highlightPaint;
+        } else {
+            outline = color == CubeColor.WHITE.ordinal() || color == CubeColor.YELLOW.ordinal()
+                    ? lightBorderPaint : borderPaint;
+        }
+        // Strokes are centered on the rectangle; move them inside so neighbors do not overdraw each other.
+        float inset = outline.getStrokeWidth() / 2;
+        cell.inset(inset, inset);
+        canvas.drawRoundRect(cell, cornerRadius, cornerRadius, outline);
+    }
+
+    @Override
+    protected void onDetachedFromWindow() {
+        finishAnimation();
+        super.onDetachedFromWindow();
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (layout == null || listener == null || !isEnabled()) {
+            return super.onTouchEvent(event);
+        }
+        int sticker = layout.stickerAt(event.getX() - getPaddingLeft(), event.getY() - getPaddingTop());
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                pressedSticker = sticker;
+                return sticker >= 0; // Let taps on the gaps reach the parent.
+            case MotionEvent.ACTION_MOVE:
+                if (sticker != pressedSticker) {
+                    pressedSticker = -1;
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (sticker >= 0 && sticker == pressedSticker) {
+                    performClick();
+                    int size = layout.getSize();
+                    listener.onStickerClick(sticker / (size * size), sticker / size % size, sticker % size);
+                }
+                pressedSticker = -1;
+                return true;
+            case MotionEvent.ACTION_CANCEL:
+                pressedSticker = -1;
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    @Override
+    public boolean performClick() {
+        return super.performClick(); // Announces the tap to accessibility services.
+    }
+}
@@ -10,6 +10,8 @@ import android.os.ParcelFileDescriptor;
 import android.provider.MediaStore;
 import android.util.Log;
 import androidx.core.content.FileProvider;
+import com.example.cubesolver.pipeline.StageTimings;
+import com.example.cubesolver.vision.FaceImage;
 import org.apache.commons.codec.binary.Base64;
 import org.apache.commons.io.IOUtils;
 import java.io.ByteArrayOutputStream;
@@ -25,14 +27,23 @@ import java.util.List;
 /**
  * ImageUtils is a helper class that provides utility methods for handling all image-related operations in the app.
  * This includes creating temporary image files, compressing images to reduce their size,
- * saving images from the gallery, converting images to Base64 for API transmission,
+ * saving images from the gallery, decoding small pixel copies for local color detection,
+ * converting images to Base64 for API transmission,
  * and cleaning up unused temporary files.
  * Encapsulating this logic in a separate class makes the Activities cleaner and more focused on UI and state management.
  */
 public class ImageUtils {
 
     private static final String TAG = "ImageUtils";
+    // JPEGs larger than this (500,000 characters in Base64) are compressed a second time.
+    private static final int MAX_JPEG_BYTES = 375000;
+    // Longest side of the copy kept of each photo; the largest later use is a preview on screen.
+    private static final int MAX_SAVED_IMAGE_SIZE = 1024;
+    // Longest side of the images sent to the Gemini API.
+    private static final int UPLOAD_IMAGE_SIZE = 300;
     private Context context;
+    // Shared decoder that subsamples while decoding and reuses bitmap buffers.
+    private final BitmapDecoder decoder = BitmapDecoder.getInstance();
 
     /**
      * Constructor for ImageUtils.
@@ -67,27 +78,21 @@ public class ImageUtils {
     /**
      * Compresses an image by resizing it and reducing its quality.
      * This is crucial for reducing the size of the images before sending them to the API.
+     * The image is subsampled while decoding, so a full-resolution camera photo is never held in memory.
      * @param imageUri The URI of the image to be compressed.
      */
     public void compressAndSaveImage(Uri imageUri) {
         try {
-            InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-            if (inputStream == null) return;
-            Bitmap originalBitmap = BitmapFactory.decodeStream(inputStream);
-            inputStream.close();
-
-            if (originalBitmap == null) return;
-
-            // Resize the bitmap to half its original dimensions.
-            int width = originalBitmap.getWidth() / 2;
-            int height = originalBitmap.getHeight() / 2;
-            width = Math.max(1, width);
-            height = Math.max(1, height);
-            Bitmap resizedBitmap = Bitmap.createScaledBitmap(originalBitmap, width, height, true);
+            // Every later use of the photo needs far fewer pixels than the camera delivers.
+            Bitmap resizedBitmap = decoder.decodeToFit(context.getContentResolver(), imageUri, MAX_SAVED_IMAGE_SIZE,
+                    Bitmap.Config.ARGB_8888);
+            if (resizedBitmap == null) return;
 
             // Compress the resized bitmap to a JPEG with 40% quality.
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             resizedBitmap.compress(Bitmap.CompressFormat.JPEG, 40, outputStream);
+            // Hand the bitmap back for the next decode instead of leaving it to the garbage collector.
+            decoder.release(resizedBitmap);
 
             // Write the compressed data back to the original file URI.
             ParcelFileDescriptor pfd = context.getContentResolver().openFileDescriptor(imageUri, "w");
@@ -98,10 +103,6 @@ public class ImageUtils {
                 pfd.close();
             }
 
-            // Recycle bitmaps to free up memory immediately.
-            originalBitmap.recycle();
-            resizedBitmap.recycle();
-
         } catch (Exception e) {
             Log.e(TAG, "Error compressing image: " + e.getMessage(), e);
         }
@@ -172,52 +173,81 @@ public class ImageUtils {
         }
     }
 
+    /**
+     * Decodes a small copy of an image for the on-device sticker classifier.
+     * The image is subsampled while decoding and then scaled so its longer side is at most maxSize pixels,
+     * which is plenty for averaging the stickers of one face.
+     * @param imageUri The URI of the face image.
+     * @param maxSize The maximum width or height of the decoded pixels.
+     * @return The pixels of the image, or null if it could not be decoded.
+     */
+    public FaceImage decodeFaceImage(Uri imageUri, int maxSize) {
+        try {
+            // ARGB_8888: the classifier needs the full color precision.
+            Bitmap bitmap = decoder.decodeToFit(context.getContentResolver(), imageUri, maxSize, Bitmap.Config.ARGB_8888);
+            if (bitmap == null) return null;
+
+            int width = bitmap.getWidth();
+            int height = bitmap.getHeight();
+            int[] pixels = new int[width * height];
+            bitmap.getPixels(pixels, 0, width, 0, 0, width, height);
+            decoder.release(bitmap);
+            return new FaceImage(pixels, width, height);
+        } catch (Exception e) {
+            Log.e(TAG, "Error decoding face image for classification", e);
+            return null;
+        }
+    }
+
     /**
      * Converts an image to a Base64 encoded string with aggressive compression.
-     * This is used to prepare images for the combined API call where multiple images are sent at once.
      * @param imageUri The URI of the image to convert.
-     * @return The Base64 encoded string representation of the image.
+     * @return The Base64 encoded string representation of the image, or null if it could not be converted.
      */
     public String imageToBase64WithEnhancedCompression(Uri imageUri) {
-        try {
-            InputStream inputStream = context.getContentResolver().openInputStream(imageUri);
-            if (inputStream == null) return null;
+        byte[] imageBytes = imageToJpegWithEnhancedCompression(imageUri, new StageTimings());
+        return imageBytes == null ? null : new String(Base64.encodeBase64(imageBytes));
+    }
 
-            // Decode the bitmap with a reduced sample size to save memory.
-            BitmapFactory.Options options = new BitmapFactory.Options();
-            options.inSampleSize = 4;
-            Bitmap bitmap = BitmapFactory.decodeStream(inputStream, null, options);
-            inputStream.close();
+    /**
+     * Converts an image to small JPEG bytes with aggressive compression, recording how long each stage took.
+     * This is used to prepare images for the combined API call where multiple images are sent at once;
+     * the request writer Base64-encodes them while streaming the request body.
+     * Safe to call for several images at once from different threads.
+     * @param imageUri The URI of the image to convert.
+     * @param timings Receives the "decode", "scale" and "encode" stages (and "recompress" if needed).
+     * @return The JPEG bytes, or null if the image could not be converted.
+     */
+    public byte[] imageToJpegWithEnhancedCompression(Uri imageUri, StageTimings timings) {
+        try {
+            // Decode with a sample size chosen from the image bounds to save memory.
+            Bitmap bitmap = decoder.decodeSampled(context.getContentResolver(), imageUri, UPLOAD_IMAGE_SIZE,
+                    Bitmap.Config.ARGB_8888);
+            timings.mark("decode");
 
             if (bitmap == null) return null;
 
             // Resize the bitmap to a maximum size of 300x300.
-            int maxSize = 300;
-            float scale = Math.min(((float) maxSize) / bitmap.getWidth(), ((float) maxSize) / bitmap.getHeight());
-            int newWidth = Math.round(bitmap.getWidth() * scale);
-            int newHeight = Math.round(bitmap.getHeight() * scale);
-            newWidth = Math.max(1, newWidth);
-            newHeight = Math.max(1, newHeight);
-            Bitmap resizedBitmap = Bitmap.createScaledBitmap(bitmap, newWidth, newHeight, true);
-            bitmap.recycle();
+            Bitmap resizedBitmap = decoder.scaleToFit(bitmap, UPLOAD_IMAGE_SIZE);
+            timings.mark("scale");
 
             // Compress to JPEG with 80% quality.
             ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
             resizedBitmap.compress(Bitmap.CompressFormat.JPEG, 80, outputStream);
-            resizedBitmap.recycle();
-
-            // Encode the byte array to a Base64 string.
+            decoder.release(resizedBitmap);
             byte[] imageBytes = outputStream.toByteArray();
-            String base64String = new String(Base64.encodeBase64(imageBytes));
+            timings.mark("encode");
 
-            // If the string is still too large, apply even more compression.
-            if (base64String.length() > 500000) {
-                return compressBase64Further(imageBytes);
+            // If the image is still too large (over 500,000 Base64 characters), apply even more compression.
+            if (imageBytes.length > MAX_JPEG_BYTES) {
+                byte[] smaller = compressFurther(imageBytes);
+                timings.mark("recompress");
+                return smaller;
             }
 
-            return base64String;
+            return imageBytes;
         } catch (Exception e) {
-            Log.e(TAG, "Error converting image to base64 with enhanced compression", e);
+            Log.e(TAG, "Error converting image to JPEG with enhanced compression", e);
             return null;
         }
     }
@@ -225,9 +255,9 @@ public class ImageUtils {
     /**
      * Applies a second, more aggressive round of compression if the initial compression was not sufficient.
      * @param imageBytes The byte array of the already compressed image.
-     * @return A new, even smaller Base64 encoded string.
+     * @return The bytes of a new, even smaller JPEG.
      */
-    private String compressBase64Further(byte[] imageBytes) {
+    private byte[] compressFurther(byte[] imageBytes) {
         try {
             Bitmap bitmap = BitmapFactory.decodeByteArray(imageBytes, 0, imageBytes.length);
             if (bitmap == null) return null;
@@ -247,8 +277,7 @@ public class ImageUtils {
             resizedBitmap.compress(Bitmap.CompressFormat.JPEG, 40, outputStream);
             resizedBitmap.recycle();
 
-            byte[] compressedBytes = outputStream.toByteArray();
-            return new String(Base64.encodeBase64(compressedBytes));
+            return outputStream.toByteArray();
         } catch (Exception e) {
             Log.e(TAG, "Error applying further compression", e);
             return null;
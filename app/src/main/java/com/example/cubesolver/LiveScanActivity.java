@@ -0,0 +1,270 @@
+package com.example.cubesolver;
+
+import android.Manifest;
+import android.content.Intent;
+import android.content.pm.PackageManager;
+import android.os.Bundle;
+import android.util.Log;
+import android.util.Size;
+import android.widget.Button;
+import android.widget.TextView;
+import android.widget.Toast;
+import androidx.activity.EdgeToEdge;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+import androidx.camera.core.Preview;
+import androidx.camera.core.resolutionselector.AspectRatioStrategy;
+import androidx.camera.core.resolutionselector.ResolutionSelector;
+import androidx.camera.core.resolutionselector.ResolutionStrategy;
+import androidx.camera.lifecycle.ProcessCameraProvider;
+import androidx.camera.view.PreviewView;
+import androidx.core.app.ActivityCompat;
+import androidx.core.content.ContextCompat;
+import androidx.core.graphics.Insets;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.session.CubeSession;
+import com.example.cubesolver.session.SessionStore;
+import com.example.cubesolver.vision.LiveFaceScanner;
+import com.example.cubesolver.vision.StickerClassifier;
+import com.example.cubesolver.vision.YuvFrame;
+import com.google.common.util.concurrent.ListenableFuture;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * LiveScanActivity scans the cube from the camera preview instead of six photos. CameraX delivers YUV_420_888
+ * frames to an ImageAnalysis use case; each frame's planes are copied into byte arrays that are reused from frame
+ * to frame and analyzed by LiveFaceScanner, which captures a face on its own once the picture holds still. Only
+ * the latest frame is kept, so a slow frame is dropped rather than queued. When all six faces are in, the colors
+ * are classified together, like the photos in MainActivity, and the cube is handed to SolutionActivity.
+ */
+public class LiveScanActivity extends AppCompatActivity {
+
+    private static final int REQUEST_CAMERA_PERMISSION = 1;
+    // Analysis resolution; the scanner reads a few hundred pixels per frame, so more would only cost copying.
+    private static final Size ANALYSIS_SIZE = new Size(640, 480);
+
+    // UI elements
+    private PreviewView previewView;
+    private ScanGuideView guideView;
+    private TextView statusText;
+    private Button sizeButton;
+    private int cubeSize = 3; // The size chosen with sizeButton; read on the UI thread only.
+
+    // Single thread that runs the frame analysis; everything below is only touched on it.
+    private final ExecutorService analysisExecutor = Executors.newSingleThreadExecutor();
+    private LiveFaceScanner scanner = new LiveFaceScanner(3);
+    private final StickerClassifier classifier = new StickerClassifier(); // Classifies the six faces of each scan.
+    private final YuvFrame frame = new YuvFrame();
+    private byte[] yPlane = new byte[0]; // Plane copies, grown only when the frame size changes.
+    private byte[] uPlane = new byte[0];
+    private byte[] vPlane = new byte[0];
+    private final int[] labels = new int[9]; // Detected colors of the current frame, handed to guideView.
+    private LiveFaceScanner.Status shownStatus; // The status in statusText, so it is only updated on a change.
+    private int shownCaptureCount = -1;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        EdgeToEdge.enable(this);
+        setContentView(R.layout.activity_live_scan);
+        ViewCompat.setOnApplyWindowInsetsListener(findViewById(R.id.main), (v, insets) -> {
+            Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
+            v.setPadding(systemBars.left, systemBars.top, systemBars.right, systemBars.bottom);
+            return insets;
+        });
+
+        previewView = findViewById(R.id.previewView);
+        previewView.setScaleType(PreviewView.ScaleType.FIT_CENTER); // Keeps the guide square over the sampled pixels.
+        guideView = findViewById(R.id.scanGuideView);
+        statusText = findViewById(R.id.scanStatusText);
+
+        sizeButton = findViewById(R.id.scanSizeButton);
+        sizeButton.setOnClickListener(v -> {
+            cubeSize = cubeSize == 3 ? 2 : 3;
+            sizeButton.setText(cubeSize + "x" + cubeSize);
+            int size = cubeSize;
+            analysisExecutor.execute(() -> {
+                scanner = new LiveFaceScanner(size);
+                shownStatus = null;
+            });
+        });
+        Button undoButton = findViewById(R.id.scanUndoButton);
+        undoButton.setOnClickListener(v -> analysisExecutor.execute(() -> {
+            scanner.undoCapture();
+            shownStatus = null;
+        }));
+
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA) == PackageManager.PERMISSION_GRANTED) {
+            startCamera();
+        } else {
+            ActivityCompat.requestPermissions(this, new String[]{Manifest.permission.CAMERA}, REQUEST_CAMERA_PERMISSION);
+        }
+    }
+
+    @Override
+    public void onRequestPermissionsResult(int requestCode, String[] permissions, int[] grantResults) {
+        super.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        if (requestCode == REQUEST_CAMERA_PERMISSION) {
+            if (grantResults.length > 0 && grantResults[0] == PackageManager.PERMISSION_GRANTED) {
+                startCamera();
+            } else {
+                Toast.makeText(this, "Camera permission is required to scan the cube", Toast.LENGTH_SHORT).show();
+                finish();
+            }
+        }
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // CameraX unbinds the use cases with the lifecycle; the analyzer thread can go.
+        analysisExecutor.shutdown();
+    }
+
+    /**
+     * Binds the preview and the frame analysis to the back camera. Both use a 4:3 aspect ratio, so the analyzed
+     * frames show what the preview shows.
+     */
+    private void startCamera() {
+        ListenableFuture<ProcessCameraProvider> providerFuture = ProcessCameraProvider.getInstance(this);
+        providerFuture.addListener(() -> {
+            ProcessCameraProvider cameraProvider;
+            try {
+                cameraProvider = providerFuture.get();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e("CubeSolver", "Camera not available", e);
+                Toast.makeText(this, "Camera not available", Toast.LENGTH_SHORT).show();
+                finish();
+                return;
+            }
+            ResolutionSelector previewSelector = new ResolutionSelector.Builder()
+                    .setAspectRatioStrategy(AspectRatioStrategy.RATIO_4_3_FALLBACK_AUTO_STRATEGY)
+                    .build();
+            ResolutionSelector analysisSelector = new ResolutionSelector.Builder()
+                    .setAspectRatioStrategy(AspectRatioStrategy.RATIO_4_3_FALLBACK_AUTO_STRATEGY)
+                    .setResolutionStrategy(new ResolutionStrategy(ANALYSIS_SIZE,
+                            ResolutionStrategy.FALLBACK_RULE_CLOSEST_HIGHER_THEN_LOWER))
+                    .build();
+
+            Preview preview = new Preview.Builder().setResolutionSelector(previewSelector).build();
+            preview.setSurfaceProvider(previewView.getSurfaceProvider());
+            ImageAnalysis analysis = new ImageAnalysis.Builder()
+                    .setResolutionSelector(analysisSelector)
+                    .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                    .setOutputImageFormat(ImageAnalysis.OUTPUT_IMAGE_FORMAT_YUV_420_888)
+                    .build();
+            analysis.setAnalyzer(analysisExecutor, this::analyzeFrame);
+
+            cameraProvider.unbindAll();
+            cameraProvider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA, preview, analysis);
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    /**
+     * Analyzes one camera frame on the analysis thread.
+     * @param image The frame; closed here so CameraX can deliver the next one.
+     */
+    private void analyzeFrame(ImageProxy image) {
+        try {
+            ImageProxy.PlaneProxy[] planes = image.getPlanes();
+            yPlane = copyPlane(planes[0].getBuffer(), yPlane);
+            uPlane = copyPlane(planes[1].getBuffer(), uPlane);
+            vPlane = copyPlane(planes[2].getBuffer(), vPlane);
+            frame.set(yPlane, planes[0].getRowStride(), uPlane, 0, vPlane, 0,
+                    planes[1].getRowStride(), planes[1].getPixelStride(), image.getWidth(), image.getHeight());
+            int rotation = image.getImageInfo().getRotationDegrees();
+            LiveFaceScanner.Status status = scanner.analyze(frame, rotation);
+
+            int size = scanner.getSize();
+            boolean faceInView = status != LiveFaceScanner.Status.NO_FACE && status != LiveFaceScanner.Status.COMPLETE;
+            if (faceInView) {
+                for (int cell = 0; cell < size * size; cell++) {
+                    labels[cell] = scanner.getLabel(cell);
+                }
+            }
+            boolean sideways = rotation == 90 || rotation == 270;
+            guideView.update(size, scanner.getGuideFraction(), faceInView ? labels : null, scanner.getSteadyProgress(),
+                    sideways ? image.getHeight() : image.getWidth(), sideways ? image.getWidth() : image.getHeight());
+
+            int captureCount = scanner.getCaptureCount();
+            if (status == LiveFaceScanner.Status.CAPTURED && captureCount == CubeState.FACE_COUNT) {
+                float[] lab = new float[captureCount * size * size * 3];
+                scanner.copyCapturedLab(lab);
+                runOnUiThread(() -> finishScan(lab, size));
+            } else if (status != shownStatus || captureCount != shownCaptureCount) {
+                shownStatus = status;
+                shownCaptureCount = captureCount;
+                runOnUiThread(() -> showStatus(status, captureCount));
+            }
+        } catch (IllegalArgumentException e) {
+            Log.e("CubeSolver", "Unexpected camera frame layout", e);
+        } finally {
+            image.close();
+        }
+    }
+
+    /**
+     * Copies a camera plane into a reusable array.
+     * @param buffer The plane.
+     * @param reuse The array of the previous frame.
+     * @return reuse, or a larger array if the plane does not fit into it.
+     */
+    private static byte[] copyPlane(ByteBuffer buffer, byte[] reuse) {
+        buffer.rewind();
+        int length = buffer.remaining();
+        byte[] out = reuse.length >= length ? reuse : new byte[length];
+        buffer.get(out, 0, length);
+        return out;
+    }
+
+    /**
+     * Tells the user what to do next.
+     */
+    private void showStatus(LiveFaceScanner.Status status, int captureCount) {
+        int face = Math.min(captureCount + 1, CubeState.FACE_COUNT);
+        switch (status) {
+            case NO_FACE:
+                statusText.setText("Fit face " + face + " of 6 into the square");
+                break;
+            case STEADYING:
+                statusText.setText("Hold still… (face " + face + " of 6)");
+                break;
+            case ALREADY_CAPTURED:
+                statusText.setText("Already scanned. Turn the cube to face " + face + " of 6");
+                break;
+            case CAPTURED:
+                statusText.setText("Face " + captureCount + " scanned. Turn the cube to face " + face + " of 6");
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Classifies the six scanned faces at once, starts a new session with them and opens the SolutionActivity,
+     * where the user can check and correct the colors.
+     * @param lab The Lab samples of all stickers, in face order.
+     * @param size The cube size.
+     */
+    private void finishScan(float[] lab, int size) {
+        StickerClassifier.Result result = classifier.classify(lab, size);
+        CubeState state = result.getState();
+        Log.d("CubeSolver", "Live scan classified, " + result.getAmbiguousStickers() + " ambiguous stickers");
+        ArrayList<String> matrices = new ArrayList<>(CubeState.FACE_COUNT);
+        for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+            matrices.add(state.toMatrixString(face));
+        }
+        SessionStore.getInstance(getFilesDir()).put(CubeSession.fromScan(size, matrices, new ArrayList<>())
+                .withConfidences(result.getConfidences()));
+        startActivity(new Intent(this, SolutionActivity.class));
+        finish();
+    }
+}
@@ -17,6 +17,7 @@ import java.io.File;
 import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import android.Manifest;
@@ -25,9 +26,11 @@ import androidx.core.app.ActivityCompat;
 import androidx.core.content.ContextCompat;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.drawable.BitmapDrawable;
 import android.widget.ImageView;
 import android.view.View;
 import java.io.InputStream;
+import java.io.InterruptedIOException;
 import java.io.ByteArrayOutputStream;
 import java.io.FileOutputStream;
 import android.os.ParcelFileDescriptor;
@@ -35,25 +38,38 @@ import android.util.Log;
 import android.database.Cursor;
 import androidx.documentfile.provider.DocumentFile;
 import android.widget.ProgressBar;
-import org.json.JSONArray;
-import org.json.JSONObject;
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.codec.binary.Base64;
 import android.graphics.Color;
 import java.util.regex.Matcher;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.net.ApiClient;
+import com.example.cubesolver.net.GeminiRequestWriter;
+import com.example.cubesolver.net.GeminiResponseParser;
+import com.example.cubesolver.net.GeminiStreamReader;
+import com.example.cubesolver.pipeline.FaceTaskRunner;
+import com.example.cubesolver.pipeline.StageTimings;
+import com.example.cubesolver.session.CubeSession;
+import com.example.cubesolver.session.SessionStore;
+import com.example.cubesolver.solver.SolverTables;
+import com.example.cubesolver.solver.TableFile;
+import com.example.cubesolver.vision.FaceImage;
+import com.example.cubesolver.vision.PhotoQualityChecker;
+import com.example.cubesolver.vision.StickerClassifier;
 
 /**
  * MainActivity is the main entry point of the application.
  * It handles the user interaction for capturing or selecting 6 images of a Rubik's cube,
- * displaying them, and then sending them to an external API (Gemini) for analysis.
+ * displaying them, and then detecting the sticker colors on-device (falling back to the Gemini API when the
+ * local result is uncertain).
  * The result of the analysis (the color matrices of each face) is then passed to the SolutionActivity.
  */
 public class MainActivity extends AppCompatActivity {
@@ -65,6 +81,21 @@ public class MainActivity extends AppCompatActivity {
 
     // API Key for the Gemini API. IMPORTANT: This should be stored securely, not hardcoded.
     private static final String GEMINI_API_KEY = ""; // Replace with your actual API key
+    // The Gemini model; a GET of it returns its short description, which makes a cheap warm-up request.
+    private static final String GEMINI_MODEL_URL = "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash";
+    // Gzip the Gemini request body: it is mostly Base64 text, which gzip shrinks by about a quarter. Off until the
+    // endpoint is confirmed to accept Content-Encoding: gzip request bodies.
+    private static final boolean GZIP_GEMINI_REQUEST = false;
+    // Stream the Gemini answer, so the SolutionActivity opens with the first face while the others are generated;
+    // false waits for the whole answer.
+    private static final boolean STREAM_GEMINI_RESPONSE = true;
+    // Once this many photos are in, the connection to Gemini and the solver tables are warmed up in the background.
+    private static final int WARM_UP_PHOTO_COUNT = 5;
+
+    // Longest side of the pixel copy each face is decoded to for the on-device color classifier.
+    private static final int CLASSIFIER_IMAGE_SIZE = 256;
+    // Above this many ambiguous stickers the local result is double-checked with Gemini, if a key is configured.
+    private static final int MAX_AMBIGUOUS_STICKERS = 4;
 
     // List to store the URIs of the captured or selected images.
     private List<Uri> imageUris = new ArrayList<>();
@@ -78,9 +109,27 @@ public class MainActivity extends AppCompatActivity {
 
     // ExecutorService to run network operations on a background thread.
     private ExecutorService executorService = Executors.newSingleThreadExecutor();
+    // Bounded pool, one thread per core, that prepares the 6 face images in parallel.
+    private final FaceTaskRunner faceTaskRunner = new FaceTaskRunner();
+    // Shared HTTP client, which keeps the connection to Gemini open between requests.
+    private final ApiClient apiClient = ApiClient.getInstance();
+    // Runs the warm-up, so it never holds up the analysis on executorService.
+    private final ExecutorService warmUpExecutor = Executors.newSingleThreadExecutor();
+    private boolean warmUpStarted; // The warm-up runs once per activity.
+    // Decodes and checks each new photo off the main thread; the dialog or the next photo follows on the main thread.
+    private final ExecutorService photoCheckExecutor = Executors.newSingleThreadExecutor();
+    // The classifier copy of each checked photo, by URI, so the analysis does not decode it again.
+    private final Map<Uri, FaceImage> checkedFaces = new ConcurrentHashMap<>();
 
     // Instance of the ImageUtils helper class for image-related operations.
     private ImageUtils imageUtils;
+    // Shared decoder for the photo previews, which recycles bitmap buffers between decodes.
+    private final BitmapDecoder bitmapDecoder = BitmapDecoder.getInstance();
+    // Rejects blurred, dark or washed-out photos right after they are taken.
+    private final PhotoQualityChecker photoQualityChecker = new PhotoQualityChecker();
+    // Detects the sticker colors on-device. Kept for the activity, so its face localization buffers are reused;
+    // only used by processCubeImages, which runs one scan at a time.
+    private final StickerClassifier stickerClassifier = new StickerClassifier();
 
     // Variables to manage the user's choice of photo source (camera or gallery).
     private int photoSourceChoice = SOURCE_NONE;
@@ -199,6 +248,10 @@ public class MainActivity extends AppCompatActivity {
                 }
             }
         });
+
+        // The "Live Scan" button scans the faces from the camera preview instead; it asks for the camera itself.
+        Button liveScanButton = findViewById(R.id.liveScanButton);
+        liveScanButton.setOnClickListener(v -> startActivity(new Intent(this, LiveScanActivity.class)));
     }
 
     /**
@@ -373,6 +426,27 @@ public class MainActivity extends AppCompatActivity {
         // This method's logic has been integrated into openGallery and retakePhoto.
     }
 
+    /**
+     * Called when the activity is destroyed. Stops the face preprocessing threads.
+     */
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        faceTaskRunner.close();
+        warmUpExecutor.shutdown();
+        photoCheckExecutor.shutdownNow();
+    }
+
+    /**
+     * Called when the system is short of memory. Drops the pooled bitmaps, which can always be allocated again.
+     * @param level The memory trim level.
+     */
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        bitmapDecoder.trimMemory();
+    }
+
     /**
      * Called when an activity you launched exits, giving you the requestCode you started it with, the resultCode it returned, and any additional data from it.
      * @param requestCode The integer request code originally supplied to startActivityForResult(), allowing you to identify who this result came from.
@@ -397,36 +471,31 @@ public class MainActivity extends AppCompatActivity {
                     }
                                         
                     imageUtils.compressAndSaveImage(currentPhotoUri); 
-                    displayPhoto(photoCount); 
 
                     boolean wasThisARetake = this.isRetakeCameraFlow;
                     if (this.isRetakeCameraFlow) {
                         this.isRetakeCameraFlow = false; // Reset the flag after use.
                     }
 
-                    if (wasThisARetake) {
-                        if (imageUris.size() >= 6) {
-                            showAllPhotosComplete();
-                        } else {
-                            Toast.makeText(this, getFaceInstruction(photoCount) + " retaken.", Toast.LENGTH_SHORT).show();
-                        }
-                    } else { // New photo capture
-                        // Auto-advance to the next photo if using the camera for the initial sequence.
-                        if (imageUris.size() < 6) { 
-                            photoCount = imageUris.size();
-                            if (photoCount < 6) {
-                                if (photoSourceChoice == SOURCE_CAMERA) {
-                                    dispatchTakePictureIntent(); 
-                                } else {
-                                     Toast.makeText(this, "Select or take " + (6 - imageUris.size()) + " more photos.", Toast.LENGTH_LONG).show();
-                                }
-                            } else { 
-                                showAllPhotosComplete();
-                            }
-                        } else { 
-                            showAllPhotosComplete();
+                    // Catch a blurred, dark or washed-out face now, while the cube is still in hand.
+                    int index = photoCount;
+                    checkPhotoQuality(currentPhotoUri, problem -> {
+                        if (problem != PhotoQualityChecker.Problem.NONE) {
+                            offerRetake(index, problem,
+                                    () -> {
+                                        if (wasThisARetake) {
+                                            this.isRetakeCameraFlow = true;
+                                        } else {
+                                            imageUris.remove(index); // A new URI is added for the next attempt.
+                                        }
+                                        photoCount = index;
+                                        dispatchTakePictureIntent();
+                                    },
+                                    () -> acceptCameraPhoto(wasThisARetake));
+                            return;
                         }
-                    }
+                        acceptCameraPhoto(wasThisARetake);
+                    });
 
                 } else if (requestCode == REQUEST_GALLERY_IMAGE && data != null) { // Result from Gallery
                     Uri selectedImageUri = data.getData();
@@ -434,28 +503,14 @@ public class MainActivity extends AppCompatActivity {
                         Uri savedUri = imageUtils.saveGalleryImage(selectedImageUri);
                         
                         if (savedUri != null) {
-                            boolean isAddingNew = (photoCount == imageUris.size() && imageUris.size() < 6);
-                            
-                            if (isAddingNew) {
-                                imageUris.add(savedUri);
-                                Toast.makeText(this, getFaceInstruction(photoCount) + " added from gallery.", Toast.LENGTH_SHORT).show();
-                            } else { // Replacing an existing photo
-                                if (photoCount < imageUris.size()) {
-                                    imageUris.set(photoCount, savedUri);
-                                    Toast.makeText(this, getFaceInstruction(photoCount) + " replaced from gallery.", Toast.LENGTH_SHORT).show();
-                                } else {
-                                     imageUris.add(savedUri);
+                            checkPhotoQuality(savedUri, problem -> {
+                                if (problem != PhotoQualityChecker.Problem.NONE) {
+                                    // Nothing has been replaced yet: a retake just picks again for the same face.
+                                    offerRetake(photoCount, problem, this::openGallery, () -> acceptGalleryPhoto(savedUri));
+                                    return;
                                 }
-                            }
-                            
-                            displayPhoto(photoCount);
-                            
-                            if (imageUris.size() >= 6) {
-                                showAllPhotosComplete();
-                            } else if (isAddingNew) {
-                                 Toast.makeText(this, "Select or take " +
-                                     (6 - imageUris.size()) + " more photos.", Toast.LENGTH_LONG).show();
-                            }
+                                acceptGalleryPhoto(savedUri);
+                            });
                         }
                     }
                 }
@@ -483,22 +538,180 @@ public class MainActivity extends AppCompatActivity {
         }
     }
 
+    /**
+     * Shows a camera photo that passed the quality check, or that the user chose to keep, and moves on: after a
+     * retake back to the overview, otherwise on to the next face.
+     * @param wasThisARetake Whether the photo replaced an earlier one.
+     */
+    private void acceptCameraPhoto(boolean wasThisARetake) {
+        displayPhoto(photoCount);
+        warmUpIfNearlyDone();
+
+        if (wasThisARetake) {
+            if (imageUris.size() >= 6) {
+                showAllPhotosComplete();
+            } else {
+                Toast.makeText(this, getFaceInstruction(photoCount) + " retaken.", Toast.LENGTH_SHORT).show();
+            }
+        } else { // New photo capture
+            // Auto-advance to the next photo if using the camera for the initial sequence.
+            if (imageUris.size() < 6) { 
+                photoCount = imageUris.size();
+                if (photoCount < 6) {
+                    if (photoSourceChoice == SOURCE_CAMERA) {
+                        dispatchTakePictureIntent(); 
+                    } else {
+                         Toast.makeText(this, "Select or take " + (6 - imageUris.size()) + " more photos.", Toast.LENGTH_LONG).show();
+                    }
+                } else { 
+                    showAllPhotosComplete();
+                }
+            } else { 
+                showAllPhotosComplete();
+            }
+        }
+    }
+
+    /**
+     * Adds or replaces the photo at photoCount with a gallery image that passed the quality check, or that the user
+     * chose to keep.
+     * @param savedUri The URI of the app's copy of the gallery image.
+     */
+    private void acceptGalleryPhoto(Uri savedUri) {
+        boolean isAddingNew = (photoCount == imageUris.size() && imageUris.size() < 6);
+        
+        if (isAddingNew) {
+            imageUris.add(savedUri);
+            Toast.makeText(this, getFaceInstruction(photoCount) + " added from gallery.", Toast.LENGTH_SHORT).show();
+        } else { // Replacing an existing photo
+            if (photoCount < imageUris.size()) {
+                imageUris.set(photoCount, savedUri);
+                Toast.makeText(this, getFaceInstruction(photoCount) + " replaced from gallery.", Toast.LENGTH_SHORT).show();
+            } else {
+                 imageUris.add(savedUri);
+            }
+        }
+        
+        displayPhoto(photoCount);
+        warmUpIfNearlyDone();
+        
+        if (imageUris.size() >= 6) {
+            showAllPhotosComplete();
+        } else if (isAddingNew) {
+             Toast.makeText(this, "Select or take " +
+                 (6 - imageUris.size()) + " more photos.", Toast.LENGTH_LONG).show();
+        }
+    }
+
+    /**
+     * Once the fifth photo is in, opens the connection to Gemini and loads the 3x3 solver tables in the background,
+     * so that neither DNS, TCP and TLS setup nor a first-run table build is left for when "Give Solution" is tapped.
+     * Both are shared for the process: the next request reuses the pooled connection, and AlgorithmSolutionActivity
+     * the opened tables.
+     */
+    private void warmUpIfNearlyDone() {
+        if (warmUpStarted || imageUris.size() < WARM_UP_PHOTO_COUNT) {
+            return;
+        }
+        warmUpStarted = true;
+        File tableFile = new File(getFilesDir(), TableFile.FILE_NAME);
+        warmUpExecutor.execute(() -> {
+            long startTime = System.currentTimeMillis();
+            // Gemini is only the fallback of the on-device classifier, but the first request is the slow one.
+            if (!GEMINI_API_KEY.isEmpty()) {
+                boolean answered = apiClient.warmUp(GEMINI_MODEL_URL + "?key=" + GEMINI_API_KEY);
+                Log.d("CubeSolver", "Gemini connection warm-up " + (answered ? "done" : "failed") + " in "
+                        + (System.currentTimeMillis() - startTime) + " ms");
+            }
+            long tablesStart = System.currentTimeMillis();
+            SolverTables.openOrCreate(tableFile);
+            Log.d("CubeSolver", "Solver tables ready in " + (System.currentTimeMillis() - tablesStart) + " ms");
+        });
+    }
+
+    /**
+     * Checks a photo for blur, glare and low light on the copy the classifier reads, right after it was saved.
+     * The photo is decoded and scored on photoCheckExecutor; the decoded copy is kept for the analysis.
+     * @param photoUri The URI of the saved photo.
+     * @param then Receives, on the main thread, what is wrong with the photo, or Problem.NONE if it is fine or could
+     *             not be decoded; an unreadable photo is reported later, when the faces are analyzed.
+     */
+    private void checkPhotoQuality(Uri photoUri, Consumer<PhotoQualityChecker.Problem> then) {
+        photoCheckExecutor.execute(() -> {
+            FaceImage image = imageUtils.decodeFaceImage(photoUri, CLASSIFIER_IMAGE_SIZE);
+            PhotoQualityChecker.Problem problem = PhotoQualityChecker.Problem.NONE;
+            if (image == null) {
+                checkedFaces.remove(photoUri); // A retake may have reused the URI.
+            } else {
+                checkedFaces.put(photoUri, image);
+                PhotoQualityChecker.Result result = photoQualityChecker.check(image);
+                Log.d("CubeSolver", "Photo quality: " + result.getProblem() + ", sharpness " + result.getSharpness()
+                        + ", clipped " + result.getClippedFraction() + ", bright luma " + result.getBrightLuma());
+                problem = result.getProblem();
+            }
+            PhotoQualityChecker.Problem finalProblem = problem;
+            runOnUiThread(() -> {
+                if (!isFinishing() && !isDestroyed()) {
+                    then.accept(finalProblem);
+                }
+            });
+        });
+    }
+
+    /**
+     * Tells the user what is wrong with a photo and offers to take it again, before any time is spent analyzing it.
+     * @param index The index of the photo.
+     * @param problem What is wrong with it.
+     * @param retake Takes or picks the photo again.
+     * @param keep Uses the photo anyway.
+     */
+    private void offerRetake(int index, PhotoQualityChecker.Problem problem, Runnable retake, Runnable keep) {
+        String advice;
+        switch (problem) {
+            case TOO_DARK:
+                advice = "The photo is too dark. Turn on more light or move closer to a window.";
+                break;
+            case OVEREXPOSED:
+                advice = "Glare has washed out some stickers. Tilt the cube away from the light or turn off the flash.";
+                break;
+            default:
+                advice = "The photo is blurry. Hold the phone still and let the camera focus before taking it.";
+                break;
+        }
+        android.app.AlertDialog.Builder builder = new android.app.AlertDialog.Builder(this);
+        builder.setTitle("Photo #" + (index + 1) + " (" + getFaceInstruction(index) + ") may not be readable");
+        builder.setMessage(advice);
+        builder.setPositiveButton("Retake", (dialog, which) -> retake.run());
+        builder.setNegativeButton("Keep", (dialog, which) -> keep.run());
+        builder.setCancelable(false);
+        builder.show();
+    }
+
     /**
      * Displays the photo at the given index in the corresponding ImageView.
+     * The photo is decoded at about the size of the view, in RGB_565 since it is only shown, and the bitmap it
+     * replaces (after a retake) is handed back to the decoder for reuse.
      * @param index The index of the photo to display.
      */
     private void displayPhoto(int index) {
         try {
             Uri photoUri = imageUris.get(index);
+            ImageView imageView = imageViews[index];
             
-            imageViews[index].setVisibility(View.VISIBLE);
+            imageView.setVisibility(View.VISIBLE);
             retakeButtons[index].setVisibility(View.VISIBLE);
             
-            // Load the bitmap from the URI and set it to the ImageView.
-            InputStream inputStream = getContentResolver().openInputStream(photoUri);
-            Bitmap bitmap = BitmapFactory.decodeStream(inputStream);
+            // The view may not be laid out yet the first time; half the screen is the width of one grid column.
+            int width = imageView.getWidth() > 0 ? imageView.getWidth() : getResources().getDisplayMetrics().widthPixels / 2;
+            int height = imageView.getHeight() > 0 ? imageView.getHeight() : width;
+            Bitmap bitmap = bitmapDecoder.decodeToFill(getContentResolver(), photoUri, width, height, Bitmap.Config.RGB_565);
             if (bitmap != null) {
-                imageViews[index].setImageBitmap(bitmap);
+                Bitmap previous = null;
+                if (imageView.getDrawable() instanceof BitmapDrawable) {
+                    previous = ((BitmapDrawable) imageView.getDrawable()).getBitmap();
+                }
+                imageView.setImageBitmap(bitmap);
+                bitmapDecoder.release(previous);
             }
         } catch (Exception e) {
             Toast.makeText(this, "Error displaying photo " + (index + 1) + ": " + e.getMessage(), Toast.LENGTH_SHORT).show();
@@ -517,7 +730,8 @@ public class MainActivity extends AppCompatActivity {
     /**
      * This is the main method for processing the cube images.
      * It is called when the "Give Solution" button is clicked.
-     * It sends all 6 images to the Gemini API for analysis and then handles the response.
+     * It classifies the sticker colors on-device and only sends the 6 images to the Gemini API if the
+     * local classification failed or was uncertain.
      */
     private void processCubeImages() {
         if (imageUris.size() != 6) {
@@ -533,29 +747,43 @@ public class MainActivity extends AppCompatActivity {
             progressBar.setVisibility(View.VISIBLE);
         }
 
-        // Run the network operation on a background thread.
+        // Run the image processing (and, if needed, the network request) on a background thread.
         executorService.execute(() -> {
             try {
                 ArrayList<String> finalMatrices = null;
                 int tempCubeSize = 3; // Default to 3x3
+                float[] confidences = null; // Only the on-device classifier has them.
+                StreamedScan streamedScan = null;
 
-                if (imageUris.size() == 6) {
-                    // Process all 6 faces together in a single API call.
-                    String combinedResult = processAllFacesTogether();
-                    
-                    if (combinedResult != null && !combinedResult.startsWith("Error:")) {
-                        // Parse the JSON response from the API.
-                        CubeData cubeData = parseMultiFaceResponse(combinedResult);
-                        
-                        if (cubeData != null) {
-                            finalMatrices = cubeData.matrices;
-                            tempCubeSize = cubeData.cubeSize;
-                        }
+                // Detect the colors on-device first; this takes milliseconds instead of a network round-trip.
+                StickerClassifier.Result localResult = classifyFacesLocally();
+                if (localResult != null) {
+                    CubeState localState = localResult.getState();
+                    finalMatrices = new ArrayList<>();
+                    for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+                        finalMatrices.add(localState.toMatrixString(face));
+                    }
+                    tempCubeSize = localState.getSize();
+                    confidences = localResult.getConfidences();
+                } else if (imageUris.size() == 6) {
+                    // Process all 6 faces together in a single API call. A streamed answer opens the
+                    // SolutionActivity with its first face; the others follow while they are generated.
+                    streamedScan = STREAM_GEMINI_RESPONSE ? new StreamedScan(getPhotoUriStrings()) : null;
+                    GeminiResponseParser.Result cubeData = processAllFacesTogether(streamedScan);
+                    if (cubeData != null) {
+                        finalMatrices = new ArrayList<>(cubeData.getMatrices());
+                        tempCubeSize = cubeData.getCubeSize();
+                    }
+                    if (streamedScan != null && streamedScan.isOpened()) {
+                        streamedScan.finish(cubeData);
                     }
                 }
 
+                bitmapDecoder.logStats();
                 final ArrayList<String> matricesToSave = finalMatrices;
                 final int cubeSizeToSave = tempCubeSize;
+                final float[] confidencesToSave = confidences;
+                final boolean alreadyShown = streamedScan != null && streamedScan.isOpened();
 
                 // Update the UI on the main thread.
                 runOnUiThread(() -> {
@@ -565,9 +793,12 @@ public class MainActivity extends AppCompatActivity {
                         progressBar.setVisibility(View.GONE);
                     }
                     
+                    if (alreadyShown) {
+                        return; // The SolutionActivity is open and has the final session.
+                    }
                     if (matricesToSave != null && !matricesToSave.isEmpty()) {
                         // Save the matrices and cube size, then open the SolutionActivity.
-                        saveMatricesAndOpenActivity(matricesToSave, cubeSizeToSave);
+                        saveMatricesAndOpenActivity(matricesToSave, cubeSizeToSave, confidencesToSave);
                     } else {
                         Toast.makeText(MainActivity.this, "Image processing failed. Please check logs.", Toast.LENGTH_LONG).show();
                     }
@@ -588,57 +819,109 @@ public class MainActivity extends AppCompatActivity {
     }
     
     /**
-     * Converts all 6 images to base64 strings and then calls the Gemini API.
-     * @return The response from the Gemini API as a string.
+     * Classifies the sticker colors of all 6 faces with the on-device StickerClassifier.
+     * @return The detected cube with its color confidences, or null if an image could not be decoded, or the
+     *         result is uncertain and Gemini is available to analyze the images instead.
      */
-    private String processAllFacesTogether() {
+    private StickerClassifier.Result classifyFacesLocally() {
         try {
-            List<String> base64Images = new ArrayList<>();
-            
-            for (int i = 0; i < Math.min(imageUris.size(), 6); i++) {
-                String base64Image = imageUtils.imageToBase64WithEnhancedCompression(imageUris.get(i));
-                if (base64Image == null) {
-                    return "Error: Failed to convert one or more images to base64 for combined analysis";
+            long startTime = System.currentTimeMillis();
+            checkedFaces.keySet().retainAll(imageUris); // Drop the copies of replaced photos.
+            List<FaceImage> decoded = faceTaskRunner.runAll(CubeState.FACE_COUNT, face -> {
+                // Photos checked after capture are already decoded at this size.
+                Uri uri = imageUris.get(face);
+                FaceImage image = uri != null ? checkedFaces.get(uri) : null;
+                if (image == null) {
+                    image = imageUtils.decodeFaceImage(uri, CLASSIFIER_IMAGE_SIZE);
                 }
-                base64Images.add(base64Image);
-            }
-            
-            if (base64Images.size() < 6) {
-                return "Error: Not enough images for combined analysis. Need 6 but got " + base64Images.size();
-            }
-            
-            runOnUiThread(() -> {
-                Toast.makeText(MainActivity.this, "Sending all 6 faces for analysis...", Toast.LENGTH_SHORT).show();
+                if (image == null) {
+                    throw new IOException("Could not decode face " + (face + 1) + " for local classification");
+                }
+                return image;
             });
-            
-            return callGeminiAPIWithMultipleImages(base64Images);
+            FaceImage[] faces = decoded.toArray(new FaceImage[0]);
+            long decodedTime = System.currentTimeMillis();
+            StickerClassifier.Result result = stickerClassifier.classify(faces);
+            Log.d("CubeSolver", "Local classification: decode " + (decodedTime - startTime) + " ms, classify "
+                    + (System.currentTimeMillis() - decodedTime) + " ms, " + result.getAmbiguousStickers()
+                    + " ambiguous stickers");
+
+            if (result.getAmbiguousStickers() > MAX_AMBIGUOUS_STICKERS && !GEMINI_API_KEY.isEmpty()) {
+                return null;
+            }
+            return result;
+        } catch (ExecutionException e) {
+            Log.w("CubeSolver", e.getCause().getMessage());
+            return null;
         } catch (Exception e) {
-            Log.e("CubeSolver", "Error in combined face processing", e);
-            return "Error: " + e.getMessage();
+            Log.e("CubeSolver", "Error in local color classification", e);
+            return null;
+        }
+    }
+
+    /**
+     * Prepares all 6 images and sends them to the Gemini API in one request.
+     * The images are converted in parallel on faceTaskRunner while the request body is already being uploaded;
+     * if one image fails, the others are cancelled.
+     * @param streamedScan Receives the faces while the answer is streamed, or null to wait for the whole answer.
+     * @return The parsed answer, or null if the request failed.
+     */
+    private GeminiResponseParser.Result processAllFacesTogether(StreamedScan streamedScan) {
+        if (imageUris.size() < 6) {
+            Log.e("CubeSolver", "Not enough images for combined analysis. Need 6 but got " + imageUris.size());
+            return null;
+        }
+
+        long startTime = System.currentTimeMillis();
+        StageTimings[] timings = new StageTimings[6];
+        FaceTaskRunner.Batch<byte[]> jpegImages = faceTaskRunner.submitAll(6, face -> {
+            timings[face] = new StageTimings();
+            byte[] jpeg = imageUtils.imageToJpegWithEnhancedCompression(imageUris.get(face), timings[face]);
+            if (jpeg == null) {
+                throw new IOException("Failed to compress face " + (face + 1) + " for combined analysis");
+            }
+            return jpeg;
+        });
+
+        runOnUiThread(() -> {
+            Toast.makeText(MainActivity.this, "Sending all 6 faces for analysis...", Toast.LENGTH_SHORT).show();
+        });
+
+        try {
+            return callGeminiAPIWithMultipleImages(jpegImages, streamedScan);
+        } finally {
+            jpegImages.cancel(); // No-op unless the request was abandoned before every face was taken.
+            Log.d("CubeSolver", "Sent 6 faces prepared on " + faceTaskRunner.getThreadCount() + " threads in "
+                    + (System.currentTimeMillis() - startTime) + " ms");
+            for (int face = 0; face < timings.length; face++) {
+                if (timings[face] != null) {
+                    Log.d("CubeSolver", "Face " + (face + 1) + " preprocessing: " + timings[face]);
+                }
+            }
         }
     }
     
     /**
      * Makes the actual HTTP request to the Gemini API with multiple images.
-     * @param base64Images A list of base64 encoded image strings.
-     * @return The JSON response from the API as a string.
+     * The request body is streamed with chunked transfer encoding: each JPEG is Base64-encoded straight into the
+     * connection as soon as it is ready, so the whole body never has to be held in memory. The request goes through
+     * the shared ApiClient on the connection the warm-up opened if it is still alive. The body is gzipped only if
+     * GZIP_GEMINI_REQUEST is set, which it currently is not.
+     * With a listener, the answer is requested from streamGenerateContent as server-sent events, and every face is
+     * handed to the listener as soon as its part of the answer is complete.
+     * @param jpegImages The batch producing the JPEG bytes of the 6 faces.
+     * @param listener Receives the faces while the answer is streamed, or null to wait for the whole answer.
+     * @return The parsed answer, or null if the request failed.
      */
-    private String callGeminiAPIWithMultipleImages(List<String> base64Images) {
+    private GeminiResponseParser.Result callGeminiAPIWithMultipleImages(FaceTaskRunner.Batch<byte[]> jpegImages,
+                                                                        GeminiStreamReader.Listener listener) {
         try {
-            URL url = new URL("https://generativelanguage.googleapis.com/v1beta/models/gemini-2.0-flash:generateContent?key=" + GEMINI_API_KEY);
-            
-            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-            connection.setRequestMethod("POST");
-            connection.setRequestProperty("Content-Type", "application/json");
-            connection.setDoOutput(true);
-            connection.setConnectTimeout(60000);
-            connection.setReadTimeout(60000);
-            
             // The prompt sent to the Gemini API, asking it to analyze the images and return the color matrices.
             String prompt = "I'm providing you with 6 images of a Rubik's cube, one for each face. " +
                            "This is either a standard 3x3 or a 2x2 Rubik's cube. " +
                            "Analyze these images as a complete set and identify whether it is a 2x2 or a 3x3 cube. " +
                            "Then, for each face, identify the color of each square. " +
+                           "A face may not fill its photo: it can be off-center, small, tilted or seen at a slight angle, so find the face first and read its squares row by row as seen from the front. " +
                            "IMPORTANT: The standard colors on a Rubik's cube are White, Yellow, Red, Orange, Blue, and Green. " +
                            "CRUCIAL: Be consistent with color identification across all faces. The same color should be given the same name on all faces. " +
                            "Please structure your response in the following JSON format for consistency:\n\n" +
@@ -657,269 +940,129 @@ public class MainActivity extends AppCompatActivity {
                            "}\n\n" +
                            "Remember that the center square of each face in a 3x3 cube indicates the target color for that face in the solved state. For a 2x2, the colors on the four stickers of a face are needed.";
             
-            // Build the JSON request body.
-            JSONObject requestJson = new JSONObject();
-            JSONArray contents = new JSONArray();
-            JSONObject content = new JSONObject();
-            JSONArray parts = new JSONArray();
-            
-            JSONObject textPart = new JSONObject();
-            textPart.put("text", prompt);
-            parts.put(textPart);
-            
-            for (int i = 0; i < base64Images.size(); i++) {
-                JSONObject imagePart = new JSONObject();
-                JSONObject inlineData = new JSONObject();
-                inlineData.put("mime_type", "image/jpeg");
-                inlineData.put("data", base64Images.get(i));
-                imagePart.put("inline_data", inlineData);
-                parts.put(imagePart);
-            }
-            
-            content.put("parts", parts);
-            contents.put(content);
-            requestJson.put("contents", contents);
-            
-            String requestBody = requestJson.toString();
-            
-            // Send the request.
-            try (OutputStream os = connection.getOutputStream()) {
-                byte[] input = requestBody.getBytes("utf-8");
-                os.write(input, 0, input.length);
-            }
-            
-            int responseCode = connection.getResponseCode();
+            // Stream the JSON request body, taking each face from the batch in order as it finishes.
+            GeminiStreamReader streamReader = listener != null ? new GeminiStreamReader(listener) : null;
+            String url = GEMINI_MODEL_URL + (streamReader != null ? ":streamGenerateContent?alt=sse&key=" : ":generateContent?key=")
+                    + GEMINI_API_KEY;
+            ApiClient.Response response = apiClient.post(url, "application/json; charset=utf-8", GZIP_GEMINI_REQUEST,
+                    out -> GeminiRequestWriter.write(out, prompt, 6, face -> {
+                        try {
+                            return jpegImages.get(face);
+                        } catch (ExecutionException e) {
+                            throw new IOException(e.getCause().getMessage(), e.getCause());
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                            throw new InterruptedIOException("Interrupted while preparing face " + (face + 1));
+                        }
+                    }), streamReader != null ? streamReader::readFrom : null);
             
-            if (responseCode != 200) {
-                StringBuilder errorResponse = new StringBuilder();
-                try (BufferedReader br = new BufferedReader(
-                    new InputStreamReader(connection.getErrorStream(), "utf-8"))) {
-                    String responseLine;
-                    while ((responseLine = br.readLine()) != null) {
-                        errorResponse.append(responseLine.trim());
-                    }
-                }
-                return "Error: API returned status " + responseCode + ": " + errorResponse.toString();
+            if (!response.isSuccessful()) {
+                Log.e("CubeSolver", "API returned status " + response.getStatusCode() + ": " + response.getBody());
+                return null;
             }
-            
-            // Read the response.
-            StringBuilder response = new StringBuilder();
-            try (BufferedReader br = new BufferedReader(
-                new InputStreamReader(connection.getInputStream(), "utf-8"))) {
-                String responseLine;
-                while ((responseLine = br.readLine()) != null) {
-                    response.append(responseLine.trim());
-                }
+            if (streamReader != null) {
+                Log.d("CubeSolver", "Streamed " + streamReader.getFaceCount() + " faces ahead of the whole answer");
+                return streamReader.getResult();
             }
-            
-            return response.toString();
+            return GeminiResponseParser.parse(response.getBody());
         } catch (Exception e) {
             Log.e("CubeSolver", "Error in multi-face API call", e);
-            return "Error: " + e.getMessage();
+            return null;
         }
     }
-    
+
     /**
-     * Parses the JSON response from the Gemini API to extract the color matrices and cube size.
-     * @param jsonResponse The JSON response string from the API.
-     * @return A CubeData object containing the list of matrices and the cube size.
+     * Shows a streamed Gemini answer while it arrives. The first face puts a session into the SessionStore and
+     * opens the SolutionActivity, every further face puts an updated session, which the activity picks up. Faces
+     * that have not arrived yet have no text, so the session marks them as pending.
      */
-    private CubeData parseMultiFaceResponse(String jsonResponse) {
-        try {
-            JSONObject jsonObject = new JSONObject(jsonResponse);
-            String text = "";
-            String cubeSizeStr = "3x3";
-            
-            // Extract the text content from the JSON response.
-            if (jsonObject.has("candidates")) {
-                JSONArray candidates = jsonObject.getJSONArray("candidates");
-                if (candidates.length() > 0) {
-                    JSONObject firstCandidate = candidates.getJSONObject(0);
-                    if (firstCandidate.has("content")) {
-                        JSONObject content = firstCandidate.getJSONObject("content");
-                        if (content.has("parts")) {
-                            JSONArray parts = content.getJSONArray("parts");
-                            if (parts.length() > 0) {
-                                JSONObject firstPart = parts.getJSONObject(0);
-                                if (firstPart.has("text")) {
-                                    text = firstPart.getString("text");
-                                } 
-                            }
-                        }
-                    }
-                }
-            }
-            
-            // Parse the extracted text as JSON to get the structured data.
-            JSONObject responseJson = null;
-            try {
-                int jsonStart = text.indexOf('{');
-                int jsonEnd = text.lastIndexOf('}') + 1;
-                
-                if (jsonStart >= 0 && jsonEnd > jsonStart) {
-                    String jsonText = text.substring(jsonStart, jsonEnd);
-                     responseJson = new JSONObject(jsonText);
-
-                    if (responseJson.has("cube_size")) {
-                        cubeSizeStr = responseJson.getString("cube_size");
-                    }
-                    
-                    if (responseJson.has("faces")) {
-                        JSONArray faces = responseJson.getJSONArray("faces");
+    private final class StreamedScan implements GeminiStreamReader.Listener {
+        private final String[] faceTexts = new String[CubeState.FACE_COUNT];
+        private final List<String> photoUris;
+        private int cubeSize = 3;
+        private volatile boolean opened;
 
-                        ArrayList<String> matrices = new ArrayList<>(6);
-                         for (int i = 0; i < 6; i++) {
-                            matrices.add("");
-                        }
-                        
-                        for (int i = 0; i < faces.length(); i++) {
-                            JSONObject face = faces.getJSONObject(i);
-                            int faceNumber = face.getInt("face_number");
-                            JSONArray matrixArray = face.getJSONArray("matrix");
-                            
-                            StringBuilder formattedMatrix = new StringBuilder();
-                            formattedMatrix.append("Face #").append(faceNumber).append(":\n\n");
-                            
-                            for (int row = 0; row < matrixArray.length(); row++) {
-                                JSONArray rowArray = matrixArray.getJSONArray(row);
-                                for (int col = 0; col < rowArray.length(); col++) {
-                                    formattedMatrix.append(rowArray.getString(col)).append(" ");
-                                }
-                                formattedMatrix.append("\n");
-                            }
-                            
-                            int index = faceNumber - 1;
-                            if (index >= 0 && index < 6) {
-                                matrices.set(index, formattedMatrix.toString());
-                            }
-                        }
+        StreamedScan(List<String> photoUris) {
+            Arrays.fill(faceTexts, "");
+            this.photoUris = photoUris;
+        }
 
-                         if (cubeSizeStr.equals("3x3") && faces.length() > 0 && faces.getJSONObject(0).has("matrix")) {
-                              JSONArray firstMatrix = faces.getJSONObject(0).getJSONArray("matrix");
-                              if (firstMatrix.length() > 0) {
-                                  if (firstMatrix.length() == 2 && firstMatrix.getJSONArray(0).length() == 2) {
-                                      cubeSizeStr = "2x2";
-                                  } else if (firstMatrix.length() == 3 && firstMatrix.getJSONArray(0).length() == 3) {
-                                      cubeSizeStr = "3x3";
-                                  }
-                              }
-                         }
-                        
-                        boolean allFacesFound = true;
-                        for (String matrix : matrices) {
-                            if (matrix.isEmpty()) {
-                                allFacesFound = false;
-                                break;
-                            }
-                        }
-                        
-                        if (allFacesFound) {
-                             return new CubeData(matrices, cubeSizeStr.equals("2x2") ? 2 : 3);
-                        }
-                    }
-                }
-            } catch (Exception e) {
-                 // Fallback to text parsing if JSON parsing fails.
+        @Override
+        public void onFace(int faceIndex, int size, String matrixText) {
+            faceTexts[faceIndex] = matrixText;
+            if (!opened) {
+                cubeSize = size; // Every face of the answer has the size of the first.
             }
-
-            // Fallback text parsing logic.
-            ArrayList<String> matrices = new ArrayList<>(6);
-            for (int i = 0; i < 6; i++) {
-                matrices.add("Face #" + (i + 1) + ":\n\nCould not parse matrix data.");
+            SessionStore.getInstance(getFilesDir())
+                    .put(CubeSession.fromStreamedScan(cubeSize, Arrays.asList(faceTexts.clone()), photoUris));
+            if (!opened) {
+                opened = true;
+                runOnUiThread(() -> startActivity(new Intent(MainActivity.this, SolutionActivity.class)));
             }
+        }
 
-            if (text != null && !text.isEmpty()) {
-                 if (text.contains("2x2") || text.toLowerCase().contains("two by two")) {
-                     cubeSizeStr = "2x2";
-                 }
-            
-                String[] faceBlocks = text.split("Face #");
-            
-                for (int i = 1; i < faceBlocks.length; i++) {
-                    String faceBlock = faceBlocks[i].trim();
-                
-                    int faceNumber = -1;
-                     if (!faceBlock.isEmpty() && faceBlock.charAt(0) >= '1' && faceBlock.charAt(0) <= '6') {
-                        faceNumber = Character.getNumericValue(faceBlock.charAt(0));
-                    }
-                
-                    if (faceNumber < 1 || faceNumber > 6) {
-                        continue;
-                    }
-                
-                    int faceIndex = faceNumber - 1;
-                
-                    StringBuilder matrixText = new StringBuilder();
-                    matrixText.append("Face #").append(faceNumber).append(":\n\n");
-                    matrixText.append("Raw response fragment:\n").append(faceBlock).append("\n");
-                
-                     while (matrices.size() <= faceIndex) {
-                          matrices.add("Face #" + (matrices.size() + 1) + ":\n\nCould not parse matrix data.");
-                     }
-
-                    matrices.set(faceIndex, matrixText.toString());
-                }
+        /**
+         * Returns true once the SolutionActivity was opened with the first face.
+         */
+        boolean isOpened() {
+            return opened;
+        }
 
-                while (matrices.size() < 6) {
-                    int faceNumber = matrices.size() + 1;
-                     matrices.add("Face #" + faceNumber + ":\n\nCould not parse matrix data.");
+        /**
+         * Puts the final session: the whole answer parsed once more, which also covers faces the streaming parser
+         * could not read, or, if the request failed halfway, the faces that arrived and an error for the others.
+         * It is a regular session, which lets the SolutionActivity accept corrections.
+         * @param result The parsed answer, or null if the request failed.
+         */
+        void finish(GeminiResponseParser.Result result) {
+            CubeSession session;
+            if (result != null) {
+                session = CubeSession.fromScan(result.getCubeSize(), result.getMatrices(), photoUris);
+            } else {
+                List<String> texts = new ArrayList<>(Arrays.asList(faceTexts));
+                for (int face = 0; face < texts.size(); face++) {
+                    if (texts.get(face).isEmpty()) {
+                        texts.set(face, "Face #" + (face + 1) + ":\n\nError: The analysis was interrupted.");
+                    }
                 }
+                session = CubeSession.fromScan(cubeSize, texts, photoUris);
             }
-
-             return new CubeData(matrices, cubeSizeStr.equals("2x2") ? 2 : 3);
-
-        } catch (Exception e) {
-            Log.e("CubeSolver", "Critical Error parsing multi-face response", e);
-            return new CubeData(new ArrayList<>(), 3);
+            SessionStore.getInstance(getFilesDir()).put(session);
         }
     }
     
     /**
-     * Saves the color matrices and cube size to SharedPreferences and opens the SolutionActivity.
+     * Starts a new session with the color matrices, cube size and photos, and opens the SolutionActivity.
      * @param matrices The list of color matrices for each face.
      * @param cubeSize The size of the cube (2 for 2x2, 3 for 3x3).
+     * @param confidences The on-device classifier's color confidences, or null if Gemini detected the colors.
      */
-    private void saveMatricesAndOpenActivity(ArrayList<String> matrices, int cubeSize) {
+    private void saveMatricesAndOpenActivity(ArrayList<String> matrices, int cubeSize, float[] confidences) {
         try {
-            android.content.SharedPreferences prefs = getSharedPreferences("CubeSolverData", MODE_PRIVATE);
-            android.content.SharedPreferences.Editor editor = prefs.edit();
-            
-            editor.clear();
-            
-            editor.putInt("matrix_count", matrices.size());
-            for (int i = 0; i < matrices.size(); i++) {
-                editor.putString("matrix_" + i, matrices.get(i));
+            CubeSession session = CubeSession.fromScan(cubeSize, matrices, getPhotoUriStrings());
+            if (confidences != null) {
+                session = session.withConfidences(confidences);
             }
+            SessionStore.getInstance(getFilesDir()).put(session);
 
-            editor.putInt("cube_size", cubeSize);
-            
-            editor.putInt("image_count", imageUris.size());
-            for (int i = 0; i < imageUris.size(); i++) {
-                editor.putString("image_uri_" + i, imageUris.get(i).toString());
-            }
-            
-            editor.apply();
-            
             Intent intent = new Intent(MainActivity.this, SolutionActivity.class);
             startActivity(intent);
             
         } catch (Exception e) {
-            Log.e("CubeSolver", "Error saving data to SharedPreferences", e);
+            Log.e("CubeSolver", "Error starting the cube session", e);
             Toast.makeText(this, "Error preparing data for next step", Toast.LENGTH_SHORT).show();
         }
     }
 
-     /**
-      * A helper class to hold the result of the API analysis, containing both the matrices and the cube size.
-      */
-     private static class CubeData {
-         ArrayList<String> matrices;
-         int cubeSize;
-
-         CubeData(ArrayList<String> matrices, int cubeSize) {
-             this.matrices = matrices;
-             this.cubeSize = cubeSize;
+    /**
+     * Returns the photo URIs as the session stores them, with empty strings for missing photos.
+     */
+    private List<String> getPhotoUriStrings() {
+        List<String> uris = new ArrayList<>(imageUris.size());
+        for (Uri uri : imageUris) {
+            uris.add(uri == null ? "" : uri.toString());
         }
+        return uris;
     }
 
     /**
@@ -0,0 +1,111 @@
+package com.example.cubesolver;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.view.View;
+import com.example.cubesolver.model.CubeColor;
+
+/**
+ * ScanGuideView is drawn over the camera preview of LiveScanActivity. It shows the guide square the user fits one
+ * face into, split into the sticker grid, a dot of the detected color in every cell, and a bar that fills while the
+ * face is held still. The square is placed exactly where LiveFaceScanner samples the frame, assuming the preview is
+ * scaled to fit the view (PreviewView FIT_CENTER) and has the aspect ratio of the analyzed frames.
+ * update() may be called from the camera analysis thread; it copies the detection and posts an invalidate, so
+ * neither thread allocates per frame.
+ */
+public class ScanGuideView extends View {
+
+    private static final float STROKE_DP = 2f;
+    private static final float DOT_FRACTION = 0.18f; // Radius of the color dot relative to a cell.
+    private static final float BAR_DP = 6f;
+
+    private final Paint guidePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint progressPaint = new Paint();
+    private final Paint[] dotPaints = new Paint[CubeColor.COUNT]; // One fill per CubeColor ordinal.
+    private final float density;
+
+    // The latest detection, written by update() and read by onDraw under the view's lock.
+    private final int[] labels = new int[9]; // CubeColor ordinal per cell.
+    private int size = 3;
+    private float guideFraction = 0.7f;
+    private boolean detected; // Whether the cells hold colors of a face in view.
+    private float progress; // How far the current face is towards being captured, 0 to 1.
+    private int frameWidth = 3; // Upright frame aspect ratio, 3:4 portrait until the first frame arrives.
+    private int frameHeight = 4;
+
+    public ScanGuideView(Context context) {
+        this(context, null);
+    }
+
+    public ScanGuideView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        density = getResources().getDisplayMetrics().density;
+        guidePaint.setStyle(Paint.Style.STROKE);
+        guidePaint.setStrokeWidth(STROKE_DP * density);
+        guidePaint.setColor(Color.WHITE);
+        progressPaint.setColor(Color.GREEN);
+        for (CubeColor color : CubeColor.values()) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            paint.setColor(color.getArgb());
+            dotPaints[color.ordinal()] = paint;
+        }
+    }
+
+    /**
+     * Shows the result of one analyzed frame. Safe to call from any thread.
+     * @param size The cube size of the scanner.
+     * @param guideFraction The guide square side of the scanner, relative to the shorter side of the frame.
+     * @param cellLabels The CubeColor ordinal per cell, or null if no face is in view.
+     * @param steadyProgress How far the face is towards being captured, 0 to 1.
+     * @param uprightWidth The width of the frame as the user sees it.
+     * @param uprightHeight The height of the frame as the user sees it.
+     */
+    public void update(int size, float guideFraction, int[] cellLabels, float steadyProgress,
+                       int uprightWidth, int uprightHeight) {
+        synchronized (this) {
+            this.size = size;
+            this.guideFraction = guideFraction;
+            this.detected = cellLabels != null;
+            if (cellLabels != null) {
+                System.arraycopy(cellLabels, 0, labels, 0, size * size);
+            }
+            this.progress = steadyProgress;
+            this.frameWidth = uprightWidth;
+            this.frameHeight = uprightHeight;
+        }
+        postInvalidateOnAnimation();
+    }
+
+    @Override
+    protected synchronized void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        // The preview is scaled to fit the view, centered, keeping the frame aspect ratio.
+        float scale = Math.min(getWidth() / (float) frameWidth, getHeight() / (float) frameHeight);
+        float side = guideFraction * Math.min(frameWidth, frameHeight) * scale;
+        float left = (getWidth() - side) / 2f;
+        float top = (getHeight() - side) / 2f;
+        float cell = side / size;
+
+        canvas.drawRect(left, top, left + side, top + side, guidePaint);
+        for (int i = 1; i < size; i++) {
+            canvas.drawLine(left + i * cell, top, left + i * cell, top + side, guidePaint);
+            canvas.drawLine(left, top + i * cell, left + side, top + i * cell, guidePaint);
+        }
+        if (detected) {
+            float radius = cell * DOT_FRACTION;
+            for (int i = 0; i < size * size; i++) {
+                float cx = left + (i % size + 0.5f) * cell;
+                float cy = top + (i / size + 0.5f) * cell;
+                canvas.drawCircle(cx, cy, radius, dotPaints[labels[i]]);
+                canvas.drawCircle(cx, cy, radius, guidePaint);
+            }
+        }
+        if (progress > 0f) {
+            float barTop = top + side + BAR_DP * density;
+            canvas.drawRect(left, barTop, left + side * progress, barTop + BAR_DP * density, progressPaint);
+        }
+    }
+}
@@ -1,34 +1,29 @@
 package com.example.cubesolver;
 
-import android.content.SharedPreferences;
 import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Gravity;
-import android.view.View;
 import android.widget.Button;
-import android.widget.GridLayout;
 import android.widget.ImageView;
 import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.app.AlertDialog;
 import android.content.DialogInterface;
+import android.graphics.Bitmap;
 import android.graphics.Color;
-import android.graphics.drawable.GradientDrawable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import com.google.android.material.card.MaterialCardView;
 import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import android.content.Intent;
-import org.json.JSONObject;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import java.util.function.Function;
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.session.CubeSession;
+import com.example.cubesolver.session.SessionStore;
+import com.example.cubesolver.solver.CubeCorrector;
+import com.example.cubesolver.solver.CubeValidator;
 
 /**
  * SolutionActivity is responsible for displaying the results of the cube face analysis from MainActivity.
@@ -45,19 +40,23 @@ public class SolutionActivity extends AppCompatActivity {
     private int cubeSize = 3; // The size of the cube (e.g., 3 for 3x3, 2 for 2x2). Default is 3.
 
     // UI and state management
-    private ArrayList<View[][]> colorSquares = new ArrayList<>(); // A list of 2D arrays, each holding the View for each color square on a face.
-    private Map<String, String> editedColors = new HashMap<>(); // Tracks user's manual color corrections. Key: "face_row_col", Value: "ColorName".
+    private SessionStore sessionStore; // Holds the cube handed over by MainActivity and passes it on to the solution.
+    private CubeSession session; // The session as last stored; cubeState may hold newer, unsaved corrections.
+    private ArrayList<CubeNetView> faceViews = new ArrayList<>(); // The editable color squares of each face, in face order.
+    private CubeState cubeState; // The cube as parsed from the matrices, including the user's manual color corrections.
+    private int editedFaces = 0; // Bit i is set if face i has unsaved manual color corrections.
+    private boolean[] confirmedStickers; // Stickers whose color the user picked; the auto-correction keeps them.
+    private ArrayList<TextView> titleViews = new ArrayList<>(); // The title of each face card, in face order.
+    // Picks up the faces of a streamed scan that arrive after the activity opened.
+    private final SessionStore.Listener sessionListener = changed -> runOnUiThread(() -> onSessionChanged(changed));
 
-    // Standard Rubik's Cube colors and their RGB values.
-    private String[] standardColors = {"White", "Yellow", "Red", "Orange", "Blue", "Green"};
-    private int[][] colorValues = {
-        {255, 255, 255}, // White
-        {255, 255, 0},   // Yellow
-        {255, 0, 0},     // Red
-        {255, 165, 0},   // Orange
-        {0, 0, 255},     // Blue
-        {0, 255, 0}      // Green
-    };
+    private static final String[] FACE_NAMES = {"Up Face (U)", "Right Face (R)", "Front Face (F)", "Down Face (D)", "Left Face (L)", "Back Face (B)"};
+
+    // Confidence in a color the user picked by hand, compared to CubeCorrector.DEFAULT_TRUST for detected ones.
+    private static final float CONFIRMED_TRUST = 0.999f;
+
+    // Color names offered by the color picker, in CubeColor order.
+    private final String[] standardColors = new String[CubeColor.COUNT];
 
     /**
      * Called when the activity is first created.
@@ -68,11 +67,23 @@ public class SolutionActivity extends AppCompatActivity {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_solution);
 
-        // Load the cube data (matrices, cube size, image URIs) from SharedPreferences.
-        CubeData cubeData = loadMatricesFromPreferences();
-        matrices = cubeData.matrices;
-        cubeSize = cubeData.cubeSize;
-        imageUris = loadImageUrisFromPreferences();
+        // Take the cube data (matrices, cube size, image URIs, parsed state) from the session.
+        sessionStore = SessionStore.getInstance(getFilesDir());
+        sessionStore.addListener(sessionListener); // Before get(), so no face of a streamed scan is missed.
+        session = sessionStore.get();
+        if (session == null) {
+            session = CubeSession.fromScan(3, new ArrayList<>(), new ArrayList<>());
+        }
+        matrices = new ArrayList<>(session.getFaceTexts());
+        cubeSize = session.getSize();
+        for (String uri : session.getImageUris()) {
+            imageUris.add(uri.isEmpty() ? null : Uri.parse(uri));
+        }
+        cubeState = session.getState();
+        confirmedStickers = new boolean[cubeState.getStickerCount()];
+        for (CubeColor color : CubeColor.values()) {
+            standardColors[color.ordinal()] = color.getDisplayName();
+        }
         
         LinearLayout mainContentLayout = findViewById(R.id.mainContentLayout);
         LinearLayout cubeFacesContainer = findViewById(R.id.cubeFacesContainer);
@@ -115,8 +126,8 @@ public class SolutionActivity extends AppCompatActivity {
                 cardContentLayout.setGravity(Gravity.CENTER_HORIZONTAL);
 
                 TextView titleView = new TextView(this);
-                String[] faceNames = {"Up Face (U)", "Right Face (R)", "Front Face (F)", "Down Face (D)", "Left Face (L)", "Back Face (B)"};
-                titleView.setText(i < faceNames.length ? faceNames[i] : "Cube Face #" + (i + 1));
+                titleViews.add(titleView);
+                showFaceTitle(i);
                 titleView.setTextAppearance(R.style.TextAppearance_App_Headline6);
                 LinearLayout.LayoutParams titleParams = new LinearLayout.LayoutParams(
                     LinearLayout.LayoutParams.WRAP_CONTENT,
@@ -137,7 +148,11 @@ public class SolutionActivity extends AppCompatActivity {
                     imageView.setScaleType(ImageView.ScaleType.FIT_CENTER);
                     
                     try {
-                        imageView.setImageURI(imageUris.get(i));
+                        // Decode at screen size, not camera size; RGB_565 is plenty for a preview.
+                        int maxSide = Math.max(getResources().getDisplayMetrics().widthPixels, dpToPx(200));
+                        Bitmap preview = BitmapDecoder.getInstance().decodeToFit(getContentResolver(), imageUris.get(i),
+                                maxSide, Bitmap.Config.RGB_565);
+                        imageView.setImageBitmap(preview);
                         cardContentLayout.addView(imageView);
                     } catch (Exception e) {
                          // Handle error loading image.
@@ -145,13 +160,15 @@ public class SolutionActivity extends AppCompatActivity {
                 }
                 
                 // Create and add the editable color grid.
-                GridLayout colorGrid = createColorGridFromMatrix(matrix, i, cubeSize);
-                LinearLayout.LayoutParams gridParams = new LinearLayout.LayoutParams(
-                    LinearLayout.LayoutParams.WRAP_CONTENT, 
-                    LinearLayout.LayoutParams.WRAP_CONTENT
-                );
-                colorGrid.setLayoutParams(gridParams);
-                cardContentLayout.addView(colorGrid);
+                if (i < CubeState.FACE_COUNT) {
+                    CubeNetView colorGrid = createColorGrid(i, cubeSize);
+                    LinearLayout.LayoutParams gridParams = new LinearLayout.LayoutParams(
+                        LinearLayout.LayoutParams.WRAP_CONTENT, 
+                        LinearLayout.LayoutParams.WRAP_CONTENT
+                    );
+                    colorGrid.setLayoutParams(gridParams);
+                    cardContentLayout.addView(colorGrid);
+                }
                 
                 faceCard.addView(cardContentLayout);
                 cubeFacesContainer.addView(faceCard);
@@ -165,6 +182,7 @@ public class SolutionActivity extends AppCompatActivity {
                 errorNote.setPadding(16, 24, 16, 16);
                 mainContentLayout.addView(errorNote);
             }
+            checkStickers();
         } else {
             // Handle case where no data was received.
             TextView errorView = new TextView(this);
@@ -173,90 +191,115 @@ public class SolutionActivity extends AppCompatActivity {
         }
     }
     
+    @Override
+    protected void onDestroy() {
+        sessionStore.removeListener(sessionListener);
+        super.onDestroy();
+    }
+
     /**
-     * Creates a GridLayout of colored squares based on the provided matrix string.
+     * Shows a session put while the activity is open: the faces of a streamed scan as they arrive, and its final
+     * answer. A cube size other than the one shown, or faces that could not be analyzed, rebuild the screen.
+     * Once the shown session is no longer streaming, the screen owns it and later puts are ignored.
+     * @param changed The session just put.
+     */
+    private void onSessionChanged(CubeSession changed) {
+        if (!session.isStreaming() || changed == session || isFinishing() || isDestroyed()) {
+            return; // Not a streamed scan, or its final answer is in; our own saves; or too late.
+        }
+        boolean hadErrors = matrices.stream().anyMatch(text -> text.contains("Error:"));
+        boolean hasErrors = changed.getFaceTexts().stream().anyMatch(text -> text.contains("Error:"));
+        if (changed.getSize() != cubeSize || changed.getFaceTexts().size() != matrices.size() || hasErrors != hadErrors) {
+            recreate();
+            return;
+        }
+        // Corrections are blocked until the final answer is in, so there is nothing of the user's to keep.
+        session = changed;
+        matrices = new ArrayList<>(changed.getFaceTexts());
+        if (!changed.getState().equals(cubeState)) {
+            cubeState = changed.getState();
+            showCubeState();
+        }
+        for (int face = 0; face < titleViews.size(); face++) {
+            showFaceTitle(face);
+        }
+        checkStickers(); // Only once the final answer is in; the faces before it may still change.
+    }
+
+    /**
+     * Shows the name of a face on its card, marked while the face is still being analyzed.
+     * @param faceIndex The index of the face.
+     */
+    private void showFaceTitle(int faceIndex) {
+        String name = faceIndex < FACE_NAMES.length ? FACE_NAMES[faceIndex] : "Cube Face #" + (faceIndex + 1);
+        boolean analyzing = session.isStreaming() && session.isPending(faceIndex);
+        titleViews.get(faceIndex).setText(analyzing ? name + " (analyzing…)" : name);
+    }
+
+    /**
+     * Returns true until the final answer of a streamed scan is in, even once all six faces have arrived: the final
+     * answer replaces the cube, so it cannot be edited or solved yet. Shows a note if so.
+     */
+    private boolean isStillAnalyzing() {
+        if (!session.isStreaming()) {
+            return false;
+        }
+        Toast.makeText(this, session.isComplete() ? "Finishing the analysis…"
+                : "The remaining faces are still being analyzed.", Toast.LENGTH_SHORT).show();
+        return true;
+    }
+
+    /**
+     * Creates the colored squares of one face of the cube state, drawn by a single view.
      * Each square is clickable to allow for color correction.
-     * @param matrixStr The string representation of the color matrix.
      * @param faceIndex The index of the face (0-5).
      * @param cubeSize The size of the cube (2 or 3).
-     * @return A GridLayout containing the colored squares.
+     * @return A CubeNetView showing the face.
      */
-    private GridLayout createColorGridFromMatrix(String matrixStr, int faceIndex, int cubeSize) {
-        GridLayout grid = new GridLayout(this);
-        grid.setColumnCount(cubeSize);
-        grid.setRowCount(cubeSize);
+    private CubeNetView createColorGrid(int faceIndex, int cubeSize) {
+        CubeNetView grid = new CubeNetView(this);
         grid.setPadding(16, 16, 16, 16);
         
+        // Each square keeps the 4px margin on every side that separated the squares before.
         int squareSize = getResources().getDisplayMetrics().widthPixels / (cubeSize + 2);
+        grid.setStickerSize(squareSize + 8);
+        grid.setStickerSpacing(4);
+        grid.setCornerRadius(8);
+        grid.setFace(faceIndex);
+        grid.setState(cubeState);
+        grid.setOnStickerClickListener(this::showColorPickerDialog);
         
-        List<String> colorNames = parseColorsFromMatrix(matrixStr, cubeSize);
-        
-        View[][] faceSquares = new View[cubeSize][cubeSize];
-        colorSquares.add(faceSquares);
-        
-        int colorIndex = 0;
-        for (int row = 0; row < cubeSize; row++) {
-            for (int col = 0; col < cubeSize; col++) {
-                View colorSquare = new View(this);
-                GridLayout.LayoutParams params = new GridLayout.LayoutParams();
-                params.width = squareSize;
-                params.height = squareSize;
-                params.setMargins(4, 4, 4, 4);
-                params.rowSpec = GridLayout.spec(row);
-                params.columnSpec = GridLayout.spec(col);
-                colorSquare.setLayoutParams(params);
-                
-                String colorName = (colorIndex < colorNames.size()) ? colorNames.get(colorIndex) : "White";
-                
-                GradientDrawable shape = new GradientDrawable();
-                shape.setShape(GradientDrawable.RECTANGLE);
-                shape.setColor(getColorFromName(colorName));
-                shape.setStroke(2, Color.BLACK);
-                shape.setCornerRadius(8);
-                colorSquare.setBackground(shape);
-                
-                colorSquare.setTag(colorName);
-                
-                final int finalRow = row;
-                final int finalCol = col;
-                colorSquare.setOnClickListener(v -> showColorPickerDialog(v, faceIndex, finalRow, finalCol));
-                
-                grid.addView(colorSquare);
-                faceSquares[row][col] = colorSquare;
-                colorIndex++;
-            }
-        }
-        
+        faceViews.add(grid);
         return grid;
     }
     
     /**
      * Shows a dialog with a list of standard colors for the user to select from.
-     * @param colorView The color square View that was clicked.
      * @param faceIndex The index of the face.
      * @param row The row of the square.
      * @param col The column of the square.
      */
-    private void showColorPickerDialog(View colorView, int faceIndex, int row, int col) {
+    private void showColorPickerDialog(int faceIndex, int row, int col) {
+        if (isStillAnalyzing()) {
+            return;
+        }
         AlertDialog.Builder builder = new AlertDialog.Builder(this);
         builder.setTitle("Select Color");
         
-        String currentColor = (String) colorView.getTag();
-        int selectedIndex = 0;
-        for (int i = 0; i < standardColors.length; i++) {
-            if (standardColors[i].equalsIgnoreCase(currentColor)) {
-                selectedIndex = i;
-                break;
-            }
-        }
+        int selectedIndex = cubeState.getColor(faceIndex, row, col).ordinal();
         
         builder.setSingleChoiceItems(standardColors, selectedIndex, (dialog, which) -> {
-            String newColor = standardColors[which];
-            updateSquareColor(colorView, newColor);
+            CubeColor newColor = CubeColor.of(which);
             
-            // Track the edited color.
-            String key = faceIndex + "_" + row + "_" + col;
-            editedColors.put(key, newColor);
+            // Apply the edit to the cube state and remember that the face has to be saved.
+            CubeState edited = cubeState.withColor(faceIndex, row, col, newColor);
+            confirmedStickers[(faceIndex * cubeState.getSize() + row) * cubeState.getSize() + col] = true;
+            if (edited != cubeState) {
+                cubeState = edited;
+                editedFaces |= 1 << faceIndex;
+                showCubeState();
+                checkStickers(); // The previous validation no longer applies.
+            }
             
             dialog.dismiss();
         });
@@ -266,114 +309,106 @@ public class SolutionActivity extends AppCompatActivity {
     }
     
     /**
-     * Updates the background color and tag of a color square View.
-     * @param colorView The View to update.
-     * @param colorName The new color name.
+     * Validates the cube as it is now and outlines the squares the auto-correction would change, so a likely
+     * misdetection shows while the user is still picking colors rather than only on Proceed. Clears the outlines of
+     * a valid cube. Does nothing until all faces of a streamed scan are in.
      */
-    private void updateSquareColor(View colorView, String colorName) {
-        GradientDrawable shape = (GradientDrawable) colorView.getBackground();
-        shape.setColor(getColorFromName(colorName));
-        colorView.setTag(colorName);
+    private void checkStickers() {
+        if (session.isStreaming() || matrices.size() < CubeState.FACE_COUNT) {
+            return;
+        }
+        CubeValidator.Result validation = CubeValidator.validate(cubeState);
+        if (validation.isValid()) {
+            highlightStickers((boolean[]) null);
+            return;
+        }
+        int[] changes = correct().getChangedStickers();
+        if (changes.length == 0) {
+            highlightStickers(validation);
+            return;
+        }
+        boolean[] outlined = new boolean[cubeState.getStickerCount()];
+        for (int sticker : changes) {
+            outlined[sticker] = true;
+        }
+        highlightStickers(outlined);
     }
-    
+
     /**
-     * Converts a color name string to its corresponding integer color value.
-     * @param colorName The name of the color (e.g., "Red").
-     * @return The integer color value.
+     * Finds the most likely valid cube. Detected colors are weighed by the classifier's confidences if the session
+     * has them and trusted equally otherwise; colors the user picked by hand are trusted far more than either.
+     * @return The correction of the current cube state.
      */
-    private int getColorFromName(String colorName) {
-        for (int i = 0; i < standardColors.length; i++) {
-            if (standardColors[i].equalsIgnoreCase(colorName)) {
-                int[] rgb = colorValues[i];
-                return Color.rgb(rgb[0], rgb[1], rgb[2]);
+    private CubeCorrector.Correction correct() {
+        float[] confidences = session.getConfidences();
+        if (confidences == null) {
+            confidences = CubeCorrector.confidences(cubeState, CubeCorrector.DEFAULT_TRUST);
+        }
+        for (int sticker = 0; sticker < confirmedStickers.length; sticker++) {
+            if (confirmedStickers[sticker]) {
+                for (int color = 0; color < CubeColor.COUNT; color++) {
+                    confidences[sticker * CubeColor.COUNT + color] = (1f - CONFIRMED_TRUST) / (CubeColor.COUNT - 1);
+                }
+                confidences[sticker * CubeColor.COUNT + cubeState.getOrdinal(sticker)] = CONFIRMED_TRUST;
             }
         }
-        return Color.GRAY; // Default color if not found.
+        return CubeCorrector.correct(cubeState, confidences);
     }
-    
+
     /**
-     * Parses a list of color names from the raw matrix string received from the API.
-     * @param matrixStr The raw matrix string.
-     * @param cubeSize The size of the cube.
-     * @return A list of color names.
+     * Outlines the squares implicated by a failed validation in red and restores the normal outline of all others.
+     * @param result The validation result, or null to clear all highlights.
      */
-    private List<String> parseColorsFromMatrix(String matrixStr, int cubeSize) {
-        List<String> colors = new ArrayList<>();
-        Pattern colorPattern = Pattern.compile("\\b(White|Yellow|Red|Orange|Blue|Green)\\b", Pattern.CASE_INSENSITIVE);
-        Matcher matcher = colorPattern.matcher(matrixStr);
-        
-        int expectedColors = cubeSize * cubeSize;
-        
-        while (matcher.find() && colors.size() < expectedColors) {
-            colors.add(matcher.group(1));
+    private void highlightStickers(CubeValidator.Result result) {
+        boolean[] outlined = new boolean[cubeState.getStickerCount()];
+        for (int sticker = 0; result != null && sticker < outlined.length; sticker++) {
+            outlined[sticker] = result.isImplicated(sticker);
         }
-        
-        while (colors.size() < expectedColors) {
-            colors.add("White"); // Fill with default if not enough colors were parsed.
+        highlightStickers(outlined);
+    }
+
+    /**
+     * Outlines some squares in red and restores the normal outline of all others.
+     * @param outlined Whether to outline each sticker, by its CubeState index, or null to clear all outlines.
+     */
+    private void highlightStickers(boolean[] outlined) {
+        for (CubeNetView faceView : faceViews) {
+            faceView.setOutlined(outlined);
+        }
+    }
+
+    /**
+     * Shows the current cube state in the color squares; a face is only redrawn if one of its colors changed.
+     */
+    private void showCubeState() {
+        for (CubeNetView faceView : faceViews) {
+            faceView.setState(cubeState);
         }
-        
-        return colors;
     }
     
     /**
-     * Saves the manually corrected colors back to SharedPreferences.
-     * It reconstructs the matrix strings with the corrected colors.
+     * Saves the manually corrected colors to the session.
+     * Only the matrix strings of edited faces are rewritten, from the cube state.
      */
     private void saveEditedColors() {
-        if (editedColors.isEmpty()) {
+        if (isStillAnalyzing()) {
+            return;
+        }
+        if (editedFaces == 0) {
             Toast.makeText(this, "No changes to save.", Toast.LENGTH_SHORT).show();
             return;
         }
         
         try {
-            CubeData currentCubeData = loadMatricesFromPreferences();
-            ArrayList<String> updatedMatrices = new ArrayList<>(currentCubeData.matrices);
-            int currentCubeSize = currentCubeData.cubeSize;
-            
-            for (int faceIndex = 0; faceIndex < updatedMatrices.size(); faceIndex++) {
-                String[][] colorMatrix = new String[currentCubeSize][currentCubeSize];
-                
-                List<String> originalColors = parseColorsFromMatrix(updatedMatrices.get(faceIndex), currentCubeSize);
-                int colorIndex = 0;
-                for (int row = 0; row < currentCubeSize; row++) {
-                    for (int col = 0; col < currentCubeSize; col++) {
-                        colorMatrix[row][col] = (colorIndex < originalColors.size()) ? originalColors.get(colorIndex) : "White";
-                        colorIndex++;
-                    }
-                }
-                
-                boolean faceEdited = false;
-                for (int row = 0; row < currentCubeSize; row++) {
-                    for (int col = 0; col < currentCubeSize; col++) {
-                        String key = faceIndex + "_" + row + "_" + col;
-                        if (editedColors.containsKey(key)) {
-                            colorMatrix[row][col] = editedColors.get(key);
-                            faceEdited = true;
-                        }
-                    }
-                }
-                
-                if (faceEdited) {
-                    StringBuilder updatedMatrixString = new StringBuilder();
-                    updatedMatrixString.append("Face #").append(faceIndex + 1).append(":\n\n");
-                    for (int row = 0; row < currentCubeSize; row++) {
-                        for (int col = 0; col < currentCubeSize; col++) {
-                            updatedMatrixString.append(colorMatrix[row][col]).append(" ");
-                        }
-                        updatedMatrixString.append("\n");
-                    }
-                    updatedMatrices.set(faceIndex, updatedMatrixString.toString());
+            session = session.withState(cubeState);
+            sessionStore.put(session);
+            for (int faceIndex = 0; faceIndex < matrices.size(); faceIndex++) {
+                if ((editedFaces & (1 << faceIndex)) != 0) {
+                    matrices.set(faceIndex, session.getFaceTexts().get(faceIndex));
                 }
             }
             
-            SharedPreferences prefs = getSharedPreferences("CubeSolverData", MODE_PRIVATE);
-            SharedPreferences.Editor editor = prefs.edit();
-            for (int i = 0; i < updatedMatrices.size(); i++) {
-                editor.putString("matrix_" + i, updatedMatrices.get(i));
-            }
-            editor.apply();
-            
-            editedColors.clear();
+            editedFaces = 0;
             Toast.makeText(this, "Changes saved!", Toast.LENGTH_SHORT).show();
 
         } catch (Exception e) {
@@ -381,163 +416,39 @@ public class SolutionActivity extends AppCompatActivity {
         }
     }
     
-    /**
-     * Loads the cube matrices and cube size from SharedPreferences.
-     * @return A CubeData object containing the matrices and cube size.
-     */
-    private CubeData loadMatricesFromPreferences() {
-        try {
-            ArrayList<String> matrices = new ArrayList<>();
-            SharedPreferences prefs = getSharedPreferences("CubeSolverData", MODE_PRIVATE);
-            int loadedCubeSize = prefs.getInt("cube_size", 3);
-            int matrixCount = prefs.getInt("matrix_count", 0);
-            
-            for (int i = 0; i < matrixCount; i++) {
-                matrices.add(prefs.getString("matrix_" + i, ""));
-            }
-            
-            return new CubeData(matrices, loadedCubeSize);
-        } catch (Exception e) {
-            return new CubeData(new ArrayList<>(), 3);
-        }
-    }
-    
-    /**
-     * Loads the image URIs from SharedPreferences.
-     * @return An ArrayList of Uris.
-     */
-    private ArrayList<Uri> loadImageUrisFromPreferences() {
-        try {
-            ArrayList<Uri> uris = new ArrayList<>();
-            SharedPreferences prefs = getSharedPreferences("CubeSolverData", MODE_PRIVATE);
-            int imageCount = prefs.getInt("image_count", 0);
-            
-            for (int i = 0; i < imageCount; i++) {
-                String uriString = prefs.getString("image_uri_" + i, "");
-                if (!uriString.isEmpty()) {
-                    uris.add(Uri.parse(uriString));
-                } else {
-                    uris.add(null);
-                }
-            }
-            
-            return uris;
-        } catch (Exception e) {
-            return new ArrayList<>();
-        }
-    }
-
     /**
      * Generates a solver string based on the final (and possibly edited) cube state.
      * For 3x3 cubes, it generates a 54-character Kociemba string.
      * For 2x2 cubes, it generates a 24-character string for a different solver.
-     * It then saves all necessary data and proceeds to the AlgorithmSolutionActivity.
+     * It then stores the solver string in the session and proceeds to the AlgorithmSolutionActivity.
      */
     private void generateKociembaStringAndProceed() {
+        if (isStillAnalyzing()) {
+            return;
+        }
         try {
-            if (!editedColors.isEmpty()) {
+            if (editedFaces != 0) {
                 saveEditedColors();
             }
             
-            CubeData currentCubeData = loadMatricesFromPreferences();
-            matrices = currentCubeData.matrices;
-            int currentCubeSize = currentCubeData.cubeSize;
-            
-            int expectedMatrixCount = 6;
-            int expectedSolverStringLength = (currentCubeSize == 2) ? 24 : 54;
-            int colorsPerFace = currentCubeSize * currentCubeSize;
-            
-            if (matrices == null || matrices.size() < expectedMatrixCount) {
+            if (matrices == null || matrices.size() < CubeState.FACE_COUNT) {
+                Toast.makeText(this, "All " + CubeState.FACE_COUNT + " faces are needed, found "
+                        + (matrices == null ? 0 : matrices.size()) + ". Please scan the cube again.", Toast.LENGTH_LONG).show();
                 return;
             }
-            
-            Map<String, List<List<String>>> matricesMap = new HashMap<>();
-            char[] faceLetters = {'U', 'R', 'F', 'D', 'L', 'B'};
-            
-            for (int i = 0; i < 6; i++) {
-                List<String> colors = parseColorsFromMatrix(matrices.get(i), currentCubeSize);
-                if (colors.size() != colorsPerFace) {
-                     return;
-                }
-                
-                List<List<String>> faceMatrix = new ArrayList<>();
-                for (int row = 0; row < currentCubeSize; row++) {
-                    List<String> rowColors = new ArrayList<>();
-                    for (int col = 0; col < currentCubeSize; col++) {
-                        rowColors.add(colors.get(row * currentCubeSize + col));
-                    }
-                    faceMatrix.add(rowColors);
-                }
-                matricesMap.put(String.valueOf(faceLetters[i]), faceMatrix);
-            }
-            
-            String jsonMatrices = new ObjectMapper().writeValueAsString(matricesMap);
-            
-            StringBuilder solverString = new StringBuilder();
-            String letterColorMapJson = null;
-
-            if (currentCubeSize == 3) {
-                // 3x3 Kociemba string generation logic
-                Map<String, Character> colorToFaceLetter = new HashMap<>();
-                Map<Character, String> letterToColorName = new HashMap<>();
-
-                 for (int i = 0; i < 6; i++) {
-                    List<String> colors = parseColorsFromMatrix(matrices.get(i), currentCubeSize);
-                    String representativeColor = colors.get(4); // Center piece
-                    colorToFaceLetter.put(representativeColor, faceLetters[i]);
-                    letterToColorName.put(faceLetters[i], representativeColor);
-                }
-
-                for (int i = 0; i < 6; i++) {
-                    List<String> colors = parseColorsFromMatrix(matrices.get(i), currentCubeSize);
-                    for (String color : colors) {
-                        solverString.append(colorToFaceLetter.get(color));
-                    }
-                }
-
-                 Map<String, String> stringKeyMap = new HashMap<>();
-                 for (Map.Entry<Character, String> entry : letterToColorName.entrySet()) {
-                     stringKeyMap.put(String.valueOf(entry.getKey()), entry.getValue());
-                 }
-                 letterColorMapJson = new JSONObject(stringKeyMap).toString();
-
-            } else if (currentCubeSize == 2) {
-                // 2x2 solver string generation logic
-                Map<String, Character> colorNameToPytwistyChar = new HashMap<>();
-                colorNameToPytwistyChar.put("white", 'W');
-                colorNameToPytwistyChar.put("yellow", 'Y');
-                colorNameToPytwistyChar.put("green", 'G');
-                colorNameToPytwistyChar.put("blue", 'B');
-                colorNameToPytwistyChar.put("orange", 'O');
-                colorNameToPytwistyChar.put("red", 'R');
-
-                List<List<String>> uMatrix = matricesMap.get("U");
-                List<List<String>> rMatrix = matricesMap.get("R");
-                List<List<String>> fMatrix = matricesMap.get("F");
-                List<List<String>> dMatrix = matricesMap.get("D");
-                List<List<String>> lMatrix = matricesMap.get("L");
-                List<List<String>> bMatrix = matricesMap.get("B");
-
-                if (uMatrix == null || rMatrix == null || fMatrix == null || dMatrix == null || lMatrix == null || bMatrix == null) {
-                     return;
-                }
-
-                Function<List<List<String>>, Function<Integer, Function<Integer, Character>>> getColorChar =
-                    (matrix) -> (row) -> (col) -> colorNameToPytwistyChar.get(matrix.get(row).get(col).toLowerCase());
-
-                // Build the 24-character string in the specific order required by the solver.
-                solverString.append(getColorChar.apply(fMatrix).apply(0).apply(0));
-                solverString.append(getColorChar.apply(fMatrix).apply(0).apply(1));
-                solverString.append(getColorChar.apply(fMatrix).apply(1).apply(1));
-                solverString.append(getColorChar.apply(fMatrix).apply(1).apply(0));
-                // ... and so on for all 6 faces in the required order.
-            }
 
-            if (solverString.length() != expectedSolverStringLength) {
+            // Check the cube here, where the stickers can still be corrected, instead of failing in the solver.
+            CubeValidator.Result validation = CubeValidator.validate(cubeState);
+            highlightStickers(validation);
+            if (!validation.isValid()) {
+                showValidationProblems(validation);
                 return;
             }
-
-            saveSolutionDataToPreferences(currentCubeSize, solverString.toString(), letterColorMapJson, jsonMatrices);
+            
+            // The cube state already holds every sticker, including manual corrections, so nothing is reparsed here.
+            // The next screen reads the typed state from the session; the snapshot is written in the background.
+            session = session.withState(cubeState).withSolverString(cubeState.toSolverString());
+            sessionStore.put(session);
 
             Intent intent = new Intent(this, AlgorithmSolutionActivity.class);
             startActivity(intent);
@@ -548,45 +459,42 @@ public class SolutionActivity extends AppCompatActivity {
     }
     
     /**
-     * Saves all the necessary data for the AlgorithmSolutionActivity to SharedPreferences.
-     * @param cubeSize The size of the cube.
-     * @param solverString The generated solver string.
-     * @param letterColorMapJson A JSON string mapping face letters to color names (for 3x3).
-     * @param jsonMatrices A JSON string representing the full cube state.
+     * Lists the problems of an invalid cube and offers the most likely valid cube as a one-tap fix.
+     * The fix weighs the classifier's confidences and works around the colors the user picked by hand.
+     * @param validation The failed validation.
      */
-    private void saveSolutionDataToPreferences(int cubeSize, String solverString, String letterColorMapJson, String jsonMatrices) {
-        SharedPreferences prefs = getSharedPreferences("CubeSolverData", MODE_PRIVATE);
-        SharedPreferences.Editor editor = prefs.edit();
-        
-        editor.putInt("cube_size", cubeSize);
-        editor.putString("solver_string", solverString);
-        
-        if (letterColorMapJson != null) {
-            editor.putString("letter_color_map_json", letterColorMapJson);
-        } else {
-            editor.remove("letter_color_map_json");
-        }
-        
-        if (jsonMatrices != null) {
-             editor.putString("cube_matrices_json", jsonMatrices);
-        } else {
-             editor.remove("cube_matrices_json");
+    private void showValidationProblems(CubeValidator.Result validation) {
+        CubeCorrector.Correction correction = correct();
+
+        AlertDialog.Builder builder = new AlertDialog.Builder(this)
+                .setTitle("Please check the highlighted stickers")
+                .setMessage(validation.getSummary())
+                .setPositiveButton("OK", null);
+        int changes = correction.getChangedStickers().length;
+        if (changes > 0) {
+            builder.setNeutralButton("Fix " + changes + (changes == 1 ? " sticker" : " stickers"),
+                    (dialog, which) -> applyCorrection(correction));
         }
-        
-        editor.apply();
+        builder.show();
     }
 
     /**
-     * A helper class to hold cube data (matrices and size) when loading from preferences.
+     * Applies a correction to the cube state and the color squares, and outlines the changed squares.
+     * @param correction The correction proposed by CubeCorrector.
      */
-    private static class CubeData {
-        ArrayList<String> matrices;
-        int cubeSize;
-
-        CubeData(ArrayList<String> matrices, int cubeSize) {
-            this.matrices = matrices;
-            this.cubeSize = cubeSize;
+    private void applyCorrection(CubeCorrector.Correction correction) {
+        int size = cubeState.getSize();
+        int[] changed = correction.getChangedStickers();
+        cubeState = correction.getState();
+        boolean[] outlined = new boolean[cubeState.getStickerCount()];
+        for (int sticker : changed) {
+            outlined[sticker] = true;
+            editedFaces |= 1 << sticker / (size * size);
         }
+        showCubeState();
+        highlightStickers(outlined);
+        Toast.makeText(this, "Changed " + changed.length + (changed.length == 1 ? " sticker" : " stickers")
+                + ". Check the outlined squares, then proceed again.", Toast.LENGTH_LONG).show();
     }
 
     /**
@@ -0,0 +1,83 @@
+package com.example.cubesolver.model;
+
+/**
+ * The six standard sticker colors. The ordinal is the value stored per sticker in a CubeState,
+ * so the order must not change.
+ */
+public enum CubeColor {
+    WHITE("White", 'W', 0xFFFFFFFF),
+    YELLOW("Yellow", 'Y', 0xFFFFFF00),
+    RED("Red", 'R', 0xFFFF0000),
+    ORANGE("Orange", 'O', 0xFFFFA500),
+    BLUE("Blue", 'B', 0xFF0000FF),
+    GREEN("Green", 'G', 0xFF00FF00);
+
+    public static final int COUNT = 6;
+
+    private static final CubeColor[] VALUES = values();
+
+    private final String displayName; // The name used by the Gemini prompt, the UI and the stored JSON, e.g. "White".
+    private final char letter; // The letter used in the 2x2 solver string.
+    private final int argb; // The color used to draw the sticker.
+
+    CubeColor(String displayName, char letter, int argb) {
+        this.displayName = displayName;
+        this.letter = letter;
+        this.argb = argb;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public char getLetter() {
+        return letter;
+    }
+
+    public int getArgb() {
+        return argb;
+    }
+
+    /**
+     * Returns the color with the given ordinal without allocating a copy of values().
+     * @param ordinal The ordinal, as stored in a CubeState.
+     * @return The color.
+     */
+    public static CubeColor of(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Looks up a color by its display name, ignoring case.
+     * @param name The color name, e.g. "red".
+     * @return The color, or null if the name is not one of the six standard colors.
+     */
+    public static CubeColor fromName(CharSequence name) {
+        return fromName(name, 0, name.length());
+    }
+
+    /**
+     * Looks up a color by a region of a character sequence, ignoring case, without creating a substring.
+     * @param text The text containing the name.
+     * @param start The index of the first character of the name.
+     * @param end The index after the last character of the name.
+     * @return The color, or null if the region is not one of the six standard color names.
+     */
+    public static CubeColor fromName(CharSequence text, int start, int end) {
+        for (CubeColor color : VALUES) {
+            String candidate = color.displayName;
+            if (candidate.length() != end - start) {
+                continue;
+            }
+            int i = 0;
+            while (i < candidate.length()
+                    && Character.toLowerCase(text.charAt(start + i)) == Character.toLowerCase(candidate.charAt(i))) {
+                i++;
+            }
+            if (i == candidate.length()) {
+                return color;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,400 @@
+package com.example.cubesolver.model;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * CubeState is the single, immutable representation of a scanned 3x3 or 2x2 cube that is shared by every screen.
+ * Each sticker is stored as the ordinal of its CubeColor in one byte array, face by face in URFDLB order and
+ * row by row within a face, so a 3x3 cube takes 54 bytes and a 2x2 cube 24 bytes.
+ * The conversions to the solver strings and to JSON write straight into a char array or StringBuilder
+ * without building intermediate lists, maps or boxed values.
+ */
+public final class CubeState {
+
+    public static final String FACES = "URFDLB"; // Face order of the sticker array and of the Kociemba facelet string.
+    public static final int FACE_COUNT = 6;
+
+    // The 2x2 solver reads the faces in this order, each one clockwise starting at the top-left sticker.
+    private static final int[] POCKET_FACE_ORDER = {2, 1, 5, 4, 0, 3}; // F, R, B, L, U, D
+    private static final int[] POCKET_CLOCKWISE = {0, 1, 3, 2}; // (0,0), (0,1), (1,1), (1,0)
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final int size; // Stickers per face edge: 3 for 3x3, 2 for 2x2.
+    private final byte[] stickers; // CubeColor ordinals, index (face * size + row) * size + col.
+
+    private CubeState(int size, byte[] stickers) {
+        this.size = size;
+        this.stickers = stickers;
+    }
+
+    /**
+     * Creates a cube state from sticker color ordinals.
+     * @param size The cube size (2 or 3).
+     * @param stickers The CubeColor ordinals in URFDLB face order, row by row; the array is copied.
+     * @return The cube state.
+     * @throws IllegalArgumentException If the size is unsupported or the array has the wrong length or values.
+     */
+    public static CubeState of(int size, byte[] stickers) {
+        checkSize(size);
+        if (stickers.length != FACE_COUNT * size * size) {
+            throw new IllegalArgumentException("Expected " + FACE_COUNT * size * size + " stickers, got " + stickers.length);
+        }
+        for (byte sticker : stickers) {
+            if (sticker < 0 || sticker >= CubeColor.COUNT) {
+                throw new IllegalArgumentException("Invalid sticker color " + sticker);
+            }
+        }
+        return new CubeState(size, stickers.clone());
+    }
+
+    /**
+     * Creates a solved cube whose faces have the given colors.
+     * @param size The cube size (2 or 3).
+     * @param faceColors The color of each face in URFDLB order.
+     * @return The cube state.
+     */
+    public static CubeState solved(int size, CubeColor... faceColors) {
+        checkSize(size);
+        if (faceColors.length != FACE_COUNT) {
+            throw new IllegalArgumentException("Expected " + FACE_COUNT + " face colors");
+        }
+        byte[] stickers = new byte[FACE_COUNT * size * size];
+        for (int face = 0; face < FACE_COUNT; face++) {
+            Arrays.fill(stickers, face * size * size, (face + 1) * size * size, (byte) faceColors[face].ordinal());
+        }
+        return new CubeState(size, stickers);
+    }
+
+    /**
+     * Parses the per-face matrix texts stored by MainActivity, e.g. "Face #1:\n\nRed Blue White\n...".
+     * Each text is scanned once for color names; missing stickers default to white, like the editable grid shows them.
+     * @param size The cube size (2 or 3).
+     * @param matrices The six matrix texts in URFDLB order.
+     * @return The cube state.
+     * @throws IllegalArgumentException If the size is unsupported or fewer than six faces are given.
+     */
+    public static CubeState parseFaces(int size, List<String> matrices) {
+        checkSize(size);
+        if (matrices == null || matrices.size() < FACE_COUNT) {
+            throw new IllegalArgumentException("Expected " + FACE_COUNT + " faces");
+        }
+        int perFace = size * size;
+        byte[] stickers = new byte[FACE_COUNT * perFace];
+        for (int face = 0; face < FACE_COUNT; face++) {
+            parseFace(matrices.get(face), stickers, face * perFace, perFace);
+        }
+        return new CubeState(size, stickers);
+    }
+
+    /**
+     * Reads up to count color names from one matrix text into the sticker array.
+     * A color name only counts as a whole word, matching the old "\b(White|...)\b" pattern.
+     */
+    private static void parseFace(String text, byte[] stickers, int offset, int count) {
+        int found = 0;
+        int length = text == null ? 0 : text.length();
+        int i = 0;
+        while (i < length && found < count) {
+            if (!Character.isLetter(text.charAt(i))) {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < length && Character.isLetterOrDigit(text.charAt(i))) {
+                i++;
+            }
+            CubeColor color = CubeColor.fromName(text, start, i);
+            if (color != null) {
+                stickers[offset + found++] = (byte) color.ordinal();
+            }
+        }
+        // Stickers that were not found keep ordinal 0, which is CubeColor.WHITE.
+    }
+
+    /**
+     * Reads the JSON written by toJson, e.g. {"U":[["White","Red","Blue"],...],"R":...}.
+     * @param size The cube size (2 or 3).
+     * @param json The JSON text.
+     * @return The cube state.
+     * @throws IOException If the JSON is malformed, misses a face or contains an unknown color.
+     */
+    public static CubeState fromJson(int size, String json) throws IOException {
+        checkSize(size);
+        byte[] stickers = new byte[FACE_COUNT * size * size];
+        int facesSeen = 0;
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Cube JSON must be an object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                int face = name.length() == 1 ? FACES.indexOf(name.charAt(0)) : -1;
+                if (face < 0) {
+                    throw new IOException("Unknown face " + name);
+                }
+                readFace(parser, stickers, face, size);
+                facesSeen |= 1 << face;
+            }
+        }
+        if (facesSeen != (1 << FACE_COUNT) - 1) {
+            throw new IOException("Cube JSON is missing faces");
+        }
+        return new CubeState(size, stickers);
+    }
+
+    private static void readFace(JsonParser parser, byte[] stickers, int face, int size) throws IOException {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+            throw new IOException("Face " + FACES.charAt(face) + " must be an array of rows");
+        }
+        int row = 0;
+        while (parser.nextToken() == JsonToken.START_ARRAY) {
+            int col = 0;
+            while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                CubeColor color = CubeColor.fromName(parser.getText());
+                if (color == null || row >= size || col >= size) {
+                    throw new IOException("Invalid sticker " + parser.getText() + " on face " + FACES.charAt(face));
+                }
+                stickers[(face * size + row) * size + col] = (byte) color.ordinal();
+                col++;
+            }
+            if (col != size) {
+                throw new IOException("Face " + FACES.charAt(face) + " has a row of " + col + " stickers");
+            }
+            row++;
+        }
+        if (row != size) {
+            throw new IOException("Face " + FACES.charAt(face) + " has " + row + " rows");
+        }
+    }
+
+    private static void checkSize(int size) {
+        if (size != 2 && size != 3) {
+            throw new IllegalArgumentException("Unsupported cube size " + size);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of stickers, 54 for 3x3 and 24 for 2x2.
+     */
+    public int getStickerCount() {
+        return stickers.length;
+    }
+
+    /**
+     * Returns the color of one sticker.
+     * @param face The face index in URFDLB order.
+     * @param row The row, from the top of the face as scanned.
+     * @param col The column, from the left of the face as scanned.
+     * @return The sticker color.
+     */
+    public CubeColor getColor(int face, int row, int col) {
+        return CubeColor.of(stickers[(face * size + row) * size + col]);
+    }
+
+    /**
+     * Returns the color ordinal of a sticker by its index in the sticker array.
+     * @param index The sticker index, (face * size + row) * size + col.
+     * @return The CubeColor ordinal.
+     */
+    public int getOrdinal(int index) {
+        return stickers[index];
+    }
+
+    /**
+     * Returns the center color of a face. A 2x2 cube has no centers, so its sticker at (1, 1) is used.
+     * @param face The face index in URFDLB order.
+     * @return The color of the face's center.
+     */
+    public CubeColor getCenter(int face) {
+        return getColor(face, size / 2, size / 2);
+    }
+
+    /**
+     * Returns a copy of this state with one sticker changed.
+     * @param face The face index in URFDLB order.
+     * @param row The row of the sticker.
+     * @param col The column of the sticker.
+     * @param color The new color.
+     * @return The new state, or this state if the sticker already has the color.
+     */
+    public CubeState withColor(int face, int row, int col, CubeColor color) {
+        int index = (face * size + row) * size + col;
+        if (stickers[index] == color.ordinal()) {
+            return this;
+        }
+        byte[] copy = stickers.clone();
+        copy[index] = (byte) color.ordinal();
+        return new CubeState(size, copy);
+    }
+
+    /**
+     * Copies the sticker ordinals into the given array.
+     * @param out An array of at least getStickerCount() bytes.
+     */
+    public void copyStickers(byte[] out) {
+        System.arraycopy(stickers, 0, out, 0, stickers.length);
+    }
+
+    /**
+     * Writes the 54-character Kociemba facelet string of a 3x3 cube. Every sticker is named after the face
+     * whose center has its color, e.g. all stickers matching the U center become 'U'.
+     * @param out The destination array.
+     * @param offset The index in out of the first facelet.
+     * @throws IllegalStateException If this is not a 3x3 cube, two centers share a color or a sticker matches no center.
+     */
+    public void writeFacelets(char[] out, int offset) {
+        if (size != 3) {
+            throw new IllegalStateException("Facelet strings are only defined for 3x3 cubes");
+        }
+        // faceOfColor[color ordinal] is the URFDLB letter of the face with that center, or 0 if none.
+        char[] faceOfColor = new char[CubeColor.COUNT];
+        for (int face = 0; face < FACE_COUNT; face++) {
+            int center = stickers[face * 9 + 4];
+            if (faceOfColor[center] != 0) {
+                throw new IllegalStateException("Two centers are " + CubeColor.of(center).getDisplayName());
+            }
+            faceOfColor[center] = FACES.charAt(face);
+        }
+        for (int i = 0; i < stickers.length; i++) {
+            char letter = faceOfColor[stickers[i]];
+            if (letter == 0) {
+                throw new IllegalStateException(CubeColor.of(stickers[i]).getDisplayName() + " is not the color of any center");
+            }
+            out[offset + i] = letter;
+        }
+    }
+
+    /**
+     * Returns the 54-character Kociemba facelet string of a 3x3 cube.
+     * @return The facelet string in URFDLB order.
+     * @throws IllegalStateException If the facelets cannot be derived, see writeFacelets.
+     */
+    public String toFaceletString() {
+        char[] facelets = new char[stickers.length];
+        writeFacelets(facelets, 0);
+        return new String(facelets);
+    }
+
+    /**
+     * Writes the 24-character 2x2 solver string: the faces F, R, B, L, U, D, each read clockwise from the
+     * top-left sticker, with one color letter (W, Y, R, O, B, G) per sticker.
+     * @param out The destination array.
+     * @param offset The index in out of the first character.
+     * @throws IllegalStateException If this is not a 2x2 cube.
+     */
+    public void writePocketString(char[] out, int offset) {
+        if (size != 2) {
+            throw new IllegalStateException("The 2x2 solver string is only defined for 2x2 cubes");
+        }
+        for (int f = 0; f < FACE_COUNT; f++) {
+            int base = POCKET_FACE_ORDER[f] * 4;
+            for (int i = 0; i < 4; i++) {
+                out[offset++] = CubeColor.of(stickers[base + POCKET_CLOCKWISE[i]]).getLetter();
+            }
+        }
+    }
+
+    /**
+     * Returns the 24-character 2x2 solver string, see writePocketString.
+     * @return The solver string.
+     */
+    public String toPocketString() {
+        char[] chars = new char[stickers.length];
+        writePocketString(chars, 0);
+        return new String(chars);
+    }
+
+    /**
+     * Returns the solver string for this cube's size: the facelet string for 3x3, the 2x2 solver string for 2x2.
+     * @return The solver string.
+     */
+    public String toSolverString() {
+        return size == 3 ? toFaceletString() : toPocketString();
+    }
+
+    /**
+     * Appends this state as JSON, one matrix of color names per face: {"U":[["White","Red",...],...],...}.
+     * @param json The builder to append to.
+     * @return The same builder.
+     */
+    public StringBuilder appendJson(StringBuilder json) {
+        json.append('{');
+        for (int face = 0; face < FACE_COUNT; face++) {
+            if (face > 0) {
+                json.append(',');
+            }
+            json.append('"').append(FACES.charAt(face)).append("\":[");
+            for (int row = 0; row < size; row++) {
+                json.append(row > 0 ? ",[" : "[");
+                for (int col = 0; col < size; col++) {
+                    if (col > 0) {
+                        json.append(',');
+                    }
+                    json.append('"').append(getColor(face, row, col).getDisplayName()).append('"');
+                }
+                json.append(']');
+            }
+            json.append(']');
+        }
+        return json.append('}');
+    }
+
+    /**
+     * Returns this state as JSON, see appendJson.
+     * @return The JSON text.
+     */
+    public String toJson() {
+        // Sized so the builder never grows: a 3x3 cube needs about 520 characters.
+        return appendJson(new StringBuilder(stickers.length * 10)).toString();
+    }
+
+    /**
+     * Returns one face in the "Face #n:" text format that MainActivity stores per face.
+     * @param face The face index in URFDLB order.
+     * @return The matrix text.
+     */
+    public String toMatrixString(int face) {
+        StringBuilder text = new StringBuilder(16 + size * size * 8);
+        text.append("Face #").append(face + 1).append(":\n\n");
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                text.append(getColor(face, row, col).getDisplayName()).append(' ');
+            }
+            text.append('\n');
+        }
+        return text.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CubeState)) return false;
+        CubeState other = (CubeState) o;
+        return size == other.size && Arrays.equals(stickers, other.stickers);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(stickers);
+    }
+
+    @Override
+    public String toString() {
+        char[] letters = new char[stickers.length];
+        for (int i = 0; i < stickers.length; i++) {
+            letters[i] = CubeColor.of(stickers[i]).getLetter();
+        }
+        return size + "x" + size + ":" + new String(letters);
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.cubesolver.model;
+
+/**
+ * NetLayout places the stickers of a CubeState on a flat surface, either as the whole unfolded net or as a single
+ * face, and maps a point back to the sticker under it. It only does the arithmetic, so the view that draws the net
+ * needs no child views or per-sticker objects.
+ *
+ * <pre>
+ * Unfolded net, one cell per face:
+ *        U
+ *     L  F  R  B
+ *        D
+ * </pre>
+ *
+ * Positions are in pixels relative to the top-left corner of the layout. Every sticker occupies a square cell;
+ * faces in the net are separated by a gap.
+ */
+public final class NetLayout {
+
+    // Column and row of each face's cell in the unfolded net, in URFDLB order.
+    private static final int[] NET_COLUMN = {1, 2, 1, 1, 0, 3};
+    private static final int[] NET_ROW = {0, 1, 1, 2, 1, 1};
+    private static final int NET_COLUMNS = 4;
+    private static final int NET_ROWS = 3;
+
+    private final int size; // Stickers per face edge.
+    private final int face; // The single face shown, or -1 for the whole net.
+    private final float cellSize; // Side of one sticker cell in pixels.
+    private final float faceGap; // Space between neighboring faces of the net in pixels.
+
+    private NetLayout(int size, int face, float cellSize, float faceGap) {
+        if (size < 1) {
+            throw new IllegalArgumentException("Invalid cube size " + size);
+        }
+        this.size = size;
+        this.face = face;
+        this.cellSize = cellSize;
+        this.faceGap = faceGap;
+    }
+
+    /**
+     * Creates the layout of the whole unfolded net.
+     * @param size The cube size (2 or 3).
+     * @param cellSize The side of one sticker cell in pixels.
+     * @param faceGap The space between neighboring faces in pixels.
+     * @return The layout.
+     */
+    public static NetLayout net(int size, float cellSize, float faceGap) {
+        return new NetLayout(size, -1, cellSize, faceGap);
+    }
+
+    /**
+     * Creates the layout of a single face, placed at the origin.
+     * @param size The cube size (2 or 3).
+     * @param face The face index in URFDLB order.
+     * @param cellSize The side of one sticker cell in pixels.
+     * @return The layout.
+     */
+    public static NetLayout singleFace(int size, int face, float cellSize) {
+        if (face < 0 || face >= CubeState.FACE_COUNT) {
+            throw new IllegalArgumentException("Invalid face " + face);
+        }
+        return new NetLayout(size, face, cellSize, 0f);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the face shown by a single-face layout, or -1 for the whole net.
+     */
+    public int getFace() {
+        return face;
+    }
+
+    public float getCellSize() {
+        return cellSize;
+    }
+
+    /**
+     * Returns the width of the layout in pixels.
+     */
+    public float getWidth() {
+        return face < 0 ? NET_COLUMNS * size * cellSize + (NET_COLUMNS - 1) * faceGap : size * cellSize;
+    }
+
+    /**
+     * Returns the height of the layout in pixels.
+     */
+    public float getHeight() {
+        return face < 0 ? NET_ROWS * size * cellSize + (NET_ROWS - 1) * faceGap : size * cellSize;
+    }
+
+    /**
+     * Returns the index of the first sticker shown, in CubeState order.
+     */
+    public int getFirstSticker() {
+        return face < 0 ? 0 : face * size * size;
+    }
+
+    /**
+     * Returns the index after the last sticker shown, in CubeState order.
+     */
+    public int getEndSticker() {
+        return face < 0 ? CubeState.FACE_COUNT * size * size : (face + 1) * size * size;
+    }
+
+    /**
+     * Returns whether a sticker is shown by this layout.
+     * @param sticker The sticker index, (face * size + row) * size + col.
+     */
+    public boolean contains(int sticker) {
+        return sticker >= getFirstSticker() && sticker < getEndSticker();
+    }
+
+    /**
+     * Returns the left edge of a sticker's cell.
+     * @param sticker The sticker index; must be shown by this layout.
+     * @return The x coordinate in pixels.
+     */
+    public float getLeft(int sticker) {
+        int col = sticker % size;
+        if (face >= 0) {
+            return col * cellSize;
+        }
+        int stickerFace = sticker / (size * size);
+        return NET_COLUMN[stickerFace] * (size * cellSize + faceGap) + col * cellSize;
+    }
+
+    /**
+     * Returns the top edge of a sticker's cell.
+     * @param sticker The sticker index; must be shown by this layout.
+     * @return The y coordinate in pixels.
+     */
+    public float getTop(int sticker) {
+        int row = sticker / size % size;
+        if (face >= 0) {
+            return row * cellSize;
+        }
+        int stickerFace = sticker / (size * size);
+        return NET_ROW[stickerFace] * (size * cellSize + faceGap) + row * cellSize;
+    }
+
+    /**
+     * Finds the sticker under a point, e.g. a tap.
+     * @param x The x coordinate in pixels.
+     * @param y The y coordinate in pixels.
+     * @return The sticker index, or -1 if the point is outside every sticker cell, including the gaps between faces.
+     */
+    public int stickerAt(float x, float y) {
+        if (x < 0 || y < 0 || x >= getWidth() || y >= getHeight()) {
+            return -1;
+        }
+        if (face >= 0) {
+            int row = Math.min((int) (y / cellSize), size - 1);
+            int col = Math.min((int) (x / cellSize), size - 1);
+            return (face * size + row) * size + col;
+        }
+        float faceSpan = size * cellSize + faceGap;
+        int netCol = (int) (x / faceSpan);
+        int netRow = (int) (y / faceSpan);
+        float inX = x - netCol * faceSpan;
+        float inY = y - netRow * faceSpan;
+        if (inX >= size * cellSize || inY >= size * cellSize) {
+            return -1; // In the gap between two faces.
+        }
+        for (int f = 0; f < CubeState.FACE_COUNT; f++) {
+            if (NET_COLUMN[f] == netCol && NET_ROW[f] == netRow) {
+                int row = Math.min((int) (inY / cellSize), size - 1);
+                int col = Math.min((int) (inX / cellSize), size - 1);
+                return (f * size + row) * size + col;
+            }
+        }
+        return -1; // An empty cell of the net.
+    }
+}
@@ -0,0 +1,241 @@
+package com.example.cubesolver.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * ApiClient is the HTTP layer shared by the app's network calls. It sits on HttpURLConnection, which keeps idle
+ * connections open per host (the platform's keep-alive pool), and makes sure every exchange leaves its connection
+ * reusable: response and error bodies are always read to the end and closed, and connections are never
+ * disconnected. A second request to the same host then skips DNS, TCP and TLS setup.
+ * <p>
+ * On top of that it
+ * <ul>
+ *   <li>asks for gzip responses and inflates them, on every platform (Android only does so on its own when the
+ *       app leaves Accept-Encoding alone);</li>
+ *   <li>can gzip request bodies, streamed with chunked transfer encoding and flushed through the compressor so
+ *       every part still goes out as soon as it is written;</li>
+ *   <li>can warm a host up with a small GET, so the connection is open and pooled by the time the real request
+ *       is made;</li>
+ *   <li>can hand a successful response body to the caller while it arrives, for streamed answers.</li>
+ * </ul>
+ * The client holds no connections itself and is thread-safe.
+ */
+public final class ApiClient {
+
+    public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 60000;
+    public static final int DEFAULT_READ_TIMEOUT_MILLIS = 60000;
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024; // Size of the chunks request bodies are uploaded in.
+
+    private static final String GZIP = "gzip";
+
+    private static final ApiClient INSTANCE = new ApiClient();
+
+    private final int connectTimeoutMillis;
+    private final int readTimeoutMillis;
+    private final int chunkSize;
+
+    /**
+     * Writes a request body. Called once, after the connection is open.
+     */
+    public interface BodyWriter {
+        /**
+         * Writes the body. The stream must not be closed.
+         * @param out The request body, gzip-compressed on the way if asked for.
+         * @throws IOException If the body cannot be written; the request is abandoned.
+         */
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Reads a successful response body while it arrives.
+     */
+    public interface BodyReader {
+        /**
+         * Reads the body. Whatever is left unread afterwards is skipped.
+         * @param in The inflated response body; closed by the client.
+         * @throws IOException If the body cannot be read or is invalid.
+         */
+        void readFrom(InputStream in) throws IOException;
+    }
+
+    /**
+     * A response: the status code and the whole, inflated body.
+     */
+    public static final class Response {
+        private final int statusCode;
+        private final String body;
+
+        Response(int statusCode, String body) {
+            this.statusCode = statusCode;
+            this.body = body;
+        }
+
+        /**
+         * Returns the HTTP status code.
+         */
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        /**
+         * Returns true for a 2xx status code.
+         */
+        public boolean isSuccessful() {
+            return statusCode >= 200 && statusCode < 300;
+        }
+
+        /**
+         * Returns the body as UTF-8 text, the error body for an unsuccessful request; empty if there is none, or
+         * if a BodyReader read it.
+         */
+        public String getBody() {
+            return body;
+        }
+    }
+
+    /**
+     * Returns the client shared by all screens.
+     */
+    public static ApiClient getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Creates a client with the default timeouts and chunk size.
+     */
+    public ApiClient() {
+        this(DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a client with custom timeouts.
+     * @param connectTimeoutMillis How long to wait for a connection, in milliseconds.
+     * @param readTimeoutMillis How long to wait for response data, in milliseconds.
+     * @param chunkSize The size of the chunks request bodies are uploaded in.
+     */
+    public ApiClient(int connectTimeoutMillis, int readTimeoutMillis, int chunkSize) {
+        if (connectTimeoutMillis < 0 || readTimeoutMillis < 0 || chunkSize <= 0) {
+            throw new IllegalArgumentException("Timeouts must not be negative and the chunk size must be positive");
+        }
+        this.connectTimeoutMillis = connectTimeoutMillis;
+        this.readTimeoutMillis = readTimeoutMillis;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * POSTs a streamed body and reads the whole response.
+     * @param url The URL to post to.
+     * @param contentType The Content-Type of the body.
+     * @param gzipBody Whether to gzip the body; the server must accept Content-Encoding: gzip.
+     * @param body Writes the body.
+     * @return The response; unsuccessful status codes are returned, not thrown.
+     * @throws IOException If the connection fails or the body cannot be written.
+     */
+    public Response post(String url, String contentType, boolean gzipBody, BodyWriter body) throws IOException {
+        return post(url, contentType, gzipBody, body, null);
+    }
+
+    /**
+     * POSTs a streamed body and hands a successful response body to a reader while it arrives.
+     * @param url The URL to post to.
+     * @param contentType The Content-Type of the body.
+     * @param gzipBody Whether to gzip the body; the server must accept Content-Encoding: gzip.
+     * @param body Writes the body.
+     * @param reader Reads a successful response body; null to read it into the response.
+     * @return The response; unsuccessful status codes are returned, not thrown, with their error body.
+     * @throws IOException If the connection fails, the body cannot be written or the reader fails.
+     */
+    public Response post(String url, String contentType, boolean gzipBody, BodyWriter body, BodyReader reader)
+            throws IOException {
+        HttpURLConnection connection = open(url);
+        connection.setRequestMethod("POST");
+        connection.setRequestProperty("Content-Type", contentType);
+        if (gzipBody) {
+            connection.setRequestProperty("Content-Encoding", GZIP);
+        }
+        connection.setDoOutput(true);
+        connection.setChunkedStreamingMode(chunkSize);
+        try (OutputStream out = connection.getOutputStream()) {
+            if (gzipBody) {
+                // Sync flush: a flush of the body pushes everything written so far through the compressor.
+                GZIPOutputStream gzip = new GZIPOutputStream(out, chunkSize, true);
+                body.writeTo(gzip);
+                gzip.finish();
+            } else {
+                body.writeTo(out);
+            }
+        }
+        return readResponse(connection, reader);
+    }
+
+    /**
+     * GETs a URL and reads the whole response.
+     * @param url The URL.
+     * @return The response; unsuccessful status codes are returned, not thrown.
+     * @throws IOException If the connection fails.
+     */
+    public Response get(String url) throws IOException {
+        HttpURLConnection connection = open(url);
+        connection.setRequestMethod("GET");
+        return readResponse(connection, null);
+    }
+
+    /**
+     * Opens a connection to a host ahead of a request, with a GET of a small resource on it, and leaves it in the
+     * keep-alive pool. Any status code counts: the point is the open connection, and for a server that starts on
+     * demand, a running server. Blocks, so call it off the main thread.
+     * @param url A cheap URL on the host the real request will go to.
+     * @return True if the server answered.
+     */
+    public boolean warmUp(String url) {
+        try {
+            get(url);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private HttpURLConnection open(String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        connection.setRequestProperty("Accept-Encoding", GZIP);
+        return connection;
+    }
+
+    /**
+     * Reads the status code and the body or error body to the end, and closes it, which hands the connection back
+     * to the keep-alive pool. A successful body goes to the reader, if there is one.
+     */
+    private static Response readResponse(HttpURLConnection connection, BodyReader reader) throws IOException {
+        int statusCode = connection.getResponseCode();
+        InputStream raw = statusCode >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        if (raw == null) {
+            return new Response(statusCode, "");
+        }
+        try (InputStream in = GZIP.equalsIgnoreCase(connection.getContentEncoding()) ? new GZIPInputStream(raw) : raw) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            if (reader != null && statusCode < 400) {
+                reader.readFrom(in);
+            }
+            for (int n; (n = in.read(buffer)) != -1; ) {
+                body.write(buffer, 0, n);
+            }
+            // The inflater may stop at the gzip trailer; a connection is only reused once its body is consumed.
+            while (raw.read(buffer) != -1) {
+                // Discard.
+            }
+            return new Response(statusCode, new String(body.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cubesolver.net;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * GeminiRequestWriter streams a generateContent request body, a text prompt followed by JPEG images, straight into
+ * an output stream such as the request body of an HttpURLConnection.
+ * The images are Base64-encoded in small blocks as they are written, so neither the Base64 strings nor the JSON
+ * document ever exist in memory as a whole, and each image is sent as soon as it is available.
+ */
+public final class GeminiRequestWriter {
+
+    /**
+     * Supplies the images of a request, one at a time and in order.
+     */
+    public interface ImageSource {
+        /**
+         * Returns the JPEG bytes of one image. Called only after all earlier images have been written.
+         * @param index The index of the image, from 0.
+         * @return The JPEG file contents.
+         * @throws IOException If the image is not available; the request is abandoned.
+         */
+        byte[] getJpeg(int index) throws IOException;
+    }
+
+    public static final String MIME_TYPE = "image/jpeg";
+
+    // Generators are cheap, the factory is not; it is thread-safe once configured.
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    private GeminiRequestWriter() {
+    }
+
+    /**
+     * Writes the request {"contents":[{"parts":[{"text":prompt},{"inline_data":{...}},...]}]}.
+     * The stream is flushed after every image but not closed.
+     * @param out The stream to write the UTF-8 JSON to.
+     * @param prompt The text part.
+     * @param imageCount The number of image parts following the text.
+     * @param images Supplies the JPEG bytes of each image.
+     * @throws IOException If writing fails or an image is not available.
+     */
+    public static void write(OutputStream out, String prompt, int imageCount, ImageSource images) throws IOException {
+        try (JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("contents");
+            generator.writeStartObject();
+            generator.writeArrayFieldStart("parts");
+
+            generator.writeStartObject();
+            generator.writeStringField("text", prompt);
+            generator.writeEndObject();
+
+            for (int i = 0; i < imageCount; i++) {
+                byte[] jpeg = images.getJpeg(i);
+                generator.writeStartObject();
+                generator.writeObjectFieldStart("inline_data");
+                generator.writeStringField("mime_type", MIME_TYPE);
+                generator.writeFieldName("data");
+                // Standard Base64 without line feeds, encoded through the generator's small output buffer.
+                generator.writeBinary(jpeg);
+                generator.writeEndObject();
+                generator.writeEndObject();
+                generator.flush(); // Let this image go out while the next one is still being prepared.
+            }
+
+            generator.writeEndArray();
+            generator.writeEndObject();
+            generator.writeEndArray();
+            generator.writeEndObject();
+        }
+    }
+}
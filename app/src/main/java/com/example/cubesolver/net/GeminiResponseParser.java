@@ -0,0 +1,182 @@
+package com.example.cubesolver.net;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * GeminiResponseParser extracts the cube size and the six color matrices from a Gemini generateContent response.
+ * The model is asked for a JSON object inside its text answer; if that cannot be parsed, the text is split at
+ * "Face #" markers so the user at least sees the raw answer for each face.
+ * Matrices are returned in the "Face #n:\n\nColor Color Color \n..." format the rest of the app reads.
+ */
+public final class GeminiResponseParser {
+
+    /**
+     * The cube size and the matrix text of each face.
+     */
+    public static final class Result {
+
+        private final List<String> matrices;
+        private final int cubeSize;
+
+        Result(List<String> matrices, int cubeSize) {
+            this.matrices = Collections.unmodifiableList(matrices);
+            this.cubeSize = cubeSize;
+        }
+
+        /**
+         * Returns the matrix text of faces 1 to 6.
+         */
+        public List<String> getMatrices() {
+            return matrices;
+        }
+
+        /**
+         * Returns the detected cube size, 2 or 3.
+         */
+        public int getCubeSize() {
+            return cubeSize;
+        }
+    }
+
+    static final int FACE_COUNT = 6;
+
+    // The envelope is strict JSON; the model's answer may contain comments, single quotes or trailing commas.
+    // GeminiStreamReader parses streamed envelopes and answers with the same mappers.
+    static final ObjectMapper ENVELOPE_MAPPER = new ObjectMapper();
+    static final ObjectMapper LENIENT_MAPPER = JsonMapper.builder()
+            .enable(JsonReadFeature.ALLOW_JAVA_COMMENTS)
+            .enable(JsonReadFeature.ALLOW_SINGLE_QUOTES)
+            .enable(JsonReadFeature.ALLOW_UNQUOTED_FIELD_NAMES)
+            .enable(JsonReadFeature.ALLOW_TRAILING_COMMA)
+            .build();
+
+    private GeminiResponseParser() {
+    }
+
+    /**
+     * Parses a complete response body.
+     * @param jsonResponse The response body.
+     * @return The parsed faces; faces that could not be read hold an explanatory text instead of colors.
+     * @throws IOException If the body is not JSON.
+     */
+    public static Result parse(String jsonResponse) throws IOException {
+        JsonNode envelope = ENVELOPE_MAPPER.readTree(jsonResponse);
+        String text = "";
+        // Extract the text content of the first part of the first candidate.
+        JsonNode firstPart = envelope.path("candidates").path(0).path("content").path("parts").path(0);
+        if (firstPart.has("text")) {
+            text = firstPart.get("text").asText();
+        }
+        return parseText(text);
+    }
+
+    /**
+     * Parses the model's text answer.
+     * @param text The text of the first candidate.
+     * @return The parsed faces.
+     */
+    public static Result parseText(String text) {
+        Result structured = parseJsonAnswer(text);
+        return structured != null ? structured : parseFreeText(text);
+    }
+
+    /**
+     * Reads the JSON object embedded in the answer.
+     * @return The faces, or null if there is no JSON object or it does not describe all six faces.
+     */
+    private static Result parseJsonAnswer(String text) {
+        int jsonStart = text.indexOf('{');
+        int jsonEnd = text.lastIndexOf('}') + 1;
+        if (jsonStart < 0 || jsonEnd <= jsonStart) {
+            return null;
+        }
+        JsonNode answer;
+        try (JsonParser parser = LENIENT_MAPPER.createParser(text.substring(jsonStart, jsonEnd))) {
+            answer = LENIENT_MAPPER.readTree(parser);
+        } catch (IOException e) {
+            return null; // Fall back to text parsing.
+        }
+        if (answer == null || !answer.has("faces")) {
+            return null;
+        }
+
+        String cubeSize = answer.has("cube_size") ? answer.get("cube_size").asText() : "3x3";
+        JsonNode faces = answer.get("faces");
+        List<String> matrices = new ArrayList<>(Collections.nCopies(FACE_COUNT, ""));
+        for (JsonNode face : faces) {
+            int faceNumber = face.path("face_number").asInt();
+            int index = faceNumber - 1;
+            if (index >= 0 && index < FACE_COUNT) {
+                matrices.set(index, formatFace(faceNumber, face.path("matrix")));
+            }
+        }
+
+        // The model sometimes answers "3x3" for a 2x2; trust the shape of the matrices.
+        if (cubeSize.equals("3x3") && faces.size() > 0 && faces.get(0).has("matrix")) {
+            JsonNode firstMatrix = faces.get(0).get("matrix");
+            if (firstMatrix.size() == 2 && firstMatrix.get(0).size() == 2) {
+                cubeSize = "2x2";
+            }
+        }
+
+        if (matrices.contains("")) {
+            return null;
+        }
+        return new Result(matrices, cubeSize.equals("2x2") ? 2 : 3);
+    }
+
+    /**
+     * Formats one face object of the answer as its matrix text.
+     * @param faceNumber The face number, 1 to 6.
+     * @param matrix The rows of color names.
+     * @return "Face #n:\n\n" followed by one line of space-separated colors per row.
+     */
+    static String formatFace(int faceNumber, JsonNode matrix) {
+        StringBuilder formattedMatrix = new StringBuilder();
+        formattedMatrix.append("Face #").append(faceNumber).append(":\n\n");
+        for (JsonNode row : matrix) {
+            for (JsonNode color : row) {
+                formattedMatrix.append(color.asText()).append(" ");
+            }
+            formattedMatrix.append("\n");
+        }
+        return formattedMatrix.toString();
+    }
+
+    /**
+     * Splits a free-text answer at its "Face #n" markers and keeps the raw fragment of each face.
+     */
+    private static Result parseFreeText(String text) {
+        String cubeSize = "3x3";
+        List<String> matrices = new ArrayList<>(FACE_COUNT);
+        for (int i = 0; i < FACE_COUNT; i++) {
+            matrices.add("Face #" + (i + 1) + ":\n\nCould not parse matrix data.");
+        }
+
+        if (!text.isEmpty()) {
+            if (text.contains("2x2") || text.toLowerCase(Locale.ROOT).contains("two by two")) {
+                cubeSize = "2x2";
+            }
+            String[] faceBlocks = text.split("Face #");
+            for (int i = 1; i < faceBlocks.length; i++) {
+                String faceBlock = faceBlocks[i].trim();
+                if (faceBlock.isEmpty() || faceBlock.charAt(0) < '1' || faceBlock.charAt(0) > '6') {
+                    continue;
+                }
+                int faceNumber = faceBlock.charAt(0) - '0';
+                matrices.set(faceNumber - 1, "Face #" + faceNumber + ":\n\n" + "Raw response fragment:\n" + faceBlock + "\n");
+            }
+        }
+        return new Result(matrices, cubeSize.equals("2x2") ? 2 : 3);
+    }
+}
@@ -0,0 +1,210 @@
+package com.example.cubesolver.net;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.util.TokenBuffer;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * GeminiStreamReader reads a streamGenerateContent response (?alt=sse) while it arrives, and reports every face of
+ * the model's answer as soon as the face object is complete, long before the answer as a whole is.
+ * <p>
+ * Each server-sent event carries a small GenerateContentResponse whose text continues the answer. The text is fed
+ * to Jackson's non-blocking parser, with the same lenient features as GeminiResponseParser, from the first '{' on,
+ * so a code fence around the JSON does not matter. The tokens of every object in the "faces" array are collected
+ * and turned into the same matrix text GeminiResponseParser produces. If the answer is not the expected JSON, no
+ * faces are reported early; the whole text is still parsed, with the free-text fallback, once the stream ends.
+ * <p>
+ * A reader is used for one response, on one thread.
+ */
+public final class GeminiStreamReader {
+
+    /**
+     * Receives the faces of the answer as they complete. Called on the reading thread.
+     */
+    public interface Listener {
+        /**
+         * Called once per face, in the order the model writes them.
+         * @param faceIndex The face index, 0 to 5.
+         * @param cubeSize The cube size the face's matrix shows, 2 or 3.
+         * @param matrixText The face as "Face #n:\n\n" followed by one line of colors per row.
+         */
+        void onFace(int faceIndex, int cubeSize, String matrixText);
+    }
+
+    private static final String DATA_FIELD = "data:";
+
+    private final Listener listener;
+    private final StringBuilder text = new StringBuilder(); // The answer so far.
+    private final JsonParser parser;
+    private final boolean[] reported = new boolean[GeminiResponseParser.FACE_COUNT];
+
+    private boolean answerStarted; // True once the first '{' of the answer has been fed to the parser.
+    private boolean answerDone; // True once the answer object is complete, or could not be parsed.
+    private TokenBuffer face; // The tokens of the face object being read, or null outside one.
+    private int faceDepth; // Nesting depth inside the face object being read.
+    private int faceCount;
+
+    /**
+     * Creates a reader for one response.
+     * @param listener Receives the faces as they complete.
+     * @throws IOException If the parser cannot be created.
+     */
+    public GeminiStreamReader(Listener listener) throws IOException {
+        this.listener = listener;
+        this.parser = GeminiResponseParser.LENIENT_MAPPER.getFactory().createNonBlockingByteArrayParser();
+    }
+
+    /**
+     * Reads server-sent events to the end of the stream.
+     * @param in The response body, UTF-8.
+     * @throws IOException If reading fails or the stream reports an error.
+     */
+    public void readFrom(InputStream in) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        StringBuilder data = new StringBuilder();
+        for (String line; (line = reader.readLine()) != null; ) {
+            if (line.isEmpty()) {
+                // A blank line ends the event.
+                onEvent(data);
+                data.setLength(0);
+            } else if (line.startsWith(DATA_FIELD)) {
+                if (data.length() > 0) {
+                    data.append('\n');
+                }
+                int start = line.startsWith(" ", DATA_FIELD.length()) ? DATA_FIELD.length() + 1 : DATA_FIELD.length();
+                data.append(line, start, line.length());
+            }
+            // Comments (":") and other fields (event, id, retry) carry nothing for us.
+        }
+        onEvent(data);
+    }
+
+    /**
+     * Feeds the next piece of the model's answer.
+     * @param fragment The text, continuing the text fed so far.
+     */
+    public void append(String fragment) {
+        text.append(fragment);
+        if (answerDone) {
+            return;
+        }
+        if (!answerStarted) {
+            int start = fragment.indexOf('{');
+            if (start < 0) {
+                return;
+            }
+            answerStarted = true;
+            fragment = fragment.substring(start);
+        }
+        byte[] bytes = fragment.getBytes(StandardCharsets.UTF_8);
+        try {
+            ((ByteArrayFeeder) parser.getNonBlockingInputFeeder()).feedInput(bytes, 0, bytes.length);
+            for (JsonToken token; (token = parser.nextToken()) != JsonToken.NOT_AVAILABLE; ) {
+                if (token == null || onToken(token)) {
+                    answerDone = true;
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            answerDone = true; // Not the JSON we asked for; the free-text fallback takes over at the end.
+        }
+    }
+
+    /**
+     * Returns the answer so far.
+     */
+    public String getText() {
+        return text.toString();
+    }
+
+    /**
+     * Returns the number of faces reported so far.
+     */
+    public int getFaceCount() {
+        return faceCount;
+    }
+
+    /**
+     * Parses the whole answer, which gives the same result as a generateContent request would.
+     * @return The cube size and all six faces.
+     */
+    public GeminiResponseParser.Result getResult() {
+        return GeminiResponseParser.parseText(text.toString());
+    }
+
+    /**
+     * Handles one event: a GenerateContentResponse carrying the next text, or an error.
+     */
+    private void onEvent(CharSequence data) throws IOException {
+        if (data.length() == 0) {
+            return;
+        }
+        JsonNode chunk = GeminiResponseParser.ENVELOPE_MAPPER.readTree(data.toString());
+        if (chunk.has("error")) {
+            throw new IOException("Stream error: " + chunk.get("error").path("message").asText());
+        }
+        for (JsonNode part : chunk.path("candidates").path(0).path("content").path("parts")) {
+            if (part.has("text")) {
+                append(part.get("text").asText());
+            }
+        }
+    }
+
+    /**
+     * Tracks one token of the answer.
+     * @return True once the answer object is complete.
+     */
+    private boolean onToken(JsonToken token) throws IOException {
+        if (face != null) {
+            face.copyCurrentEvent(parser);
+            if (token.isStructStart()) {
+                faceDepth++;
+            } else if (token.isStructEnd() && --faceDepth == 0) {
+                onFaceObject(GeminiResponseParser.LENIENT_MAPPER.readTree(face.asParser()));
+                face = null;
+            }
+            return false;
+        }
+        if (token == JsonToken.START_OBJECT && isFacesElement(parser.getParsingContext())) {
+            face = new TokenBuffer(parser, null);
+            face.copyCurrentEvent(parser);
+            faceDepth = 1;
+            return false;
+        }
+        return token == JsonToken.END_OBJECT && parser.getParsingContext().inRoot();
+    }
+
+    /**
+     * Returns true if an object context is an element of the answer's top-level "faces" array.
+     */
+    private static boolean isFacesElement(JsonStreamContext object) {
+        JsonStreamContext array = object.getParent();
+        if (array == null || !array.inArray()) {
+            return false;
+        }
+        JsonStreamContext answer = array.getParent();
+        return answer != null && answer.inObject() && answer.getParent() != null && answer.getParent().inRoot()
+                && "faces".equals(answer.getCurrentName());
+    }
+
+    private void onFaceObject(JsonNode faceNode) {
+        int faceNumber = faceNode.path("face_number").asInt();
+        int index = faceNumber - 1;
+        JsonNode matrix = faceNode.path("matrix");
+        if (index < 0 || index >= reported.length || reported[index] || !matrix.isArray()) {
+            return;
+        }
+        reported[index] = true;
+        faceCount++;
+        listener.onFace(index, matrix.size() == 2 ? 2 : 3, GeminiResponseParser.formatFace(faceNumber, matrix));
+    }
+}
@@ -0,0 +1,185 @@
+package com.example.cubesolver.pipeline;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * FaceTaskRunner runs the same piece of work for every cube face on a bounded thread pool.
+ * Preparing the six face photos (decoding, scaling, re-encoding) is independent per face, so spreading it over the
+ * cores makes the wall-clock time scale with the core count instead of the face count.
+ * The results come back in face order; if any face fails, the faces still queued or running are cancelled.
+ */
+public final class FaceTaskRunner implements AutoCloseable {
+
+    /**
+     * The work done for one face.
+     * @param <T> The result type.
+     */
+    public interface FaceTask<T> {
+        /**
+         * Processes one face.
+         * @param face The index of the face, from 0.
+         * @return The result for this face.
+         * @throws Exception If the face could not be processed; this cancels the remaining faces.
+         */
+        T run(int face) throws Exception;
+    }
+
+    /**
+     * The faces of one submitAll call. Results can be taken in face order while later faces are still running,
+     * e.g. to upload the first face before the last one is encoded.
+     * @param <T> The result type.
+     */
+    public static final class Batch<T> {
+
+        private final List<Future<T>> futures;
+        private final AtomicReference<Throwable> failure = new AtomicReference<>(); // The first face to fail.
+
+        private Batch(int count) {
+            futures = new ArrayList<>(count);
+        }
+
+        /**
+         * Waits for the result of one face.
+         * @param face The face index.
+         * @return Its result.
+         * @throws ExecutionException If this or any other face failed; the first failure is the cause.
+         * @throws InterruptedException If the calling thread was interrupted; all faces are cancelled.
+         */
+        public T get(int face) throws ExecutionException, InterruptedException {
+            try {
+                return futures.get(face).get();
+            } catch (CancellationException e) {
+                Throwable cause = failure.get();
+                if (cause == null) {
+                    throw e;
+                }
+                throw new ExecutionException(cause);
+            } catch (InterruptedException e) {
+                cancel();
+                throw e;
+            }
+        }
+
+        /**
+         * Cancels all faces that have not finished, interrupting those that are running.
+         */
+        public void cancel() {
+            cancelExcept(-1);
+        }
+
+        private void fail(int face, Throwable cause) {
+            if (failure.compareAndSet(null, cause)) {
+                // The failed face keeps its own exception; cancelling it would replace that with a CancellationException.
+                cancelExcept(face);
+            }
+        }
+
+        private void cancelExcept(int face) {
+            synchronized (futures) {
+                for (int i = 0; i < futures.size(); i++) {
+                    if (i != face) {
+                        futures.get(i).cancel(true);
+                    }
+                }
+            }
+        }
+    }
+
+    // Idle workers exit after this long, so the pool costs nothing between solves.
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Creates a runner with one worker per available core.
+     */
+    public FaceTaskRunner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a runner with a fixed number of workers.
+     * @param threads The maximum number of faces processed at the same time.
+     */
+    public FaceTaskRunner(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + threads);
+        }
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "face-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the maximum number of faces processed at the same time.
+     */
+    public int getThreadCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Starts a task for faces 0 to count - 1 without waiting for them. Faces are started in order.
+     * @param count The number of faces.
+     * @param task The work for one face.
+     * @param <T> The result type.
+     * @return The batch to take the results from.
+     */
+    public <T> Batch<T> submitAll(int count, FaceTask<T> task) {
+        Batch<T> batch = new Batch<>(count);
+        // Holding the lock while submitting keeps a fast failure from cancelling only part of the batch.
+        synchronized (batch.futures) {
+            for (int i = 0; i < count; i++) {
+                final int face = i;
+                batch.futures.add(executor.submit(() -> {
+                    try {
+                        return task.run(face);
+                    } catch (Exception e) {
+                        batch.fail(face, e);
+                        throw e;
+                    }
+                }));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Runs a task for faces 0 to count - 1 and waits for all of them.
+     * @param count The number of faces.
+     * @param task The work for one face.
+     * @param <T> The result type.
+     * @return The results, indexed by face.
+     * @throws ExecutionException If a face failed; its exception is the cause. The other faces are cancelled.
+     * @throws InterruptedException If the calling thread was interrupted; all faces are cancelled.
+     */
+    public <T> List<T> runAll(int count, FaceTask<T> task) throws ExecutionException, InterruptedException {
+        Batch<T> batch = submitAll(count, task);
+        List<T> results = new ArrayList<>(count);
+        for (int face = 0; face < count; face++) {
+            results.add(batch.get(face));
+        }
+        return results;
+    }
+
+    /**
+     * Stops the workers, interrupting any face still being processed.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.cubesolver.pipeline;
+
+/**
+ * SampleSize picks the BitmapFactory inSampleSize for decoding an image at a target size.
+ * The decoder only subsamples by powers of two, and subsampling while decoding is what keeps a 12-50 MP camera
+ * photo from being allocated at full resolution, so callers decode at the returned size and scale the rest.
+ */
+public final class SampleSize {
+
+    private SampleSize() {
+    }
+
+    /**
+     * Returns the largest power of two that keeps both sides of the decoded image at least as large as requested,
+     * for images that are cropped to fill a view.
+     * @param width The width of the encoded image.
+     * @param height The height of the encoded image.
+     * @param reqWidth The minimum decoded width.
+     * @param reqHeight The minimum decoded height.
+     * @return The sample size, at least 1.
+     */
+    public static int toFill(int width, int height, int reqWidth, int reqHeight) {
+        int sampleSize = 1;
+        while (width / (sampleSize * 2) >= reqWidth && height / (sampleSize * 2) >= reqHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Returns the largest power of two that keeps the longer side of the decoded image at least maxSide pixels,
+     * for images that are scaled down to fit within maxSide afterwards.
+     * @param width The width of the encoded image.
+     * @param height The height of the encoded image.
+     * @param maxSide The size the longer side will be scaled to.
+     * @return The sample size, at least 1.
+     */
+    public static int toFit(int width, int height, int maxSide) {
+        int longer = Math.max(width, height);
+        int sampleSize = 1;
+        while (longer / (sampleSize * 2) >= maxSide) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    /**
+     * Returns the size of one side after decoding with a sample size. The decoder rounds up.
+     * @param side The width or height of the encoded image.
+     * @param sampleSize The sample size.
+     * @return The decoded width or height.
+     */
+    public static int sampled(int side, int sampleSize) {
+        return (side + sampleSize - 1) / sampleSize;
+    }
+}
@@ -0,0 +1,192 @@
+package com.example.cubesolver.pipeline;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * SizedPool keeps released buffers, such as bitmaps, for reuse by later allocations of the same or a smaller size.
+ * Decoding six camera photos one after another allocates the same few large buffers again and again; handing them
+ * back to the decoder instead avoids most of the garbage and the GC pauses that come with it.
+ * Items can carry a key, such as a bitmap's config, and are only reused for allocations with an equal key.
+ * The pool holds at most a fixed number of bytes and drops the least recently released items beyond that.
+ * It is thread-safe.
+ * @param <T> The pooled item type.
+ */
+public final class SizedPool<T> {
+
+    /**
+     * Called for items that leave the pool without being reused, e.g. to recycle a bitmap.
+     * @param <T> The pooled item type.
+     */
+    public interface Evictor<T> {
+        void evict(T item);
+    }
+
+    private static final class Entry<T> {
+        final T item;
+        final Object key;
+        final int bytes;
+        final long released; // Release order, to evict the oldest item first.
+
+        Entry(T item, Object key, int bytes, long released) {
+            this.item = item;
+            this.key = key;
+            this.bytes = bytes;
+            this.released = released;
+        }
+    }
+
+    private final long maxBytes;
+    private final Evictor<T> evictor;
+    // Pooled items by key, then by size, so the smallest one that fits is found in O(log n).
+    private final Map<Object, TreeMap<Integer, ArrayDeque<Entry<T>>>> byKey = new HashMap<>();
+    private long pooledBytes;
+    private long releaseCount;
+    private int hits;
+    private int misses;
+
+    /**
+     * Creates an empty pool.
+     * @param maxBytes The maximum total size of the pooled items.
+     * @param evictor Receives the items dropped from the pool.
+     */
+    public SizedPool(long maxBytes, Evictor<T> evictor) {
+        this.maxBytes = maxBytes;
+        this.evictor = evictor;
+    }
+
+    /**
+     * Takes the smallest pooled item of at least the given size out of the pool.
+     * @param minBytes The number of bytes needed.
+     * @param maxWaste Items more than this many bytes larger are not used, so a small allocation does not hold
+     *                 on to a large buffer.
+     * @return The item, or null if none fits.
+     */
+    public T acquire(int minBytes, int maxWaste) {
+        return acquire(null, minBytes, maxWaste);
+    }
+
+    /**
+     * Takes the smallest pooled item with the given key and of at least the given size out of the pool.
+     * @param key The key the item was released with, e.g. a bitmap config; null for unkeyed items.
+     * @param minBytes The number of bytes needed.
+     * @param maxWaste Items more than this many bytes larger are not used.
+     * @return The item, or null if none fits.
+     */
+    public synchronized T acquire(Object key, int minBytes, int maxWaste) {
+        TreeMap<Integer, ArrayDeque<Entry<T>>> bySize = byKey.get(key);
+        Map.Entry<Integer, ArrayDeque<Entry<T>>> match = bySize == null ? null : bySize.ceilingEntry(minBytes);
+        if (match == null || match.getKey() - minBytes > maxWaste) {
+            misses++;
+            return null;
+        }
+        ArrayDeque<Entry<T>> entries = match.getValue();
+        Entry<T> entry = entries.pollLast(); // The most recently released one, still warm in the caches.
+        remove(entry, entries);
+        hits++;
+        return entry.item;
+    }
+
+    /**
+     * Puts an item back into the pool, evicting the oldest items if the pool grows over its budget.
+     * Items larger than the whole budget are evicted right away.
+     * @param item The item, which the caller must no longer use.
+     * @param bytes Its size.
+     */
+    public void release(T item, int bytes) {
+        release(item, null, bytes);
+    }
+
+    /**
+     * Puts an item back into the pool under a key; only acquires with an equal key get it again.
+     * @param item The item, which the caller must no longer use.
+     * @param key The key, e.g. a bitmap config; null for unkeyed items.
+     * @param bytes Its size.
+     */
+    public void release(T item, Object key, int bytes) {
+        if (bytes > maxBytes) {
+            evictor.evict(item);
+            return;
+        }
+        ArrayDeque<T> evicted = new ArrayDeque<>();
+        synchronized (this) {
+            byKey.computeIfAbsent(key, k -> new TreeMap<>())
+                    .computeIfAbsent(bytes, size -> new ArrayDeque<>())
+                    .addLast(new Entry<>(item, key, bytes, releaseCount++));
+            pooledBytes += bytes;
+            while (pooledBytes > maxBytes) {
+                evicted.add(removeOldest());
+            }
+        }
+        // Evict outside the lock; recycling a bitmap is not free.
+        for (T old : evicted) {
+            evictor.evict(old);
+        }
+    }
+
+    /**
+     * Evicts every pooled item.
+     */
+    public void clear() {
+        ArrayDeque<T> evicted = new ArrayDeque<>();
+        synchronized (this) {
+            for (TreeMap<Integer, ArrayDeque<Entry<T>>> bySize : byKey.values()) {
+                for (ArrayDeque<Entry<T>> entries : bySize.values()) {
+                    for (Entry<T> entry : entries) {
+                        evicted.add(entry.item);
+                    }
+                }
+            }
+            byKey.clear();
+            pooledBytes = 0;
+        }
+        for (T old : evicted) {
+            evictor.evict(old);
+        }
+    }
+
+    public synchronized long getPooledBytes() {
+        return pooledBytes;
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    private T removeOldest() {
+        Entry<T> oldest = null;
+        ArrayDeque<Entry<T>> oldestEntries = null;
+        for (TreeMap<Integer, ArrayDeque<Entry<T>>> bySize : byKey.values()) {
+            for (ArrayDeque<Entry<T>> entries : bySize.values()) {
+                Entry<T> first = entries.peekFirst();
+                if (oldest == null || first.released < oldest.released) {
+                    oldest = first;
+                    oldestEntries = entries;
+                }
+            }
+        }
+        oldestEntries.pollFirst();
+        remove(oldest, oldestEntries);
+        return oldest.item;
+    }
+
+    /**
+     * Accounts for an entry just taken out of its queue, dropping the queue and key once they are empty.
+     */
+    private void remove(Entry<T> entry, ArrayDeque<Entry<T>> entries) {
+        if (entries.isEmpty()) {
+            TreeMap<Integer, ArrayDeque<Entry<T>>> bySize = byKey.get(entry.key);
+            bySize.remove(entry.bytes);
+            if (bySize.isEmpty()) {
+                byKey.remove(entry.key);
+            }
+        }
+        pooledBytes -= entry.bytes;
+    }
+}
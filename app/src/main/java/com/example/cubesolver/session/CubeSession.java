@@ -0,0 +1,319 @@
+package com.example.cubesolver.session;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * CubeSession is everything the three screens hand to each other about one scanned cube: the per-face matrix texts
+ * as analyzed, the photo URIs, the typed cube state including the user's corrections, the detector's confidence in
+ * every color of every sticker if it has them, and, once the user proceeds, the solver string. Sessions are immutable; every change returns a new session, like CubeState.withColor.
+ * <p>
+ * While a streamed Gemini answer comes in, its faces are put as streaming sessions, and the final answer replaces
+ * them with a regular one. The streaming flag is not part of the snapshot: a new process has no stream to wait for.
+ *
+ * <pre>
+ * Snapshot (big-endian, written by writeTo):
+ *   int     magic          "CSSN"
+ *   byte    formatVersion  FORMAT_VERSION
+ *   byte    size           2 or 3
+ *   short   faceCount      followed by one modified-UTF-8 matrix text per face
+ *   short   imageCount     followed by one modified-UTF-8 URI per photo, empty for a missing photo
+ *   byte[]  stickers       6 * size * size CubeColor ordinals
+ *   boolean hasConfidences followed by 6 floats per sticker if true
+ *   boolean hasSolver      followed by the modified-UTF-8 solver string if true
+ *   int     crc            CRC32 of everything before it
+ * </pre>
+ */
+public final class CubeSession {
+
+    // Bump whenever the snapshot layout changes; older snapshots are then ignored.
+    public static final int FORMAT_VERSION = 2;
+
+    private static final int MAGIC = 0x4353534E; // "CSSN"
+
+    private final int size;
+    private final List<String> faceTexts; // One "Face #n:" matrix text per analyzed face, possibly an error message.
+    private final List<String> imageUris; // The photo URIs in face order, empty strings for missing photos.
+    private final CubeState state;
+    private final float[] confidences; // Per sticker and color, as detected on-device; null for other detections.
+    private final String solverString; // Null until the user proceeds to the solution.
+    private final boolean streaming; // True while more faces of a streamed scan, or its final answer, are to come.
+
+    private CubeSession(int size, List<String> faceTexts, List<String> imageUris, CubeState state,
+                        float[] confidences, String solverString, boolean streaming) {
+        this.size = size;
+        this.faceTexts = faceTexts;
+        this.imageUris = imageUris;
+        this.state = state;
+        this.confidences = confidences;
+        this.solverString = solverString;
+        this.streaming = streaming;
+    }
+
+    /**
+     * Creates the session for a fresh scan, parsing the matrix texts once into a CubeState. Faces that are missing
+     * or could not be analyzed show up as white stickers that the user can correct.
+     * @param size The cube size; anything but 2 is treated as 3.
+     * @param faceTexts The matrix text of each analyzed face, in URFDLB order.
+     * @param imageUris The photo URIs in face order; null entries are kept as empty strings.
+     * @return The session.
+     */
+    public static CubeSession fromScan(int size, List<String> faceTexts, List<String> imageUris) {
+        return fromScan(size, faceTexts, imageUris, false);
+    }
+
+    /**
+     * Creates the session for the faces of a streamed scan received so far. It stays streaming until the final
+     * answer is put as a regular session, so the user does not correct colors that are about to be replaced.
+     * @param size The cube size; anything but 2 is treated as 3.
+     * @param faceTexts The matrix text of each face in URFDLB order, empty for faces still to come.
+     * @param imageUris The photo URIs in face order; null entries are kept as empty strings.
+     * @return The session.
+     */
+    public static CubeSession fromStreamedScan(int size, List<String> faceTexts, List<String> imageUris) {
+        return fromScan(size, faceTexts, imageUris, true);
+    }
+
+    private static CubeSession fromScan(int size, List<String> faceTexts, List<String> imageUris, boolean streaming) {
+        int cubeSize = size == 2 ? 2 : 3;
+        List<String> faces = new ArrayList<>(faceTexts);
+        while (faces.size() < CubeState.FACE_COUNT) {
+            faces.add("");
+        }
+        CubeState state = CubeState.parseFaces(cubeSize, faces);
+        return new CubeSession(cubeSize, copy(faceTexts), copy(imageUris), state, null, null, streaming);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the matrix texts; faces the user corrected are rewritten from the cube state.
+     */
+    public List<String> getFaceTexts() {
+        return faceTexts;
+    }
+
+    /**
+     * Returns the photo URIs in face order, with empty strings for missing photos.
+     */
+    public List<String> getImageUris() {
+        return imageUris;
+    }
+
+    public CubeState getState() {
+        return state;
+    }
+
+    /**
+     * Returns true if a face has not been analyzed yet, i.e. its matrix text is missing or empty. Faces of a streamed
+     * Gemini answer are pending until their part of the answer arrives.
+     * @param face The face index, 0 to 5.
+     */
+    public boolean isPending(int face) {
+        return face >= faceTexts.size() || faceTexts.get(face).isEmpty();
+    }
+
+    /**
+     * Returns true if no face is pending.
+     */
+    public boolean isComplete() {
+        for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+            if (isPending(face)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the detector's confidence in each color of each sticker, at index sticker * 6 + color ordinal, or null
+     * if the colors came from a detector without confidences. They describe the detection, so corrections keep them.
+     */
+    public float[] getConfidences() {
+        return confidences == null ? null : confidences.clone();
+    }
+
+    /**
+     * Returns a session that carries the detector's color confidences, e.g. from StickerClassifier.Result.
+     * @param confidences One confidence per sticker and color, at index sticker * 6 + color ordinal.
+     * @return The new session.
+     */
+    public CubeSession withConfidences(float[] confidences) {
+        if (confidences.length != state.getStickerCount() * CubeColor.COUNT) {
+            throw new IllegalArgumentException("Expected " + state.getStickerCount() * CubeColor.COUNT
+                    + " confidences, got " + confidences.length);
+        }
+        return new CubeSession(size, faceTexts, imageUris, state, confidences.clone(), solverString, streaming);
+    }
+
+    /**
+     * Returns true for a session of a streamed scan whose final answer has not been put yet.
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Returns the solver string, or null if the user has not proceeded to the solution yet.
+     */
+    public String getSolverString() {
+        return solverString;
+    }
+
+    /**
+     * Returns a session with a corrected cube state. The matrix texts of the faces that changed are rewritten,
+     * and the solver string is dropped because it described the old state.
+     * @param edited The corrected cube, of the same size.
+     * @return The new session, or this session if the state is unchanged.
+     */
+    public CubeSession withState(CubeState edited) {
+        if (edited.getSize() != size) {
+            throw new IllegalArgumentException("Expected a " + size + "x" + size + " cube");
+        }
+        if (edited.equals(state)) {
+            return this;
+        }
+        List<String> texts = new ArrayList<>(faceTexts);
+        for (int face = 0; face < texts.size() && face < CubeState.FACE_COUNT; face++) {
+            if (!faceEquals(state, edited, face)) {
+                texts.set(face, edited.toMatrixString(face));
+            }
+        }
+        return new CubeSession(size, Collections.unmodifiableList(texts), imageUris, edited, confidences, null,
+                streaming);
+    }
+
+    /**
+     * Returns a session that also carries the solver string of its cube state.
+     * @param solverString The solver string, from CubeState.toSolverString.
+     * @return The new session.
+     */
+    public CubeSession withSolverString(String solverString) {
+        return new CubeSession(size, faceTexts, imageUris, state, confidences, solverString, streaming);
+    }
+
+    /**
+     * Writes the binary snapshot. A snapshot of a 3x3 session is about two kilobytes with confidences, well under
+     * one without.
+     * @param out The destination; not closed.
+     * @throws IOException If writing fails.
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        CRC32 crc = new CRC32();
+        DataOutputStream data = new DataOutputStream(new CheckedOutputStream(out, crc));
+        data.writeInt(MAGIC);
+        data.writeByte(FORMAT_VERSION);
+        data.writeByte(size);
+        writeStrings(data, faceTexts);
+        writeStrings(data, imageUris);
+        byte[] stickers = new byte[state.getStickerCount()];
+        state.copyStickers(stickers);
+        data.write(stickers);
+        data.writeBoolean(confidences != null);
+        if (confidences != null) {
+            for (float confidence : confidences) {
+                data.writeFloat(confidence);
+            }
+        }
+        data.writeBoolean(solverString != null);
+        if (solverString != null) {
+            data.writeUTF(solverString);
+        }
+        data.flush();
+        new DataOutputStream(out).writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Reads a snapshot written by writeTo.
+     * @param in The source; not closed.
+     * @return The session.
+     * @throws IOException If the snapshot is truncated, damaged or has another format version.
+     */
+    public static CubeSession readFrom(InputStream in) throws IOException {
+        CRC32 crc = new CRC32();
+        DataInputStream data = new DataInputStream(new CheckedInputStream(in, crc));
+        if (data.readInt() != MAGIC) {
+            throw new IOException("Not a session snapshot");
+        }
+        int version = data.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Session snapshot version " + version + " does not match " + FORMAT_VERSION);
+        }
+        int size = data.readByte();
+        if (size != 2 && size != 3) {
+            throw new IOException("Invalid cube size " + size);
+        }
+        List<String> faceTexts = readStrings(data);
+        List<String> imageUris = readStrings(data);
+        byte[] stickers = new byte[CubeState.FACE_COUNT * size * size];
+        data.readFully(stickers);
+        float[] confidences = null;
+        if (data.readBoolean()) {
+            confidences = new float[stickers.length * CubeColor.COUNT];
+            for (int i = 0; i < confidences.length; i++) {
+                confidences[i] = data.readFloat();
+            }
+        }
+        String solverString = data.readBoolean() ? data.readUTF() : null;
+        int expected = (int) crc.getValue();
+        if (new DataInputStream(in).readInt() != expected) {
+            throw new IOException("Session snapshot checksum mismatch");
+        }
+        CubeState state;
+        try {
+            state = CubeState.of(size, stickers);
+        } catch (IllegalArgumentException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+        return new CubeSession(size, faceTexts, imageUris, state, confidences, solverString, false);
+    }
+
+    private static void writeStrings(DataOutputStream data, List<String> strings) throws IOException {
+        data.writeShort(strings.size());
+        for (String string : strings) {
+            data.writeUTF(string);
+        }
+    }
+
+    private static List<String> readStrings(DataInputStream data) throws IOException {
+        int count = data.readUnsignedShort();
+        List<String> strings = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            strings.add(data.readUTF());
+        }
+        return Collections.unmodifiableList(strings);
+    }
+
+    private static List<String> copy(List<String> strings) {
+        List<String> copy = new ArrayList<>(strings.size());
+        for (String string : strings) {
+            copy.add(string == null ? "" : string);
+        }
+        return Collections.unmodifiableList(copy);
+    }
+
+    private static boolean faceEquals(CubeState a, CubeState b, int face) {
+        for (int row = 0; row < a.getSize(); row++) {
+            for (int col = 0; col < a.getSize(); col++) {
+                if (a.getColor(face, row, col) != b.getColor(face, row, col)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.cubesolver.session;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * SessionStore holds the current CubeSession for the whole process, so the screens hand the typed cube to each
+ * other without serializing anything on the main thread. Every put also schedules a binary snapshot on a background
+ * thread; it is only read back when a new process finds no session in memory, i.e. after Android killed the app in
+ * the background. Puts that arrive while a snapshot is being written are coalesced into one write of the latest
+ * session. Screens that show a session while it is still being filled in, e.g. from a streamed answer, listen for
+ * puts. All methods are thread-safe.
+ */
+public class SessionStore {
+
+    public static final String FILE_NAME = "session.bin";
+
+    /**
+     * Is told about every session put into the store.
+     */
+    public interface Listener {
+        /**
+         * Called on the thread that put the session, after it became current.
+         * @param session The new current session.
+         */
+        void onSessionChanged(CubeSession session);
+    }
+
+    private static SessionStore instance;
+
+    private final File file;
+    private final Executor writer;
+    private final AtomicReference<CubeSession> pendingWrite = new AtomicReference<>();
+    private CubeSession current;
+    private boolean restored; // True once the snapshot was read, or found missing, in this process.
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Returns the store shared by the whole process, creating it on the first call.
+     * @param directory The directory of the snapshot file, e.g. the app's files directory. Ignored after the first call.
+     * @return The shared store.
+     */
+    public static synchronized SessionStore getInstance(File directory) {
+        if (instance == null) {
+            ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "session-writer");
+                thread.setDaemon(true);
+                return thread;
+            });
+            instance = new SessionStore(new File(directory, FILE_NAME), writer);
+        }
+        return instance;
+    }
+
+    /**
+     * Creates a store.
+     * @param file The snapshot file.
+     * @param writer Runs the snapshot writes, one at a time.
+     */
+    public SessionStore(File file, Executor writer) {
+        this.file = file;
+        this.writer = writer;
+    }
+
+    /**
+     * Returns the current session. The first call in a process without a session reads the snapshot, a few hundred
+     * bytes; a missing or damaged snapshot is ignored.
+     * @return The current session, or null if there is none.
+     */
+    public synchronized CubeSession get() {
+        if (current == null && !restored) {
+            restored = true;
+            current = readSnapshot(file);
+        }
+        return current;
+    }
+
+    /**
+     * Makes a session current and schedules a snapshot of it.
+     * @param session The new session.
+     */
+    public void put(CubeSession session) {
+        synchronized (this) {
+            current = session;
+            restored = true; // A later snapshot read would only return an older session.
+        }
+        if (pendingWrite.getAndSet(session) == null) {
+            writer.execute(this::writePending);
+        }
+        for (Listener listener : listeners) {
+            listener.onSessionChanged(session);
+        }
+    }
+
+    /**
+     * Starts telling a listener about puts.
+     * @param listener The listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Stops telling a listener about puts.
+     * @param listener The listener.
+     */
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Writes the latest session put since the last write. Failures are ignored; the snapshot is only for recovery.
+     */
+    private void writePending() {
+        CubeSession session = pendingWrite.getAndSet(null);
+        if (session == null) {
+            return;
+        }
+        File tmp = new File(file.getPath() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(tmp))) {
+            session.writeTo(out);
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+        }
+    }
+
+    /**
+     * Reads a snapshot file.
+     * @return The session, or null if the file is missing or cannot be read.
+     */
+    static CubeSession readSnapshot(File file) {
+        if (!file.isFile()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return CubeSession.readFrom(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,488 @@
+package com.example.cubesolver.solver;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static com.example.cubesolver.solver.CubieCube.N_CORNERS;
+import static com.example.cubesolver.solver.CubieCube.N_EDGES;
+import static com.example.cubesolver.solver.FaceCube.CORNER_COLOR;
+import static com.example.cubesolver.solver.FaceCube.CORNER_FACELET;
+import static com.example.cubesolver.solver.FaceCube.EDGE_COLOR;
+import static com.example.cubesolver.solver.FaceCube.EDGE_FACELET;
+
+/**
+ * CubeCorrector repairs a misdetected cube: given how confident the detection is in every color of every sticker,
+ * it finds the most likely cube that can actually be solved and the stickers that have to change to get there.
+ * <p>
+ * Changing sticker i to color c costs -ln(confidence of c at i), so the cheapest valid cube is the most likely one.
+ * A valid cube is a color scheme (which color each face has) plus an arrangement of the pieces, and for a fixed
+ * scheme the cheapest arrangement is found exactly by dynamic programming over the set of pieces already placed:
+ * positions are filled in order, and the state also carries the twist (or flip) sum and the permutation parity, so
+ * the 8 corners take 256 x 6 states and the 12 edges 4096 x 4. Corner and edge parities are joined at the end.
+ * On a 3x3 the centers fix the scheme; schemes that recolor centers are tried in order of their center cost and
+ * stop as soon as the centers alone cost more than the best cube found. A 2x2 has no centers, so each of the 30
+ * distinct schemes is tried. Tables are only expanded where the cube can still beat the best one found, so a
+ * detection with a few errors is corrected in a few milliseconds once the JIT has warmed up.
+ */
+public final class CubeCorrector {
+
+    // Confidence in the detected color of a sticker when nothing better is known.
+    public static final float DEFAULT_TRUST = 0.9f;
+
+    private static final float MIN_CONFIDENCE = 1e-6f; // Keeps -ln finite for colors ruled out entirely.
+    private static final float INFINITE = Float.MAX_VALUE;
+    private static final float INITIAL_SLACK = 8f; // First edge budget above its lower bound, about two changes.
+
+    private static final int[][] ALL_SCHEMES = permutations(); // colorOfFace for every way to color the faces.
+    private static final int[][] POCKET_SCHEMES = distinctPocketSchemes(); // One scheme per physical 2x2.
+
+    /**
+     * The cheapest valid cube and how it differs from the detected one.
+     */
+    public static final class Correction {
+
+        private final CubeState state;
+        private final int[] changedStickers;
+        private final float cost;
+
+        Correction(CubeState state, int[] changedStickers, float cost) {
+            this.state = state;
+            this.changedStickers = changedStickers;
+            this.cost = cost;
+        }
+
+        /**
+         * Returns the corrected cube, which CubeValidator accepts.
+         */
+        public CubeState getState() {
+            return state;
+        }
+
+        /**
+         * Returns the indices of the stickers whose color changes, in CubeState order; empty if the cube was valid.
+         */
+        public int[] getChangedStickers() {
+            return changedStickers.clone();
+        }
+
+        /**
+         * Returns the cost of the correction relative to keeping every detected color; 0 if nothing changes.
+         */
+        public float getCost() {
+            return cost;
+        }
+
+        public boolean hasChanges() {
+            return changedStickers.length > 0;
+        }
+    }
+
+    private CubeCorrector() {
+    }
+
+    /**
+     * Returns confidences that trust every detected color equally and spread the rest over the other colors.
+     * @param state The detected cube.
+     * @param trust The confidence in each detected color, below 1.
+     * @return Confidences in the layout taken by correct.
+     */
+    public static float[] confidences(CubeState state, float trust) {
+        float[] confidences = new float[state.getStickerCount() * CubeColor.COUNT];
+        Arrays.fill(confidences, (1f - trust) / (CubeColor.COUNT - 1));
+        for (int i = 0; i < state.getStickerCount(); i++) {
+            confidences[i * CubeColor.COUNT + state.getOrdinal(i)] = trust;
+        }
+        return confidences;
+    }
+
+    /**
+     * Finds the valid cube with the fewest changed stickers.
+     * @param state The detected cube.
+     * @return The correction.
+     */
+    public static Correction correct(CubeState state) {
+        return correct(state, confidences(state, DEFAULT_TRUST));
+    }
+
+    /**
+     * Finds the most likely valid cube.
+     * @param state The detected cube.
+     * @param confidences The confidence (0-1) of each color for each sticker, at index sticker * 6 + color ordinal,
+     *                    with stickers in CubeState order. The rows need not sum to 1.
+     * @return The correction.
+     */
+    public static Correction correct(CubeState state, float[] confidences) {
+        int size = state.getSize();
+        if (confidences.length != state.getStickerCount() * CubeColor.COUNT) {
+            throw new IllegalArgumentException("Expected " + state.getStickerCount() * CubeColor.COUNT
+                    + " confidences, got " + confidences.length);
+        }
+        // cost[facelet * 6 + color] in 3x3 facelet order; a 2x2 only fills the corner facelets.
+        float[] cost = new float[FaceCube.N_FACELETS * CubeColor.COUNT];
+        for (int facelet = 0; facelet < FaceCube.N_FACELETS; facelet++) {
+            int sticker = stickerIndex(size, facelet);
+            for (int color = 0; sticker >= 0 && color < CubeColor.COUNT; color++) {
+                float confidence = Math.max(MIN_CONFIDENCE, confidences[sticker * CubeColor.COUNT + color]);
+                cost[facelet * CubeColor.COUNT + color] = (float) -Math.log(confidence);
+            }
+        }
+
+        int[][] schemes = size == 3 ? byCenterCost(cost) : POCKET_SCHEMES;
+        Plan best = null;
+        for (int[] colorOfFace : schemes) {
+            float centerCost = size == 3 ? centerCost(cost, colorOfFace) : 0f;
+            if (best != null && centerCost >= best.cost) {
+                break; // Sorted by center cost, so no later scheme can win.
+            }
+            Plan plan = plan(cost, colorOfFace, size == 3, centerCost, best == null ? INFINITE : best.cost);
+            if (plan != null) {
+                best = plan;
+            }
+        }
+        return toCorrection(state, cost, best);
+    }
+
+    /**
+     * The piece arrangement of the cheapest cube for one color scheme.
+     */
+    private static final class Plan {
+        final int[] colorOfFace;
+        final byte[] cp = new byte[N_CORNERS], co = new byte[N_CORNERS];
+        final byte[] ep = new byte[N_EDGES], eo = new byte[N_EDGES];
+        final float cost; // The total sticker cost, including the centers.
+
+        Plan(int[] colorOfFace, float cost) {
+            this.colorOfFace = colorOfFace;
+            this.cost = cost;
+        }
+    }
+
+    /**
+     * Finds the cheapest piece arrangement for a color scheme.
+     * @return The arrangement, or null if it cannot beat the bound.
+     */
+    private static Plan plan(float[] cost, int[] colorOfFace, boolean withEdges, float centerCost, float bound) {
+        float[] cornerCost = new float[N_CORNERS * N_CORNERS * 3];
+        for (int c = 0; c < N_CORNERS; c++) {
+            for (int piece = 0; piece < N_CORNERS; piece++) {
+                for (int twist = 0; twist < 3; twist++) {
+                    float sum = 0f;
+                    for (int k = 0; k < 3; k++) {
+                        int facelet = CORNER_FACELET[c][(twist + k) % 3];
+                        sum += cost[facelet * CubeColor.COUNT + colorOfFace[CORNER_COLOR[piece][k]]];
+                    }
+                    cornerCost[(c * N_CORNERS + piece) * 3 + twist] = sum;
+                }
+            }
+        }
+        float[] edgeCost = null;
+        float edgeLowerBound = 0f;
+        if (withEdges) {
+            edgeCost = new float[N_EDGES * N_EDGES * 2];
+            for (int e = 0; e < N_EDGES; e++) {
+                for (int piece = 0; piece < N_EDGES; piece++) {
+                    for (int flip = 0; flip < 2; flip++) {
+                        float sum = 0f;
+                        for (int k = 0; k < 2; k++) {
+                            int facelet = EDGE_FACELET[e][(flip + k) % 2];
+                            sum += cost[facelet * CubeColor.COUNT + colorOfFace[EDGE_COLOR[piece][k]]];
+                        }
+                        edgeCost[(e * N_EDGES + piece) * 2 + flip] = sum;
+                    }
+                }
+            }
+            edgeLowerBound = remainingLowerBound(edgeCost, N_EDGES, 2)[0];
+        }
+        if (centerCost + remainingLowerBound(cornerCost, N_CORNERS, 3)[0] + edgeLowerBound >= bound) {
+            return null;
+        }
+
+        // Corners: dp[(mask * 3 + twist) * 2 + parity], filling positions 0, 1, ... with the pieces in mask.
+        float[] cornerDp = new float[(1 << N_CORNERS) * 6];
+        byte[] cornerChoice = new byte[cornerDp.length];
+        fill(cornerDp, cornerChoice, cornerCost, N_CORNERS, 3, bound - centerCost - edgeLowerBound);
+        int full = ((1 << N_CORNERS) - 1) * 6;
+        // Without edges any corner permutation is possible; the twist sum must still be 0.
+        float[] cornerTotal = {cornerDp[full], cornerDp[full + 1]};
+        float cheapestCorners = Math.min(cornerTotal[0], cornerTotal[1]);
+        if (cheapestCorners == INFINITE) {
+            return null;
+        }
+
+        float[] edgeTotal = {0f, 0f};
+        byte[] edgeChoice = null;
+        if (withEdges) {
+            // Edges: dp[(mask * 2 + flip) * 2 + parity]. This table is the expensive part, so it is first filled with
+            // a small budget above the lower bound, which is raised only if the cheapest cube might lie beyond it.
+            float[] edgeDp = new float[(1 << N_EDGES) * 4];
+            edgeChoice = new byte[edgeDp.length];
+            int fullEdges = ((1 << N_EDGES) - 1) * 4;
+            float limit = bound - centerCost - cheapestCorners;
+            for (float slack = INITIAL_SLACK; ; slack *= 4) {
+                float budget = Math.min(limit, edgeLowerBound + slack);
+                fill(edgeDp, edgeChoice, edgeCost, N_EDGES, 2, budget);
+                edgeTotal[0] = edgeDp[fullEdges];
+                edgeTotal[1] = edgeDp[fullEdges + 1];
+                // Totals below the budget are exact; a missing one could only win if it were cheaper than the budget.
+                float found = Math.min(cornerTotal[0] + edgeTotal[0], cornerTotal[1] + edgeTotal[1]);
+                boolean exact = found < INFINITE
+                        && (edgeTotal[0] < INFINITE || cornerTotal[0] + budget >= found)
+                        && (edgeTotal[1] < INFINITE || cornerTotal[1] + budget >= found);
+                if (exact || budget >= limit) {
+                    break;
+                }
+            }
+            if (Math.min(cornerTotal[0] + edgeTotal[0], cornerTotal[1] + edgeTotal[1]) >= INFINITE) {
+                return null;
+            }
+        }
+
+        int cornerParity, edgeParity;
+        float total;
+        if (withEdges) {
+            // On a 3x3 the corner and edge permutations have the same parity.
+            cornerParity = cornerTotal[0] + edgeTotal[0] <= cornerTotal[1] + edgeTotal[1] ? 0 : 1;
+            edgeParity = cornerParity;
+        } else {
+            cornerParity = cornerTotal[0] <= cornerTotal[1] ? 0 : 1;
+            edgeParity = 0;
+        }
+        total = centerCost + cornerTotal[cornerParity] + edgeTotal[edgeParity];
+        if (total >= bound) {
+            return null;
+        }
+        Plan plan = new Plan(colorOfFace, total);
+        trace(cornerChoice, N_CORNERS, 3, cornerParity, plan.cp, plan.co);
+        if (withEdges) {
+            trace(edgeChoice, N_EDGES, 2, edgeParity, plan.ep, plan.eo);
+        }
+        return plan;
+    }
+
+    /**
+     * Fills the table dp[(mask * orientations + orientationSum) * 2 + parity] with the cheapest way to put the pieces
+     * in mask at the first bitCount(mask) positions, and choice with the piece * orientations + orientation placed
+     * last. The empty mask costs 0 with sum 0 and even parity.
+     * States that cannot finish within the budget, even if every remaining position got its cheapest piece, are
+     * not expanded; with a reasonable detection that skips almost the whole table.
+     */
+    private static void fill(float[] dp, byte[] choice, float[] placementCost, int pieces, int orientations,
+                             float budget) {
+        float[] remaining = remainingLowerBound(placementCost, pieces, orientations);
+        Arrays.fill(dp, INFINITE);
+        dp[0] = 0f;
+        int states = orientations * 2;
+        for (int mask = 0; mask < (1 << pieces); mask++) {
+            int position = Integer.bitCount(mask);
+            if (position == pieces) {
+                continue;
+            }
+            for (int state = 0; state < states; state++) {
+                float current = dp[mask * states + state];
+                if (current == INFINITE || current + remaining[position] >= budget) {
+                    continue;
+                }
+                int sum = state / 2, parity = state % 2;
+                for (int piece = 0; piece < pieces; piece++) {
+                    if ((mask & (1 << piece)) != 0) {
+                        continue;
+                    }
+                    int next = mask | (1 << piece);
+                    // Pieces already placed that are larger than this one form inversions with it.
+                    int nextParity = (parity + Integer.bitCount(mask >>> (piece + 1))) % 2;
+                    int costIndex = (position * pieces + piece) * orientations;
+                    for (int o = 0; o < orientations; o++) {
+                        float candidate = current + placementCost[costIndex + o];
+                        int nextState = next * states + ((sum + o) % orientations) * 2 + nextParity;
+                        if (candidate < dp[nextState]) {
+                            dp[nextState] = candidate;
+                            choice[nextState] = (byte) (piece * orientations + o);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns, for every position, the sum over it and all later positions of their cheapest placement, ignoring
+     * that pieces must differ: a lower bound on the cost of filling them.
+     */
+    private static float[] remainingLowerBound(float[] placementCost, int pieces, int orientations) {
+        float[] remaining = new float[pieces + 1];
+        for (int position = pieces - 1; position >= 0; position--) {
+            float cheapest = INFINITE;
+            int first = position * pieces * orientations;
+            for (int i = first; i < first + pieces * orientations; i++) {
+                cheapest = Math.min(cheapest, placementCost[i]);
+            }
+            remaining[position] = remaining[position + 1] + cheapest;
+        }
+        return remaining;
+    }
+
+    /**
+     * Reads the cheapest arrangement with orientation sum 0 and the given parity back from the choices.
+     */
+    private static void trace(byte[] choice, int pieces, int orientations, int parity, byte[] perm, byte[] ori) {
+        int states = orientations * 2;
+        int mask = (1 << pieces) - 1, sum = 0;
+        for (int position = pieces - 1; position >= 0; position--) {
+            int placed = choice[mask * states + sum * 2 + parity];
+            int piece = placed / orientations, o = placed % orientations;
+            perm[position] = (byte) piece;
+            ori[position] = (byte) o;
+            mask &= ~(1 << piece);
+            parity = (parity + Integer.bitCount(mask >>> (piece + 1))) % 2;
+            sum = (sum - o + orientations) % orientations;
+        }
+    }
+
+    private static Correction toCorrection(CubeState state, float[] cost, Plan plan) {
+        int size = state.getSize();
+        byte[] stickers = new byte[state.getStickerCount()];
+        state.copyStickers(stickers);
+        int[] colorOfFace = plan.colorOfFace;
+        for (int c = 0; c < N_CORNERS; c++) {
+            for (int k = 0; k < 3; k++) {
+                int facelet = CORNER_FACELET[c][(plan.co[c] + k) % 3];
+                stickers[stickerIndex(size, facelet)] = (byte) colorOfFace[CORNER_COLOR[plan.cp[c]][k]];
+            }
+        }
+        if (size == 3) {
+            for (int e = 0; e < N_EDGES; e++) {
+                for (int k = 0; k < 2; k++) {
+                    int facelet = EDGE_FACELET[e][(plan.eo[e] + k) % 2];
+                    stickers[facelet] = (byte) colorOfFace[EDGE_COLOR[plan.ep[e]][k]];
+                }
+            }
+            for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+                stickers[face * 9 + 4] = (byte) colorOfFace[face];
+            }
+        }
+
+        List<Integer> changed = new ArrayList<>();
+        float unchangedCost = 0f;
+        for (int facelet = 0; facelet < FaceCube.N_FACELETS; facelet++) {
+            int sticker = stickerIndex(size, facelet);
+            if (sticker < 0) {
+                continue;
+            }
+            unchangedCost += cost[facelet * CubeColor.COUNT + state.getOrdinal(sticker)];
+            if (stickers[sticker] != state.getOrdinal(sticker)) {
+                changed.add(sticker);
+            }
+        }
+        int[] changedStickers = new int[changed.size()];
+        for (int i = 0; i < changedStickers.length; i++) {
+            changedStickers[i] = changed.get(i);
+        }
+        Arrays.sort(changedStickers);
+        float relativeCost = changedStickers.length == 0 ? 0f : Math.max(0f, plan.cost - unchangedCost);
+        CubeState corrected = changedStickers.length == 0 ? state : CubeState.of(size, stickers);
+        return new Correction(corrected, changedStickers, relativeCost);
+    }
+
+    /**
+     * Returns the CubeState index of a 3x3 facelet, or -1 if a 2x2 has no such sticker.
+     */
+    private static int stickerIndex(int size, int facelet) {
+        if (size == 3) {
+            return facelet;
+        }
+        int face = facelet / 9, row = facelet % 9 / 3, col = facelet % 3;
+        if (row == 1 || col == 1) {
+            return -1;
+        }
+        return (face * 2 + row / 2) * 2 + col / 2;
+    }
+
+    private static float centerCost(float[] cost, int[] colorOfFace) {
+        float sum = 0f;
+        for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+            sum += cost[(face * 9 + 4) * CubeColor.COUNT + colorOfFace[face]];
+        }
+        return sum;
+    }
+
+    /**
+     * Returns every color scheme, cheapest centers first.
+     */
+    private static int[][] byCenterCost(float[] cost) {
+        int[][] schemes = ALL_SCHEMES.clone();
+        float[] centerCost = new float[schemes.length];
+        Integer[] order = new Integer[schemes.length];
+        for (int i = 0; i < schemes.length; i++) {
+            centerCost[i] = centerCost(cost, schemes[i]);
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble(i -> centerCost[i]));
+        int[][] sorted = new int[schemes.length][];
+        for (int i = 0; i < schemes.length; i++) {
+            sorted[i] = schemes[order[i]];
+        }
+        return sorted;
+    }
+
+    private static int[][] permutations() {
+        List<int[]> result = new ArrayList<>();
+        permute(new int[CubeState.FACE_COUNT], 0, 0, result);
+        return result.toArray(new int[0][]);
+    }
+
+    private static void permute(int[] current, int face, int usedColors, List<int[]> result) {
+        if (face == current.length) {
+            result.add(current.clone());
+            return;
+        }
+        for (int color = 0; color < CubeColor.COUNT; color++) {
+            if ((usedColors & (1 << color)) == 0) {
+                current[face] = color;
+                permute(current, face + 1, usedColors | (1 << color), result);
+            }
+        }
+    }
+
+    /**
+     * Schemes that differ by a rotation of the whole cube allow the same 2x2 sticker patterns, so only one of each 24
+     * is kept. Two schemes are rotations of each other exactly when they have the same eight corner pieces, each
+     * read clockwise.
+     */
+    private static int[][] distinctPocketSchemes() {
+        List<int[]> result = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int[] colorOfFace : ALL_SCHEMES) {
+            int[] pieces = new int[N_CORNERS];
+            for (int piece = 0; piece < N_CORNERS; piece++) {
+                int best = Integer.MAX_VALUE;
+                for (int start = 0; start < 3; start++) {
+                    int code = 0;
+                    for (int k = 0; k < 3; k++) {
+                        code = code * CubeColor.COUNT + colorOfFace[CORNER_COLOR[piece][(start + k) % 3]];
+                    }
+                    best = Math.min(best, code);
+                }
+                pieces[piece] = best;
+            }
+            Arrays.sort(pieces);
+            if (seen.add(Arrays.toString(pieces))) {
+                result.add(colorOfFace);
+            }
+        }
+        return result.toArray(new int[0][]);
+    }
+
+    /**
+     * Returns the number of 2x2 color schemes tried by correct; 30 for the 720 colorings of six faces.
+     */
+    static int pocketSchemeCount() {
+        return POCKET_SCHEMES.length;
+    }
+}
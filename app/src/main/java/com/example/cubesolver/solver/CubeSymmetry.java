@@ -0,0 +1,229 @@
+package com.example.cubesolver.solver;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CubeSymmetry maps a 3x3 facelet string to a representative of its class under the 48 symmetries of the cube:
+ * the 24 whole-cube rotations, each with or without a mirror reflection.
+ * Two cubes that differ only by how the cube was held when it was photographed have conjugate solutions, so a
+ * solution found for the representative is translated back to the user's orientation by renaming its faces (and
+ * reversing the turn directions if the symmetry is a reflection). Keying a cache by the representative lets every
+ * orientation of a cube share one entry.
+ * Which color sits on which center needs no extra step: a facelet string names each sticker after the center with
+ * the same color, so it is already independent of the color scheme.
+ */
+public final class CubeSymmetry {
+
+    public static final int N_SYM = 48;
+    public static final int IDENTITY = 0;
+    // Rotations by 120 and 240 degrees about the diagonal through the URF and DBL corners. They cycle the U, R and F
+    // axes, so the cube and its two rotations each give phase 1 of the two-phase search a different axis to work on.
+    static final int URF_ROTATION = 32; // U to F, R to U, F to R.
+    static final int URF_ROTATION_TWICE = 24;
+
+    private static final String FACES = FaceCube.FACES;
+    // Outward normal of each face in URFDLB order, with x pointing right, y up and z to the front.
+    private static final int[][] NORMALS = {
+        {0, 1, 0}, {1, 0, 0}, {0, 0, 1}, {0, -1, 0}, {-1, 0, 0}, {0, 0, -1}
+    };
+
+    private static final int[][] FACELET_MAP = new int[N_SYM][FaceCube.N_FACELETS]; // Where each facelet moves to.
+    private static final int[][] FACE_MAP = new int[N_SYM][6]; // Which face each face moves to.
+    private static final boolean[] MIRRORED = new boolean[N_SYM];
+
+    /**
+     * A facelet string transformed to its representative, and the symmetry that does it.
+     */
+    public static final class Canonical {
+
+        private final String facelets;
+        private final int symmetry;
+
+        private Canonical(String facelets, int symmetry) {
+            this.facelets = facelets;
+            this.symmetry = symmetry;
+        }
+
+        /**
+         * Returns the representative facelet string, the same for every orientation and mirror image of the cube.
+         */
+        public String getFacelets() {
+            return facelets;
+        }
+
+        /**
+         * Returns the symmetry that maps the original cube to the representative.
+         */
+        public int getSymmetry() {
+            return symmetry;
+        }
+
+        /**
+         * Translates a solution of the representative into a solution of the original cube.
+         * @param solution The moves solving getFacelets(), e.g. "R U2 F'".
+         * @return The moves solving the original cube.
+         */
+        public String toOriginalSolution(String solution) {
+            return translateSolution(solution, symmetry);
+        }
+    }
+
+    static {
+        int[][] positions = faceletPositions();
+        int sym = 0;
+        // Every signed permutation matrix; the identity comes first.
+        int[][] axisOrders = {{0, 1, 2}, {0, 2, 1}, {1, 0, 2}, {1, 2, 0}, {2, 0, 1}, {2, 1, 0}};
+        for (int[] axes : axisOrders) {
+            for (int signs = 0; signs < 8; signs++) {
+                int[][] matrix = new int[3][3];
+                for (int row = 0; row < 3; row++) {
+                    matrix[row][axes[row]] = (signs & (1 << row)) == 0 ? 1 : -1;
+                }
+                MIRRORED[sym] = determinant(matrix) < 0;
+                for (int face = 0; face < 6; face++) {
+                    FACE_MAP[sym][face] = indexOf(NORMALS, multiply(matrix, NORMALS[face]));
+                }
+                for (int facelet = 0; facelet < FaceCube.N_FACELETS; facelet++) {
+                    FACELET_MAP[sym][facelet] = indexOf(positions, multiply(matrix, positions[facelet]));
+                }
+                sym++;
+            }
+        }
+    }
+
+    private CubeSymmetry() {
+    }
+
+    /**
+     * Applies a symmetry to a cube: the stickers are moved as the symmetry moves the whole cube, and each sticker is
+     * renamed after the face its center moved to, so the result is again a facelet string with centers URFDLB.
+     * @param facelets A 54-character facelet string.
+     * @param symmetry The symmetry, 0 to N_SYM - 1.
+     * @return The transformed facelet string.
+     */
+    public static String transform(String facelets, int symmetry) {
+        char[] result = new char[FaceCube.N_FACELETS];
+        int[] faceletMap = FACELET_MAP[symmetry];
+        int[] faceMap = FACE_MAP[symmetry];
+        for (int i = 0; i < result.length; i++) {
+            result[faceletMap[i]] = FACES.charAt(faceMap[FACES.indexOf(facelets.charAt(i))]);
+        }
+        return new String(result);
+    }
+
+    /**
+     * Finds the representative of a cube: the lexicographically smallest of its 48 transforms.
+     * @param facelets A 54-character facelet string using the letters URFDLB.
+     * @return The representative and the symmetry that produces it.
+     * @throws SolverException If the string is not 54 facelet letters.
+     */
+    public static Canonical canonicalize(String facelets) throws SolverException {
+        if (facelets == null || facelets.length() != FaceCube.N_FACELETS) {
+            throw new SolverException("Facelet string must have " + FaceCube.N_FACELETS + " characters");
+        }
+        for (int i = 0; i < facelets.length(); i++) {
+            if (FACES.indexOf(facelets.charAt(i)) < 0) {
+                throw new SolverException("Invalid facelet '" + facelets.charAt(i) + "' at position " + i);
+            }
+        }
+        String best = facelets;
+        int bestSymmetry = IDENTITY;
+        for (int sym = 1; sym < N_SYM; sym++) {
+            String candidate = transform(facelets, sym);
+            if (candidate.compareTo(best) < 0) {
+                best = candidate;
+                bestSymmetry = sym;
+            }
+        }
+        return new Canonical(best, bestSymmetry);
+    }
+
+    /**
+     * Translates a solution of transform(cube, symmetry) into a solution of the cube itself.
+     * @param solution Space-separated moves such as "R U2 F'".
+     * @param symmetry The symmetry that was applied to the cube.
+     * @return The translated moves.
+     */
+    public static String translateSolution(String solution, int symmetry) {
+        StringBuilder result = new StringBuilder(solution.length());
+        for (String move : solution.trim().split("\\s+")) {
+            if (move.isEmpty()) {
+                continue;
+            }
+            // A turn of face f on the original cube is a turn of face FACE_MAP[f] on the transformed one.
+            int mapped = FACES.indexOf(move.charAt(0));
+            int face = 0;
+            while (FACE_MAP[symmetry][face] != mapped) {
+                face++;
+            }
+            String suffix = move.substring(1);
+            if (MIRRORED[symmetry]) {
+                // A reflection turns clockwise into counter-clockwise.
+                suffix = suffix.equals("'") ? "" : suffix.isEmpty() ? "'" : suffix;
+            }
+            if (result.length() > 0) {
+                result.append(' ');
+            }
+            result.append(FACES.charAt(face)).append(suffix);
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns whether a symmetry includes a reflection.
+     * @param symmetry The symmetry, 0 to N_SYM - 1.
+     * @return True for the 24 mirrored symmetries.
+     */
+    public static boolean isMirrored(int symmetry) {
+        return MIRRORED[symmetry];
+    }
+
+    /**
+     * Returns the position of every facelet's center in units of half a sticker, with the faces at +-3.
+     * Each face is read row by row as seen from outside, with U's top row at the back, D's top row at the front,
+     * and the U face above the top rows of F, R, B and L, as in the facelet string.
+     */
+    private static int[][] faceletPositions() {
+        List<int[]> positions = new ArrayList<>(FaceCube.N_FACELETS);
+        for (int face = 0; face < 6; face++) {
+            for (int row = 0; row < 3; row++) {
+                for (int col = 0; col < 3; col++) {
+                    int right = (col - 1) * 2, down = (row - 1) * 2;
+                    switch (face) {
+                        case 0: positions.add(new int[]{right, 3, down}); break; // U
+                        case 1: positions.add(new int[]{3, -down, -right}); break; // R
+                        case 2: positions.add(new int[]{right, -down, 3}); break; // F
+                        case 3: positions.add(new int[]{right, -3, -down}); break; // D
+                        case 4: positions.add(new int[]{-3, -down, right}); break; // L
+                        default: positions.add(new int[]{-right, -down, -3}); break; // B
+                    }
+                }
+            }
+        }
+        return positions.toArray(new int[0][]);
+    }
+
+    private static int[] multiply(int[][] matrix, int[] vector) {
+        int[] result = new int[3];
+        for (int row = 0; row < 3; row++) {
+            result[row] = matrix[row][0] * vector[0] + matrix[row][1] * vector[1] + matrix[row][2] * vector[2];
+        }
+        return result;
+    }
+
+    private static int determinant(int[][] m) {
+        return m[0][0] * (m[1][1] * m[2][2] - m[1][2] * m[2][1])
+                - m[0][1] * (m[1][0] * m[2][2] - m[1][2] * m[2][0])
+                + m[0][2] * (m[1][0] * m[2][1] - m[1][1] * m[2][0]);
+    }
+
+    private static int indexOf(int[][] vectors, int[] vector) {
+        for (int i = 0; i < vectors.length; i++) {
+            if (vectors[i][0] == vector[0] && vectors[i][1] == vector[1] && vectors[i][2] == vector[2]) {
+                return i;
+            }
+        }
+        throw new IllegalStateException("No facelet at a transformed position");
+    }
+}
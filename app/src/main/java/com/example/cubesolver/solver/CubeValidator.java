@@ -0,0 +1,429 @@
+package com.example.cubesolver.solver;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.example.cubesolver.solver.CubieCube.N_CORNERS;
+import static com.example.cubesolver.solver.CubieCube.N_EDGES;
+import static com.example.cubesolver.solver.FaceCube.CORNER_COLOR;
+import static com.example.cubesolver.solver.FaceCube.CORNER_FACELET;
+import static com.example.cubesolver.solver.FaceCube.EDGE_COLOR;
+import static com.example.cubesolver.solver.FaceCube.EDGE_FACELET;
+
+/**
+ * CubeValidator checks a scanned cube before it is solved and reports every problem together with the stickers
+ * that cause it, so the UI can highlight them instead of failing somewhere inside the solver.
+ * The checks are those of CubieCube.verify, applied to the stickers: the number of stickers of each color, distinct
+ * centers (3x3), that every corner and edge position holds a real piece and no piece appears twice, and, once the
+ * pieces are all there, the corner twist sum, the edge flip sum and the permutation parity.
+ * A validation takes a few microseconds and allocates only its result.
+ */
+public final class CubeValidator {
+
+    /**
+     * The kinds of problems, roughly from the most to the least specific.
+     */
+    public enum Kind {
+        COLOR_COUNT,
+        DUPLICATE_CENTER,
+        INVALID_CORNER,
+        INVALID_EDGE,
+        DUPLICATE_CORNER,
+        DUPLICATE_EDGE,
+        TWISTED_CORNER,
+        FLIPPED_EDGE,
+        PARITY
+    }
+
+    /**
+     * One reason why the cube cannot be solved.
+     */
+    public static final class Problem {
+
+        private final Kind kind;
+        private final String message;
+        private final int[] stickers;
+
+        Problem(Kind kind, String message, int[] stickers) {
+            this.kind = kind;
+            this.message = message;
+            this.stickers = stickers;
+        }
+
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns a description for the user, e.g. "The Red-Blue edge appears twice".
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Returns the indices of the implicated stickers in CubeState order, (face * size + row) * size + col.
+         * Twist, flip and parity problems implicate every corner or edge, as any of them could be the wrong one.
+         */
+        public int[] getStickers() {
+            return stickers.clone();
+        }
+
+        @Override
+        public String toString() {
+            return kind + ": " + message;
+        }
+    }
+
+    /**
+     * The outcome of a validation.
+     */
+    public static final class Result {
+
+        private final List<Problem> problems;
+        private final boolean[] implicated;
+
+        Result(List<Problem> problems, int stickerCount) {
+            this.problems = Collections.unmodifiableList(problems);
+            implicated = new boolean[stickerCount];
+            for (Problem problem : problems) {
+                for (int sticker : problem.stickers) {
+                    implicated[sticker] = true;
+                }
+            }
+        }
+
+        /**
+         * Returns true if the cube can be solved.
+         */
+        public boolean isValid() {
+            return problems.isEmpty();
+        }
+
+        public List<Problem> getProblems() {
+            return problems;
+        }
+
+        /**
+         * Returns whether any problem implicates a sticker.
+         * @param sticker The sticker index in CubeState order.
+         */
+        public boolean isImplicated(int sticker) {
+            return implicated[sticker];
+        }
+
+        /**
+         * Returns the messages of all problems, one per line.
+         */
+        public String getSummary() {
+            StringBuilder summary = new StringBuilder();
+            for (Problem problem : problems) {
+                if (summary.length() > 0) {
+                    summary.append('\n');
+                }
+                summary.append(problem.getMessage());
+            }
+            return summary.toString();
+        }
+    }
+
+    private CubeValidator() {
+    }
+
+    /**
+     * Validates a 3x3 or 2x2 cube.
+     * @param state The scanned cube.
+     * @return The problems found; empty if the cube is solvable.
+     */
+    public static Result validate(CubeState state) {
+        int size = state.getSize();
+        List<Problem> problems = new ArrayList<>();
+        // Stickers of each position in 3x3 facelet order; on a 2x2 only the corner facelets are used.
+        int[] colorAt = new int[FaceCube.N_FACELETS];
+        int[] stickerAt = new int[FaceCube.N_FACELETS];
+        for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int facelet = face * 9 + (size == 3 ? row * 3 + col : row * 6 + col * 2);
+                    stickerAt[facelet] = (face * size + row) * size + col;
+                    colorAt[facelet] = state.getColor(face, row, col).ordinal();
+                }
+            }
+        }
+
+        checkColorCounts(state, problems);
+        int[] faceOfColor;
+        if (size == 3) {
+            faceOfColor = centerFaces(state, problems);
+            if (faceOfColor == null) {
+                return new Result(problems, state.getStickerCount());
+            }
+        } else {
+            faceOfColor = bestPocketFaces(colorAt);
+        }
+
+        byte[] cp = new byte[N_CORNERS], co = new byte[N_CORNERS];
+        byte[] ep = new byte[N_EDGES], eo = new byte[N_EDGES];
+        boolean piecesValid = readCorners(colorAt, stickerAt, faceOfColor, cp, co, problems);
+        if (size == 3) {
+            piecesValid &= readEdges(colorAt, stickerAt, faceOfColor, ep, eo, problems);
+        } else {
+            for (int e = 0; e < N_EDGES; e++) {
+                ep[e] = (byte) e; // A 2x2 has no edges; the solved ones keep the parity check out of the way.
+            }
+        }
+        if (piecesValid) {
+            checkOrientationAndParity(size, stickerAt, cp, co, ep, eo, problems);
+        }
+        return new Result(problems, state.getStickerCount());
+    }
+
+    private static void checkColorCounts(CubeState state, List<Problem> problems) {
+        int expected = state.getSize() * state.getSize();
+        int[] count = new int[CubeColor.COUNT];
+        for (int i = 0; i < state.getStickerCount(); i++) {
+            count[state.getOrdinal(i)]++;
+        }
+        for (int color = 0; color < CubeColor.COUNT; color++) {
+            if (count[color] == expected) {
+                continue;
+            }
+            String name = CubeColor.of(color).getDisplayName();
+            String message = "Found " + count[color] + " " + name + " stickers, expected " + expected;
+            // Surplus colors are highlighted; a missing color has no stickers to point at.
+            int[] stickers = new int[count[color] > expected ? count[color] : 0];
+            for (int i = 0, n = 0; n < stickers.length; i++) {
+                if (state.getOrdinal(i) == color) {
+                    stickers[n++] = i;
+                }
+            }
+            problems.add(new Problem(Kind.COLOR_COUNT, message, stickers));
+        }
+    }
+
+    /**
+     * Maps each color to the face whose center has it.
+     * @return The face of each color ordinal (-1 for colors on no center), or null if two centers share a color.
+     */
+    private static int[] centerFaces(CubeState state, List<Problem> problems) {
+        int[] faceOfColor = {-1, -1, -1, -1, -1, -1};
+        for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+            int color = state.getColor(face, 1, 1).ordinal();
+            if (faceOfColor[color] >= 0) {
+                int other = faceOfColor[color];
+                problems.add(new Problem(Kind.DUPLICATE_CENTER, "The " + FaceCube.FACES.charAt(other) + " and "
+                        + FaceCube.FACES.charAt(face) + " centers are both " + CubeColor.of(color).getDisplayName(),
+                        new int[]{other * 9 + 4, face * 9 + 4}));
+                return null;
+            }
+            faceOfColor[color] = face;
+        }
+        return faceOfColor;
+    }
+
+    /**
+     * A 2x2 has no centers, so the faces are named after the colors: of all 720 ways to give the six colors to the
+     * six faces, the one under which the most corner positions hold a real corner. On a valid cube that is the
+     * orientation the cube was scanned in; with a misread sticker it still explains every other corner.
+     */
+    private static int[] bestPocketFaces(int[] colorAt) {
+        int[] faceOfColor = new int[CubeColor.COUNT];
+        int[] best = new int[CubeColor.COUNT];
+        int[] bestScore = {-1};
+        permute(faceOfColor, 0, new boolean[6], colorAt, best, bestScore);
+        return best;
+    }
+
+    private static void permute(int[] faceOfColor, int color, boolean[] used, int[] colorAt, int[] best,
+                                int[] bestScore) {
+        if (color == faceOfColor.length) {
+            int score = 0;
+            for (int c = 0; c < N_CORNERS; c++) {
+                if (cornerPiece(colorAt, faceOfColor, c) >= 0) {
+                    score++;
+                }
+            }
+            if (score > bestScore[0]) {
+                bestScore[0] = score;
+                System.arraycopy(faceOfColor, 0, best, 0, best.length);
+            }
+            return;
+        }
+        for (int face = 0; face < 6 && bestScore[0] < N_CORNERS; face++) {
+            if (!used[face]) {
+                used[face] = true;
+                faceOfColor[color] = face;
+                permute(faceOfColor, color + 1, used, colorAt, best, bestScore);
+                used[face] = false;
+            }
+        }
+    }
+
+    /**
+     * Identifies the corner piece at a position.
+     * @return piece * 3 + twist, or -1 if the colors do not form a real corner.
+     */
+    private static int cornerPiece(int[] colorAt, int[] faceOfColor, int position) {
+        int[] facelets = CORNER_FACELET[position];
+        int f0 = faceOfColor[colorAt[facelets[0]]];
+        int f1 = faceOfColor[colorAt[facelets[1]]];
+        int f2 = faceOfColor[colorAt[facelets[2]]];
+        for (int ori = 0; ori < 3; ori++) {
+            // Read the stickers starting with the one that has the U or D color.
+            int a = ori == 0 ? f0 : ori == 1 ? f1 : f2;
+            int b = ori == 0 ? f1 : ori == 1 ? f2 : f0;
+            int c = ori == 0 ? f2 : ori == 1 ? f0 : f1;
+            for (int piece = 0; piece < N_CORNERS; piece++) {
+                if (a == CORNER_COLOR[piece][0] && b == CORNER_COLOR[piece][1] && c == CORNER_COLOR[piece][2]) {
+                    return piece * 3 + ori;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Identifies the edge piece at a position.
+     * @return piece * 2 + flip, or -1 if the colors do not form a real edge.
+     */
+    private static int edgePiece(int[] colorAt, int[] faceOfColor, int position) {
+        int f0 = faceOfColor[colorAt[EDGE_FACELET[position][0]]];
+        int f1 = faceOfColor[colorAt[EDGE_FACELET[position][1]]];
+        for (int piece = 0; piece < N_EDGES; piece++) {
+            if (f0 == EDGE_COLOR[piece][0] && f1 == EDGE_COLOR[piece][1]) {
+                return piece * 2;
+            }
+            if (f0 == EDGE_COLOR[piece][1] && f1 == EDGE_COLOR[piece][0]) {
+                return piece * 2 + 1;
+            }
+        }
+        return -1;
+    }
+
+    private static boolean readCorners(int[] colorAt, int[] stickerAt, int[] faceOfColor, byte[] cp, byte[] co,
+                                       List<Problem> problems) {
+        boolean valid = true;
+        int[] firstPosition = {-1, -1, -1, -1, -1, -1, -1, -1};
+        for (int c = 0; c < N_CORNERS; c++) {
+            int[] facelets = CORNER_FACELET[c];
+            int found = cornerPiece(colorAt, faceOfColor, c);
+            if (found < 0) {
+                problems.add(new Problem(Kind.INVALID_CORNER, "No real corner has the colors "
+                        + colorNames(colorAt, facelets), stickers(stickerAt, facelets)));
+                valid = false;
+                continue;
+            }
+            int piece = found / 3;
+            cp[c] = (byte) piece;
+            co[c] = (byte) (found % 3);
+            if (firstPosition[piece] >= 0) {
+                int[] first = CORNER_FACELET[firstPosition[piece]];
+                problems.add(new Problem(Kind.DUPLICATE_CORNER, "The " + colorNames(colorAt, facelets)
+                        + " corner appears twice", concat(stickers(stickerAt, first), stickers(stickerAt, facelets))));
+                valid = false;
+            } else {
+                firstPosition[piece] = c;
+            }
+        }
+        return valid;
+    }
+
+    private static boolean readEdges(int[] colorAt, int[] stickerAt, int[] faceOfColor, byte[] ep, byte[] eo,
+                                     List<Problem> problems) {
+        boolean valid = true;
+        int[] firstPosition = new int[N_EDGES];
+        Arrays.fill(firstPosition, -1);
+        for (int e = 0; e < N_EDGES; e++) {
+            int[] facelets = EDGE_FACELET[e];
+            int found = edgePiece(colorAt, faceOfColor, e);
+            if (found < 0) {
+                problems.add(new Problem(Kind.INVALID_EDGE, "No real edge has the colors "
+                        + colorNames(colorAt, facelets), stickers(stickerAt, facelets)));
+                valid = false;
+                continue;
+            }
+            int piece = found / 2;
+            ep[e] = (byte) piece;
+            eo[e] = (byte) (found % 2);
+            if (firstPosition[piece] >= 0) {
+                int[] first = EDGE_FACELET[firstPosition[piece]];
+                problems.add(new Problem(Kind.DUPLICATE_EDGE, "The " + colorNames(colorAt, facelets)
+                        + " edge appears twice", concat(stickers(stickerAt, first), stickers(stickerAt, facelets))));
+                valid = false;
+            } else {
+                firstPosition[piece] = e;
+            }
+        }
+        return valid;
+    }
+
+    private static void checkOrientationAndParity(int size, int[] stickerAt, byte[] cp, byte[] co, byte[] ep,
+                                                  byte[] eo, List<Problem> problems) {
+        int twistSum = 0;
+        for (int c = 0; c < N_CORNERS; c++) {
+            twistSum += co[c];
+        }
+        if (twistSum % 3 != 0) {
+            problems.add(new Problem(Kind.TWISTED_CORNER,
+                    "One corner is twisted in place; check the stickers of the highlighted corners",
+                    allStickers(stickerAt, CORNER_FACELET)));
+        }
+        if (size == 2) {
+            return; // Any corner permutation is possible without edges.
+        }
+        int flipSum = 0;
+        for (int e = 0; e < N_EDGES; e++) {
+            flipSum += eo[e];
+        }
+        if (flipSum % 2 != 0) {
+            problems.add(new Problem(Kind.FLIPPED_EDGE,
+                    "One edge is flipped in place; check the stickers of the highlighted edges",
+                    allStickers(stickerAt, EDGE_FACELET)));
+        }
+        CubieCube cube = new CubieCube(cp, co, ep, eo);
+        if (cube.cornerParity() != cube.edgeParity()) {
+            problems.add(new Problem(Kind.PARITY,
+                    "Two pieces are swapped; check the stickers of the highlighted corners and edges",
+                    concat(allStickers(stickerAt, CORNER_FACELET), allStickers(stickerAt, EDGE_FACELET))));
+        }
+    }
+
+    private static String colorNames(int[] colorAt, int[] facelets) {
+        StringBuilder names = new StringBuilder();
+        for (int facelet : facelets) {
+            if (names.length() > 0) {
+                names.append('-');
+            }
+            names.append(CubeColor.of(colorAt[facelet]).getDisplayName());
+        }
+        return names.toString();
+    }
+
+    private static int[] stickers(int[] stickerAt, int[] facelets) {
+        int[] stickers = new int[facelets.length];
+        for (int i = 0; i < facelets.length; i++) {
+            stickers[i] = stickerAt[facelets[i]];
+        }
+        return stickers;
+    }
+
+    private static int[] allStickers(int[] stickerAt, int[][] pieces) {
+        int[] stickers = new int[0];
+        for (int[] facelets : pieces) {
+            stickers = concat(stickers, stickers(stickerAt, facelets));
+        }
+        return stickers;
+    }
+
+    private static int[] concat(int[] a, int[] b) {
+        int[] result = new int[a.length + b.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
@@ -0,0 +1,582 @@
+package com.example.cubesolver.solver;
+
+/**
+ * CubieCube describes a 3x3 cube on the level of its pieces (cubies) rather than its stickers.
+ * Each of the 8 corners and 12 edges is described by the piece that currently sits in that position
+ * and by how it is twisted (corners) or flipped (edges) relative to its home orientation.
+ * The two-phase algorithm works exclusively on this representation and on the coordinates derived from it.
+ */
+public class CubieCube {
+
+    // Corner positions, in the order used by all permutation and orientation arrays.
+    public static final int URF = 0, UFL = 1, ULB = 2, UBR = 3, DFR = 4, DLF = 5, DBL = 6, DRB = 7;
+    // Edge positions, in the order used by all permutation and orientation arrays.
+    public static final int UR = 0, UF = 1, UL = 2, UB = 3, DR = 4, DF = 5, DL = 6, DB = 7,
+            FR = 8, FL = 9, BL = 10, BR = 11;
+
+    public static final int N_CORNERS = 8;
+    public static final int N_EDGES = 12;
+
+    // Binomial coefficients C(n, k) for n < 12, used by the combinatorial coordinates.
+    private static final int[][] BINOMIAL = new int[12][12];
+
+    static {
+        for (int n = 0; n < 12; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k < n ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    // The cubie-level effect of the six clockwise face turns U, R, F, D, L, B.
+    static final CubieCube[] BASIC_MOVES = {
+        new CubieCube(new byte[]{UBR, URF, UFL, ULB, DFR, DLF, DBL, DRB}, new byte[]{0, 0, 0, 0, 0, 0, 0, 0},
+                new byte[]{UB, UR, UF, UL, DR, DF, DL, DB, FR, FL, BL, BR}, new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}),
+        new CubieCube(new byte[]{DFR, UFL, ULB, URF, DRB, DLF, DBL, UBR}, new byte[]{2, 0, 0, 1, 1, 0, 0, 2},
+                new byte[]{FR, UF, UL, UB, BR, DF, DL, DB, DR, FL, BL, UR}, new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}),
+        new CubieCube(new byte[]{UFL, DLF, ULB, UBR, URF, DFR, DBL, DRB}, new byte[]{1, 2, 0, 0, 2, 1, 0, 0},
+                new byte[]{UR, FL, UL, UB, DR, FR, DL, DB, UF, DF, BL, BR}, new byte[]{0, 1, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0}),
+        new CubieCube(new byte[]{URF, UFL, ULB, UBR, DLF, DBL, DRB, DFR}, new byte[]{0, 0, 0, 0, 0, 0, 0, 0},
+                new byte[]{UR, UF, UL, UB, DF, DL, DB, DR, FR, FL, BL, BR}, new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}),
+        new CubieCube(new byte[]{URF, ULB, DBL, UBR, DFR, UFL, DLF, DRB}, new byte[]{0, 1, 2, 0, 0, 2, 1, 0},
+                new byte[]{UR, UF, BL, UB, DR, DF, FL, DB, FR, UL, DL, BR}, new byte[]{0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0}),
+        new CubieCube(new byte[]{URF, UFL, UBR, DRB, DFR, DLF, ULB, DBL}, new byte[]{0, 0, 1, 2, 0, 0, 2, 1},
+                new byte[]{UR, UF, UL, BR, DR, DF, DL, BL, FR, FL, UB, DB}, new byte[]{0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 1, 1})
+    };
+
+    final byte[] cp = {URF, UFL, ULB, UBR, DFR, DLF, DBL, DRB}; // Corner permutation.
+    final byte[] co = new byte[N_CORNERS]; // Corner orientation (0, 1 or 2 clockwise twists).
+    final byte[] ep = {UR, UF, UL, UB, DR, DF, DL, DB, FR, FL, BL, BR}; // Edge permutation.
+    final byte[] eo = new byte[N_EDGES]; // Edge orientation (0 or 1 flips).
+
+    /**
+     * Creates a solved cube.
+     */
+    public CubieCube() {
+    }
+
+    /**
+     * Creates a cube from explicit permutation and orientation arrays.
+     */
+    CubieCube(byte[] cp, byte[] co, byte[] ep, byte[] eo) {
+        System.arraycopy(cp, 0, this.cp, 0, N_CORNERS);
+        System.arraycopy(co, 0, this.co, 0, N_CORNERS);
+        System.arraycopy(ep, 0, this.ep, 0, N_EDGES);
+        System.arraycopy(eo, 0, this.eo, 0, N_EDGES);
+    }
+
+    /**
+     * Returns an independent copy of this cube.
+     */
+    public CubieCube copy() {
+        return new CubieCube(cp, co, ep, eo);
+    }
+
+    /**
+     * Returns the inverse cube, the one that undoes this cube: this cube multiplied by its inverse is solved.
+     * A solution of the inverse, reversed and with every turn inverted, solves this cube.
+     */
+    public CubieCube inverse() {
+        CubieCube inverse = new CubieCube();
+        for (int c = 0; c < N_CORNERS; c++) {
+            inverse.cp[cp[c]] = (byte) c;
+            inverse.co[cp[c]] = (byte) ((3 - co[c]) % 3);
+        }
+        for (int e = 0; e < N_EDGES; e++) {
+            inverse.ep[ep[e]] = (byte) e;
+            inverse.eo[ep[e]] = eo[e];
+        }
+        return inverse;
+    }
+
+    /**
+     * Returns C(n, k), or 0 when k > n.
+     */
+    static int binomial(int n, int k) {
+        return (k > n) ? 0 : BINOMIAL[n][k];
+    }
+
+    /**
+     * Multiplies this cube's corners with the corners of b, i.e. applies b after this cube.
+     * @param b The cube (usually a move) to apply.
+     */
+    void cornerMultiply(CubieCube b) {
+        byte[] perm = new byte[N_CORNERS];
+        byte[] ori = new byte[N_CORNERS];
+        for (int c = 0; c < N_CORNERS; c++) {
+            perm[c] = cp[b.cp[c]];
+            ori[c] = (byte) ((co[b.cp[c]] + b.co[c]) % 3);
+        }
+        System.arraycopy(perm, 0, cp, 0, N_CORNERS);
+        System.arraycopy(ori, 0, co, 0, N_CORNERS);
+    }
+
+    /**
+     * Multiplies this cube's edges with the edges of b, i.e. applies b after this cube.
+     * @param b The cube (usually a move) to apply.
+     */
+    void edgeMultiply(CubieCube b) {
+        byte[] perm = new byte[N_EDGES];
+        byte[] ori = new byte[N_EDGES];
+        for (int e = 0; e < N_EDGES; e++) {
+            perm[e] = ep[b.ep[e]];
+            ori[e] = (byte) ((eo[b.ep[e]] + b.eo[e]) % 2);
+        }
+        System.arraycopy(perm, 0, ep, 0, N_EDGES);
+        System.arraycopy(ori, 0, eo, 0, N_EDGES);
+    }
+
+    /**
+     * Applies b after this cube, on both corners and edges.
+     * @param b The cube (usually a move) to apply.
+     */
+    public void multiply(CubieCube b) {
+        cornerMultiply(b);
+        edgeMultiply(b);
+    }
+
+    /**
+     * Applies a single move, where the move index is 3 * face + (power - 1) and faces are ordered U, R, F, D, L, B.
+     * @param move The move index (0-17).
+     */
+    public void move(int move) {
+        CubieCube basic = BASIC_MOVES[move / 3];
+        for (int power = move % 3; power >= 0; power--) {
+            multiply(basic);
+        }
+    }
+
+    /**
+     * Applies a sequence of moves in standard notation, e.g. "R U2 F'".
+     * @param sequence Space-separated moves.
+     * @throws IllegalArgumentException If a move is not valid notation.
+     */
+    public void applySequence(String sequence) {
+        for (String token : sequence.trim().split("\\s+")) {
+            if (token.isEmpty()) continue;
+            int move = moveIndex(token);
+            if (move < 0) {
+                throw new IllegalArgumentException("Invalid move: " + token);
+            }
+            move(move);
+        }
+    }
+
+    /**
+     * Converts a move in standard notation ("R", "R2", "R'") to its move index.
+     * @param token The move notation.
+     * @return The move index (0-17), or -1 if the notation is invalid.
+     */
+    public static int moveIndex(String token) {
+        if (token.isEmpty() || token.length() > 2) return -1;
+        int face = "URFDLB".indexOf(token.charAt(0));
+        if (face < 0) return -1;
+        if (token.length() == 1) return 3 * face;
+        switch (token.charAt(1)) {
+            case '2': return 3 * face + 1;
+            case '\'': return 3 * face + 2;
+            default: return -1;
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------
+    // Coordinates. Each one is a number that uniquely encodes a part of the cube state and is used
+    // to index the move and pruning tables.
+    // ---------------------------------------------------------------------------------------------
+
+    /**
+     * The twist of the corners, 0 <= twist < 3^7. The orientation of the last corner follows from the others.
+     */
+    int getTwist() {
+        int twist = 0;
+        for (int c = URF; c < DRB; c++) {
+            twist = 3 * twist + co[c];
+        }
+        return twist;
+    }
+
+    void setTwist(int twist) {
+        int paritySum = 0;
+        for (int c = DRB - 1; c >= URF; c--) {
+            co[c] = (byte) (twist % 3);
+            paritySum += co[c];
+            twist /= 3;
+        }
+        co[DRB] = (byte) ((3 - paritySum % 3) % 3);
+    }
+
+    /**
+     * The flip of the edges, 0 <= flip < 2^11. The orientation of the last edge follows from the others.
+     */
+    int getFlip() {
+        int flip = 0;
+        for (int e = UR; e < BR; e++) {
+            flip = 2 * flip + eo[e];
+        }
+        return flip;
+    }
+
+    void setFlip(int flip) {
+        int paritySum = 0;
+        for (int e = BR - 1; e >= UR; e--) {
+            eo[e] = (byte) (flip % 2);
+            paritySum += eo[e];
+            flip /= 2;
+        }
+        eo[BR] = (byte) ((2 - paritySum % 2) % 2);
+    }
+
+    /**
+     * The parity of the corner permutation, which always equals the parity of the edge permutation on a real cube.
+     */
+    int cornerParity() {
+        int s = 0;
+        for (int i = DRB; i >= URF + 1; i--) {
+            for (int j = i - 1; j >= URF; j--) {
+                if (cp[j] > cp[i]) s++;
+            }
+        }
+        return s % 2;
+    }
+
+    /**
+     * The parity of the edge permutation.
+     */
+    int edgeParity() {
+        int s = 0;
+        for (int i = BR; i >= UR + 1; i--) {
+            for (int j = i - 1; j >= UR; j--) {
+                if (ep[j] > ep[i]) s++;
+            }
+        }
+        return s % 2;
+    }
+
+    /**
+     * The positions and permutation of the four UD-slice edges FR, FL, BL, BR, 0 <= FRtoBR < 11880.
+     * In phase 2 the slice edges are inside the slice and this coordinate is below 24.
+     */
+    int getFRtoBR() {
+        int a = 0, x = 0;
+        byte[] edge4 = new byte[4];
+        // The index a < C(12, 4) encodes which positions hold slice edges.
+        for (int j = BR; j >= UR; j--) {
+            if (FR <= ep[j] && ep[j] <= BR) {
+                a += binomial(11 - j, x + 1);
+                edge4[3 - x++] = ep[j];
+            }
+        }
+        // The index b < 4! encodes the order of the slice edges in those positions.
+        int b = 0;
+        for (int j = 3; j > 0; j--) {
+            int k = 0;
+            while (edge4[j] != j + 8) {
+                rotateLeft(edge4, 0, j);
+                k++;
+            }
+            b = (j + 1) * b + k;
+        }
+        return 24 * a + b;
+    }
+
+    void setFRtoBR(int idx) {
+        byte[] sliceEdge = {FR, FL, BL, BR};
+        byte[] otherEdge = {UR, UF, UL, UB, DR, DF, DL, DB};
+        int b = idx % 24;
+        int a = idx / 24;
+        for (int e = 0; e < N_EDGES; e++) {
+            ep[e] = DB; // Placeholder, the non-slice edges are filled in below.
+        }
+        for (int j = 1; j < 4; j++) {
+            int k = b % (j + 1);
+            b /= j + 1;
+            while (k-- > 0) {
+                rotateRight(sliceEdge, 0, j);
+            }
+        }
+        int x = 3;
+        for (int j = UR; j <= BR; j++) {
+            if (a - binomial(11 - j, x + 1) >= 0) {
+                ep[j] = sliceEdge[3 - x];
+                a -= binomial(11 - j, x-- + 1);
+            }
+        }
+        x = 0;
+        for (int j = UR; j <= BR; j++) {
+            if (ep[j] == DB) {
+                ep[j] = otherEdge[x++];
+            }
+        }
+    }
+
+    /**
+     * The positions and permutation of the six corners URF..DLF, 0 <= URFtoDLF < 20160.
+     */
+    int getURFtoDLF() {
+        int a = 0, x = 0;
+        byte[] corner6 = new byte[6];
+        for (int j = URF; j <= DRB; j++) {
+            if (cp[j] <= DLF) {
+                a += binomial(j, x + 1);
+                corner6[x++] = cp[j];
+            }
+        }
+        int b = 0;
+        for (int j = 5; j > 0; j--) {
+            int k = 0;
+            while (corner6[j] != j) {
+                rotateLeft(corner6, 0, j);
+                k++;
+            }
+            b = (j + 1) * b + k;
+        }
+        return 720 * a + b;
+    }
+
+    void setURFtoDLF(int idx) {
+        byte[] corner6 = {URF, UFL, ULB, UBR, DFR, DLF};
+        byte[] otherCorner = {DBL, DRB};
+        int b = idx % 720;
+        int a = idx / 720;
+        for (int c = 0; c < N_CORNERS; c++) {
+            cp[c] = DRB; // Placeholder, the remaining corners are filled in below.
+        }
+        for (int j = 1; j < 6; j++) {
+            int k = b % (j + 1);
+            b /= j + 1;
+            while (k-- > 0) {
+                rotateRight(corner6, 0, j);
+            }
+        }
+        int x = 5;
+        for (int j = DRB; j >= URF; j--) {
+            if (a - binomial(j, x + 1) >= 0) {
+                cp[j] = corner6[x];
+                a -= binomial(j, x-- + 1);
+            }
+        }
+        x = 0;
+        for (int j = URF; j <= DRB; j++) {
+            if (cp[j] == DRB) {
+                cp[j] = otherCorner[x++];
+            }
+        }
+    }
+
+    /**
+     * The positions and permutation of the six edges UR..DF, 0 <= URtoDF < 20160.
+     * Only meaningful in phase 2, where these edges are all outside the UD-slice.
+     */
+    int getURtoDF() {
+        int a = 0, x = 0;
+        byte[] edge6 = new byte[6];
+        for (int j = UR; j <= BR; j++) {
+            if (ep[j] <= DF) {
+                a += binomial(j, x + 1);
+                edge6[x++] = ep[j];
+            }
+        }
+        int b = 0;
+        for (int j = 5; j > 0; j--) {
+            int k = 0;
+            while (edge6[j] != j) {
+                rotateLeft(edge6, 0, j);
+                k++;
+            }
+            b = (j + 1) * b + k;
+        }
+        return 720 * a + b;
+    }
+
+    void setURtoDF(int idx) {
+        byte[] edge6 = {UR, UF, UL, UB, DR, DF};
+        byte[] otherEdge = {DL, DB, FR, FL, BL, BR};
+        int b = idx % 720;
+        int a = idx / 720;
+        for (int e = 0; e < N_EDGES; e++) {
+            ep[e] = BR; // Placeholder, the remaining edges are filled in below.
+        }
+        for (int j = 1; j < 6; j++) {
+            int k = b % (j + 1);
+            b /= j + 1;
+            while (k-- > 0) {
+                rotateRight(edge6, 0, j);
+            }
+        }
+        int x = 5;
+        for (int j = BR; j >= UR; j--) {
+            if (a - binomial(j, x + 1) >= 0) {
+                ep[j] = edge6[x];
+                a -= binomial(j, x-- + 1);
+            }
+        }
+        x = 0;
+        for (int j = UR; j <= BR; j++) {
+            if (ep[j] == BR) {
+                ep[j] = otherEdge[x++];
+            }
+        }
+    }
+
+    /**
+     * The positions and permutation of the three edges UR, UF, UL, 0 <= URtoUL < 1320.
+     */
+    int getURtoUL() {
+        return getEdge3(UR);
+    }
+
+    void setURtoUL(int idx) {
+        setEdge3(idx, UR);
+    }
+
+    /**
+     * The positions and permutation of the three edges UB, DR, DF, 0 <= UBtoDF < 1320.
+     */
+    int getUBtoDF() {
+        return getEdge3(UB);
+    }
+
+    void setUBtoDF(int idx) {
+        setEdge3(idx, UB);
+    }
+
+    /**
+     * Shared implementation of the two 3-edge coordinates, tracking edges first, first + 1 and first + 2.
+     */
+    private int getEdge3(int first) {
+        int a = 0, x = 0;
+        byte[] edge3 = new byte[3];
+        for (int j = UR; j <= BR; j++) {
+            if (first <= ep[j] && ep[j] <= first + 2) {
+                a += binomial(j, x + 1);
+                edge3[x++] = ep[j];
+            }
+        }
+        int b = 0;
+        for (int j = 2; j > 0; j--) {
+            int k = 0;
+            while (edge3[j] != first + j) {
+                rotateLeft(edge3, 0, j);
+                k++;
+            }
+            b = (j + 1) * b + k;
+        }
+        return 6 * a + b;
+    }
+
+    private void setEdge3(int idx, int first) {
+        byte[] edge3 = {(byte) first, (byte) (first + 1), (byte) (first + 2)};
+        int b = idx % 6;
+        int a = idx / 6;
+        for (int e = 0; e < N_EDGES; e++) {
+            ep[e] = BR; // Untracked edges are marked with BR.
+        }
+        for (int j = 1; j < 3; j++) {
+            int k = b % (j + 1);
+            b /= j + 1;
+            while (k-- > 0) {
+                rotateRight(edge3, 0, j);
+            }
+        }
+        int x = 2;
+        for (int j = BR; j >= UR; j--) {
+            if (a - binomial(j, x + 1) >= 0) {
+                ep[j] = edge3[x];
+                a -= binomial(j, x-- + 1);
+            }
+        }
+    }
+
+    /**
+     * Combines a URtoUL and a UBtoDF coordinate into a URtoDF coordinate.
+     * Both inputs must describe edges outside the UD-slice, which is always the case after phase 1.
+     * @return The URtoDF coordinate, or -1 if the two inputs claim the same position.
+     */
+    static int mergeURtoULandUBtoDF(int urToUl, int ubToDf) {
+        CubieCube a = new CubieCube();
+        CubieCube b = new CubieCube();
+        a.setURtoUL(urToUl);
+        b.setUBtoDF(ubToDf);
+        for (int i = 0; i < 8; i++) {
+            if (a.ep[i] != BR) {
+                if (b.ep[i] != BR) {
+                    return -1;
+                }
+                b.ep[i] = a.ep[i];
+            }
+        }
+        return b.getURtoDF();
+    }
+
+    private static void rotateLeft(byte[] arr, int l, int r) {
+        byte temp = arr[l];
+        for (int i = l; i < r; i++) {
+            arr[i] = arr[i + 1];
+        }
+        arr[r] = temp;
+    }
+
+    private static void rotateRight(byte[] arr, int l, int r) {
+        byte temp = arr[r];
+        for (int i = r; i > l; i--) {
+            arr[i] = arr[i - 1];
+        }
+        arr[l] = temp;
+    }
+
+    /**
+     * Checks that this cube can actually be reached by turning faces.
+     * @throws SolverException If a piece is missing or duplicated, or the twist, flip or parity is impossible.
+     */
+    public void verify() throws SolverException {
+        boolean[] edgeSeen = new boolean[N_EDGES];
+        for (int e = 0; e < N_EDGES; e++) {
+            if (ep[e] >= 0) edgeSeen[ep[e]] = true;
+        }
+        for (boolean seen : edgeSeen) {
+            if (!seen) {
+                throw new SolverException("Not all 12 edges exist exactly once");
+            }
+        }
+        int flipSum = 0;
+        for (int e = 0; e < N_EDGES; e++) {
+            flipSum += eo[e];
+        }
+        if (flipSum % 2 != 0) {
+            throw new SolverException("One edge has to be flipped");
+        }
+        boolean[] cornerSeen = new boolean[N_CORNERS];
+        for (int c = 0; c < N_CORNERS; c++) {
+            if (cp[c] >= 0) cornerSeen[cp[c]] = true;
+        }
+        for (boolean seen : cornerSeen) {
+            if (!seen) {
+                throw new SolverException("Not all 8 corners exist exactly once");
+            }
+        }
+        int twistSum = 0;
+        for (int c = 0; c < N_CORNERS; c++) {
+            twistSum += co[c];
+        }
+        if (twistSum % 3 != 0) {
+            throw new SolverException("One corner has to be twisted");
+        }
+        if (edgeParity() != cornerParity()) {
+            throw new SolverException("Two corners or two edges have to be exchanged");
+        }
+    }
+
+    /**
+     * Returns true if every piece is in its home position with its home orientation.
+     */
+    public boolean isSolved() {
+        for (int c = 0; c < N_CORNERS; c++) {
+            if (cp[c] != c || co[c] != 0) return false;
+        }
+        for (int e = 0; e < N_EDGES; e++) {
+            if (ep[e] != e || eo[e] != 0) return false;
+        }
+        return true;
+    }
+}
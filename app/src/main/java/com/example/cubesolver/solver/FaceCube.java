@@ -0,0 +1,184 @@
+package com.example.cubesolver.solver;
+
+import static com.example.cubesolver.solver.CubieCube.N_CORNERS;
+import static com.example.cubesolver.solver.CubieCube.N_EDGES;
+
+/**
+ * FaceCube describes a 3x3 cube on the level of its 54 stickers (facelets).
+ * The facelet string uses the same layout as SolutionActivity: the faces U, R, F, D, L, B in that order,
+ * each read row by row, and each sticker named by the face whose center has the same color.
+ *
+ * <pre>
+ *             |************|
+ *             |*U1**U2**U3*|
+ *             |*U4**U5**U6*|
+ *             |*U7**U8**U9*|
+ * |************|************|************|************|
+ * |*L1**L2**L3*|*F1**F2**F3*|*R1**R2**R3*|*B1**B2**B3*|
+ * |*L4**L5**L6*|*F4**F5**F6*|*R4**R5**R6*|*B4**B5**B6*|
+ * |*L7**L8**L9*|*F7**F8**F9*|*R7**R8**R9*|*B7**B8**B9*|
+ * |************|************|************|************|
+ *             |*D1**D2**D3*|
+ *             |*D4**D5**D6*|
+ *             |*D7**D8**D9*|
+ * </pre>
+ */
+public class FaceCube {
+
+    public static final int N_FACELETS = 54;
+    // The face letters in facelet-string order. A face's index doubles as its color index.
+    public static final String FACES = "URFDLB";
+
+    // Facelet indices, named after the face and the sticker number shown in the diagram above.
+    private static final int U1 = 0, U2 = 1, U3 = 2, U4 = 3, U6 = 5, U7 = 6, U8 = 7, U9 = 8;
+    private static final int R1 = 9, R2 = 10, R3 = 11, R4 = 12, R6 = 14, R7 = 15, R8 = 16, R9 = 17;
+    private static final int F1 = 18, F2 = 19, F3 = 20, F4 = 21, F6 = 23, F7 = 24, F8 = 25, F9 = 26;
+    private static final int D1 = 27, D2 = 28, D3 = 29, D4 = 30, D6 = 32, D7 = 33, D8 = 34, D9 = 35;
+    private static final int L1 = 36, L2 = 37, L3 = 38, L4 = 39, L6 = 41, L7 = 42, L8 = 43, L9 = 44;
+    private static final int B1 = 45, B2 = 46, B3 = 47, B4 = 48, B6 = 50, B7 = 51, B8 = 52, B9 = 53;
+
+    private static final int U = 0, R = 1, F = 2, D = 3, L = 4, B = 5;
+
+    // The facelets of each corner position, listed clockwise starting with the U or D sticker.
+    static final int[][] CORNER_FACELET = {
+        {U9, R1, F3}, {U7, F1, L3}, {U1, L1, B3}, {U3, B1, R3},
+        {D3, F9, R7}, {D1, L9, F7}, {D7, B9, L7}, {D9, R9, B7}
+    };
+
+    // The facelets of each edge position, starting with the U/D sticker or, for slice edges, the F/B sticker.
+    static final int[][] EDGE_FACELET = {
+        {U6, R2}, {U8, F2}, {U4, L2}, {U2, B2}, {D6, R8}, {D2, F8},
+        {D4, L8}, {D8, B8}, {F6, R4}, {F4, L6}, {B6, L4}, {B4, R6}
+    };
+
+    // The colors of each corner piece in its home position, in the same order as CORNER_FACELET.
+    static final int[][] CORNER_COLOR = {
+        {U, R, F}, {U, F, L}, {U, L, B}, {U, B, R},
+        {D, F, R}, {D, L, F}, {D, B, L}, {D, R, B}
+    };
+
+    // The colors of each edge piece in its home position, in the same order as EDGE_FACELET.
+    static final int[][] EDGE_COLOR = {
+        {U, R}, {U, F}, {U, L}, {U, B}, {D, R}, {D, F},
+        {D, L}, {D, B}, {F, R}, {F, L}, {B, L}, {B, R}
+    };
+
+    private final byte[] facelets = new byte[N_FACELETS]; // The color index (0-5) of every sticker.
+
+    /**
+     * Creates a FaceCube from a 54-character facelet string.
+     * @param faceletString The facelet string, e.g. "UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB".
+     * @throws SolverException If the string is malformed or a color does not appear exactly nine times.
+     */
+    public FaceCube(String faceletString) throws SolverException {
+        if (faceletString == null || faceletString.length() != N_FACELETS) {
+            throw new SolverException("Facelet string must contain exactly " + N_FACELETS + " characters");
+        }
+        int[] count = new int[6];
+        for (int i = 0; i < N_FACELETS; i++) {
+            int color = FACES.indexOf(faceletString.charAt(i));
+            if (color < 0) {
+                throw new SolverException("Invalid facelet character '" + faceletString.charAt(i) + "'");
+            }
+            facelets[i] = (byte) color;
+            count[color]++;
+        }
+        for (int color = 0; color < 6; color++) {
+            if (count[color] != 9) {
+                throw new SolverException("There is not exactly one facelet of each color for every sticker");
+            }
+        }
+        for (int face = 0; face < 6; face++) {
+            if (facelets[9 * face + 4] != face) {
+                throw new SolverException("Center of face " + FACES.charAt(face) + " must be " + FACES.charAt(face));
+            }
+        }
+    }
+
+    /**
+     * Creates the FaceCube that shows the given cubie-level state.
+     */
+    public FaceCube(CubieCube cube) {
+        for (int face = 0; face < 6; face++) {
+            facelets[9 * face + 4] = (byte) face;
+        }
+        for (int c = 0; c < N_CORNERS; c++) {
+            int piece = cube.cp[c];
+            int ori = cube.co[c];
+            for (int n = 0; n < 3; n++) {
+                facelets[CORNER_FACELET[c][(n + ori) % 3]] = (byte) CORNER_COLOR[piece][n];
+            }
+        }
+        for (int e = 0; e < N_EDGES; e++) {
+            int piece = cube.ep[e];
+            int ori = cube.eo[e];
+            for (int n = 0; n < 2; n++) {
+                facelets[EDGE_FACELET[e][(n + ori) % 2]] = (byte) EDGE_COLOR[piece][n];
+            }
+        }
+    }
+
+    /**
+     * Converts the sticker description into a cubie description.
+     * Positions whose colors do not belong to any real corner or edge are marked with -1,
+     * which CubieCube.verify() then reports as a missing piece.
+     * @return The corresponding CubieCube.
+     */
+    public CubieCube toCubieCube() {
+        CubieCube cube = new CubieCube();
+        for (int c = 0; c < N_CORNERS; c++) {
+            cube.cp[c] = -1;
+        }
+        for (int e = 0; e < N_EDGES; e++) {
+            cube.ep[e] = -1;
+        }
+        for (int c = 0; c < N_CORNERS; c++) {
+            // Find the sticker of this corner that carries the U or D color; its index is the twist.
+            int ori;
+            for (ori = 0; ori < 3; ori++) {
+                int color = facelets[CORNER_FACELET[c][ori]];
+                if (color == U || color == D) break;
+            }
+            if (ori == 3) continue;
+            int color1 = facelets[CORNER_FACELET[c][(ori + 1) % 3]];
+            int color2 = facelets[CORNER_FACELET[c][(ori + 2) % 3]];
+            for (int piece = 0; piece < N_CORNERS; piece++) {
+                if (color1 == CORNER_COLOR[piece][1] && color2 == CORNER_COLOR[piece][2]
+                        && facelets[CORNER_FACELET[c][ori]] == CORNER_COLOR[piece][0]) {
+                    cube.cp[c] = (byte) piece;
+                    cube.co[c] = (byte) (ori % 3);
+                    break;
+                }
+            }
+        }
+        for (int e = 0; e < N_EDGES; e++) {
+            int color0 = facelets[EDGE_FACELET[e][0]];
+            int color1 = facelets[EDGE_FACELET[e][1]];
+            for (int piece = 0; piece < N_EDGES; piece++) {
+                if (color0 == EDGE_COLOR[piece][0] && color1 == EDGE_COLOR[piece][1]) {
+                    cube.ep[e] = (byte) piece;
+                    cube.eo[e] = 0;
+                    break;
+                }
+                if (color0 == EDGE_COLOR[piece][1] && color1 == EDGE_COLOR[piece][0]) {
+                    cube.ep[e] = (byte) piece;
+                    cube.eo[e] = 1;
+                    break;
+                }
+            }
+        }
+        return cube;
+    }
+
+    /**
+     * Returns the 54-character facelet string of this cube.
+     */
+    @Override
+    public String toString() {
+        char[] chars = new char[N_FACELETS];
+        for (int i = 0; i < N_FACELETS; i++) {
+            chars[i] = FACES.charAt(facelets[i]);
+        }
+        return new String(chars);
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.cubesolver.solver;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ParallelSearch runs the two-phase search on several threads at once, each on a different variant of the cube:
+ * the cube itself, its two rotations about the URF-DBL diagonal, and the inverses of those three.
+ * Phase 1 always works towards the UD axis, so the variants need very different phase 1 sequences, and one of them
+ * usually reaches a short solution long before the cube itself would. Every solution is translated back to the
+ * original cube. The searches share the length of the best solution found so far through an AtomicInteger and prune
+ * against it, and all of them are cancelled once one reaches the target length.
+ * A ParallelSearch runs one solve at a time; its threads are reused between solves.
+ */
+public class ParallelSearch implements AutoCloseable {
+
+    public static final int MAX_VARIANTS = 6;
+
+    // Idle workers exit after this long, so the pool costs nothing between solves.
+    private static final long KEEP_ALIVE_SECONDS = 30;
+    private static final Object WORKER_DONE = new Object(); // Queued by each worker when it stops.
+
+    private final SolverTables tables;
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * A solution of one variant, already translated to the original cube.
+     */
+    private static final class Found {
+        final String solution;
+        final int length;
+
+        Found(String solution, int length) {
+            this.solution = solution;
+            this.length = length;
+        }
+    }
+
+    /**
+     * One cube presented to a worker, and how to turn its solutions into solutions of the original cube.
+     */
+    private static final class Variant {
+        final CubieCube cube;
+        final int symmetry; // The rotation applied to the original cube.
+        final boolean inverse; // Whether the rotated cube was then inverted.
+
+        Variant(CubieCube cube, int symmetry, boolean inverse) {
+            this.cube = cube;
+            this.symmetry = symmetry;
+            this.inverse = inverse;
+        }
+
+        String toOriginalSolution(String solution) {
+            return CubeSymmetry.translateSolution(inverse ? invert(solution) : solution, symmetry);
+        }
+    }
+
+    /**
+     * Creates a search with one worker per available core, up to MAX_VARIANTS.
+     * @param tables The move and pruning tables, shared read-only by all workers.
+     */
+    public ParallelSearch(SolverTables tables) {
+        this(tables, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates a search with a fixed number of workers.
+     * @param tables The move and pruning tables, shared read-only by all workers.
+     * @param threads The number of variants searched at the same time; more than MAX_VARIANTS are not used.
+     */
+    public ParallelSearch(SolverTables tables, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one thread, got " + threads);
+        }
+        this.tables = tables;
+        int workers = Math.min(threads, MAX_VARIANTS);
+        AtomicInteger count = new AtomicInteger();
+        executor = new ThreadPoolExecutor(workers, workers, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), runnable -> {
+                    Thread thread = new Thread(runnable, "solver-worker-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the number of variants searched at the same time.
+     */
+    public int getThreadCount() {
+        return executor.getMaximumPoolSize();
+    }
+
+    /**
+     * Solves a cube on all workers, with the same contract as Search.solveProgressively: the first solution and every
+     * shorter one are reported as soon as any worker finds them, and the search stops at the target length, at the
+     * end of the budget, on interrupt, or when no worker can find a shorter solution.
+     * @param faceletString The 54-character facelet string in URFDLB order.
+     * @param targetLength A solution length that is good enough to stop at.
+     * @param budgetMillis How long to keep looking for shorter solutions after the first one.
+     * @param listener Receives the first solution and every shorter one, on the calling thread; may be null.
+     * @return The shortest solution found, or an empty string if the cube is already solved.
+     * @throws SolverException If the cube is invalid, or no first solution was found in time or before an interrupt.
+     */
+    public String solveProgressively(String faceletString, int targetLength, long budgetMillis,
+                                     Search.SolutionListener listener) throws SolverException {
+        CubieCube cube = new FaceCube(faceletString).toCubieCube();
+        cube.verify();
+        if (cube.isSolved()) {
+            return "";
+        }
+        List<Variant> variants = variants(faceletString, getThreadCount());
+        AtomicInteger bound = new AtomicInteger(Integer.MAX_VALUE);
+        BlockingQueue<Object> events = new LinkedBlockingQueue<>();
+        // Workers never outlive the coordinator by much; this only stops them if a cancel is missed.
+        long workerDeadline = System.currentTimeMillis() + Search.DEFAULT_TIMEOUT_MILLIS + budgetMillis;
+        List<Future<?>> workers = new ArrayList<>(variants.size());
+        for (Variant variant : variants) {
+            workers.add(executor.submit(() -> {
+                try {
+                    search(variant, bound, targetLength, workerDeadline, events);
+                } finally {
+                    events.add(WORKER_DONE);
+                }
+            }));
+        }
+
+        Found best = null;
+        long deadline = System.currentTimeMillis() + Search.DEFAULT_TIMEOUT_MILLIS;
+        try {
+            int running = workers.size();
+            while (running > 0) {
+                long remaining = deadline - System.currentTimeMillis();
+                Object event = remaining > 0 ? events.poll(remaining, TimeUnit.MILLISECONDS) : null;
+                if (event == null) {
+                    break; // Out of time.
+                } else if (event == WORKER_DONE) {
+                    running--;
+                    continue;
+                }
+                Found found = (Found) event;
+                if (best == null) {
+                    deadline = System.currentTimeMillis() + budgetMillis;
+                }
+                // Workers finish in any order, so a solution can arrive after a shorter one from another worker.
+                if (best == null || found.length < best.length) {
+                    best = found;
+                    if (listener != null) {
+                        listener.onSolution(best.solution, best.length);
+                    }
+                }
+                if (best.length <= targetLength) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (Future<?> worker : workers) {
+                worker.cancel(true);
+            }
+        }
+        if (best == null) {
+            throw new SolverException(Thread.currentThread().isInterrupted()
+                    ? "Search was interrupted" : "Timeout, no solution within the given time");
+        }
+        return best.solution;
+    }
+
+    /**
+     * Stops the workers, interrupting any search still running.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Searches one variant until it can find nothing shorter than the shared bound, posting each improvement.
+     */
+    private void search(Variant variant, AtomicInteger bound, int targetLength, long deadline,
+                        BlockingQueue<Object> events) {
+        Search search = new Search(tables);
+        search.shareBound(bound);
+        search.start(variant.cube);
+        int limit = Search.MAX_SOLUTION_LENGTH;
+        while (true) {
+            int length;
+            try {
+                length = search.next(limit, deadline);
+            } catch (SolverException e) {
+                return; // Out of time, cancelled, or nothing shorter than the best solution of any worker.
+            }
+            if (improve(bound, length)) {
+                events.add(new Found(variant.toOriginalSolution(search.solutionToString(length)), length));
+            }
+            if (length <= targetLength) {
+                return;
+            }
+            limit = length - 1;
+        }
+    }
+
+    /**
+     * Lowers the shared bound to length if that is an improvement.
+     * @return False if another worker already has a solution at least as short.
+     */
+    private static boolean improve(AtomicInteger bound, int length) {
+        int current;
+        do {
+            current = bound.get();
+            if (length >= current) {
+                return false;
+            }
+        } while (!bound.compareAndSet(current, length));
+        return true;
+    }
+
+    /**
+     * Returns up to count distinct variants of a cube, the cube itself first. Symmetric cubes have fewer variants,
+     * e.g. the superflip is its own rotation and inverse.
+     */
+    private static List<Variant> variants(String faceletString, int count) throws SolverException {
+        int[] symmetries = {CubeSymmetry.IDENTITY, CubeSymmetry.URF_ROTATION, CubeSymmetry.URF_ROTATION_TWICE};
+        Map<String, Variant> variants = new LinkedHashMap<>();
+        for (int i = 0; i < MAX_VARIANTS && variants.size() < count; i++) {
+            int symmetry = symmetries[i % symmetries.length];
+            boolean inverse = i >= symmetries.length;
+            CubieCube cube = new FaceCube(CubeSymmetry.transform(faceletString, symmetry)).toCubieCube();
+            if (inverse) {
+                cube = cube.inverse();
+            }
+            String key = new FaceCube(cube).toString();
+            if (!variants.containsKey(key)) {
+                variants.put(key, new Variant(cube, symmetry, inverse));
+            }
+        }
+        return new ArrayList<>(variants.values());
+    }
+
+    /**
+     * Returns the inverse of a move sequence: the moves in reverse order, each turned the other way.
+     */
+    static String invert(String solution) {
+        String[] moves = solution.trim().split("\\s+");
+        StringBuilder result = new StringBuilder(solution.length());
+        for (int i = moves.length - 1; i >= 0; i--) {
+            String move = moves[i];
+            if (move.isEmpty()) {
+                continue;
+            }
+            if (result.length() > 0) {
+                result.append(' ');
+            }
+            result.append(move.charAt(0));
+            if (move.length() == 1) {
+                result.append('\'');
+            } else if (move.charAt(1) == '2') {
+                result.append('2');
+            }
+        }
+        return result.toString();
+    }
+}
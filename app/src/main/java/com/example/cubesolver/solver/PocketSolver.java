@@ -0,0 +1,340 @@
+package com.example.cubesolver.solver;
+
+import java.util.Arrays;
+
+import static com.example.cubesolver.solver.CubieCube.DBL;
+import static com.example.cubesolver.solver.CubieCube.N_CORNERS;
+import static com.example.cubesolver.solver.FaceCube.CORNER_COLOR;
+import static com.example.cubesolver.solver.FaceCube.CORNER_FACELET;
+
+/**
+ * PocketSolver finds optimal (fewest face turns) solutions for the 2x2x2 cube.
+ * The DBL corner is kept fixed, so every state is reached with U, R and F turns alone and the state space has
+ * 7! corner permutations times 3^6 corner orientations = 3,674,160 states. A breadth-first search from the solved
+ * state stores each state's distance modulo 3 in two bits, about 0.9 MB. Because a single turn changes the
+ * distance by at most one, the neighbor whose stored value is one less (mod 3) is always one step closer, so a
+ * solution is read off the table in at most 11 lookups per move and 9 moves per step.
+ */
+public class PocketSolver {
+
+    public static final int N_PERM = 5040; // 7! permutations of the corners other than DBL.
+    public static final int N_TWIST = 729; // 3^6 orientations; the seventh corner's twist follows from the others.
+    public static final int N_STATES = N_PERM * N_TWIST;
+    public static final int N_MOVE = 9; // U, U2, U', R, R2, R', F, F2, F'
+    public static final int GODS_NUMBER = 11; // No 2x2 state needs more than 11 face turns.
+    // Part of the SolutionCache key; bump it whenever the solutions returned for a cube change.
+    public static final int VERSION = 1;
+
+    private static final String[] MOVE_NAMES = {"U", "U2", "U'", "R", "R2", "R'", "F", "F2", "F'"};
+    // The corner positions that move, in coordinate order. DBL (6) is left out.
+    private static final int[] FREE_CORNERS = {0, 1, 2, 3, 4, 5, 7};
+
+    // The 2x2 solver string lists the faces F, R, B, L, U, D, each clockwise from the top-left sticker.
+    private static final int[] POCKET_FACE_ORDER = {2, 1, 5, 4, 0, 3};
+    // Offsets of the top-left, top-right, bottom-right and bottom-left corner facelets inside a 3x3 face.
+    private static final int[] CORNER_OFFSETS = {0, 2, 8, 6};
+
+    private static PocketSolver instance;
+
+    private final short[] permMove = new short[N_PERM * N_MOVE]; // Index perm * N_MOVE + move.
+    private final short[] twistMove = new short[N_TWIST * N_MOVE]; // Index twist * N_MOVE + move.
+    private final byte[] distance = new byte[(N_STATES + 3) / 4]; // Distance mod 3 of each state, four states per byte.
+
+    /**
+     * Returns the shared solver, building its tables on the first call (a few hundred milliseconds).
+     * @return The shared PocketSolver instance.
+     */
+    public static synchronized PocketSolver getInstance() {
+        if (instance == null) {
+            instance = new PocketSolver();
+        }
+        return instance;
+    }
+
+    private PocketSolver() {
+        CubieCube cube = new CubieCube();
+        for (int perm = 0; perm < N_PERM; perm++) {
+            for (int move = 0; move < N_MOVE; move++) {
+                setPermutation(cube, perm);
+                cube.move(move);
+                permMove[perm * N_MOVE + move] = (short) getPermutation(cube);
+            }
+        }
+        cube = new CubieCube();
+        for (int twist = 0; twist < N_TWIST; twist++) {
+            for (int move = 0; move < N_MOVE; move++) {
+                setTwist(cube, twist);
+                cube.move(move);
+                twistMove[twist * N_MOVE + move] = (short) getTwist(cube);
+            }
+        }
+        buildDistanceTable();
+    }
+
+    /**
+     * Runs the breadth-first search. The exact depths are only needed while building, so they live in a
+     * temporary byte array that is packed into the two-bit table afterwards.
+     */
+    private void buildDistanceTable() {
+        byte[] depth = new byte[N_STATES];
+        Arrays.fill(depth, (byte) -1);
+        depth[0] = 0;
+        for (int d = 0, added = 1; added > 0; d++) {
+            added = 0;
+            for (int state = 0; state < N_STATES; state++) {
+                if (depth[state] != d) continue;
+                int perm = state / N_TWIST, twist = state % N_TWIST;
+                for (int move = 0; move < N_MOVE; move++) {
+                    int next = permMove[perm * N_MOVE + move] * N_TWIST + twistMove[twist * N_MOVE + move];
+                    if (depth[next] < 0) {
+                        depth[next] = (byte) (d + 1);
+                        added++;
+                    }
+                }
+            }
+        }
+        for (int state = 0; state < N_STATES; state++) {
+            distance[state >> 2] |= (byte) ((depth[state] % 3) << ((state & 3) << 1));
+        }
+    }
+
+    /**
+     * Solves a 2x2 cube optimally.
+     * @param pocketString The 24-character 2x2 solver string: faces F, R, B, L, U, D, each read clockwise from
+     *                     the top-left sticker, one color letter per sticker.
+     * @return The solution as space-separated U, R and F turns, e.g. "R U2 F'", or an empty string if the cube is solved.
+     * @throws SolverException If the string does not describe a valid 2x2 cube.
+     */
+    public String solve(String pocketString) throws SolverException {
+        int state = toState(pocketString);
+        StringBuilder solution = new StringBuilder();
+        while (state != 0) {
+            int move = nextMove(state);
+            if (solution.length() > 0) {
+                solution.append(' ');
+            }
+            solution.append(MOVE_NAMES[move]);
+            state = applyMove(state, move);
+        }
+        return solution.toString();
+    }
+
+    /**
+     * Returns the optimal number of face turns needed to solve a state.
+     * @param state The state index, perm * N_TWIST + twist.
+     * @return The distance to the solved state.
+     */
+    int depth(int state) {
+        int depth = 0;
+        while (state != 0) {
+            state = applyMove(state, nextMove(state));
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Finds a move that brings the state one step closer to solved.
+     */
+    private int nextMove(int state) {
+        int target = (getDistance(state) + 2) % 3;
+        for (int move = 0; move < N_MOVE; move++) {
+            if (getDistance(applyMove(state, move)) == target) {
+                return move;
+            }
+        }
+        throw new IllegalStateException("Distance table is inconsistent at state " + state);
+    }
+
+    private int applyMove(int state, int move) {
+        return permMove[(state / N_TWIST) * N_MOVE + move] * N_TWIST + twistMove[(state % N_TWIST) * N_MOVE + move];
+    }
+
+    private int getDistance(int state) {
+        return (distance[state >> 2] >> ((state & 3) << 1)) & 3;
+    }
+
+    /**
+     * Converts a 2x2 solver string into a state index. The colors are not fixed in advance: the DBL corner defines
+     * the D, L and B colors, and U, R and F get the colors opposite to them (the colors that never share a corner).
+     * @param pocketString The 24-character 2x2 solver string.
+     * @return The state index.
+     * @throws SolverException If the string does not describe a valid 2x2 cube.
+     */
+    static int toState(String pocketString) throws SolverException {
+        if (pocketString == null || pocketString.length() != 24) {
+            throw new SolverException("2x2 cube string must have 24 stickers");
+        }
+        // Place the stickers onto the corner facelets of a 3x3 facelet array.
+        char[] facelets = new char[FaceCube.N_FACELETS];
+        for (int f = 0; f < 6; f++) {
+            for (int i = 0; i < 4; i++) {
+                facelets[POCKET_FACE_ORDER[f] * 9 + CORNER_OFFSETS[i]] = pocketString.charAt(f * 4 + i);
+            }
+        }
+
+        // Colors that appear together on some corner are adjacent; every color has exactly one opposite.
+        String colors = distinctColors(pocketString);
+        boolean[][] adjacent = new boolean[6][6];
+        for (int c = 0; c < N_CORNERS; c++) {
+            for (int a = 0; a < 3; a++) {
+                for (int b = 0; b < 3; b++) {
+                    int x = colors.indexOf(facelets[CORNER_FACELET[c][a]]);
+                    int y = colors.indexOf(facelets[CORNER_FACELET[c][b]]);
+                    if (a != b && x == y) {
+                        throw new SolverException("A corner has two stickers of the same color");
+                    }
+                    adjacent[x][y] = true;
+                }
+            }
+        }
+
+        // faceOfColor[color index] is the face (URFDLB index) that the color belongs to.
+        int[] faceOfColor = {-1, -1, -1, -1, -1, -1};
+        int[] dbl = CORNER_FACELET[DBL];
+        int[] dblFaces = CORNER_COLOR[DBL];
+        for (int n = 0; n < 3; n++) {
+            int color = colors.indexOf(facelets[dbl[n]]);
+            faceOfColor[color] = dblFaces[n];
+            int opposite = opposite(adjacent, color);
+            if (faceOfColor[opposite] >= 0) {
+                throw new SolverException("The cube's colors have no consistent opposite pairs");
+            }
+            faceOfColor[opposite] = (dblFaces[n] + 3) % 6; // U/D, R/L and F/B are three apart in URFDLB.
+        }
+
+        CubieCube cube = new CubieCube();
+        boolean[] used = new boolean[N_CORNERS];
+        int twistSum = 0;
+        for (int c = 0; c < N_CORNERS; c++) {
+            int[] face = new int[3];
+            for (int n = 0; n < 3; n++) {
+                face[n] = faceOfColor[colors.indexOf(facelets[CORNER_FACELET[c][n]])];
+            }
+            int ori = 0;
+            while (ori < 3 && face[ori] != 0 && face[ori] != 3) {
+                ori++;
+            }
+            int piece = -1;
+            for (int p = 0; ori < 3 && p < N_CORNERS; p++) {
+                if (face[ori] == CORNER_COLOR[p][0] && face[(ori + 1) % 3] == CORNER_COLOR[p][1]
+                        && face[(ori + 2) % 3] == CORNER_COLOR[p][2]) {
+                    piece = p;
+                }
+            }
+            if (piece < 0 || used[piece]) {
+                throw new SolverException("Corner " + (c + 1) + " does not match any unused 2x2 corner");
+            }
+            used[piece] = true;
+            cube.cp[c] = (byte) piece;
+            cube.co[c] = (byte) ori;
+            twistSum += ori;
+        }
+        if (twistSum % 3 != 0) {
+            throw new SolverException("Twisted corner found");
+        }
+        return getPermutation(cube) * N_TWIST + getTwist(cube);
+    }
+
+    /**
+     * Returns the six distinct sticker characters, checking that each occurs exactly four times.
+     */
+    private static String distinctColors(String pocketString) throws SolverException {
+        StringBuilder colors = new StringBuilder(6);
+        for (int i = 0; i < pocketString.length(); i++) {
+            char color = pocketString.charAt(i);
+            if (colors.indexOf(String.valueOf(color)) < 0) {
+                colors.append(color);
+            }
+        }
+        if (colors.length() != 6) {
+            throw new SolverException("2x2 cube string must use exactly 6 colors");
+        }
+        for (int i = 0; i < 6; i++) {
+            int count = 0;
+            for (int j = 0; j < pocketString.length(); j++) {
+                if (pocketString.charAt(j) == colors.charAt(i)) count++;
+            }
+            if (count != 4) {
+                throw new SolverException("There are not exactly four stickers of each color");
+            }
+        }
+        return colors.toString();
+    }
+
+    private static int opposite(boolean[][] adjacent, int color) throws SolverException {
+        int opposite = -1;
+        for (int other = 0; other < 6; other++) {
+            if (other != color && !adjacent[color][other]) {
+                if (opposite >= 0) {
+                    throw new SolverException("The cube's colors have no consistent opposite pairs");
+                }
+                opposite = other;
+            }
+        }
+        if (opposite < 0) {
+            throw new SolverException("The cube's colors have no consistent opposite pairs");
+        }
+        return opposite;
+    }
+
+    /**
+     * Permutation coordinate: the Lehmer code of the seven free corners.
+     */
+    static int getPermutation(CubieCube cube) {
+        int perm = 0;
+        for (int i = 0; i < 7; i++) {
+            int value = freeIndex(cube.cp[FREE_CORNERS[i]]);
+            int smaller = 0;
+            for (int j = i + 1; j < 7; j++) {
+                if (freeIndex(cube.cp[FREE_CORNERS[j]]) < value) smaller++;
+            }
+            perm = perm * (7 - i) + smaller;
+        }
+        return perm;
+    }
+
+    private static void setPermutation(CubieCube cube, int perm) {
+        int[] smaller = new int[7];
+        for (int i = 6; i >= 0; i--) {
+            smaller[i] = perm % (7 - i);
+            perm /= 7 - i;
+        }
+        boolean[] taken = new boolean[7];
+        for (int i = 0; i < 7; i++) {
+            int value = 0;
+            for (int skip = smaller[i]; taken[value] || skip > 0; value++) {
+                if (!taken[value]) skip--;
+            }
+            taken[value] = true;
+            cube.cp[FREE_CORNERS[i]] = (byte) FREE_CORNERS[value];
+        }
+        cube.cp[DBL] = DBL;
+    }
+
+    /**
+     * Twist coordinate: the orientations of the first six free corners in base 3.
+     */
+    static int getTwist(CubieCube cube) {
+        int twist = 0;
+        for (int i = 0; i < 6; i++) {
+            twist = 3 * twist + cube.co[FREE_CORNERS[i]];
+        }
+        return twist;
+    }
+
+    private static void setTwist(CubieCube cube, int twist) {
+        int sum = 0;
+        for (int i = 5; i >= 0; i--) {
+            cube.co[FREE_CORNERS[i]] = (byte) (twist % 3);
+            sum += twist % 3;
+            twist /= 3;
+        }
+        cube.co[FREE_CORNERS[6]] = (byte) ((3 - sum % 3) % 3);
+        cube.co[DBL] = 0;
+    }
+
+    private static int freeIndex(int corner) {
+        return corner == 7 ? 6 : corner;
+    }
+}
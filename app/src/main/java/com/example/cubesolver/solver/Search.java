@@ -0,0 +1,400 @@
+package com.example.cubesolver.solver;
+
+import com.example.cubesolver.solver.SolverTables.Table;
+
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.example.cubesolver.solver.SolverTables.N_MERGE;
+import static com.example.cubesolver.solver.SolverTables.N_MOVE;
+import static com.example.cubesolver.solver.SolverTables.N_SLICE1;
+import static com.example.cubesolver.solver.SolverTables.N_SLICE2;
+import static com.example.cubesolver.solver.SolverTables.PARITY_MOVE;
+import static com.example.cubesolver.solver.SolverTables.getPruning;
+
+/**
+ * Search implements Kociemba's two-phase algorithm.
+ * Phase 1 searches for a move sequence that brings the cube into the subgroup G1 = &lt;U, D, R2, F2, L2, B2&gt;
+ * (all orientations solved, UD-slice edges inside the slice). Phase 2 then solves the cube using only G1 moves.
+ * Both phases run iterative-deepening A* guided by the pruning tables in SolverTables.
+ * The first solution is found within milliseconds; solveProgressively keeps the phase 1 search going with a tighter
+ * length limit to report shorter solutions as they are found.
+ * A Search instance keeps per-solve state and must not be shared between threads.
+ */
+public class Search {
+
+    public static final int DEFAULT_MAX_DEPTH = 21; // Solutions of at most 21 moves are found within milliseconds.
+    public static final long DEFAULT_TIMEOUT_MILLIS = 5000;
+    // Part of the SolutionCache key; bump it whenever the solutions returned for a cube change.
+    public static final int VERSION = 3;
+
+    private static final String[] AXIS_NAMES = {"U", "R", "F", "D", "L", "B"};
+    private static final String[] POWER_SUFFIXES = {"", "", "2", "'"};
+    private static final int MAX_LENGTH = 31; // Upper bound on the total solution length the arrays can hold.
+    static final int MAX_SOLUTION_LENGTH = MAX_LENGTH - 1;
+
+    private final SolverTables tables;
+
+    // Tables used by phase 1, resolved when the first search starts.
+    private ShortBuffer flipMove, twistMove, frToBrMove;
+    private ByteBuffer sliceFlipPrune, sliceTwistPrune;
+    // Tables used only by phase 2, resolved the first time phase 1 reaches G1.
+    private ShortBuffer urfToDlfMove, urToUlMove, ubToDfMove, urToDfMove, mergeURtoULandUBtoDF;
+    private ByteBuffer sliceURFtoDLFParityPrune, sliceURtoDFParityPrune;
+
+    private final int[] ax = new int[MAX_LENGTH]; // The axis (face) of each move in the current sequence.
+    private final int[] po = new int[MAX_LENGTH]; // The power (1, 2 or 3 quarter turns) of each move.
+
+    // Phase 1 coordinates after n moves.
+    private final int[] flip = new int[MAX_LENGTH];
+    private final int[] twist = new int[MAX_LENGTH];
+    private final int[] slice = new int[MAX_LENGTH];
+
+    // Phase 2 coordinates after n moves.
+    private final int[] parity = new int[MAX_LENGTH];
+    private final int[] urfToDlf = new int[MAX_LENGTH];
+    private final int[] frToBr = new int[MAX_LENGTH];
+    private final int[] urToUl = new int[MAX_LENGTH];
+    private final int[] ubToDf = new int[MAX_LENGTH];
+    private final int[] urToDf = new int[MAX_LENGTH];
+
+    // Lower bounds on the remaining moves of each phase after n moves.
+    private final int[] minDistPhase1 = new int[MAX_LENGTH];
+    private final int[] minDistPhase2 = new int[MAX_LENGTH];
+
+    // Position of the phase 1 search, kept between calls so a search can resume after returning a solution.
+    private int n; // Index of the last move of the current phase 1 sequence.
+    private int depthPhase1; // The phase 1 length currently being enumerated.
+    // Length of the best solution any search working on the same cube has found; null for a search on its own.
+    private AtomicInteger sharedBound;
+
+    /**
+     * Receives the solutions of solveProgressively as they are found.
+     */
+    public interface SolutionListener {
+        /**
+         * Called on the searching thread for the first solution and for every shorter one after it.
+         * @param solution The solution as space-separated moves.
+         * @param length The number of moves.
+         */
+        void onSolution(String solution, int length);
+    }
+
+    /**
+     * Creates a search that uses the shared tables, building them if necessary.
+     */
+    public Search() {
+        this(SolverTables.getInstance());
+    }
+
+    /**
+     * Creates a search that uses the given tables.
+     * @param tables The move and pruning tables.
+     */
+    public Search(SolverTables tables) {
+        this.tables = tables;
+    }
+
+    /**
+     * Solves a cube using the default depth and time limits.
+     * @param faceletString The 54-character facelet string in URFDLB order.
+     * @return The solution as space-separated moves, e.g. "R U R' U'", or an empty string if the cube is already solved.
+     * @throws SolverException If the cube is invalid or no solution was found in time.
+     */
+    public String solve(String faceletString) throws SolverException {
+        return solve(faceletString, DEFAULT_MAX_DEPTH, DEFAULT_TIMEOUT_MILLIS);
+    }
+
+    /**
+     * Solves a cube.
+     * @param faceletString The 54-character facelet string in URFDLB order.
+     * @param maxDepth The maximum allowed length of the solution.
+     * @param timeoutMillis The time after which the search gives up.
+     * @return The solution as space-separated moves, or an empty string if the cube is already solved.
+     * @throws SolverException If the cube is invalid or no solution was found within the limits.
+     */
+    public String solve(String faceletString, int maxDepth, long timeoutMillis) throws SolverException {
+        CubieCube cube = new FaceCube(faceletString).toCubieCube();
+        cube.verify();
+        if (cube.isSolved()) {
+            return "";
+        }
+        start(cube);
+        int length = next(Math.min(maxDepth, MAX_SOLUTION_LENGTH), System.currentTimeMillis() + timeoutMillis);
+        return solutionToString(length);
+    }
+
+    /**
+     * Solves a cube, then keeps searching for shorter solutions until one of targetLength moves or fewer is found,
+     * the budget runs out, the thread is interrupted or the search is exhausted.
+     * The first solution is usually found within milliseconds and gets the same time limit as solve();
+     * it and every shorter one are passed to the listener right away.
+     * Later solutions come from longer phase 1 sequences, which leave fewer moves for phase 2.
+     * @param faceletString The 54-character facelet string in URFDLB order.
+     * @param targetLength A solution length that is good enough to stop at.
+     * @param budgetMillis How long to keep looking for shorter solutions after the first one.
+     * @param listener Receives the first solution and every shorter one; may be null.
+     * @return The shortest solution found, or an empty string if the cube is already solved.
+     * @throws SolverException If the cube is invalid, or no first solution was found in time or before an interrupt.
+     */
+    public String solveProgressively(String faceletString, int targetLength, long budgetMillis,
+                                     SolutionListener listener) throws SolverException {
+        CubieCube cube = new FaceCube(faceletString).toCubieCube();
+        cube.verify();
+        if (cube.isSolved()) {
+            return "";
+        }
+        start(cube);
+        int length = next(MAX_SOLUTION_LENGTH, System.currentTimeMillis() + DEFAULT_TIMEOUT_MILLIS);
+        String best = solutionToString(length);
+        if (listener != null) {
+            listener.onSolution(best, length);
+        }
+        long deadline = System.currentTimeMillis() + budgetMillis;
+        while (length > targetLength) {
+            try {
+                length = next(length - 1, deadline);
+            } catch (SolverException e) {
+                break; // Out of time, interrupted, or no shorter solution within reach: the last one is the best.
+            }
+            best = solutionToString(length);
+            if (listener != null) {
+                listener.onSolution(best, length);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Lets this search prune against solutions found by other searches for the same cube, see ParallelSearch.
+     * While running, it periodically lowers its length limit to one below the shared bound.
+     * @param bound The length of the best solution found so far, shared between the searches.
+     */
+    void shareBound(AtomicInteger bound) {
+        sharedBound = bound;
+    }
+
+    /**
+     * Prepares a phase 1 search from the given cube.
+     */
+    void start(CubieCube cube) {
+        if (flipMove == null) {
+            flipMove = tables.moves(Table.FLIP_MOVE);
+            twistMove = tables.moves(Table.TWIST_MOVE);
+            frToBrMove = tables.moves(Table.FR_TO_BR_MOVE);
+            sliceFlipPrune = tables.pruning(Table.SLICE_FLIP_PRUNE);
+            sliceTwistPrune = tables.pruning(Table.SLICE_TWIST_PRUNE);
+        }
+        po[0] = 0;
+        ax[0] = 0;
+        flip[0] = cube.getFlip();
+        twist[0] = cube.getTwist();
+        parity[0] = cube.cornerParity();
+        slice[0] = cube.getFRtoBR() / 24;
+        urfToDlf[0] = cube.getURFtoDLF();
+        frToBr[0] = cube.getFRtoBR();
+        urToUl[0] = cube.getURtoUL();
+        ubToDf[0] = cube.getUBtoDF();
+
+        minDistPhase1[1] = 1;
+        n = 0;
+        depthPhase1 = 1;
+    }
+
+    /**
+     * Runs or resumes the phase 1 search, calling into phase 2 whenever phase 1 reaches G1 at its full depth.
+     * After a solution has been returned, the next call continues with the following phase 1 sequence.
+     * @param maxDepth The maximum solution length; may be lowered between calls.
+     * @param deadline The time in epoch milliseconds after which the search gives up.
+     * @return The length of the solution stored in ax/po.
+     * @throws SolverException If the deadline passes, the thread is interrupted, or no solution within maxDepth exists.
+     */
+    int next(int maxDepth, long deadline) throws SolverException {
+        if (depthPhase1 > maxDepth) {
+            throw new SolverException("No solution exists for the given maximum depth");
+        }
+        boolean busy = false;
+        while (true) {
+            // Advance to the next phase 1 move sequence in canonical order.
+            do {
+                if (depthPhase1 - n > minDistPhase1[n + 1] && !busy) {
+                    // Extend the sequence by one move, avoiding a second turn of the same axis.
+                    ax[n + 1] = (ax[n] == 0 || ax[n] == 3) ? 1 : 0;
+                    n++;
+                    po[n] = 1;
+                } else if (++po[n] > 3) {
+                    do {
+                        if (++ax[n] > 5) {
+                            if (System.currentTimeMillis() > deadline) {
+                                throw new SolverException("Timeout, no solution within the given time");
+                            }
+                            if (Thread.currentThread().isInterrupted()) {
+                                throw new SolverException("Search was interrupted");
+                            }
+                            if (sharedBound != null) {
+                                maxDepth = Math.min(maxDepth, sharedBound.get() - 1);
+                                if (depthPhase1 > maxDepth) {
+                                    throw new SolverException("No solution exists for the given maximum depth");
+                                }
+                            }
+                            if (n == 0) {
+                                if (depthPhase1 >= maxDepth) {
+                                    throw new SolverException("No solution exists for the given maximum depth");
+                                }
+                                depthPhase1++;
+                                ax[n] = 0;
+                                po[n] = 1;
+                                busy = false;
+                                break;
+                            } else {
+                                n--;
+                                busy = true;
+                                break;
+                            }
+                        } else {
+                            po[n] = 1;
+                            busy = false;
+                        }
+                        // Opposite faces commute, so D after U is allowed but U after D is skipped.
+                    } while (n != 0 && (ax[n - 1] == ax[n] || ax[n - 1] - 3 == ax[n]));
+                } else {
+                    busy = false;
+                }
+            } while (busy);
+
+            int move = 3 * ax[n] + po[n] - 1;
+            flip[n + 1] = flipMove.get(flip[n] * N_MOVE + move);
+            twist[n + 1] = twistMove.get(twist[n] * N_MOVE + move);
+            slice[n + 1] = frToBrMove.get(slice[n] * 24 * N_MOVE + move) / 24;
+            minDistPhase1[n + 1] = Math.max(
+                    getPruning(sliceFlipPrune, N_SLICE1 * flip[n + 1] + slice[n + 1]),
+                    getPruning(sliceTwistPrune, N_SLICE1 * twist[n + 1] + slice[n + 1]));
+
+            if (minDistPhase1[n + 1] == 0 && n >= depthPhase1 - 5) {
+                minDistPhase1[n + 1] = 10; // Any value above 5 makes the sequence continue past this node.
+                if (n == depthPhase1 - 1) {
+                    int length = totalDepth(depthPhase1, maxDepth);
+                    // Reject solutions whose phase 2 starts with a turn of the face phase 1 ended with.
+                    if (length >= 0 && (length == depthPhase1
+                            || (ax[depthPhase1 - 1] != ax[depthPhase1] && ax[depthPhase1 - 1] != ax[depthPhase1] + 3))) {
+                        return length;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Runs the phase 2 search after a phase 1 solution of length depthPhase1.
+     * @return The total solution length, or -1 if phase 2 needs more moves than maxDepth allows.
+     */
+    private int totalDepth(int depthPhase1, int maxDepth) {
+        if (urfToDlfMove == null) {
+            urfToDlfMove = tables.moves(Table.URF_TO_DLF_MOVE);
+            urToUlMove = tables.moves(Table.UR_TO_UL_MOVE);
+            ubToDfMove = tables.moves(Table.UB_TO_DF_MOVE);
+            urToDfMove = tables.moves(Table.UR_TO_DF_MOVE);
+            mergeURtoULandUBtoDF = tables.moves(Table.MERGE_UR_TO_DF);
+            sliceURFtoDLFParityPrune = tables.pruning(Table.SLICE_URF_TO_DLF_PARITY_PRUNE);
+            sliceURtoDFParityPrune = tables.pruning(Table.SLICE_UR_TO_DF_PARITY_PRUNE);
+        }
+        int maxDepthPhase2 = Math.min(10, maxDepth - depthPhase1);
+        for (int i = 0; i < depthPhase1; i++) {
+            int move = 3 * ax[i] + po[i] - 1;
+            urfToDlf[i + 1] = urfToDlfMove.get(urfToDlf[i] * N_MOVE + move);
+            frToBr[i + 1] = frToBrMove.get(frToBr[i] * N_MOVE + move);
+            parity[i + 1] = PARITY_MOVE[parity[i]][move];
+        }
+        int d1 = getPruning(sliceURFtoDLFParityPrune,
+                (N_SLICE2 * urfToDlf[depthPhase1] + frToBr[depthPhase1]) * 2 + parity[depthPhase1]);
+        if (d1 > maxDepthPhase2) {
+            return -1;
+        }
+
+        for (int i = 0; i < depthPhase1; i++) {
+            int move = 3 * ax[i] + po[i] - 1;
+            urToUl[i + 1] = urToUlMove.get(urToUl[i] * N_MOVE + move);
+            ubToDf[i + 1] = ubToDfMove.get(ubToDf[i] * N_MOVE + move);
+        }
+        urToDf[depthPhase1] = mergeURtoULandUBtoDF.get(urToUl[depthPhase1] * N_MERGE + ubToDf[depthPhase1]);
+        int d2 = getPruning(sliceURtoDFParityPrune,
+                (N_SLICE2 * urToDf[depthPhase1] + frToBr[depthPhase1]) * 2 + parity[depthPhase1]);
+        if (d2 > maxDepthPhase2) {
+            return -1;
+        }
+
+        if ((minDistPhase2[depthPhase1] = Math.max(d1, d2)) == 0) {
+            return depthPhase1;
+        }
+
+        int depthPhase2 = 1;
+        int n = depthPhase1;
+        boolean busy = false;
+        po[depthPhase1] = 0;
+        ax[depthPhase1] = 0;
+        minDistPhase2[n + 1] = 1;
+
+        do {
+            // Advance to the next phase 2 move sequence; only U and D may be quarter turns.
+            do {
+                if (depthPhase1 + depthPhase2 - n > minDistPhase2[n + 1] && !busy) {
+                    if (ax[n] == 0 || ax[n] == 3) {
+                        ax[++n] = 1;
+                        po[n] = 2;
+                    } else {
+                        ax[++n] = 0;
+                        po[n] = 1;
+                    }
+                } else if ((ax[n] == 0 || ax[n] == 3) ? (++po[n] > 3) : ((po[n] = po[n] + 2) > 3)) {
+                    do {
+                        if (++ax[n] > 5) {
+                            if (n == depthPhase1) {
+                                if (depthPhase2 >= maxDepthPhase2) {
+                                    return -1;
+                                }
+                                depthPhase2++;
+                                ax[n] = 0;
+                                po[n] = 1;
+                                busy = false;
+                                break;
+                            } else {
+                                n--;
+                                busy = true;
+                                break;
+                            }
+                        } else {
+                            po[n] = (ax[n] == 0 || ax[n] == 3) ? 1 : 2;
+                            busy = false;
+                        }
+                    } while (n != depthPhase1 && (ax[n - 1] == ax[n] || ax[n - 1] - 3 == ax[n]));
+                } else {
+                    busy = false;
+                }
+            } while (busy);
+
+            int move = 3 * ax[n] + po[n] - 1;
+            urfToDlf[n + 1] = urfToDlfMove.get(urfToDlf[n] * N_MOVE + move);
+            frToBr[n + 1] = frToBrMove.get(frToBr[n] * N_MOVE + move);
+            parity[n + 1] = PARITY_MOVE[parity[n]][move];
+            urToDf[n + 1] = urToDfMove.get(urToDf[n] * N_MOVE + move);
+            minDistPhase2[n + 1] = Math.max(
+                    getPruning(sliceURtoDFParityPrune, (N_SLICE2 * urToDf[n + 1] + frToBr[n + 1]) * 2 + parity[n + 1]),
+                    getPruning(sliceURFtoDLFParityPrune, (N_SLICE2 * urfToDlf[n + 1] + frToBr[n + 1]) * 2 + parity[n + 1]));
+        } while (minDistPhase2[n + 1] != 0);
+
+        return depthPhase1 + depthPhase2;
+    }
+
+    /**
+     * Formats the first length moves of the current sequence, e.g. "U R2 F'".
+     */
+    String solutionToString(int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) sb.append(' ');
+            sb.append(AXIS_NAMES[ax[i]]).append(POWER_SUFFIXES[po[i]]);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,237 @@
+package com.example.cubesolver.solver;
+
+import org.apache.commons.codec.digest.DigestUtils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * SolutionCache remembers solutions on disk, keyed by the solver string, the cube size and the solver version.
+ * Users often solve the same scramble again (after retaking a photo, or going back and proceeding again), and a
+ * cached solution is returned in well under a millisecond instead of running the search.
+ * Each entry is a small file named after the SHA-1 of its key, holding the key and the solution; the key is
+ * compared on every read, so a hash collision or a damaged file is just a miss. The least recently used entries
+ * are deleted once the entries take more than the disk budget, counting every file as at least one disk block.
+ * Recency is kept in the files' modification times, so it survives restarts. All methods are thread-safe.
+ */
+public class SolutionCache {
+
+    public static final String DIRECTORY_NAME = "solutions";
+    public static final long DEFAULT_MAX_BYTES = 1024 * 1024; // 256 entries of one 4 KB block each.
+
+    private static final int DISK_BLOCK = 4096;
+    private static final String SUFFIX = ".sol";
+
+    private static SolutionCache instance;
+
+    private final File directory;
+    private final long maxBytes;
+    // Entry file names to their disk cost, least recently used first.
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    private int hits;
+    private int misses;
+
+    /**
+     * Returns the cache shared by the whole process, opening it on the first call.
+     * Sharing one instance keeps the hit and miss counters for the lifetime of the app.
+     * @param directory The cache directory, created if needed. Ignored after the first call.
+     * @return The shared cache.
+     */
+    public static synchronized SolutionCache getInstance(File directory) {
+        if (instance == null) {
+            instance = new SolutionCache(directory, DEFAULT_MAX_BYTES);
+        }
+        return instance;
+    }
+
+    /**
+     * Opens a cache directory, indexing the entries already in it.
+     * @param directory The cache directory, created if needed.
+     * @param maxBytes The disk budget.
+     */
+    public SolutionCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            return; // Every lookup will miss and every store will fail quietly.
+        }
+        File[] leftovers = directory.listFiles((dir, name) -> name.endsWith(".tmp"));
+        if (leftovers != null) {
+            for (File leftover : leftovers) {
+                leftover.delete(); // From a store that was interrupted.
+            }
+        }
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long[] modified = new long[files.length];
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < files.length; i++) {
+            modified[i] = files[i].lastModified(); // Read once; sorting calls the comparator many times.
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(modified[a], modified[b]));
+        for (int i : order) {
+            long cost = diskCost(files[i].length());
+            entries.put(files[i].getName(), cost);
+            totalBytes += cost;
+        }
+        evict();
+    }
+
+    /**
+     * Builds the cache key of a solve.
+     * @param cubeSize The cube size, 2 or 3.
+     * @param solverVersion The version of the solver that produced the solution.
+     * @param solverString The solver string of the cube.
+     * @return The key.
+     */
+    static String key(int cubeSize, int solverVersion, String solverString) {
+        return cubeSize + "x" + cubeSize + "/v" + solverVersion + "/" + solverString;
+    }
+
+    /**
+     * Looks up a solution and marks it as recently used.
+     * @param cubeSize The cube size, 2 or 3.
+     * @param solverVersion The version of the solver; solutions of other versions are not returned.
+     * @param solverString The solver string of the cube.
+     * @return The cached solution, or null on a miss.
+     */
+    public synchronized String get(int cubeSize, int solverVersion, String solverString) {
+        String key = key(cubeSize, solverVersion, solverString);
+        String name = fileName(key);
+        if (entries.get(name) == null) {
+            misses++;
+            return null;
+        }
+        File file = new File(directory, name);
+        String solution = null;
+        try {
+            solution = read(file, key);
+        } catch (IOException e) {
+            // Treated like a damaged entry below.
+        }
+        if (solution == null) {
+            remove(name);
+            misses++;
+            return null;
+        }
+        file.setLastModified(System.currentTimeMillis());
+        hits++;
+        return solution;
+    }
+
+    /**
+     * Stores a solution, evicting the least recently used entries if the cache goes over its budget.
+     * Failures to write are ignored; the cache is only an optimization.
+     * @param cubeSize The cube size, 2 or 3.
+     * @param solverVersion The version of the solver that produced the solution.
+     * @param solverString The solver string of the cube.
+     * @param solution The solution, e.g. "R U R' U'"; empty for a solved cube.
+     */
+    public synchronized void put(int cubeSize, int solverVersion, String solverString, String solution) {
+        String key = key(cubeSize, solverVersion, solverString);
+        String name = fileName(key);
+        byte[] content = (key + "\n" + solution).getBytes(StandardCharsets.UTF_8);
+        File file = new File(directory, name);
+        File tmp = new File(directory, name + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tmp)) {
+            out.write(content);
+        } catch (IOException e) {
+            tmp.delete();
+            return;
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        Long previous = entries.put(name, diskCost(content.length));
+        totalBytes += diskCost(content.length) - (previous == null ? 0 : previous);
+        evict();
+    }
+
+    public synchronized int getHits() {
+        return hits;
+    }
+
+    public synchronized int getMisses() {
+        return misses;
+    }
+
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the disk space the entries take, counted in whole blocks.
+     */
+    public synchronized long getDiskBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Returns a one-line summary for logging, e.g. "hits 3, misses 5, 8 entries, 32 KB".
+     */
+    @Override
+    public synchronized String toString() {
+        return "hits " + hits + ", misses " + misses + ", " + entries.size() + " entries, " + totalBytes / 1024 + " KB";
+    }
+
+    /**
+     * Returns the name of the file holding an entry.
+     * @param key The cache key.
+     * @return The file name, the SHA-1 of the key in hex.
+     */
+    static String fileName(String key) {
+        return DigestUtils.sha1Hex(key) + SUFFIX;
+    }
+
+    private static long diskCost(long length) {
+        return Math.max(1, (length + DISK_BLOCK - 1) / DISK_BLOCK) * DISK_BLOCK;
+    }
+
+    /**
+     * Reads an entry file.
+     * @return The solution, or null if the file belongs to a different key.
+     */
+    private static String read(File file, String key) throws IOException {
+        byte[] content;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            content = new byte[(int) in.length()];
+            in.readFully(content);
+        }
+        String text = new String(content, StandardCharsets.UTF_8);
+        int newline = text.indexOf('\n');
+        if (newline < 0 || !text.regionMatches(0, key, 0, newline) || newline != key.length()) {
+            return null;
+        }
+        return text.substring(newline + 1);
+    }
+
+    private void remove(String name) {
+        Long cost = entries.remove(name);
+        if (cost != null) {
+            totalBytes -= cost;
+        }
+        new File(directory, name).delete();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            totalBytes -= eldest.getValue();
+            iterator.remove();
+            new File(directory, eldest.getKey()).delete();
+        }
+    }
+}
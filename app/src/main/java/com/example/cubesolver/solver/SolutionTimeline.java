@@ -0,0 +1,109 @@
+package com.example.cubesolver.solver;
+
+import com.example.cubesolver.model.CubeState;
+
+/**
+ * SolutionTimeline is a solution expanded once into every cube state along the way, so any step can be shown
+ * without replaying moves. The states are stored back to back in one byte array, one CubeColor ordinal per sticker:
+ * a 25 move 3x3 solution takes 26 * 54 = 1404 bytes. Step 0 is the scanned cube and step k the cube after k moves.
+ */
+public final class SolutionTimeline {
+
+    private final int size;
+    private final int stickerCount;
+    private final int[] moves; // StickerMoves indices.
+    private final byte[] states; // State k at offset k * stickerCount.
+
+    private SolutionTimeline(int size, int[] moves, byte[] states) {
+        this.size = size;
+        this.stickerCount = CubeState.FACE_COUNT * size * size;
+        this.moves = moves;
+        this.states = states;
+    }
+
+    /**
+     * Expands a solution by applying its moves one after the other with StickerMoves.
+     * @param start The cube before the first move.
+     * @param moves The moves as StickerMoves indices; the array is copied.
+     * @return The timeline.
+     * @throws IllegalArgumentException If a move index is out of range.
+     */
+    public static SolutionTimeline expand(CubeState start, int[] moves) {
+        StickerMoves stickerMoves = StickerMoves.forSize(start.getSize());
+        int count = start.getStickerCount();
+        byte[] states = new byte[(moves.length + 1) * count];
+        byte[] before = new byte[count];
+        byte[] after = new byte[count];
+        start.copyStickers(before);
+        System.arraycopy(before, 0, states, 0, count);
+        for (int i = 0; i < moves.length; i++) {
+            if (moves[i] < 0 || moves[i] >= StickerMoves.MOVE_COUNT) {
+                throw new IllegalArgumentException("Invalid move index " + moves[i]);
+            }
+            stickerMoves.apply(before, after, moves[i]);
+            System.arraycopy(after, 0, states, (i + 1) * count, count);
+            byte[] swap = before;
+            before = after;
+            after = swap;
+        }
+        return new SolutionTimeline(start.getSize(), moves.clone(), states);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the number of moves; the steps run from 0 to getMoveCount().
+     */
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * Returns a move of the solution.
+     * @param index The move index in the solution, 0 for the first move.
+     * @return The StickerMoves index of the move, which leads from step index to step index + 1.
+     */
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Copies the stickers of one step.
+     * @param step The step, 0 for the scanned cube.
+     * @param out An array of at least 6 * size * size bytes.
+     */
+    public void copyState(int step, byte[] out) {
+        checkStep(step);
+        System.arraycopy(states, step * stickerCount, out, 0, stickerCount);
+    }
+
+    /**
+     * Returns the color ordinal of one sticker at one step, e.g. for drawing a small preview of the step.
+     * @param step The step, 0 for the scanned cube.
+     * @param sticker The sticker index in CubeState order.
+     * @return The CubeColor ordinal.
+     */
+    public int getOrdinal(int step, int sticker) {
+        checkStep(step);
+        return states[step * stickerCount + sticker];
+    }
+
+    /**
+     * Returns the cube at one step.
+     * @param step The step, 0 for the scanned cube.
+     * @return The cube state.
+     */
+    public CubeState getState(int step) {
+        byte[] stickers = new byte[stickerCount];
+        copyState(step, stickers);
+        return CubeState.of(size, stickers);
+    }
+
+    private void checkStep(int step) {
+        if (step < 0 || step > moves.length) {
+            throw new IndexOutOfBoundsException("Step " + step + " of a " + moves.length + " move timeline");
+        }
+    }
+}
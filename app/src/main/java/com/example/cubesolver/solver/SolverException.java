@@ -0,0 +1,18 @@
+package com.example.cubesolver.solver;
+
+/**
+ * Thrown when a cube state cannot be solved, either because the input does not describe a real cube
+ * or because the search could not find a solution within its limits.
+ */
+public class SolverException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Constructor for SolverException.
+     * @param message A human-readable description of why the cube could not be solved.
+     */
+    public SolverException(String message) {
+        super(message);
+    }
+}
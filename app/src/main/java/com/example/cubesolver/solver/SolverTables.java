@@ -0,0 +1,364 @@
+package com.example.cubesolver.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ShortBuffer;
+import java.util.Arrays;
+import java.util.function.IntBinaryOperator;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * SolverTables holds the move and pruning tables used by the two-phase search.
+ * A move table maps (coordinate, move) to the coordinate after the move, so the search never has to touch a CubieCube.
+ * A pruning table stores, for every combination of two coordinates, a lower bound on the number of moves
+ * needed to finish the current phase; entries are packed two per byte.
+ * Tables are either generated in memory or memory-mapped from a TableFile. Mapped tables are resolved lazily,
+ * one table at a time, so a solve only pays for the tables it actually reads. Tables opened with openOrCreate
+ * repair themselves: if a table fails its checksum when it is first read, all tables are generated at that point.
+ */
+public class SolverTables {
+
+    public static final int N_MOVE = 18; // U, U2, U', R, R2, R', ... B'
+    public static final int N_TWIST = 2187; // 3^7 corner orientations.
+    public static final int N_FLIP = 2048; // 2^11 edge orientations.
+    public static final int N_SLICE1 = 495; // C(12, 4) positions of the UD-slice edges in phase 1.
+    public static final int N_SLICE2 = 24; // 4! permutations of the UD-slice edges in phase 2.
+    public static final int N_PARITY = 2;
+    public static final int N_FRtoBR = 11880; // 12! / 8! positions and permutations of the UD-slice edges.
+    public static final int N_URFtoDLF = 20160; // 8! / 2! positions and permutations of six corners.
+    public static final int N_URtoDF = 20160; // 8! / 2! permutations of six U/D edges in phase 2.
+    public static final int N_URtoUL = 1320; // 12! / 9! positions and permutations of UR, UF, UL.
+    public static final int N_UBtoDF = 1320; // 12! / 9! positions and permutations of UB, DR, DF.
+    public static final int N_MERGE = 336; // 8! / 5! values of URtoUL and UBtoDF once phase 1 is done.
+
+    // Quarter turns change the permutation parity, half turns do not.
+    static final int[][] PARITY_MOVE = {
+        {1, 0, 1, 1, 0, 1, 1, 0, 1, 1, 0, 1, 1, 0, 1, 1, 0, 1},
+        {0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0, 0, 1, 0}
+    };
+
+    // The moves that keep a cube inside phase 2: U, U2, U', R2, F2, D, D2, D', L2, B2.
+    static final int[] PHASE2_MOVES = {0, 1, 2, 4, 7, 9, 10, 11, 13, 16};
+    private static final int[] ALL_MOVES = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17};
+
+    /**
+     * Every table, with its dimensions. The ordinal is the table's id in a TableFile, so new tables must be appended.
+     * Move tables hold one 16-bit entry per (row, column); pruning tables hold one 4-bit entry per (row, column).
+     */
+    public enum Table {
+        TWIST_MOVE(N_TWIST, N_MOVE, false),
+        FLIP_MOVE(N_FLIP, N_MOVE, false),
+        FR_TO_BR_MOVE(N_FRtoBR, N_MOVE, false),
+        URF_TO_DLF_MOVE(N_URFtoDLF, N_MOVE, false),
+        UR_TO_DF_MOVE(N_URtoDF, N_MOVE, false),
+        UR_TO_UL_MOVE(N_URtoUL, N_MOVE, false),
+        UB_TO_DF_MOVE(N_UBtoDF, N_MOVE, false),
+        MERGE_UR_TO_DF(N_MERGE, N_MERGE, false), // Index urToUl * N_MERGE + ubToDf.
+        SLICE_TWIST_PRUNE(N_TWIST, N_SLICE1, true), // Index N_SLICE1 * twist + slice.
+        SLICE_FLIP_PRUNE(N_FLIP, N_SLICE1, true), // Index N_SLICE1 * flip + slice.
+        SLICE_URF_TO_DLF_PARITY_PRUNE(N_URFtoDLF, N_SLICE2 * N_PARITY, true), // Index (N_SLICE2 * URFtoDLF + FRtoBR) * 2 + parity.
+        SLICE_UR_TO_DF_PARITY_PRUNE(N_URtoDF, N_SLICE2 * N_PARITY, true); // Index (N_SLICE2 * URtoDF + FRtoBR) * 2 + parity.
+
+        final int rows;
+        final int columns;
+        final boolean pruning;
+
+        Table(int rows, int columns, boolean pruning) {
+            this.rows = rows;
+            this.columns = columns;
+            this.pruning = pruning;
+        }
+
+        /**
+         * The number of bytes the table occupies, in memory and on disk.
+         */
+        int byteLength() {
+            int entries = rows * columns;
+            return pruning ? (entries + 1) / 2 : entries * 2;
+        }
+    }
+
+    private static SolverTables instance;
+    private static String instancePath; // The table file the shared instance was opened or generated for, if any.
+
+    private final TableFile file; // The mapped source of the tables, or null if they were generated in memory.
+    private final File repairFile; // Regenerated when a mapped table is corrupt; null to fail instead.
+    private final ShortBuffer[] moveTables = new ShortBuffer[Table.values().length];
+    private final ByteBuffer[] pruningTables = new ByteBuffer[Table.values().length];
+
+    /**
+     * Returns the shared tables. If no table file has been opened, the tables are generated in memory on the first call.
+     * Generating takes on the order of a second, so this should not be called on the main thread.
+     * @return The shared SolverTables instance.
+     */
+    public static synchronized SolverTables getInstance() {
+        if (instance == null) {
+            instance = generate();
+        }
+        return instance;
+    }
+
+    /**
+     * Makes the tables in the given file the shared instance, generating and writing the file first
+     * if it is missing, has a corrupt directory or is from an older format version. Table data is still mapped and
+     * checksummed lazily; if a table turns out to be corrupt when the search first reads it, the tables are generated
+     * right then and the file is rewritten, so one solve pays for it instead of every later solve failing.
+     * If the file cannot be written, the generated tables are still used, and kept, for this process.
+     * @param tableFile The table file, typically inside the app's files directory.
+     * @return The shared SolverTables instance.
+     */
+    public static synchronized SolverTables openOrCreate(File tableFile) {
+        if (instance != null && tableFile.getPath().equals(instancePath)) {
+            return instance;
+        }
+        try {
+            instance = new SolverTables(TableFile.open(tableFile), tableFile);
+        } catch (IOException e) {
+            tableFile.delete();
+            instance = generate();
+            try {
+                TableFile.write(instance, tableFile);
+            } catch (IOException ignored) {
+                // The in-memory tables work without the file; the next process start will try again.
+            }
+        }
+        instancePath = tableFile.getPath();
+        return instance;
+    }
+
+    /**
+     * Opens the tables in a table file without generating anything. Table data is mapped on first use.
+     * @param tableFile The table file.
+     * @return A new SolverTables instance backed by the file.
+     * @throws IOException If the file is missing or does not match this solver's table format.
+     */
+    public static SolverTables open(File tableFile) throws IOException {
+        return new SolverTables(TableFile.open(tableFile), null);
+    }
+
+    /**
+     * Builds all move and pruning tables from scratch, in memory.
+     * @return A new SolverTables instance that does not depend on any file.
+     */
+    public static SolverTables generate() {
+        return new SolverTables(null, null).fill();
+    }
+
+    private SolverTables(TableFile file, File repairFile) {
+        this.file = file;
+        this.repairFile = repairFile;
+    }
+
+    /**
+     * Returns a move table, mapping it from the table file on first access.
+     * @param table A table whose pruning flag is false.
+     * @return The table, indexed by row * columns + column.
+     */
+    synchronized ShortBuffer moves(Table table) {
+        if (moveTables[table.ordinal()] == null) {
+            resolve(table);
+        }
+        return moveTables[table.ordinal()];
+    }
+
+    /**
+     * Returns a nibble-packed pruning table, mapping it from the table file on first access.
+     * @param table A table whose pruning flag is true.
+     * @return The table; read entries with getPruning.
+     */
+    synchronized ByteBuffer pruning(Table table) {
+        if (pruningTables[table.ordinal()] == null) {
+            resolve(table);
+        }
+        return pruningTables[table.ordinal()];
+    }
+
+    /**
+     * Returns true if the tables are backed by a memory-mapped file rather than the Java heap.
+     */
+    public boolean isMapped() {
+        return file != null;
+    }
+
+    /**
+     * Returns true if the given table has been resolved, i.e. generated or already mapped from the file.
+     */
+    synchronized boolean isLoaded(Table table) {
+        return moveTables[table.ordinal()] != null || pruningTables[table.ordinal()] != null;
+    }
+
+    /**
+     * Maps one table from the table file. If it cannot be mapped or is corrupt and the tables can repair themselves,
+     * every table not resolved yet is generated instead and the file is rewritten for the next process start.
+     * Tables mapped earlier passed their checksum, so they are kept.
+     * @param table The table to resolve.
+     * @throws UncheckedIOException If the table cannot be mapped or is corrupt, and the tables were opened with open.
+     */
+    private void resolve(Table table) {
+        try {
+            ByteBuffer data = file.map(table);
+            if (table.pruning) {
+                pruningTables[table.ordinal()] = data;
+            } else {
+                moveTables[table.ordinal()] = data.asShortBuffer();
+            }
+        } catch (UncheckedIOException e) {
+            if (repairFile == null) {
+                throw e;
+            }
+            SolverTables generated = generate();
+            for (Table other : Table.values()) {
+                if (!isLoaded(other)) {
+                    moveTables[other.ordinal()] = generated.moveTables[other.ordinal()];
+                    pruningTables[other.ordinal()] = generated.pruningTables[other.ordinal()];
+                }
+            }
+            repairFile.delete();
+            try {
+                TableFile.write(this, repairFile);
+            } catch (IOException ignored) {
+                // The in-memory tables work without the file; the next process start will try again.
+            }
+        }
+    }
+
+    /**
+     * Generates every table into this instance.
+     */
+    private SolverTables fill() {
+        short[] twistMove = buildMoveTable(N_TWIST, CubieCube::setTwist, CubieCube::getTwist, true);
+        short[] flipMove = buildMoveTable(N_FLIP, CubieCube::setFlip, CubieCube::getFlip, false);
+        short[] frToBrMove = buildMoveTable(N_FRtoBR, CubieCube::setFRtoBR, CubieCube::getFRtoBR, false);
+        short[] urfToDlfMove = buildMoveTable(N_URFtoDLF, CubieCube::setURFtoDLF, CubieCube::getURFtoDLF, true);
+        short[] urToDfMove = buildMoveTable(N_URtoDF, CubieCube::setURtoDF, CubieCube::getURtoDF, false);
+        short[] urToUlMove = buildMoveTable(N_URtoUL, CubieCube::setURtoUL, CubieCube::getURtoUL, false);
+        short[] ubToDfMove = buildMoveTable(N_UBtoDF, CubieCube::setUBtoDF, CubieCube::getUBtoDF, false);
+
+        short[] merge = new short[N_MERGE * N_MERGE];
+        for (int urToUl = 0; urToUl < N_MERGE; urToUl++) {
+            for (int ubToDf = 0; ubToDf < N_MERGE; ubToDf++) {
+                merge[urToUl * N_MERGE + ubToDf] = (short) CubieCube.mergeURtoULandUBtoDF(urToUl, ubToDf);
+            }
+        }
+
+        byte[] sliceTwistPrune = buildPruningTable(N_SLICE1 * N_TWIST, ALL_MOVES, (index, move) -> {
+            int slice = index % N_SLICE1, twist = index / N_SLICE1;
+            int newSlice = frToBrMove[(slice * 24) * N_MOVE + move] / 24;
+            return N_SLICE1 * twistMove[twist * N_MOVE + move] + newSlice;
+        });
+        byte[] sliceFlipPrune = buildPruningTable(N_SLICE1 * N_FLIP, ALL_MOVES, (index, move) -> {
+            int slice = index % N_SLICE1, flip = index / N_SLICE1;
+            int newSlice = frToBrMove[(slice * 24) * N_MOVE + move] / 24;
+            return N_SLICE1 * flipMove[flip * N_MOVE + move] + newSlice;
+        });
+        byte[] sliceUrfToDlfParityPrune = buildPruningTable(N_SLICE2 * N_URFtoDLF * N_PARITY, PHASE2_MOVES, (index, move) -> {
+            int parity = index % 2, slice = (index / 2) % N_SLICE2, urfToDlf = (index / 2) / N_SLICE2;
+            int newSlice = frToBrMove[slice * N_MOVE + move];
+            int newUrfToDlf = urfToDlfMove[urfToDlf * N_MOVE + move];
+            return (N_SLICE2 * newUrfToDlf + newSlice) * 2 + PARITY_MOVE[parity][move];
+        });
+        byte[] sliceUrToDfParityPrune = buildPruningTable(N_SLICE2 * N_URtoDF * N_PARITY, PHASE2_MOVES, (index, move) -> {
+            int parity = index % 2, slice = (index / 2) % N_SLICE2, urToDf = (index / 2) / N_SLICE2;
+            int newSlice = frToBrMove[slice * N_MOVE + move];
+            int newUrToDf = urToDfMove[urToDf * N_MOVE + move];
+            return (N_SLICE2 * newUrToDf + newSlice) * 2 + PARITY_MOVE[parity][move];
+        });
+
+        moveTables[Table.TWIST_MOVE.ordinal()] = ShortBuffer.wrap(twistMove);
+        moveTables[Table.FLIP_MOVE.ordinal()] = ShortBuffer.wrap(flipMove);
+        moveTables[Table.FR_TO_BR_MOVE.ordinal()] = ShortBuffer.wrap(frToBrMove);
+        moveTables[Table.URF_TO_DLF_MOVE.ordinal()] = ShortBuffer.wrap(urfToDlfMove);
+        moveTables[Table.UR_TO_DF_MOVE.ordinal()] = ShortBuffer.wrap(urToDfMove);
+        moveTables[Table.UR_TO_UL_MOVE.ordinal()] = ShortBuffer.wrap(urToUlMove);
+        moveTables[Table.UB_TO_DF_MOVE.ordinal()] = ShortBuffer.wrap(ubToDfMove);
+        moveTables[Table.MERGE_UR_TO_DF.ordinal()] = ShortBuffer.wrap(merge);
+        pruningTables[Table.SLICE_TWIST_PRUNE.ordinal()] = ByteBuffer.wrap(sliceTwistPrune);
+        pruningTables[Table.SLICE_FLIP_PRUNE.ordinal()] = ByteBuffer.wrap(sliceFlipPrune);
+        pruningTables[Table.SLICE_URF_TO_DLF_PARITY_PRUNE.ordinal()] = ByteBuffer.wrap(sliceUrfToDlfParityPrune);
+        pruningTables[Table.SLICE_UR_TO_DF_PARITY_PRUNE.ordinal()] = ByteBuffer.wrap(sliceUrToDfParityPrune);
+        return this;
+    }
+
+    /**
+     * Builds a move table by setting every coordinate value on a cube and applying each face turn up to three times.
+     * @param size The number of coordinate values.
+     * @param setter Sets the coordinate on a cube.
+     * @param getter Reads the coordinate from a cube.
+     * @param corners True if the coordinate only depends on corners, false if it only depends on edges.
+     * @return The move table, indexed by coordinate * N_MOVE + move.
+     */
+    private static short[] buildMoveTable(int size, ObjIntConsumer<CubieCube> setter,
+                                          ToIntFunction<CubieCube> getter, boolean corners) {
+        short[] table = new short[size * N_MOVE];
+        CubieCube cube = new CubieCube();
+        for (int i = 0; i < size; i++) {
+            setter.accept(cube, i);
+            for (int face = 0; face < 6; face++) {
+                CubieCube basic = CubieCube.BASIC_MOVES[face];
+                for (int power = 0; power < 4; power++) {
+                    if (corners) {
+                        cube.cornerMultiply(basic);
+                    } else {
+                        cube.edgeMultiply(basic);
+                    }
+                    // The fourth turn only restores the cube for the next face.
+                    if (power < 3) {
+                        table[i * N_MOVE + 3 * face + power] = (short) getter.applyAsInt(cube);
+                    }
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Builds a pruning table by breadth-first search from the solved state (index 0).
+     * @param size The number of entries.
+     * @param moves The moves allowed in this phase.
+     * @param next Maps (index, move) to the index reached by that move.
+     * @return The nibble-packed pruning table.
+     */
+    private static byte[] buildPruningTable(int size, int[] moves, IntBinaryOperator next) {
+        byte[] table = new byte[(size + 1) / 2];
+        Arrays.fill(table, (byte) -1); // 0x0f in every nibble marks an unvisited entry.
+        setPruning(table, 0, 0);
+        int done = 1;
+        int depth = 0;
+        while (done < size) {
+            for (int i = 0; i < size; i++) {
+                if (getPruning(table, i) != depth) continue;
+                for (int move : moves) {
+                    int target = next.applyAsInt(i, move);
+                    if (getPruning(table, target) == 0x0f) {
+                        setPruning(table, target, depth + 1);
+                        done++;
+                    }
+                }
+            }
+            depth++;
+        }
+        return table;
+    }
+
+    /**
+     * Reads a 4-bit distance from a nibble-packed pruning table.
+     */
+    static int getPruning(byte[] table, int index) {
+        return (table[index >> 1] >> ((index & 1) << 2)) & 0x0f;
+    }
+
+    /**
+     * Reads a 4-bit distance from a nibble-packed pruning table held in a buffer.
+     */
+    static int getPruning(ByteBuffer table, int index) {
+        return (table.get(index >> 1) >> ((index & 1) << 2)) & 0x0f;
+    }
+
+    private static void setPruning(byte[] table, int index, int value) {
+        int shift = (index & 1) << 2;
+        table[index >> 1] = (byte) ((table[index >> 1] & ~(0x0f << shift)) | (value << shift));
+    }
+}
@@ -0,0 +1,154 @@
+package com.example.cubesolver.solver;
+
+import com.example.cubesolver.model.CubeState;
+
+/**
+ * StickerMoves turns the sticker array of a CubeState with the 18 face turns, for showing the cube after each
+ * step of a solution. Every move is a precomputed table of where each sticker's color comes from, derived once
+ * from the cubie-level moves, so a turn is one pass over the 54 (or 24) stickers and allocates nothing.
+ * Move indices follow CubieCube.move: 3 * face + (quarter turns - 1), faces in URFDLB order.
+ */
+public final class StickerMoves {
+
+    public static final int MOVE_COUNT = 18;
+
+    private static final StickerMoves CUBE = new StickerMoves(3);
+    private static final StickerMoves POCKET = new StickerMoves(2);
+
+    private final int size;
+    private final int stickerCount;
+    private final byte[] sources; // sources[move * stickerCount + s] is the sticker whose color the move carries to s.
+
+    private StickerMoves(int size) {
+        this.size = size;
+        this.stickerCount = CubeState.FACE_COUNT * size * size;
+        this.sources = new byte[MOVE_COUNT * stickerCount];
+
+        int[] faceletSource = new int[FaceCube.N_FACELETS];
+        for (int move = 0; move < MOVE_COUNT; move++) {
+            CubieCube cube = new CubieCube();
+            cube.move(move);
+            for (int f = 0; f < FaceCube.N_FACELETS; f++) {
+                faceletSource[f] = f; // Centers stay in place.
+            }
+            // The same placement as FaceCube(CubieCube), with facelet positions in place of colors.
+            for (int c = 0; c < CubieCube.N_CORNERS; c++) {
+                for (int n = 0; n < 3; n++) {
+                    faceletSource[FaceCube.CORNER_FACELET[c][(n + cube.co[c]) % 3]] = FaceCube.CORNER_FACELET[cube.cp[c]][n];
+                }
+            }
+            for (int e = 0; e < CubieCube.N_EDGES; e++) {
+                for (int n = 0; n < 2; n++) {
+                    faceletSource[FaceCube.EDGE_FACELET[e][(n + cube.eo[e]) % 2]] = FaceCube.EDGE_FACELET[cube.ep[e]][n];
+                }
+            }
+            for (int s = 0; s < stickerCount; s++) {
+                sources[move * stickerCount + s] = (byte) toSticker(faceletSource[toFacelet(s)]);
+            }
+        }
+    }
+
+    /**
+     * Returns the move tables of a cube size.
+     * @param size 2 or 3.
+     * @return The shared tables.
+     */
+    public static StickerMoves forSize(int size) {
+        if (size == 3) return CUBE;
+        if (size == 2) return POCKET;
+        throw new IllegalArgumentException("Unsupported cube size: " + size);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Applies a move to a sticker array.
+     * @param from The CubeColor ordinals before the move, in CubeState order.
+     * @param to Receives the ordinals after the move; must not be the same array as from.
+     * @param move The move index (0-17).
+     */
+    public void apply(byte[] from, byte[] to, int move) {
+        int base = move * stickerCount;
+        for (int s = 0; s < stickerCount; s++) {
+            to[s] = from[sources[base + s]];
+        }
+    }
+
+    /**
+     * Applies a move to a cube state.
+     * @param state The cube, of this size.
+     * @param move The move index (0-17).
+     * @return The cube after the move.
+     */
+    public CubeState apply(CubeState state, int move) {
+        byte[] from = new byte[stickerCount];
+        byte[] to = new byte[stickerCount];
+        state.copyStickers(from);
+        apply(from, to, move);
+        return CubeState.of(size, to);
+    }
+
+    /**
+     * Returns the sticker whose color a move carries to the given sticker; the sticker itself if the move leaves
+     * it in place.
+     * @param move The move index (0-17).
+     * @param sticker The sticker index in CubeState order.
+     */
+    public int getSource(int move, int sticker) {
+        return sources[move * stickerCount + sticker];
+    }
+
+    /**
+     * Returns the move index of a move in standard notation ("R", "R2", "R'").
+     * @return The move index (0-17), or -1 if the notation is invalid.
+     */
+    public static int parse(String token) {
+        return CubieCube.moveIndex(token);
+    }
+
+    /**
+     * Returns the move that undoes a move, e.g. R' for R.
+     */
+    public static int inverse(int move) {
+        return move - move % 3 + 2 - move % 3;
+    }
+
+    /**
+     * Returns the face a move turns, in URFDLB order.
+     */
+    public static int getFace(int move) {
+        return move / 3;
+    }
+
+    /**
+     * Returns how far a move turns its face clockwise, in quarter turns: 1, 2 or 3 (for a counter-clockwise turn).
+     */
+    public static int getQuarterTurns(int move) {
+        return move % 3 + 1;
+    }
+
+    /**
+     * Maps a sticker index to its facelet in the 3x3 facelet array; the stickers of a 2x2 are the corner facelets.
+     */
+    private int toFacelet(int sticker) {
+        if (size == 3) {
+            return sticker;
+        }
+        int face = sticker / 4;
+        int row = sticker / 2 % 2;
+        int col = sticker % 2;
+        return face * 9 + row * 6 + col * 2;
+    }
+
+    private int toSticker(int facelet) {
+        if (size == 3) {
+            return facelet;
+        }
+        int face = facelet / 9;
+        int row = facelet % 9 / 6;
+        int col = facelet % 3 / 2;
+        return (face * 2 + row) * 2 + col;
+    }
+}
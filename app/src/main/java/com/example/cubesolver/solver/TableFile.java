@@ -0,0 +1,225 @@
+package com.example.cubesolver.solver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * TableFile stores the solver's move and pruning tables in a versioned binary file that is memory-mapped at runtime.
+ * Mapping lets the tables live in the page cache instead of being copied into the Java heap, and each table is only
+ * mapped (and checksummed) the first time the search reads it.
+ *
+ * <pre>
+ * Header (16 bytes, little-endian):
+ *   int   magic            "CSTB"
+ *   int   formatVersion    FORMAT_VERSION
+ *   int   tableCount       number of directory entries
+ *   int   directoryCrc     CRC32 of the directory
+ * Directory (40 bytes per table, in SolverTables.Table order):
+ *   int   tableId          ordinal of the SolverTables.Table
+ *   int   rows             coordinate size of the row coordinate
+ *   int   columns          number of moves, or size of the column coordinate
+ *   int   flags            1 for nibble-packed pruning tables, 0 for 16-bit move tables
+ *   long  offset           start of the table data, page aligned
+ *   long  length           table data length in bytes
+ *   long  crc              CRC32 of the table data
+ * </pre>
+ */
+public class TableFile {
+
+    public static final String FILE_NAME = "solver_tables.bin";
+    // Bump whenever the table layout or any coordinate definition changes; older files are then regenerated.
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x42545343; // "CSTB" when read as little-endian bytes.
+    private static final int HEADER_SIZE = 16;
+    private static final int ENTRY_SIZE = 40;
+    private static final int ALIGNMENT = 4096; // Page-aligned tables can be mapped without wasting partial pages.
+    private static final int FLAG_PRUNING = 1;
+
+    private static final SolverTables.Table[] TABLES = SolverTables.Table.values();
+
+    private final File path;
+    private final FileChannel channel;
+    private final long[] offsets = new long[TABLES.length];
+    private final long[] checksums = new long[TABLES.length];
+
+    private TableFile(File path, FileChannel channel) {
+        this.path = path;
+        this.channel = channel;
+    }
+
+    /**
+     * Opens a table file and validates its header and directory. No table data is read yet.
+     * @param path The table file.
+     * @return The opened file.
+     * @throws IOException If the file is missing, truncated, from another format version or its directory is corrupt.
+     */
+    public static TableFile open(File path) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(path, "r");
+        FileChannel channel = raf.getChannel();
+        try {
+            TableFile tableFile = new TableFile(path, channel);
+            tableFile.readDirectory();
+            return tableFile;
+        } catch (IOException | RuntimeException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private void readDirectory() throws IOException {
+        int directorySize = TABLES.length * ENTRY_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + directorySize).order(ByteOrder.LITTLE_ENDIAN);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) < 0) {
+                throw new IOException("Table file is truncated");
+            }
+        }
+        header.flip();
+        if (header.getInt() != MAGIC) {
+            throw new IOException("Not a solver table file");
+        }
+        int version = header.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Table file version " + version + " does not match " + FORMAT_VERSION);
+        }
+        if (header.getInt() != TABLES.length) {
+            throw new IOException("Table file has the wrong number of tables");
+        }
+        long directoryCrc = header.getInt() & 0xffffffffL;
+        if (crc(header.duplicate()) != directoryCrc) {
+            throw new IOException("Table file directory is corrupt");
+        }
+        long fileSize = channel.size();
+        for (SolverTables.Table table : TABLES) {
+            int id = header.getInt();
+            int rows = header.getInt();
+            int columns = header.getInt();
+            int flags = header.getInt();
+            long offset = header.getLong();
+            long length = header.getLong();
+            long checksum = header.getLong();
+            if (id != table.ordinal() || rows != table.rows || columns != table.columns
+                    || (flags == FLAG_PRUNING) != table.pruning || length != table.byteLength()
+                    || offset + length > fileSize) {
+                throw new IOException("Table file entry for " + table + " does not match this solver");
+            }
+            offsets[table.ordinal()] = offset;
+            checksums[table.ordinal()] = checksum;
+        }
+    }
+
+    /**
+     * Maps one table into memory and verifies its checksum.
+     * @param table The table to map.
+     * @return A read-only, little-endian buffer over the table data.
+     * @throws UncheckedIOException If mapping fails or the data does not match its checksum.
+     */
+    ByteBuffer map(SolverTables.Table table) {
+        try {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offsets[table.ordinal()], table.byteLength());
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+            if (crc(buffer.duplicate()) != checksums[table.ordinal()]) {
+                throw new IOException("Table " + table + " in " + path + " is corrupt");
+            }
+            return buffer;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Returns the path this table file was opened from.
+     */
+    public String getPath() {
+        return path.getPath();
+    }
+
+    /**
+     * Writes every table to a new file. The data is first written to a temporary file and then renamed into place,
+     * so a crash while writing never leaves a half-written table file behind.
+     * @param tables The tables to write; generated and mapped tables are both accepted.
+     * @param path The destination file.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void write(SolverTables tables, File path) throws IOException {
+        File temp = new File(path.getPath() + ".tmp");
+        int directorySize = TABLES.length * ENTRY_SIZE;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + directorySize).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(TABLES.length).putInt(0);
+
+        try (RandomAccessFile raf = new RandomAccessFile(temp, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            long offset = align(HEADER_SIZE + directorySize);
+            for (SolverTables.Table table : TABLES) {
+                ByteBuffer data = toBytes(tables, table);
+                long checksum = crc(data.duplicate());
+                while (data.hasRemaining()) {
+                    offset += channel.write(data, offset);
+                }
+                long start = offset - table.byteLength();
+                header.putInt(table.ordinal()).putInt(table.rows).putInt(table.columns)
+                        .putInt(table.pruning ? FLAG_PRUNING : 0)
+                        .putLong(start).putLong(table.byteLength()).putLong(checksum);
+                offset = align(offset);
+            }
+            header.flip();
+            ByteBuffer directory = header.duplicate();
+            directory.position(HEADER_SIZE);
+            header.putInt(12, (int) crc(directory));
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        }
+        if (!temp.renameTo(path)) {
+            temp.delete();
+            throw new IOException("Could not move table file into place at " + path);
+        }
+    }
+
+    /**
+     * Copies a table into a little-endian byte buffer in file layout.
+     */
+    private static ByteBuffer toBytes(SolverTables tables, SolverTables.Table table) {
+        ByteBuffer data = ByteBuffer.allocate(table.byteLength()).order(ByteOrder.LITTLE_ENDIAN);
+        if (table.pruning) {
+            ByteBuffer source = tables.pruning(table).duplicate();
+            source.clear();
+            data.put(source);
+        } else {
+            ShortBuffer source = tables.moves(table).duplicate();
+            source.clear();
+            data.asShortBuffer().put(source);
+        }
+        data.clear();
+        return data;
+    }
+
+    private static long align(long offset) {
+        return (offset + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+
+    /**
+     * Computes the CRC32 of the remaining bytes of a buffer. CRC32.update(ByteBuffer) needs API 26, so the
+     * bytes are fed through a small chunk array instead.
+     */
+    private static long crc(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        byte[] chunk = new byte[8192];
+        while (buffer.hasRemaining()) {
+            int n = Math.min(chunk.length, buffer.remaining());
+            buffer.get(chunk, 0, n);
+            crc.update(chunk, 0, n);
+        }
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.cubesolver.vision;
+
+/**
+ * FaceImage is a photo of one cube face as packed ARGB pixels, the layout returned by Bitmap.getPixels().
+ * Keeping the vision code on plain int arrays instead of Bitmaps lets it run, and be tested, on the JVM.
+ */
+public final class FaceImage {
+
+    private final int[] pixels; // Row-major ARGB pixels.
+    private final int width;
+    private final int height;
+
+    /**
+     * Wraps a pixel array without copying it.
+     * @param pixels The row-major ARGB pixels, at least width * height of them.
+     * @param width The image width in pixels.
+     * @param height The image height in pixels.
+     */
+    public FaceImage(int[] pixels, int width, int height) {
+        if (width <= 0 || height <= 0 || pixels.length < width * height) {
+            throw new IllegalArgumentException("Pixel array does not match a " + width + "x" + height + " image");
+        }
+        this.pixels = pixels;
+        this.width = width;
+        this.height = height;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the ARGB color of one pixel.
+     * @param x The column.
+     * @param y The row.
+     * @return The pixel color.
+     */
+    public int getPixel(int x, int y) {
+        return pixels[y * width + x];
+    }
+}
@@ -0,0 +1,563 @@
+package com.example.cubesolver.vision;
+
+import java.util.Arrays;
+
+/**
+ * FaceLocator finds the cube face in a photo that does not frame it exactly: off-center, smaller than the photo,
+ * tilted or seen at an angle. It works on a luminance copy of the photo downsampled to at most WORK_SIZE pixels:
+ * <ol>
+ *   <li>Sobel gradients are thresholded into maps of vertical and horizontal edges, and an integral image of each
+ *       map gives the number of edge pixels in any rectangle with four lookups.</li>
+ *   <li>The sticker grid of a 2x2 and a 3x3 face is matched against squares from 35% to 100% of the shorter side:
+ *       the lines between the cells should be full of edges (the gaps between stickers and the outline), the middles
+ *       of the cells should be quiet (the stickers), and so should the lines from half a cell to a cell and a half
+ *       outside the square, where the grid of a face ends. The last term keeps a block of stickers inside a face
+ *       from matching. Matching every square would be slow, so the grid is first matched in one dimension, at every
+ *       start and size, against the column and the row profiles of the edge maps; the best few column matches are
+ *       paired with the best few row matches and only those squares, and their close neighbors, are scored.</li>
+ *   <li>Each side of the best square is refined into a line: scanning inward from outside the square, the first
+ *       edge on every scan line where it gets brighter towards the inside is an outline point, and a line is fitted
+ *       to those points robustly, ignoring points from clutter or from the neighboring sides.</li>
+ *   <li>The four lines are intersected into the corners of a FaceQuad around the outer stickers, whose homography
+ *       then places the sticker centers.</li>
+ * </ol>
+ * A side without a clear outline keeps the square's side, so a face that fills the photo, as before, still maps to
+ * about the centered square. All buffers are kept and only grow, so after the first photo of a size locate()
+ * allocates nothing; a 320x240 photo takes a few milliseconds on the JVM. The locator is not thread-safe.
+ */
+public final class FaceLocator {
+
+    public static final int WORK_SIZE = 128; // Longest side of the downsampled luminance image.
+
+    private static final float MIN_FACE_FRACTION = 0.35f; // Smallest face side relative to the shorter image side.
+    private static final int EDGE_THRESHOLD = 64; // Sobel magnitude of an edge, about a luminance step of 16.
+    private static final float MIN_GRID_CONTRAST = 0.05f; // Least edge density of grid lines over cell middles.
+    private static final int MIN_GRID = 2, MAX_GRID = 3; // Cube sizes whose sticker grids are matched.
+    private static final int MAX_BAND_HALF_WIDTH = 4; // Half the width of a grid line band, enough to hold a gap.
+    // Stretch outside a square, in cells, that must be free of grid lines: past the outline, not into a next sticker.
+    private static final float BEYOND_FROM = 0.5f, BEYOND_TO = 1.5f;
+    private static final float SEARCH_FRACTION = 0.25f; // Distance a side may move during refinement, per face side.
+    private static final float SCAN_FRACTION = 0.6f; // Middle part of each side that is scanned for outline points.
+    private static final float INLIER_DISTANCE = 1f; // Largest distance of an outline point from its side's line.
+    private static final float MIN_INLIER_FRACTION = 0.4f; // Share of scan lines that must agree on a side's line.
+    private static final int CANDIDATES = 4; // Grid matches kept per axis; each column match is paired with each row's.
+    private static final int NEIGHBORHOOD = 2; // Distance from a paired match's start within which squares are scored.
+    private static final int LINE_CANDIDATES = 4; // Points per end of a side tried as line seeds, 16 pairs per side.
+
+    private static final int LEFT = 0, TOP = 1, RIGHT = 2, BOTTOM = 3;
+
+    // Working buffers, reused and grown only when a larger photo comes along.
+    private int[] luma = new int[0]; // Downsampled luminance, 0-255.
+    private int[] gradientX = new int[0]; // Horizontal Sobel response, positive where it gets brighter to the right.
+    private int[] gradientY = new int[0]; // Vertical Sobel response, positive where it gets brighter downwards.
+    private int[] verticalSums = new int[0]; // Integral image of the vertical edge map, (width + 1) x (height + 1).
+    private int[] horizontalSums = new int[0]; // Integral image of the horizontal edge map.
+    private int[] columnSums = new int[0]; // Prefix sums of the vertical edges per column, width + 1 long.
+    private int[] rowSums = new int[0]; // Prefix sums of the horizontal edges per row, height + 1 long.
+    private final int[] columnStarts = new int[CANDIDATES]; // Best grid matches in the column profile, by score ...
+    private final int[] columnSides = new int[CANDIDATES]; // ... with their sides, 0 past the last match.
+    private final int[] rowStarts = new int[CANDIDATES]; // Likewise in the row profile.
+    private final int[] rowSides = new int[CANDIDATES];
+    private final float[] candidateScores = new float[CANDIDATES];
+    private float[] along = new float[0]; // Outline points of one side: position along the side ...
+    private float[] across = new float[0]; // ... and across it.
+    private final float[] lines = new float[8]; // Per side: slope and offset of across = slope * along + offset.
+
+    private int width; // Size of the downsampled image.
+    private int height;
+    private int scale; // Photo pixels per downsampled pixel along each axis.
+
+    /**
+     * Locates the face in a photo.
+     * @param image The photo.
+     * @param quad Receives the face outline, in photo pixels.
+     * @return True if a face was found; false if the photo shows nothing face-like, in which case quad is unchanged.
+     */
+    public boolean locate(FaceImage image, FaceQuad quad) {
+        downsample(image);
+        computeGradients();
+
+        // The grid's columns and rows are found separately in the edge profiles of the whole image, then paired
+        // up and matched as squares.
+        int minSide = Math.min(width, height);
+        int smallest = Math.max(4 * MAX_GRID, Math.round(minSide * MIN_FACE_FRACTION));
+        findCandidates(columnSums, width, smallest, minSide, columnStarts, columnSides);
+        findCandidates(rowSums, height, smallest, minSide, rowStarts, rowSides);
+        float bestScore = MIN_GRID_CONTRAST;
+        int bestLeft = -1, bestTop = -1, bestSide = 0;
+        for (int i = 0; i < CANDIDATES && columnSides[i] > 0; i++) {
+            for (int j = 0; j < CANDIDATES && rowSides[j] > 0; j++) {
+                int shorter = Math.min(columnSides[i], rowSides[j]), longer = Math.max(columnSides[i], rowSides[j]);
+                if (longer - shorter > Math.max(2, longer / 8)) {
+                    continue; // Not the two axes of one square.
+                }
+                for (int side = Math.max(smallest, shorter - 1); side <= Math.min(minSide, longer + 1); side++) {
+                    int lastTop = Math.min(height - side, rowStarts[j] + NEIGHBORHOOD);
+                    int lastLeft = Math.min(width - side, columnStarts[i] + NEIGHBORHOOD);
+                    for (int top = Math.max(0, rowStarts[j] - NEIGHBORHOOD); top <= lastTop; top++) {
+                        for (int left = Math.max(0, columnStarts[i] - NEIGHBORHOOD); left <= lastLeft; left++) {
+                            float score = gridScore(left, top, side, bestScore);
+                            if (score > bestScore) {
+                                bestScore = score;
+                                bestLeft = left;
+                                bestTop = top;
+                                bestSide = side;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        if (bestSide == 0) {
+            return false;
+        }
+
+        // Refine each side of the square into a line fitted to the outline.
+        for (int side = LEFT; side <= BOTTOM; side++) {
+            if (!fitSide(side, bestLeft, bestTop, bestSide)) {
+                // No clear outline: keep the square's side, in pixel-center coordinates.
+                lines[side * 2] = 0f;
+                lines[side * 2 + 1] = side == LEFT ? bestLeft - 0.5f
+                        : side == TOP ? bestTop - 0.5f
+                        : side == RIGHT ? bestLeft + bestSide - 0.5f
+                        : bestTop + bestSide - 0.5f;
+            }
+        }
+
+        // Intersect neighboring sides, then scale the corners up to photo pixels.
+        float topLeftX = intersectX(LEFT, TOP), topRightX = intersectX(RIGHT, TOP);
+        float bottomRightX = intersectX(RIGHT, BOTTOM), bottomLeftX = intersectX(LEFT, BOTTOM);
+        float topLeftY = lineAt(TOP, topLeftX), topRightY = lineAt(TOP, topRightX);
+        float bottomRightY = lineAt(BOTTOM, bottomRightX), bottomLeftY = lineAt(BOTTOM, bottomLeftX);
+        if (!isPlausible(topLeftX, topLeftY, topRightX, topRightY, bottomRightX, bottomRightY,
+                bottomLeftX, bottomLeftY, bestSide)) {
+            float left = bestLeft - 0.5f, top = bestTop - 0.5f, right = left + bestSide, bottom = top + bestSide;
+            topLeftX = bottomLeftX = left;
+            topRightX = bottomRightX = right;
+            topLeftY = topRightY = top;
+            bottomLeftY = bottomRightY = bottom;
+        }
+        quad.setCorners(toPhoto(topLeftX), toPhoto(topLeftY), toPhoto(topRightX), toPhoto(topRightY),
+                toPhoto(bottomRightX), toPhoto(bottomRightY), toPhoto(bottomLeftX), toPhoto(bottomLeftY));
+        return true;
+    }
+
+    /**
+     * Box-filters the photo's luminance down to at most WORK_SIZE pixels on its longest side.
+     */
+    private void downsample(FaceImage image) {
+        scale = Math.max(1, (Math.max(image.getWidth(), image.getHeight()) + WORK_SIZE - 1) / WORK_SIZE);
+        width = image.getWidth() / scale;
+        height = image.getHeight() / scale;
+        int count = width * height;
+        if (luma.length < count) {
+            luma = new int[count];
+            gradientX = new int[count];
+            gradientY = new int[count];
+        }
+        if (verticalSums.length < (width + 1) * (height + 1)) {
+            verticalSums = new int[(width + 1) * (height + 1)];
+            horizontalSums = new int[verticalSums.length];
+        }
+        if (columnSums.length < width + 1 || rowSums.length < height + 1) {
+            columnSums = new int[width + 1];
+            rowSums = new int[height + 1];
+        }
+        if (along.length < Math.max(width, height)) {
+            along = new float[Math.max(width, height)];
+            across = new float[along.length];
+        }
+        int area = scale * scale;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int sum = 0;
+                for (int sy = 0; sy < scale; sy++) {
+                    for (int sx = 0; sx < scale; sx++) {
+                        int argb = image.getPixel(x * scale + sx, y * scale + sy);
+                        // Rec. 601 luma weights in 8-bit fixed point.
+                        sum += (77 * ((argb >> 16) & 0xff) + 150 * ((argb >> 8) & 0xff) + 29 * (argb & 0xff)) >> 8;
+                    }
+                }
+                luma[y * width + x] = sum / area;
+            }
+        }
+    }
+
+    /**
+     * Computes the Sobel gradients and the integral images of the thresholded vertical and horizontal edge maps.
+     */
+    private void computeGradients() {
+        int stride = width + 1;
+        for (int x = 0; x <= width; x++) {
+            verticalSums[x] = 0;
+            horizontalSums[x] = 0;
+        }
+        for (int y = 0; y < height; y++) {
+            int verticalRow = 0, horizontalRow = 0;
+            verticalSums[(y + 1) * stride] = 0;
+            horizontalSums[(y + 1) * stride] = 0;
+            for (int x = 0; x < width; x++) {
+                int i = y * width + x;
+                int gx = 0, gy = 0;
+                if (x > 0 && y > 0 && x < width - 1 && y < height - 1) {
+                    int topLeft = luma[i - width - 1], top = luma[i - width], topRight = luma[i - width + 1];
+                    int left = luma[i - 1], right = luma[i + 1];
+                    int bottomLeft = luma[i + width - 1], bottom = luma[i + width], bottomRight = luma[i + width + 1];
+                    gx = topRight + 2 * right + bottomRight - topLeft - 2 * left - bottomLeft;
+                    gy = bottomLeft + 2 * bottom + bottomRight - topLeft - 2 * top - topRight;
+                }
+                gradientX[i] = gx;
+                gradientY[i] = gy;
+                gx = Math.abs(gx);
+                gy = Math.abs(gy);
+                // An edge across x (a vertical edge) changes brightness from left to right.
+                verticalRow += gx > EDGE_THRESHOLD && gx >= gy ? 1 : 0;
+                horizontalRow += gy > EDGE_THRESHOLD && gy > gx ? 1 : 0;
+                int sum = (y + 1) * stride + x + 1;
+                verticalSums[sum] = verticalSums[sum - stride] + verticalRow;
+                horizontalSums[sum] = horizontalSums[sum - stride] + horizontalRow;
+            }
+        }
+        int last = height * stride;
+        for (int x = 0; x < width; x++) {
+            columnSums[x + 1] = columnSums[x] + verticalSums[last + x + 1] - verticalSums[last + x];
+        }
+        for (int y = 0; y < height; y++) {
+            rowSums[y + 1] = rowSums[y] + horizontalSums[(y + 1) * stride + width] - horizontalSums[y * stride + width];
+        }
+    }
+
+    /**
+     * Matches the lines of a sticker grid against an edge profile at every start and size, and keeps the best
+     * matches that are not near a better one.
+     * @param sums The prefix sums of the profile.
+     * @param length The length of the profile.
+     * @param smallest The smallest face side.
+     * @param largest The largest face side.
+     * @param starts Receives the starts of the matches, best first.
+     * @param sides Receives the sides of the matches, 0 past the last one.
+     */
+    private void findCandidates(int[] sums, int length, int smallest, int largest, int[] starts, int[] sides) {
+        Arrays.fill(sides, 0);
+        for (int side = largest; side >= smallest; side--) {
+            for (int start = 0; start + side <= length; start++) {
+                float floor = sides[CANDIDATES - 1] > 0 ? candidateScores[CANDIDATES - 1] : MIN_GRID_CONTRAST;
+                float score = profileScore(sums, length, start, side, floor);
+                if (score <= floor) {
+                    continue;
+                }
+                int slot = CANDIDATES;
+                boolean dominated = false;
+                for (int i = 0; i < CANDIDATES && sides[i] > 0; i++) {
+                    int near = Math.max(2, Math.max(side, sides[i]) / 8);
+                    if (Math.abs(start - starts[i]) <= near && Math.abs(side - sides[i]) <= near) {
+                        // The same grid, slightly moved: keep only the better of the two.
+                        if (score > candidateScores[i]) {
+                            slot = i;
+                        } else {
+                            dominated = true;
+                        }
+                        break;
+                    }
+                }
+                if (dominated) {
+                    continue;
+                }
+                if (slot == CANDIDATES) {
+                    slot = CANDIDATES - 1;
+                    if (sides[slot] > 0 && candidateScores[slot] >= score) {
+                        continue;
+                    }
+                }
+                // Move the match up to its place by score.
+                while (slot > 0 && (sides[slot - 1] == 0 || candidateScores[slot - 1] < score)) {
+                    starts[slot] = starts[slot - 1];
+                    sides[slot] = sides[slot - 1];
+                    candidateScores[slot] = candidateScores[slot - 1];
+                    slot--;
+                }
+                starts[slot] = start;
+                sides[slot] = side;
+                candidateScores[slot] = score;
+            }
+        }
+    }
+
+    /**
+     * Returns how well a stretch of an edge profile matches the lines of a 2x2 or a 3x3 sticker grid, scored like
+     * gridScore() with the profile taken as the edges of a square of that side.
+     * @param floor A score to beat; the return value is floor if the stretch does not beat it.
+     */
+    private static float profileScore(int[] sums, int length, int start, int side, float floor) {
+        float best = floor;
+        for (int n = MIN_GRID; n <= MAX_GRID; n++) {
+            float cell = side / (float) n;
+            int half = Math.max(2, Math.min(MAX_BAND_HALF_WIDTH, Math.round(cell / 8f)));
+            float sparsestLine = Float.MAX_VALUE, middles = 0f;
+            for (int k = 0; k <= n; k++) {
+                sparsestLine = Math.min(sparsestLine, profileDensity(sums, length, start + Math.round(k * cell), side, half));
+                if (k < n) {
+                    middles += profileDensity(sums, length, start + Math.round((k + 0.5f) * cell), side, half);
+                }
+            }
+            float lines = sparsestLine - middles / n, score = lines;
+            int farthest = Math.round(cell * BEYOND_TO);
+            for (int outside = Math.round(cell * BEYOND_FROM); outside <= farthest && score > best; outside += half) {
+                score = Math.min(score, lines - Math.max(
+                        profileDensity(sums, length, start - outside, side, half),
+                        profileDensity(sums, length, start + side + outside, side, half)));
+            }
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the density of a band of an edge profile, as if it held the edges of a line of the given length.
+     */
+    private static float profileDensity(int[] sums, int length, int center, int lineLength, int half) {
+        int from = Math.max(0, center - half), to = Math.min(length, center + half);
+        return to <= from ? 0f : (sums[to] - sums[from]) / (float) ((to - from) * lineLength);
+    }
+
+    /**
+     * Returns how well a square matches the sticker grid of a 2x2 or a 3x3 face, whichever fits better: the edge
+     * density of its sparsest grid line, less the mean density along the cell middles and the density of the busiest
+     * line half a cell to a cell and a half outside the square. Bands have about the same width for every square, so
+     * a small square does not win just because its bands are narrow.
+     * @param floor A score to beat; the return value is floor if the square does not beat it, which lets the costly
+     *              check outside the square stop early.
+     */
+    private float gridScore(int left, int top, int side, float floor) {
+        float best = floor;
+        for (int n = MIN_GRID; n <= MAX_GRID; n++) {
+            float cell = side / (float) n;
+            int half = Math.max(2, Math.min(MAX_BAND_HALF_WIDTH, Math.round(cell / 8f)));
+            float sparsestLine = Float.MAX_VALUE, middles = 0f;
+            for (int k = 0; k <= n; k++) {
+                int offset = Math.round(k * cell);
+                sparsestLine = Math.min(sparsestLine, Math.min(bandDensity(true, left + offset, top, side, half),
+                        bandDensity(false, top + offset, left, side, half)));
+                if (k < n) {
+                    int middle = Math.round((k + 0.5f) * cell);
+                    middles += bandDensity(true, left + middle, top, side, half)
+                            + bandDensity(false, top + middle, left, side, half);
+                }
+            }
+            // The grid must end at the square: about one cell further out there are no more gaps.
+            float lines = sparsestLine - middles / (2 * n), score = lines;
+            int farthest = Math.round(cell * BEYOND_TO);
+            for (int outside = Math.round(cell * BEYOND_FROM); outside <= farthest && score > best; outside += half) {
+                float vertical = Math.max(bandDensity(true, left - outside, top, side, half),
+                        bandDensity(true, left + side + outside, top, side, half));
+                float horizontal = Math.max(bandDensity(false, top - outside, left, side, half),
+                        bandDensity(false, top + side + outside, left, side, half));
+                score = Math.min(score, lines - Math.max(vertical, horizontal));
+            }
+            best = Math.max(best, score);
+        }
+        return best;
+    }
+
+    /**
+     * Returns the density of edges along a band across a square, clipped to the image; 0 for a band outside it.
+     * @param vertical True for a vertical band (counting vertical edges), false for a horizontal one.
+     * @param center The x coordinate of a vertical band's center, or the y coordinate of a horizontal one's.
+     * @param start Where the band starts along its length: the square's top or left.
+     * @param length The length of the band.
+     * @param half Half the width of the band.
+     */
+    private float bandDensity(boolean vertical, int center, int start, int length, int half) {
+        int from = Math.max(0, center - half), to = Math.min(vertical ? width : height, center + half);
+        if (to <= from) {
+            return 0f;
+        }
+        int count = vertical ? edgeCount(verticalSums, from, start, to, start + length)
+                : edgeCount(horizontalSums, start, from, start + length, to);
+        return count / (float) ((to - from) * length);
+    }
+
+    /**
+     * Returns the number of edge pixels in the rectangle [left, right) x [top, bottom) in constant time.
+     */
+    private int edgeCount(int[] sums, int left, int top, int right, int bottom) {
+        int stride = width + 1;
+        return sums[bottom * stride + right] - sums[top * stride + right]
+                - sums[bottom * stride + left] + sums[top * stride + left];
+    }
+
+    /**
+     * Collects outline points along one side of the coarse square and fits a line to them.
+     * @return True if enough points agree on a line, which is then stored in lines.
+     */
+    private boolean fitSide(int side, int squareLeft, int squareTop, int squareSide) {
+        boolean vertical = side == LEFT || side == RIGHT; // Scan lines run horizontally across a vertical side.
+        int reach = Math.max(2, Math.round(squareSide * SEARCH_FRACTION));
+        int position = side == LEFT ? squareLeft : side == TOP ? squareTop
+                : side == RIGHT ? squareLeft + squareSide - 1 : squareTop + squareSide - 1;
+        boolean inward = side == LEFT || side == TOP; // Scanning from outside in means increasing coordinates.
+        int limit = vertical ? width : height;
+        int outside = clamp(inward ? position - reach : position + reach, 1, limit - 2);
+        int inside = clamp(inward ? position + reach : position - reach, 1, limit - 2);
+        int first = (vertical ? squareTop : squareLeft) + Math.round(squareSide * (1f - SCAN_FRACTION) / 2f);
+        int last = first + Math.round(squareSide * SCAN_FRACTION);
+
+        int count = 0;
+        for (int line = first; line < last; line++) {
+            float edge = findEdge(vertical, line, outside, inside);
+            if (!Float.isNaN(edge)) {
+                along[count] = line;
+                across[count] = edge;
+                count++;
+            }
+        }
+        int scanLines = last - first;
+        return count >= Math.max(2, scanLines * MIN_INLIER_FRACTION)
+                && fitLine(count, Math.max(2, Math.round(scanLines * MIN_INLIER_FRACTION)), side);
+    }
+
+    /**
+     * Finds the first edge on one scan line where it gets brighter towards the inside of the face, with sub-pixel
+     * precision. That is where the outer stickers start: the step from a light table onto the dark cube body, which
+     * a dark table does not have, is passed over, so the outline is the same on any table.
+     * @param vertical True for a scan along a row (across a vertical side), false for a scan along a column.
+     * @param line The row or column.
+     * @param from The coordinate the scan starts at, outside the face.
+     * @param to The coordinate the scan ends at, inside the face.
+     * @return The coordinate of the edge, or NaN if there is none.
+     */
+    private float findEdge(boolean vertical, int line, int from, int to) {
+        int step = to >= from ? 1 : -1;
+        for (int p = from; p != to + step; p += step) {
+            if (step * gradientAcross(vertical, line, p) > EDGE_THRESHOLD) {
+                // Climb to the peak of the edge, then place it between the samples by a parabola fit.
+                while (p != to && step * gradientAcross(vertical, line, p + step) > step * gradientAcross(vertical, line, p)) {
+                    p += step;
+                }
+                float previous = step * gradientAcross(vertical, line, p - 1);
+                float peak = step * gradientAcross(vertical, line, p);
+                float next = step * gradientAcross(vertical, line, p + 1);
+                float curvature = previous - 2f * peak + next;
+                float offset = curvature < 0f ? 0.5f * (previous - next) / curvature : 0f;
+                return p + Math.max(-0.5f, Math.min(0.5f, offset));
+            }
+        }
+        return Float.NaN;
+    }
+
+    private int gradientAcross(boolean vertical, int line, int p) {
+        return vertical ? gradientX[line * width + p] : gradientY[p * width + line];
+    }
+
+    /**
+     * Fits across = slope * along + offset to the collected points. Lines through pairs of points near the two ends
+     * of the side are tried as seeds; the one most points lie close to is refined by least squares over those points.
+     * @return True if at least minInliers points lie on the line.
+     */
+    private boolean fitLine(int count, int minInliers, int side) {
+        float bestSlope = 0f, bestOffset = 0f;
+        int bestInliers = 0;
+        int span = Math.max(1, count / (3 * LINE_CANDIDATES));
+        for (int i = 0; i < LINE_CANDIDATES; i++) {
+            for (int j = 0; j < LINE_CANDIDATES; j++) {
+                int p = i * span, q = count - 1 - j * span;
+                if (p >= q || along[q] == along[p]) {
+                    continue;
+                }
+                float slope = (across[q] - across[p]) / (along[q] - along[p]);
+                float offset = across[p] - slope * along[p];
+                int inliers = countInliers(count, slope, offset);
+                if (inliers > bestInliers) {
+                    bestInliers = inliers;
+                    bestSlope = slope;
+                    bestOffset = offset;
+                }
+            }
+        }
+        if (bestInliers < minInliers) {
+            return false;
+        }
+
+        double n = 0, sumA = 0, sumC = 0, sumAA = 0, sumAC = 0;
+        for (int k = 0; k < count; k++) {
+            if (Math.abs(across[k] - (bestSlope * along[k] + bestOffset)) <= INLIER_DISTANCE) {
+                n++;
+                sumA += along[k];
+                sumC += across[k];
+                sumAA += along[k] * along[k];
+                sumAC += along[k] * across[k];
+            }
+        }
+        double denominator = n * sumAA - sumA * sumA;
+        if (denominator > 0) {
+            bestSlope = (float) ((n * sumAC - sumA * sumC) / denominator);
+            bestOffset = (float) ((sumC - bestSlope * sumA) / n);
+        }
+        lines[side * 2] = bestSlope;
+        lines[side * 2 + 1] = bestOffset;
+        return true;
+    }
+
+    private int countInliers(int count, float slope, float offset) {
+        int inliers = 0;
+        for (int k = 0; k < count; k++) {
+            if (Math.abs(across[k] - (slope * along[k] + offset)) <= INLIER_DISTANCE) {
+                inliers++;
+            }
+        }
+        return inliers;
+    }
+
+    /**
+     * Returns the x coordinate where a vertical side (x = slope * y + offset) meets a horizontal one
+     * (y = slope * x + offset).
+     */
+    private float intersectX(int verticalSide, int horizontalSide) {
+        float a = lines[verticalSide * 2], b = lines[verticalSide * 2 + 1];
+        float c = lines[horizontalSide * 2], d = lines[horizontalSide * 2 + 1];
+        return (a * d + b) / (1f - a * c);
+    }
+
+    /**
+     * Returns the y coordinate of a horizontal side at x.
+     */
+    private float lineAt(int horizontalSide, float x) {
+        return lines[horizontalSide * 2] * x + lines[horizontalSide * 2 + 1];
+    }
+
+    /**
+     * Checks that the corners form a convex quadrilateral of about the size of the coarse square, lying mostly
+     * inside the image.
+     */
+    private boolean isPlausible(float x0, float y0, float x1, float y1, float x2, float y2, float x3, float y3,
+                                int squareSide) {
+        float cross0 = cross(x3, y3, x0, y0, x1, y1), cross1 = cross(x0, y0, x1, y1, x2, y2);
+        float cross2 = cross(x1, y1, x2, y2, x3, y3), cross3 = cross(x2, y2, x3, y3, x0, y0);
+        boolean convex = (cross0 > 0 && cross1 > 0 && cross2 > 0 && cross3 > 0)
+                || (cross0 < 0 && cross1 < 0 && cross2 < 0 && cross3 < 0);
+        float area = Math.abs((x0 * y1 - x1 * y0) + (x1 * y2 - x2 * y1) + (x2 * y3 - x3 * y2) + (x3 * y0 - x0 * y3)) / 2f;
+        float squareArea = squareSide * (float) squareSide;
+        float margin = squareSide * SEARCH_FRACTION;
+        return convex && area > squareArea / 2f && area < squareArea * 2f
+                && inside(x0, y0, margin) && inside(x1, y1, margin) && inside(x2, y2, margin) && inside(x3, y3, margin);
+    }
+
+    private static float cross(float ax, float ay, float bx, float by, float cx, float cy) {
+        return (bx - ax) * (cy - by) - (by - ay) * (cx - bx);
+    }
+
+    private boolean inside(float x, float y, float margin) {
+        return x >= -margin && y >= -margin && x <= width + margin && y <= height + margin;
+    }
+
+    /**
+     * Converts a downsampled pixel-center coordinate to a photo pixel-center coordinate.
+     */
+    private float toPhoto(float coordinate) {
+        return (coordinate + 0.5f) * scale - 0.5f;
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.cubesolver.vision;
+
+/**
+ * FaceQuad is where one cube face lies in a photo: the four corners of the face and the homography that maps the
+ * rectified face, the unit square, onto them. Sticker centers are chosen in rectified coordinates (u to the right,
+ * v down, both 0-1) and mapped into the photo, so a tilted or off-center face is sampled as if it had been
+ * photographed head-on. A quad is mutable and meant to be reused from photo to photo.
+ * <p>
+ * Coordinates are in pixels of the photo, with pixel (x, y) centered on (x, y).
+ */
+public final class FaceQuad {
+
+    // Corners in the order top-left, top-right, bottom-right, bottom-left of the rectified face.
+    private final float[] cornerX = new float[4];
+    private final float[] cornerY = new float[4];
+
+    // Homography: x = (a u + b v + c) / (g u + h v + 1), y = (d u + e v + f) / (g u + h v + 1).
+    private float a, b, c, d, e, f, g, h;
+
+    /**
+     * Makes the quad an upright square, e.g. the centered square of a photo the face is assumed to fill.
+     * @param left The x coordinate of the left side.
+     * @param top The y coordinate of the top side.
+     * @param side The side length.
+     * @return This quad.
+     */
+    public FaceQuad setSquare(float left, float top, float side) {
+        return setCorners(left, top, left + side, top, left + side, top + side, left, top + side);
+    }
+
+    /**
+     * Sets the four corners and computes the homography from the unit square onto them (Heckbert's closed form).
+     * The corners must form a convex quadrilateral.
+     * @return This quad.
+     */
+    public FaceQuad setCorners(float topLeftX, float topLeftY, float topRightX, float topRightY,
+                               float bottomRightX, float bottomRightY, float bottomLeftX, float bottomLeftY) {
+        cornerX[0] = topLeftX;
+        cornerY[0] = topLeftY;
+        cornerX[1] = topRightX;
+        cornerY[1] = topRightY;
+        cornerX[2] = bottomRightX;
+        cornerY[2] = bottomRightY;
+        cornerX[3] = bottomLeftX;
+        cornerY[3] = bottomLeftY;
+
+        float dx1 = topRightX - bottomRightX, dx2 = bottomLeftX - bottomRightX;
+        float dx3 = topLeftX - topRightX + bottomRightX - bottomLeftX;
+        float dy1 = topRightY - bottomRightY, dy2 = bottomLeftY - bottomRightY;
+        float dy3 = topLeftY - topRightY + bottomRightY - bottomLeftY;
+        float det = dx1 * dy2 - dx2 * dy1;
+        if ((dx3 == 0f && dy3 == 0f) || det == 0f) {
+            // A parallelogram: the mapping is affine.
+            g = 0f;
+            h = 0f;
+        } else {
+            g = (dx3 * dy2 - dx2 * dy3) / det;
+            h = (dx1 * dy3 - dx3 * dy1) / det;
+        }
+        a = topRightX - topLeftX + g * topRightX;
+        b = bottomLeftX - topLeftX + h * bottomLeftX;
+        c = topLeftX;
+        d = topRightY - topLeftY + g * topRightY;
+        e = bottomLeftY - topLeftY + h * bottomLeftY;
+        f = topLeftY;
+        return this;
+    }
+
+    /**
+     * Returns the photo x coordinate of a point of the rectified face.
+     * @param u The rectified x coordinate, 0 at the left side and 1 at the right side.
+     * @param v The rectified y coordinate, 0 at the top side and 1 at the bottom side.
+     */
+    public float mapX(float u, float v) {
+        return (a * u + b * v + c) / (g * u + h * v + 1f);
+    }
+
+    /**
+     * Returns the photo y coordinate of a point of the rectified face.
+     * @param u The rectified x coordinate, 0 at the left side and 1 at the right side.
+     * @param v The rectified y coordinate, 0 at the top side and 1 at the bottom side.
+     */
+    public float mapY(float u, float v) {
+        return (d * u + e * v + f) / (g * u + h * v + 1f);
+    }
+
+    /**
+     * Returns the x coordinate of a corner.
+     * @param corner 0 top-left, 1 top-right, 2 bottom-right, 3 bottom-left.
+     */
+    public float getCornerX(int corner) {
+        return cornerX[corner];
+    }
+
+    /**
+     * Returns the y coordinate of a corner.
+     * @param corner 0 top-left, 1 top-right, 2 bottom-right, 3 bottom-left.
+     */
+    public float getCornerY(int corner) {
+        return cornerY[corner];
+    }
+
+    /**
+     * Returns the area of the quad in square pixels.
+     */
+    public float getArea() {
+        float twiceArea = 0f;
+        for (int i = 0; i < 4; i++) {
+            int next = (i + 1) & 3;
+            twiceArea += cornerX[i] * cornerY[next] - cornerX[next] * cornerY[i];
+        }
+        return Math.abs(twiceArea) / 2f;
+    }
+}
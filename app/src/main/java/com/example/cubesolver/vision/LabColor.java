@@ -0,0 +1,84 @@
+package com.example.cubesolver.vision;
+
+/**
+ * LabColor converts sRGB pixels to CIELAB (D65 white point). Lab is roughly perceptually uniform, so Euclidean
+ * distances between Lab values (Delta E 1976) track how different two sticker colors look far better than RGB
+ * distances do, in particular for the red/orange and white/yellow pairs.
+ */
+public final class LabColor {
+
+    // sRGB component (0-255) to linear light, computed once instead of calling Math.pow per pixel.
+    private static final float[] SRGB_TO_LINEAR = new float[256];
+
+    // D65 reference white.
+    private static final float XN = 0.95047f, YN = 1.0f, ZN = 1.08883f;
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            double c = i / 255.0;
+            SRGB_TO_LINEAR[i] = (float) (c <= 0.04045 ? c / 12.92 : Math.pow((c + 0.055) / 1.055, 2.4));
+        }
+    }
+
+    private LabColor() {
+    }
+
+    /**
+     * Converts an ARGB pixel to Lab. The alpha channel is ignored.
+     * @param argb The pixel.
+     * @param out Receives L, a and b at out[offset], out[offset + 1] and out[offset + 2].
+     * @param offset The index of L in out.
+     */
+    public static void fromArgb(int argb, float[] out, int offset) {
+        float r = SRGB_TO_LINEAR[(argb >> 16) & 0xff];
+        float g = SRGB_TO_LINEAR[(argb >> 8) & 0xff];
+        float b = SRGB_TO_LINEAR[argb & 0xff];
+        fromLinear(r, g, b, out, offset);
+    }
+
+    /**
+     * Converts linear-light RGB (0-1) to Lab.
+     * @param r The red component.
+     * @param g The green component.
+     * @param b The blue component.
+     * @param out Receives L, a and b at out[offset], out[offset + 1] and out[offset + 2].
+     * @param offset The index of L in out.
+     */
+    public static void fromLinear(float r, float g, float b, float[] out, int offset) {
+        float x = (0.4124f * r + 0.3576f * g + 0.1805f * b) / XN;
+        float y = (0.2126f * r + 0.7152f * g + 0.0722f * b) / YN;
+        float z = (0.0193f * r + 0.1192f * g + 0.9505f * b) / ZN;
+        float fx = f(x), fy = f(y), fz = f(z);
+        out[offset] = 116f * fy - 16f;
+        out[offset + 1] = 500f * (fx - fy);
+        out[offset + 2] = 200f * (fy - fz);
+    }
+
+    /**
+     * Returns the linear-light value of an 8-bit sRGB component.
+     * @param component The component, 0-255.
+     * @return The linear value, 0-1.
+     */
+    public static float toLinear(int component) {
+        return SRGB_TO_LINEAR[component];
+    }
+
+    /**
+     * Returns the Delta E 1976 distance between two Lab colors.
+     * @param lab1 The array holding the first color.
+     * @param offset1 The index of its L component.
+     * @param lab2 The array holding the second color.
+     * @param offset2 The index of its L component.
+     * @return The Euclidean distance in Lab.
+     */
+    public static float distance(float[] lab1, int offset1, float[] lab2, int offset2) {
+        float dl = lab1[offset1] - lab2[offset2];
+        float da = lab1[offset1 + 1] - lab2[offset2 + 1];
+        float db = lab1[offset1 + 2] - lab2[offset2 + 2];
+        return (float) Math.sqrt(dl * dl + da * da + db * db);
+    }
+
+    private static float f(float t) {
+        return t > 0.008856f ? (float) Math.cbrt(t) : 7.787f * t + 16f / 116f;
+    }
+}
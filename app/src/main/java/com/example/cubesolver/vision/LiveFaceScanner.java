@@ -0,0 +1,310 @@
+package com.example.cubesolver.vision;
+
+import com.example.cubesolver.model.CubeState;
+
+import java.util.Arrays;
+
+/**
+ * LiveFaceScanner finds the sticker colors of a cube in camera preview frames and captures each face on its own
+ * once the picture holds still, so the user only has to show the six faces in turn.
+ * <p>
+ * Every frame is sampled straight from its Y, U and V planes; nothing is converted to JPEG or to a Bitmap. A
+ * size x size grid is laid over the centered guide square of the upright picture, and the inner part of every cell is
+ * averaged and converted to Lab. A face is captured when, for stableFrames frames in a row, every cell is uniform
+ * (it lies inside one sticker), keeps its nearest color and moves less than a small Lab distance. The captured
+ * samples are the average over those frames, which also averages out sensor noise; a face that was already
+ * captured is not captured again. After six faces, StickerClassifier.classify(float[], int) names the colors of
+ * the whole cube at once.
+ * <p>
+ * The scanner allocates nothing per frame, so it keeps up with 30 fps analysis with room to spare: a frame costs
+ * a few hundred pixel reads. It is not thread-safe; feed it frames from one analysis thread.
+ */
+public final class LiveFaceScanner {
+
+    public static final int DEFAULT_STABLE_FRAMES = 8; // About a quarter of a second at 30 fps.
+    public static final float DEFAULT_GUIDE_FRACTION = 0.7f; // Side of the guide square relative to the shorter frame side.
+
+    private static final int SAMPLES_PER_AXIS = 6; // Pixels sampled along each axis of a cell.
+    private static final float SAMPLE_FRACTION = 0.5f; // Part of each cell that is sampled, leaving out the borders.
+    private static final float MAX_CELL_SPREAD = 24f; // Luma standard deviation above which a cell is not one sticker.
+    private static final float MAX_JITTER = 8f; // Largest Lab change of a cell between two frames of a steady picture.
+
+    /**
+     * What a frame did to the scan.
+     */
+    public enum Status {
+        /** The guide square does not show a face, or the picture moves too much. */
+        NO_FACE,
+        /** A face is in view and holding still, but not for long enough yet. */
+        STEADYING,
+        /** The face shown has already been captured. */
+        ALREADY_CAPTURED,
+        /** This frame completed the capture of a new face. */
+        CAPTURED,
+        /** All six faces have been captured; the frame was ignored. */
+        COMPLETE
+    }
+
+    private final int size;
+    private final int cells;
+    private final int stableFrames;
+    private final float guideFraction;
+
+    // Per-frame samples, reused for every frame.
+    private final float[] lab; // Lab triple per cell of the current frame.
+    private final float[] previousLab; // Lab triple per cell of the previous frame.
+    private final int[] labels; // Nearest CubeColor ordinal per cell of the current frame.
+    private final int[] previousLabels;
+    private final float[] stableSum; // Sum of the Lab samples since the picture became steady.
+    private int steadyCount; // Consecutive steady frames so far, 0 if the previous frame was not a steady face.
+
+    // Captured faces, in capture order.
+    private final float[] capturedLab; // Averaged Lab triple per sticker, in CubeState order.
+    private final int[] capturedLabels; // Nearest CubeColor ordinal per captured sticker.
+    private int captureCount;
+
+    /**
+     * Creates a scanner with the default steadiness and guide square.
+     * @param size The cube size (2 or 3).
+     */
+    public LiveFaceScanner(int size) {
+        this(size, DEFAULT_STABLE_FRAMES, DEFAULT_GUIDE_FRACTION);
+    }
+
+    /**
+     * Creates a scanner.
+     * @param size The cube size (2 or 3).
+     * @param stableFrames How many steady frames in a row capture a face.
+     * @param guideFraction The side of the guide square, as a fraction (0-1] of the shorter side of the upright frame.
+     */
+    public LiveFaceScanner(int size, int stableFrames, float guideFraction) {
+        if (size != 2 && size != 3) {
+            throw new IllegalArgumentException("Unsupported cube size: " + size);
+        }
+        if (stableFrames < 1 || guideFraction <= 0f || guideFraction > 1f) {
+            throw new IllegalArgumentException("Invalid scanner settings");
+        }
+        this.size = size;
+        this.cells = size * size;
+        this.stableFrames = stableFrames;
+        this.guideFraction = guideFraction;
+        lab = new float[cells * 3];
+        previousLab = new float[cells * 3];
+        labels = new int[cells];
+        previousLabels = new int[cells];
+        stableSum = new float[cells * 3];
+        capturedLab = new float[CubeState.FACE_COUNT * cells * 3];
+        capturedLabels = new int[CubeState.FACE_COUNT * cells];
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns the side of the guide square as a fraction of the shorter side of the upright frame, for drawing it.
+     */
+    public float getGuideFraction() {
+        return guideFraction;
+    }
+
+    /**
+     * Analyzes one frame.
+     * @param frame The frame.
+     * @param rotationDegrees The clockwise rotation that turns the frame upright, as reported by the camera: 0, 90,
+     *                        180 or 270. The grid rows and columns follow the upright picture the user sees.
+     * @return What the frame did to the scan.
+     */
+    public Status analyze(YuvFrame frame, int rotationDegrees) {
+        if (captureCount == CubeState.FACE_COUNT) {
+            return Status.COMPLETE;
+        }
+        if (!sample(frame, rotationDegrees)) {
+            steadyCount = 0;
+            return Status.NO_FACE;
+        }
+        if (isCaptured()) {
+            steadyCount = 0;
+            return Status.ALREADY_CAPTURED;
+        }
+        if (steadyCount > 0 && !isSteady()) {
+            steadyCount = 0;
+        }
+        if (steadyCount == 0) {
+            Arrays.fill(stableSum, 0f);
+        }
+        for (int i = 0; i < stableSum.length; i++) {
+            stableSum[i] += lab[i];
+        }
+        steadyCount++;
+        System.arraycopy(lab, 0, previousLab, 0, lab.length);
+        System.arraycopy(labels, 0, previousLabels, 0, labels.length);
+        if (steadyCount < stableFrames) {
+            return Status.STEADYING;
+        }
+
+        int first = captureCount * cells;
+        for (int i = 0; i < stableSum.length; i++) {
+            capturedLab[first * 3 + i] = stableSum[i] / steadyCount;
+        }
+        for (int cell = 0; cell < cells; cell++) {
+            capturedLabels[first + cell] = StickerClassifier.nearestColor(capturedLab, (first + cell) * 3);
+        }
+        captureCount++;
+        steadyCount = 0;
+        return Status.CAPTURED;
+    }
+
+    /**
+     * Returns how many faces have been captured, 0 to 6.
+     */
+    public int getCaptureCount() {
+        return captureCount;
+    }
+
+    /**
+     * Returns how far the current face is towards being captured, for a progress indicator.
+     * @return 0 to 1.
+     */
+    public float getSteadyProgress() {
+        return Math.min(1f, steadyCount / (float) stableFrames);
+    }
+
+    /**
+     * Returns the nearest color of a cell in the last analyzed frame, for drawing the detected grid. Only meaningful
+     * after a frame that did not return NO_FACE.
+     * @param cell The cell, row * size + col.
+     * @return The CubeColor ordinal.
+     */
+    public int getLabel(int cell) {
+        return labels[cell];
+    }
+
+    /**
+     * Copies the Lab samples of all captured faces, in capture order, ready for StickerClassifier.classify.
+     * @param out Receives one Lab triple per sticker; at least 6 * size * size * 3 floats.
+     */
+    public void copyCapturedLab(float[] out) {
+        System.arraycopy(capturedLab, 0, out, 0, captureCount * cells * 3);
+    }
+
+    /**
+     * Drops the most recent capture, e.g. when the user wants to show that face again.
+     */
+    public void undoCapture() {
+        if (captureCount > 0) {
+            captureCount--;
+        }
+        steadyCount = 0;
+    }
+
+    /**
+     * Forgets all captured faces.
+     */
+    public void reset() {
+        captureCount = 0;
+        steadyCount = 0;
+    }
+
+    /**
+     * Samples the grid into lab and labels.
+     * @return True if every cell is uniform enough to lie inside one sticker.
+     */
+    private boolean sample(YuvFrame frame, int rotationDegrees) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        boolean sideways = rotationDegrees == 90 || rotationDegrees == 270;
+        int uprightWidth = sideways ? height : width;
+        int uprightHeight = sideways ? width : height;
+        float side = guideFraction * Math.min(uprightWidth, uprightHeight);
+        float left = (uprightWidth - side) / 2f;
+        float top = (uprightHeight - side) / 2f;
+        float cellSize = side / size;
+        float span = cellSize * SAMPLE_FRACTION;
+        float step = span / (SAMPLES_PER_AXIS - 1);
+        int n = SAMPLES_PER_AXIS * SAMPLES_PER_AXIS;
+        boolean uniform = true;
+
+        for (int cell = 0; cell < cells; cell++) {
+            float startX = left + (cell % size + 0.5f) * cellSize - span / 2f;
+            float startY = top + (cell / size + 0.5f) * cellSize - span / 2f;
+            int sumY = 0, sumU = 0, sumV = 0;
+            long sumYSquares = 0;
+            for (int sy = 0; sy < SAMPLES_PER_AXIS; sy++) {
+                int uy = clamp(Math.round(startY + sy * step), uprightHeight);
+                for (int sx = 0; sx < SAMPLES_PER_AXIS; sx++) {
+                    int ux = clamp(Math.round(startX + sx * step), uprightWidth);
+                    // Map the upright point back onto the sensor frame.
+                    int px, py;
+                    switch (rotationDegrees) {
+                        case 90: px = uy; py = height - 1 - ux; break;
+                        case 180: px = width - 1 - ux; py = height - 1 - uy; break;
+                        case 270: px = width - 1 - uy; py = ux; break;
+                        default: px = ux; py = uy; break;
+                    }
+                    int luma = frame.getY(px, py);
+                    sumY += luma;
+                    sumYSquares += luma * luma;
+                    sumU += frame.getU(px, py);
+                    sumV += frame.getV(px, py);
+                }
+            }
+            float meanY = sumY / (float) n;
+            float variance = sumYSquares / (float) n - meanY * meanY;
+            uniform &= variance <= MAX_CELL_SPREAD * MAX_CELL_SPREAD;
+            toLab(meanY, sumU / (float) n - 128f, sumV / (float) n - 128f, lab, cell * 3);
+            labels[cell] = StickerClassifier.nearestColor(lab, cell * 3);
+        }
+        return uniform;
+    }
+
+    /**
+     * Returns whether the current frame shows the same colors as the previous one, within the jitter of a
+     * hand-held camera.
+     */
+    private boolean isSteady() {
+        for (int cell = 0; cell < cells; cell++) {
+            if (labels[cell] != previousLabels[cell] || LabColor.distance(lab, cell * 3, previousLab, cell * 3) > MAX_JITTER) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the current frame shows a face that was already captured: nearly all of its labels match
+     * those of a captured face. A few may differ, because the nearest colors can flip under changing light.
+     */
+    private boolean isCaptured() {
+        for (int face = 0; face < captureCount; face++) {
+            int first = face * cells;
+            int differing = 0;
+            for (int cell = 0; cell < cells; cell++) {
+                if (capturedLabels[first + cell] != labels[cell]) {
+                    differing++;
+                }
+            }
+            if (differing <= cells / 4) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts a full-range BT.601 YUV color, as produced by phone cameras, to Lab.
+     * @param y The luma, 0-255.
+     * @param u The blue difference, centered on 0.
+     * @param v The red difference, centered on 0.
+     */
+    static void toLab(float y, float u, float v, float[] out, int offset) {
+        int r = clamp(Math.round(y + 1.402f * v), 256);
+        int g = clamp(Math.round(y - 0.344136f * u - 0.714136f * v), 256);
+        int b = clamp(Math.round(y + 1.772f * u), 256);
+        LabColor.fromLinear(LabColor.toLinear(r), LabColor.toLinear(g), LabColor.toLinear(b), out, offset);
+    }
+
+    private static int clamp(int value, int limit) {
+        return Math.max(0, Math.min(limit - 1, value));
+    }
+}
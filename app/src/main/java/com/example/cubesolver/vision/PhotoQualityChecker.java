@@ -0,0 +1,199 @@
+package com.example.cubesolver.vision;
+
+import java.util.Arrays;
+
+/**
+ * PhotoQualityChecker rejects face photos that no detector could read, right after they are taken and before any
+ * time is spent analyzing them. It runs on the small copy decoded for the StickerClassifier and measures
+ * <ul>
+ *   <li>sharpness: the variance of the Laplacian of the luminance along the edges, relative to their mean squared
+ *       gradient. Sticker gaps and outlines are strong, narrow edges, so a focused face gives a large Laplacian;
+ *       blur or camera shake spreads them out and it collapses faster than the gradient does. Taking the ratio
+ *       makes the score independent of the light level and of how much of the photo the face covers, which the raw
+ *       variance is not;</li>
+ *   <li>highlight clipping: the share of pixels with two or more saturated channels, where glare or overexposure
+ *       has washed out the sticker colors. One saturated channel is normal for a well exposed orange or red;</li>
+ *   <li>low light: the luminance the brightest 5% of the pixels reach. Even an all-blue or all-red face has some
+ *       bright pixels in decent light; in a dark photo the colors drown in noise.</li>
+ * </ul>
+ * Sharpness is measured on the luminance binned 2x2, so the defaults fit photos decoded at MainActivity's classifier
+ * size of 256 px; much larger images look blurrier to it. A check takes well under a millisecond. The thresholds are
+ * set per checker, for callers that want a stricter or a more lenient gate.
+ */
+public class PhotoQualityChecker {
+
+    public static final float DEFAULT_MIN_SHARPNESS = 0.16f; // Focused photos score about 0.25, blurred ones 0.1 or less.
+    public static final float DEFAULT_MAX_CLIPPED_FRACTION = 0.1f; // Share of pixels allowed to be blown out.
+    public static final int DEFAULT_MIN_BRIGHT_LUMA = 48; // Luminance the brightest 5% of the pixels must reach.
+
+    private static final int CLIPPED_LEVEL = 250; // Channel value from which a channel counts as saturated.
+    private static final int EDGE_STEP = 4 * 12; // Gradient of an edge pixel: a luminance step of 12, in binned units.
+    private static final float BRIGHT_FRACTION = 0.05f; // Share of pixels whose luminance the low-light check uses.
+
+    private final float minSharpness;
+    private final float maxClippedFraction;
+    private final int minBrightLuma;
+
+    // Working buffers, reused from photo to photo.
+    private int[] luma = new int[0];
+    private final int[] histogram = new int[256];
+
+    /**
+     * What is wrong with a photo, if anything. When several things are, the first in this order is reported, since
+     * a dark photo also looks blurry.
+     */
+    public enum Problem {
+        NONE,
+        TOO_DARK,
+        OVEREXPOSED,
+        BLURRY
+    }
+
+    /**
+     * Result of a check: the verdict and the measurements it was made from.
+     */
+    public static class Result {
+        private final Problem problem;
+        private final float sharpness;
+        private final float clippedFraction;
+        private final int brightLuma;
+
+        Result(Problem problem, float sharpness, float clippedFraction, int brightLuma) {
+            this.problem = problem;
+            this.sharpness = sharpness;
+            this.clippedFraction = clippedFraction;
+            this.brightLuma = brightLuma;
+        }
+
+        /**
+         * Returns what is wrong with the photo, or Problem.NONE.
+         */
+        public Problem getProblem() {
+            return problem;
+        }
+
+        /**
+         * Returns true if the photo is good enough to be analyzed.
+         */
+        public boolean isAcceptable() {
+            return problem == Problem.NONE;
+        }
+
+        /**
+         * Returns the variance of the Laplacian of the luminance along the edges, relative to their mean squared
+         * gradient.
+         */
+        public float getSharpness() {
+            return sharpness;
+        }
+
+        /**
+         * Returns the share of pixels with two or more saturated channels, 0 to 1.
+         */
+        public float getClippedFraction() {
+            return clippedFraction;
+        }
+
+        /**
+         * Returns the luminance, 0-255, that the brightest 5% of the pixels reach.
+         */
+        public int getBrightLuma() {
+            return brightLuma;
+        }
+    }
+
+    /**
+     * Creates a checker with the default thresholds.
+     */
+    public PhotoQualityChecker() {
+        this(DEFAULT_MIN_SHARPNESS, DEFAULT_MAX_CLIPPED_FRACTION, DEFAULT_MIN_BRIGHT_LUMA);
+    }
+
+    /**
+     * Creates a checker with custom thresholds.
+     * @param minSharpness The least relative Laplacian variance of a sharp photo; 0 turns the blur check off.
+     * @param maxClippedFraction The largest share of clipped pixels, 0 to 1; 1 turns the clipping check off.
+     * @param minBrightLuma The luminance, 0-255, the brightest 5% of the pixels must reach; 0 turns the low-light
+     *                      check off.
+     */
+    public PhotoQualityChecker(float minSharpness, float maxClippedFraction, int minBrightLuma) {
+        if (minSharpness < 0f || maxClippedFraction < 0f || maxClippedFraction > 1f
+                || minBrightLuma < 0 || minBrightLuma > 255) {
+            throw new IllegalArgumentException("Quality thresholds out of range");
+        }
+        this.minSharpness = minSharpness;
+        this.maxClippedFraction = maxClippedFraction;
+        this.minBrightLuma = minBrightLuma;
+    }
+
+    /**
+     * Checks one photo. Not thread-safe: the checker reuses its buffers.
+     * @param image The photo, at the size the classifier reads it.
+     * @return The verdict and the measurements.
+     */
+    public Result check(FaceImage image) {
+        int width = image.getWidth(), height = image.getHeight();
+        int count = width * height;
+        if (luma.length < count) {
+            luma = new int[count];
+        }
+        Arrays.fill(histogram, 0);
+        int clipped = 0;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int argb = image.getPixel(x, y);
+                // Rec. 601 luma weights in 8-bit fixed point.
+                int value = (77 * ((argb >> 16) & 0xff) + 150 * ((argb >> 8) & 0xff) + 29 * (argb & 0xff)) >> 8;
+                luma[y * width + x] = value;
+                histogram[value]++;
+                // Blown out: at least two channels saturated, so the pixel has lost its hue, not just its brightness.
+                int saturated = (((argb >> 16) & 0xff) >= CLIPPED_LEVEL ? 1 : 0) + (((argb >> 8) & 0xff) >= CLIPPED_LEVEL ? 1 : 0)
+                        + ((argb & 0xff) >= CLIPPED_LEVEL ? 1 : 0);
+                clipped += saturated >= 2 ? 1 : 0;
+            }
+        }
+
+        int brightLuma = histogram.length - 1;
+        for (int above = 0, bright = Math.max(1, Math.round(count * BRIGHT_FRACTION)); brightLuma > 0; brightLuma--) {
+            above += histogram[brightLuma];
+            if (above >= bright) {
+                break;
+            }
+        }
+
+        // The luminance binned 2x2 averages most of the sensor noise away, while a focused edge stays a step of
+        // about one pixel.
+        int binnedWidth = width / 2, binnedHeight = height / 2;
+        for (int y = 0; y < binnedHeight; y++) {
+            for (int x = 0; x < binnedWidth; x++) {
+                int i = 2 * y * width + 2 * x;
+                luma[y * binnedWidth + x] = luma[i] + luma[i + 1] + luma[i + width] + luma[i + width + 1];
+            }
+        }
+        // Mean squared 4-neighbor Laplacian against the mean squared gradient, over the edge pixels. Both grow with
+        // the contrast, their ratio only with how steep the edges are. Flat pixels are left out: there both are
+        // sensor noise, which would make a dim, blurred photo look sharp.
+        double laplacianEnergy = 0, gradientEnergy = 0;
+        for (int y = 1; y < binnedHeight - 1; y++) {
+            int row = y * binnedWidth;
+            for (int x = 1; x < binnedWidth - 1; x++) {
+                int i = row + x;
+                int left = luma[i - 1], right = luma[i + 1], top = luma[i - binnedWidth], bottom = luma[i + binnedWidth];
+                int gradientX = right - left, gradientY = bottom - top;
+                if (Math.abs(gradientX) + Math.abs(gradientY) >= EDGE_STEP) {
+                    int laplacian = left + right + top + bottom - 4 * luma[i];
+                    laplacianEnergy += (double) laplacian * laplacian;
+                    gradientEnergy += (double) gradientX * gradientX + (double) gradientY * gradientY;
+                }
+            }
+        }
+        float sharpness = gradientEnergy > 0 ? (float) (laplacianEnergy / gradientEnergy) : 0f;
+        float clippedFraction = clipped / (float) count;
+
+        Problem problem = brightLuma < minBrightLuma ? Problem.TOO_DARK
+                : clippedFraction > maxClippedFraction ? Problem.OVEREXPOSED
+                : sharpness < minSharpness ? Problem.BLURRY
+                : Problem.NONE;
+        return new Result(problem, sharpness, clippedFraction, brightLuma);
+    }
+}
@@ -0,0 +1,496 @@
+package com.example.cubesolver.vision;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import java.util.Arrays;
+
+/**
+ * StickerClassifier detects the sticker colors of a cube from six face photos without any network round-trip.
+ * <p>
+ * Each face photo shows one face, with faces in URFDLB order. The classifier
+ * <ol>
+ *   <li>locates the face in the photo with FaceLocator, so it may be off-center, small or tilted; a photo in which
+ *       no face stands out is read over its centered square,</li>
+ *   <li>averages the inner part of each of the 9 (or 4) sticker cells, in the face's rectified coordinates, and
+ *       converts the average to Lab,</li>
+ *   <li>clusters all 54 (or 24) samples into six classes with exactly one face's worth of stickers each, using an
+ *       optimal balanced assignment (Hungarian algorithm) inside a k-means loop, and</li>
+ *   <li>names the six clusters by matching their white-balanced centroids to reference sticker colors.</li>
+ * </ol>
+ * Because every class must have exactly one face's worth of members, a sticker that looks ambiguous on its own is still placed
+ * where it fits the whole cube best. On a 3x3 cube each center seeds, and is pinned to, its own class.
+ * <p>
+ * A classifier reuses its localization buffers between photos, so it is not thread-safe; use one per thread.
+ */
+public class StickerClassifier {
+
+    public static final float DEFAULT_SAMPLE_FRACTION = 0.5f; // Part of each cell that is averaged, leaving out the borders.
+
+    private static final int MAX_SAMPLES_PER_AXIS = 16; // Pixels sampled along each axis of a cell; larger cells are strided.
+    private static final int MAX_ITERATIONS = 10;
+    private static final float AMBIGUITY_RATIO = 1.25f; // A sticker is ambiguous if another class is almost as close.
+    private static final float FORBIDDEN = 1e9f;
+    private static final float MIN_SPREAD = 1f; // Smallest cluster spread, in Lab units, for turning distances into confidences.
+
+    // Typical Lab values of the six sticker colors under neutral light, in CubeColor order.
+    private static final float[] REFERENCE_LAB = {
+        95f, 0f, 2f,     // White
+        88f, -8f, 80f,   // Yellow
+        45f, 62f, 42f,   // Red
+        63f, 42f, 68f,   // Orange
+        38f, 12f, -58f,  // Blue
+        60f, -55f, 40f   // Green
+    };
+
+    private final float sampleFraction;
+    private final FaceLocator locator = new FaceLocator();
+    private final FaceQuad quad = new FaceQuad(); // Outline of the face being sampled.
+
+    /**
+     * Result of a classification.
+     */
+    public static class Result {
+        private final CubeState state;
+        private final int ambiguousStickers;
+        private final float[] confidences;
+
+        Result(CubeState state, int ambiguousStickers, float[] confidences) {
+            this.state = state;
+            this.ambiguousStickers = ambiguousStickers;
+            this.confidences = confidences;
+        }
+
+        /**
+         * Returns the detected cube.
+         */
+        public CubeState getState() {
+            return state;
+        }
+
+        /**
+         * Returns how many stickers were almost as close to a second class as to the one they were assigned to.
+         * Callers can use this to decide whether to ask the user, or another detector, for confirmation.
+         */
+        public int getAmbiguousStickers() {
+            return ambiguousStickers;
+        }
+
+        /**
+         * Returns how likely each color is for each sticker, at index sticker * 6 + color ordinal with stickers in
+         * CubeState order, the layout CubeCorrector takes. Each sticker's confidences sum to 1; they come from its
+         * distances to the six color clusters, so an ambiguous sticker splits its confidence between the close ones.
+         */
+        public float[] getConfidences() {
+            return confidences.clone();
+        }
+    }
+
+    /**
+     * Creates a classifier that averages the inner half of every sticker cell.
+     */
+    public StickerClassifier() {
+        this(DEFAULT_SAMPLE_FRACTION);
+    }
+
+    /**
+     * Creates a classifier.
+     * @param sampleFraction The fraction (0-1] of each cell's width and height that is averaged around its center.
+     */
+    public StickerClassifier(float sampleFraction) {
+        if (sampleFraction <= 0f || sampleFraction > 1f) {
+            throw new IllegalArgumentException("Sample fraction must be in (0, 1]");
+        }
+        this.sampleFraction = sampleFraction;
+    }
+
+    /**
+     * Detects the cube size and classifies every sticker.
+     * @param faces The six face images in URFDLB order.
+     * @return The classification.
+     */
+    public Result classify(FaceImage[] faces) {
+        return classify(faces, detectSize(faces));
+    }
+
+    /**
+     * Classifies every sticker of a cube of known size.
+     * @param faces The six face images in URFDLB order.
+     * @param size The cube size (2 or 3).
+     * @return The classification.
+     */
+    public Result classify(FaceImage[] faces, int size) {
+        checkFaces(faces);
+        int perFace = size * size;
+        float[] samples = new float[CubeState.FACE_COUNT * perFace * 3];
+        for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+            locateFace(faces[face]);
+            sampleFace(faces[face], quad, size, samples, face * perFace, null);
+        }
+        return classify(samples, size);
+    }
+
+    /**
+     * Classifies stickers that were already sampled, e.g. by LiveFaceScanner from camera frames.
+     * @param samples One Lab triple per sticker, in CubeState order.
+     * @param size The cube size (2 or 3).
+     * @return The classification.
+     */
+    public Result classify(float[] samples, int size) {
+        int perFace = size * size;
+        int count = CubeState.FACE_COUNT * perFace;
+        if (samples.length < count * 3) {
+            throw new IllegalArgumentException("Expected " + count + " Lab samples");
+        }
+
+        float[] centroids = new float[CubeState.FACE_COUNT * 3];
+        int center = size == 3 ? 4 : -1;
+        if (center >= 0) {
+            for (int k = 0; k < CubeState.FACE_COUNT; k++) {
+                System.arraycopy(samples, (k * perFace + center) * 3, centroids, k * 3, 3);
+            }
+        } else {
+            seedFarthestPoints(samples, count, centroids);
+        }
+
+        int[] cluster = new int[count];
+        float[][] cost = new float[count][count];
+        for (int iteration = 0; iteration < MAX_ITERATIONS; iteration++) {
+            // Column j of the cost matrix is a slot of class j / perFace, so every class receives perFace stickers.
+            for (int i = 0; i < count; i++) {
+                for (int j = 0; j < count; j++) {
+                    int k = j / perFace;
+                    boolean pinned = center >= 0 && i % perFace == center && i / perFace != k;
+                    cost[i][j] = pinned ? FORBIDDEN : LabColor.distance(samples, i * 3, centroids, k * 3);
+                }
+            }
+            int[] slot = assign(cost);
+            boolean changed = false;
+            for (int i = 0; i < count; i++) {
+                int k = slot[i] / perFace;
+                changed |= cluster[i] != k;
+                cluster[i] = k;
+            }
+            updateCentroids(samples, cluster, perFace, centroids);
+            if (!changed && iteration > 0) {
+                break;
+            }
+        }
+
+        int[] colorOfCluster = nameClusters(centroids);
+        byte[] stickers = new byte[count];
+        float[] distances = new float[count * CubeState.FACE_COUNT];
+        float spread = 0f; // Mean distance of the stickers to their own cluster.
+        int ambiguous = 0;
+        for (int i = 0; i < count; i++) {
+            stickers[i] = (byte) colorOfCluster[cluster[i]];
+            for (int k = 0; k < CubeState.FACE_COUNT; k++) {
+                distances[i * CubeState.FACE_COUNT + k] = LabColor.distance(samples, i * 3, centroids, k * 3);
+            }
+            float own = distances[i * CubeState.FACE_COUNT + cluster[i]];
+            spread += own / count;
+            for (int k = 0; k < CubeState.FACE_COUNT; k++) {
+                if (k != cluster[i] && distances[i * CubeState.FACE_COUNT + k] < own * AMBIGUITY_RATIO) {
+                    ambiguous++;
+                    break;
+                }
+            }
+        }
+        float[] confidences = toConfidences(distances, count, Math.max(MIN_SPREAD, spread), colorOfCluster);
+        return new Result(CubeState.of(size, stickers), ambiguous, confidences);
+    }
+
+    /**
+     * Turns the distances of each sticker to the six clusters into color confidences: a Gaussian of the distance,
+     * with the clusters' spread as its width, normalized over the clusters. A sticker that is far from every cluster
+     * gets a wider Gaussian, so its confidence is spread more evenly.
+     * @param distances The distance of sticker i to cluster k at i * 6 + k.
+     * @param count The number of stickers.
+     * @param spread The typical distance of a sticker to its own cluster.
+     * @param colorOfCluster The color ordinal of each cluster.
+     * @return The confidences, at index sticker * 6 + color ordinal.
+     */
+    private static float[] toConfidences(float[] distances, int count, float spread, int[] colorOfCluster) {
+        int clusters = CubeState.FACE_COUNT;
+        float[] confidences = new float[count * CubeColor.COUNT];
+        double[] weights = new double[clusters];
+        for (int i = 0; i < count; i++) {
+            float nearest = Float.MAX_VALUE;
+            for (int k = 0; k < clusters; k++) {
+                nearest = Math.min(nearest, distances[i * clusters + k]);
+            }
+            float width = Math.max(spread, nearest);
+            double sum = 0;
+            for (int k = 0; k < clusters; k++) {
+                // Relative to the nearest cluster, so the weights cannot all underflow.
+                float d = distances[i * clusters + k] / width, d0 = nearest / width;
+                weights[k] = Math.exp(-0.5 * (d * d - d0 * d0));
+                sum += weights[k];
+            }
+            for (int k = 0; k < clusters; k++) {
+                confidences[i * CubeColor.COUNT + colorOfCluster[k]] = (float) (weights[k] / sum);
+            }
+        }
+        return confidences;
+    }
+
+    /**
+     * Decides between 2x2 and 3x3 by sampling both grids: with the wrong grid some cells straddle two stickers or the
+     * gap between them, so their pixels vary much more than those of cells that lie inside a single sticker.
+     * @param faces The six face images.
+     * @return 2 or 3; 3 if both grids fit equally well.
+     */
+    public int detectSize(FaceImage[] faces) {
+        checkFaces(faces);
+        float[] scratch = new float[9 * 3];
+        float[] spread2 = new float[4];
+        float[] spread3 = new float[9];
+        float total2 = 0f, total3 = 0f;
+        for (FaceImage face : faces) {
+            locateFace(face);
+            sampleFace(face, quad, 2, scratch, 0, spread2);
+            sampleFace(face, quad, 3, scratch, 0, spread3);
+            for (float s : spread2) total2 += s / 4f;
+            for (float s : spread3) total3 += s / 9f;
+        }
+        return total2 < total3 ? 2 : 3;
+    }
+
+    /**
+     * Finds the face in a photo and stores its outline in quad. A photo in which no face stands out is taken to show
+     * the face filling its centered square.
+     * @param face The face image.
+     */
+    private void locateFace(FaceImage face) {
+        if (!locator.locate(face, quad)) {
+            int side = Math.min(face.getWidth(), face.getHeight());
+            quad.setSquare((face.getWidth() - side) / 2f - 0.5f, (face.getHeight() - side) / 2f - 0.5f, side);
+        }
+    }
+
+    /**
+     * Averages the inner part of each cell of a size x size grid laid over the located face. The cells are laid out
+     * in rectified coordinates and every sample point is mapped into the photo through the face's homography.
+     * @param face The face image.
+     * @param quad The outline of the face in the image.
+     * @param size The grid size.
+     * @param lab Receives one Lab triple per cell, row by row, starting at cell index first.
+     * @param first The index of the face's first cell in lab.
+     * @param spread If not null, receives the per-cell standard deviation of the sRGB values.
+     */
+    void sampleFace(FaceImage face, FaceQuad quad, int size, float[] lab, int first, float[] spread) {
+        // The typical cell side in pixels decides how many pixels are worth averaging.
+        float cell = (float) Math.sqrt(quad.getArea()) / size;
+        int pixels = Math.max(1, Math.min(MAX_SAMPLES_PER_AXIS, Math.round(cell * sampleFraction)));
+        float half = sampleFraction / 2f; // Half the sampled part of a cell, in cells.
+        float step = pixels > 1 ? 2 * half / (pixels - 1) : 0f;
+
+        for (int row = 0; row < size; row++) {
+            for (int col = 0; col < size; col++) {
+                float startU = col + 0.5f - (pixels > 1 ? half : 0f);
+                float startV = row + 0.5f - (pixels > 1 ? half : 0f);
+                float r = 0f, g = 0f, b = 0f;
+                double sum = 0, sumSquares = 0;
+                for (int sy = 0; sy < pixels; sy++) {
+                    float v = (startV + sy * step) / size;
+                    for (int sx = 0; sx < pixels; sx++) {
+                        float u = (startU + sx * step) / size;
+                        int x = clamp(Math.round(quad.mapX(u, v)), face.getWidth());
+                        int y = clamp(Math.round(quad.mapY(u, v)), face.getHeight());
+                        int argb = face.getPixel(x, y);
+                        int r8 = (argb >> 16) & 0xff, g8 = (argb >> 8) & 0xff, b8 = argb & 0xff;
+                        // Average in linear light, so a half-lit sticker averages like the camera sensor saw it.
+                        r += LabColor.toLinear(r8);
+                        g += LabColor.toLinear(g8);
+                        b += LabColor.toLinear(b8);
+                        sum += r8 + g8 + b8;
+                        sumSquares += r8 * r8 + g8 * g8 + b8 * b8;
+                    }
+                }
+                int n = pixels * pixels;
+                int index = row * size + col;
+                LabColor.fromLinear(r / n, g / n, b / n, lab, (first + index) * 3);
+                if (spread != null) {
+                    double mean = sum / (3.0 * n);
+                    spread[index] = (float) Math.sqrt(Math.max(0, sumSquares / (3.0 * n) - mean * mean));
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the reference color nearest to a Lab sample, without any white balance. Good enough to tell whether
+     * a sticker keeps its color from one camera frame to the next; the final colors come from classify.
+     * @param lab The array holding the sample.
+     * @param offset The index of its L component.
+     * @return The CubeColor ordinal.
+     */
+    static int nearestColor(float[] lab, int offset) {
+        int best = 0;
+        float bestDistance = Float.MAX_VALUE;
+        for (int color = 0; color < CubeColor.COUNT; color++) {
+            float distance = LabColor.distance(lab, offset, REFERENCE_LAB, color * 3);
+            if (distance < bestDistance) {
+                bestDistance = distance;
+                best = color;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Picks six well separated starting centroids for a 2x2 cube: the brightest sample, then repeatedly the sample
+     * farthest from all centroids chosen so far.
+     */
+    private static void seedFarthestPoints(float[] samples, int count, float[] centroids) {
+        int first = 0;
+        for (int i = 1; i < count; i++) {
+            if (samples[i * 3] > samples[first * 3]) first = i;
+        }
+        System.arraycopy(samples, first * 3, centroids, 0, 3);
+        for (int k = 1; k < CubeState.FACE_COUNT; k++) {
+            int best = 0;
+            float bestDistance = -1f;
+            for (int i = 0; i < count; i++) {
+                float nearest = Float.MAX_VALUE;
+                for (int c = 0; c < k; c++) {
+                    nearest = Math.min(nearest, LabColor.distance(samples, i * 3, centroids, c * 3));
+                }
+                if (nearest > bestDistance) {
+                    bestDistance = nearest;
+                    best = i;
+                }
+            }
+            System.arraycopy(samples, best * 3, centroids, k * 3, 3);
+        }
+    }
+
+    private static void updateCentroids(float[] samples, int[] cluster, int perFace, float[] centroids) {
+        Arrays.fill(centroids, 0f);
+        for (int i = 0; i < cluster.length; i++) {
+            for (int c = 0; c < 3; c++) {
+                centroids[cluster[i] * 3 + c] += samples[i * 3 + c] / perFace;
+            }
+        }
+    }
+
+    /**
+     * Names the clusters. The least saturated centroid is taken to be white and its a/b offset is subtracted from
+     * every centroid, which removes most of a color cast from the lighting. Then all 720 ways of giving the six
+     * clusters the six colors are tried and the one closest to the reference colors wins.
+     * @return The CubeColor ordinal of each cluster.
+     */
+    static int[] nameClusters(float[] centroids) {
+        int white = 0;
+        float minChroma = Float.MAX_VALUE;
+        for (int k = 0; k < CubeState.FACE_COUNT; k++) {
+            float chroma = (float) Math.hypot(centroids[k * 3 + 1], centroids[k * 3 + 2]);
+            if (chroma < minChroma) {
+                minChroma = chroma;
+                white = k;
+            }
+        }
+        float[] balanced = centroids.clone();
+        for (int k = 0; k < CubeState.FACE_COUNT; k++) {
+            balanced[k * 3 + 1] -= centroids[white * 3 + 1];
+            balanced[k * 3 + 2] -= centroids[white * 3 + 2];
+        }
+
+        float[][] distance = new float[CubeState.FACE_COUNT][CubeColor.COUNT];
+        for (int k = 0; k < CubeState.FACE_COUNT; k++) {
+            for (int color = 0; color < CubeColor.COUNT; color++) {
+                distance[k][color] = LabColor.distance(balanced, k * 3, REFERENCE_LAB, color * 3);
+            }
+        }
+        int[] best = new int[CubeState.FACE_COUNT];
+        int[] current = new int[CubeState.FACE_COUNT];
+        float[] bestCost = {Float.MAX_VALUE};
+        permute(distance, current, 0, 0, 0f, best, bestCost);
+        return best;
+    }
+
+    private static void permute(float[][] distance, int[] current, int k, int usedColors, float cost,
+                                int[] best, float[] bestCost) {
+        if (cost >= bestCost[0]) {
+            return;
+        }
+        if (k == current.length) {
+            bestCost[0] = cost;
+            System.arraycopy(current, 0, best, 0, current.length);
+            return;
+        }
+        for (int color = 0; color < CubeColor.COUNT; color++) {
+            if ((usedColors & (1 << color)) == 0) {
+                current[k] = color;
+                permute(distance, current, k + 1, usedColors | (1 << color), cost + distance[k][color], best, bestCost);
+            }
+        }
+    }
+
+    /**
+     * Solves the square assignment problem with the Hungarian algorithm in O(n^3).
+     * @param cost The n x n cost matrix.
+     * @return For each row, the column it is assigned to, minimizing the total cost.
+     */
+    static int[] assign(float[][] cost) {
+        int n = cost.length;
+        double[] u = new double[n + 1];
+        double[] v = new double[n + 1];
+        int[] p = new int[n + 1]; // p[j] is the row assigned to column j (1-based, 0 = none).
+        int[] way = new int[n + 1];
+        double[] minv = new double[n + 1];
+        boolean[] used = new boolean[n + 1];
+        for (int i = 1; i <= n; i++) {
+            p[0] = i;
+            int j0 = 0;
+            Arrays.fill(minv, Double.MAX_VALUE);
+            Arrays.fill(used, false);
+            do {
+                used[j0] = true;
+                int i0 = p[j0], j1 = 0;
+                double delta = Double.MAX_VALUE;
+                for (int j = 1; j <= n; j++) {
+                    if (used[j]) continue;
+                    double cur = cost[i0 - 1][j - 1] - u[i0] - v[j];
+                    if (cur < minv[j]) {
+                        minv[j] = cur;
+                        way[j] = j0;
+                    }
+                    if (minv[j] < delta) {
+                        delta = minv[j];
+                        j1 = j;
+                    }
+                }
+                for (int j = 0; j <= n; j++) {
+                    if (used[j]) {
+                        u[p[j]] += delta;
+                        v[j] -= delta;
+                    } else {
+                        minv[j] -= delta;
+                    }
+                }
+                j0 = j1;
+            } while (p[j0] != 0);
+            do {
+                int j1 = way[j0];
+                p[j0] = p[j1];
+                j0 = j1;
+            } while (j0 != 0);
+        }
+        int[] assignment = new int[n];
+        for (int j = 1; j <= n; j++) {
+            assignment[p[j] - 1] = j - 1;
+        }
+        return assignment;
+    }
+
+    private static void checkFaces(FaceImage[] faces) {
+        if (faces == null || faces.length != CubeState.FACE_COUNT) {
+            throw new IllegalArgumentException("Expected " + CubeState.FACE_COUNT + " face images");
+        }
+    }
+
+    private static int clamp(int value, int limit) {
+        return value < 0 ? 0 : (value >= limit ? limit - 1 : value);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.cubesolver.vision;
+
+/**
+ * YuvFrame is one camera frame in YUV 4:2:0, the layout of an ImageReader or CameraX YUV_420_888 image:
+ * a full-resolution luma (Y) plane and two chroma (U, V) planes at half resolution in both directions.
+ * The planes are plain byte arrays, so frames can be analyzed, and recorded frames replayed in tests, on the JVM.
+ * A frame is mutable and meant to be reused: set() points it at the next frame's planes without copying.
+ */
+public final class YuvFrame {
+
+    private byte[] y;
+    private byte[] u;
+    private byte[] v;
+    private int width;
+    private int height;
+    private int yRowStride; // Bytes from one luma row to the next.
+    private int uvRowStride; // Bytes from one chroma row to the next, in both chroma planes.
+    private int uvPixelStride; // Bytes from one chroma sample to the next: 1 for I420, 2 for NV12/NV21.
+    private int uOffset; // Index of the first U sample in u.
+    private int vOffset; // Index of the first V sample in v.
+
+    /**
+     * Points the frame at new planes. The arrays are not copied.
+     * @param y The luma plane.
+     * @param yRowStride The bytes per luma row.
+     * @param u The plane holding the U samples.
+     * @param uOffset The index of the first U sample in u.
+     * @param v The plane holding the V samples; may be the same array as u for interleaved chroma.
+     * @param vOffset The index of the first V sample in v.
+     * @param uvRowStride The bytes per chroma row.
+     * @param uvPixelStride The bytes between neighboring chroma samples of a row.
+     * @param width The frame width in pixels.
+     * @param height The frame height in pixels.
+     * @return This frame.
+     * @throws IllegalArgumentException If a plane is too small for the given size and strides.
+     */
+    public YuvFrame set(byte[] y, int yRowStride, byte[] u, int uOffset, byte[] v, int vOffset,
+                        int uvRowStride, int uvPixelStride, int width, int height) {
+        int chromaWidth = (width + 1) / 2;
+        int chromaHeight = (height + 1) / 2;
+        int lastChroma = (chromaHeight - 1) * uvRowStride + (chromaWidth - 1) * uvPixelStride;
+        if (width <= 0 || height <= 0 || yRowStride < width || uvPixelStride < 1
+                || y.length < (height - 1) * yRowStride + width
+                || u.length <= uOffset + lastChroma || v.length <= vOffset + lastChroma) {
+            throw new IllegalArgumentException("Planes do not match a " + width + "x" + height + " frame");
+        }
+        this.y = y;
+        this.u = u;
+        this.v = v;
+        this.uOffset = uOffset;
+        this.vOffset = vOffset;
+        this.yRowStride = yRowStride;
+        this.uvRowStride = uvRowStride;
+        this.uvPixelStride = uvPixelStride;
+        this.width = width;
+        this.height = height;
+        return this;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Returns the luma of one pixel.
+     * @param px The column.
+     * @param py The row.
+     * @return Y, 0-255.
+     */
+    public int getY(int px, int py) {
+        return y[py * yRowStride + px] & 0xff;
+    }
+
+    /**
+     * Returns the U (blue difference) sample covering one pixel.
+     * @param px The column.
+     * @param py The row.
+     * @return U, 0-255 with 128 for no color.
+     */
+    public int getU(int px, int py) {
+        return u[uOffset + (py >> 1) * uvRowStride + (px >> 1) * uvPixelStride] & 0xff;
+    }
+
+    /**
+     * Returns the V (red difference) sample covering one pixel.
+     * @param px The column.
+     * @param py The row.
+     * @return V, 0-255 with 128 for no color.
+     */
+    public int getV(int px, int py) {
+        return v[vOffset + (py >> 1) * uvRowStride + (px >> 1) * uvPixelStride] & 0xff;
+    }
+}
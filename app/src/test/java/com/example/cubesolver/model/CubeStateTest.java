@@ -0,0 +1,123 @@
+package com.example.cubesolver.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the CubeState model and its conversions.
+ */
+public class CubeStateTest {
+
+    // The python kociemba example state, used to check that facelets are derived from the centers.
+    private static final String FACELETS = "DRLUUBFBRBLURRLRUBLRDDFDLFUFUFFDBRDUBRUFLLFDDBFLUBLRBD";
+    // Colors of the U, R, F, D, L and B centers in the standard Western color scheme.
+    private static final CubeColor[] SCHEME = {
+        CubeColor.WHITE, CubeColor.RED, CubeColor.GREEN, CubeColor.YELLOW, CubeColor.ORANGE, CubeColor.BLUE
+    };
+
+    @Test
+    public void parseFaces_readsColorNamesInOrder() {
+        CubeState state = CubeState.parseFaces(3, matrices(FACELETS));
+        assertEquals(54, state.getStickerCount());
+        assertEquals(CubeColor.YELLOW, state.getColor(0, 0, 0)); // 'D' on the U face.
+        assertEquals(CubeColor.WHITE, state.getCenter(0));
+        assertEquals(CubeColor.BLUE, state.getCenter(5));
+    }
+
+    @Test
+    public void parseFaces_ignoresCaseAndPartialWordsAndDefaultsToWhite() {
+        List<String> faces = new ArrayList<>();
+        faces.add("Face #1:\n\nred BLUE Reddish\nGreen");
+        for (int i = 1; i < 6; i++) {
+            faces.add("Face #" + (i + 1) + ":\n\nCould not parse matrix data.");
+        }
+        CubeState state = CubeState.parseFaces(3, faces);
+        assertEquals(CubeColor.RED, state.getColor(0, 0, 0));
+        assertEquals(CubeColor.BLUE, state.getColor(0, 0, 1));
+        assertEquals(CubeColor.GREEN, state.getColor(0, 0, 2));
+        assertEquals(CubeColor.WHITE, state.getColor(0, 1, 0));
+        assertEquals(CubeColor.WHITE, state.getColor(5, 2, 2));
+    }
+
+    @Test
+    public void faceletString_isDerivedFromCenters() {
+        assertEquals(FACELETS, CubeState.parseFaces(3, matrices(FACELETS)).toFaceletString());
+        assertEquals("UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB",
+                CubeState.solved(3, SCHEME).toSolverString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void faceletString_rejectsDuplicateCenters() {
+        CubeState.solved(3, SCHEME).withColor(1, 1, 1, CubeColor.WHITE).toFaceletString();
+    }
+
+    @Test
+    public void pocketString_readsFacesClockwiseInFrbludOrder() {
+        byte[] stickers = new byte[24];
+        for (int face = 0; face < 6; face++) {
+            Arrays.fill(stickers, face * 4, face * 4 + 4, (byte) SCHEME[face].ordinal());
+        }
+        // Mark the bottom-left sticker of F, which is read fourth.
+        stickers[2 * 4 + 2] = (byte) CubeColor.YELLOW.ordinal();
+        assertEquals("GGGYRRRRBBBBOOOOWWWWYYYY", CubeState.of(2, stickers).toPocketString());
+    }
+
+    @Test
+    public void json_roundTrips() throws IOException {
+        CubeState state = CubeState.parseFaces(3, matrices(FACELETS));
+        String json = state.toJson();
+        assertTrue(json, json.startsWith("{\"U\":[[\"Yellow\",\"Red\",\"Orange\"],"));
+        assertEquals(state, CubeState.fromJson(3, json));
+
+        CubeState pocket = CubeState.solved(2, SCHEME).withColor(4, 1, 0, CubeColor.RED);
+        assertEquals(pocket, CubeState.fromJson(2, pocket.toJson()));
+    }
+
+    @Test(expected = IOException.class)
+    public void fromJson_rejectsMissingFace() throws IOException {
+        String json = CubeState.solved(2, SCHEME).toJson();
+        CubeState.fromJson(2, json.substring(0, json.indexOf(",\"B\"")) + "}");
+    }
+
+    @Test
+    public void withColor_leavesOriginalUnchanged() {
+        CubeState solved = CubeState.solved(3, SCHEME);
+        CubeState edited = solved.withColor(2, 0, 0, CubeColor.RED);
+        assertEquals(CubeColor.GREEN, solved.getColor(2, 0, 0));
+        assertEquals(CubeColor.RED, edited.getColor(2, 0, 0));
+        assertSame(solved, solved.withColor(2, 0, 0, CubeColor.GREEN));
+    }
+
+    @Test
+    public void matrixString_parsesBack() {
+        CubeState state = CubeState.parseFaces(3, matrices(FACELETS));
+        List<String> texts = new ArrayList<>();
+        for (int face = 0; face < 6; face++) {
+            texts.add(state.toMatrixString(face));
+        }
+        assertTrue(texts.get(0), texts.get(0).startsWith("Face #1:\n\nYellow Red Orange \n"));
+        assertEquals(state, CubeState.parseFaces(3, texts));
+    }
+
+    /**
+     * Builds "Face #n:" matrix texts from a facelet string, coloring each facelet with SCHEME.
+     */
+    private static List<String> matrices(String facelets) {
+        List<String> faces = new ArrayList<>();
+        for (int face = 0; face < 6; face++) {
+            StringBuilder text = new StringBuilder("Face #" + (face + 1) + ":\n\n");
+            for (int i = 0; i < 9; i++) {
+                char letter = facelets.charAt(face * 9 + i);
+                text.append(SCHEME[CubeState.FACES.indexOf(letter)].getDisplayName()).append(i % 3 == 2 ? "\n" : " ");
+            }
+            faces.add(text.toString());
+        }
+        return faces;
+    }
+}
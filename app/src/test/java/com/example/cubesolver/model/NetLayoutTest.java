@@ -0,0 +1,76 @@
+package com.example.cubesolver.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the placement and hit-testing of stickers in the unfolded net.
+ */
+public class NetLayoutTest {
+
+    @Test
+    public void net_hasFourFacesAcrossAndThreeDown() {
+        NetLayout layout = NetLayout.net(3, 10f, 2f);
+        assertEquals(4 * 30 + 3 * 2, layout.getWidth(), 0f);
+        assertEquals(3 * 30 + 2 * 2, layout.getHeight(), 0f);
+        assertEquals(0, layout.getFirstSticker());
+        assertEquals(54, layout.getEndSticker());
+    }
+
+    @Test
+    public void net_placesFacesAroundFront() {
+        NetLayout layout = NetLayout.net(3, 10f, 2f);
+        // U top-left sticker sits above F, R right of F, L left of F, B at the far right, D below F.
+        assertEquals(32f, layout.getLeft(0), 0f);
+        assertEquals(0f, layout.getTop(0), 0f);
+        assertEquals(64f, layout.getLeft(9), 0f);
+        assertEquals(32f, layout.getTop(9), 0f);
+        assertEquals(32f, layout.getLeft(18), 0f);
+        assertEquals(32f, layout.getTop(18), 0f);
+        assertEquals(64f, layout.getTop(27), 0f);
+        assertEquals(0f, layout.getLeft(36), 0f);
+        assertEquals(96f, layout.getLeft(45), 0f);
+        // The last sticker of B, row 2 column 2.
+        assertEquals(116f, layout.getLeft(53), 0f);
+        assertEquals(52f, layout.getTop(53), 0f);
+    }
+
+    @Test
+    public void stickerAt_findsEveryStickerFromItsCell() {
+        for (int size = 2; size <= 3; size++) {
+            NetLayout layout = NetLayout.net(size, 24f, 3f);
+            for (int sticker = 0; sticker < layout.getEndSticker(); sticker++) {
+                float x = layout.getLeft(sticker);
+                float y = layout.getTop(sticker);
+                assertEquals(sticker, layout.stickerAt(x, y));
+                assertEquals(sticker, layout.stickerAt(x + 23.9f, y + 23.9f));
+            }
+        }
+    }
+
+    @Test
+    public void stickerAt_missesGapsEmptyCellsAndOutside() {
+        NetLayout layout = NetLayout.net(3, 10f, 2f);
+        assertEquals(-1, layout.stickerAt(5f, 5f)); // Left of U, an empty cell.
+        assertEquals(-1, layout.stickerAt(31f, 40f)); // Between L and F.
+        assertEquals(-1, layout.stickerAt(40f, 31f)); // Between U and F.
+        assertEquals(-1, layout.stickerAt(100f, 80f)); // Right of D, an empty cell.
+        assertEquals(-1, layout.stickerAt(-1f, 40f));
+        assertEquals(-1, layout.stickerAt(40f, layout.getHeight()));
+    }
+
+    @Test
+    public void singleFace_coversOnlyItsStickers() {
+        NetLayout layout = NetLayout.singleFace(2, 4, 50f);
+        assertEquals(100f, layout.getWidth(), 0f);
+        assertEquals(16, layout.getFirstSticker());
+        assertEquals(20, layout.getEndSticker());
+        assertTrue(layout.contains(19));
+        assertFalse(layout.contains(20));
+        assertEquals(50f, layout.getLeft(17), 0f);
+        assertEquals(50f, layout.getTop(18), 0f);
+        assertEquals(19, layout.stickerAt(99.9f, 99.9f));
+        assertEquals(-1, layout.stickerAt(100f, 10f));
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.cubesolver.net;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the shared HTTP client, against a stub server on the loopback interface that counts the
+ * connections it accepts. Each new client port is one TCP (and, over HTTPS, one TLS) handshake.
+ */
+public class ApiClientTest {
+
+    private HttpServer server;
+    private String baseUrl;
+    private final Set<Integer> clientPorts = Collections.synchronizedSet(new HashSet<>());
+    private volatile int lastWireLength; // Size of the last request body as sent, before inflating.
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/echo", exchange -> {
+            byte[] wire = readAll(exchange.getRequestBody());
+            lastWireLength = wire.length;
+            byte[] body = "gzip".equals(exchange.getRequestHeaders().getFirst("Content-Encoding"))
+                    ? readAll(new GZIPInputStream(new ByteArrayInputStream(wire))) : wire;
+            respond(exchange, 200, body);
+        });
+        server.createContext("/fail", exchange -> {
+            readAll(exchange.getRequestBody());
+            respond(exchange, 500, "{\"error\":\"overloaded\"}".getBytes(StandardCharsets.UTF_8));
+        });
+        server.createContext("/ping", exchange -> respond(exchange, 200, "ok".getBytes(StandardCharsets.UTF_8)));
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void requests_shareOneConnection() throws IOException {
+        ApiClient client = new ApiClient();
+        for (int i = 0; i < 5; i++) {
+            String text = "request " + i;
+            ApiClient.Response response = client.post(baseUrl + "/echo", "text/plain", false,
+                    out -> out.write(text.getBytes(StandardCharsets.UTF_8)));
+            assertTrue(response.isSuccessful());
+            assertEquals(text, response.getBody());
+        }
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void everyKindOfRequest_keepsTheConnection() throws IOException {
+        // GETs, POSTs, error responses and bodies a reader leaves half read all hand the connection back.
+        ApiClient client = new ApiClient();
+        assertTrue(client.get(baseUrl + "/ping").isSuccessful());
+        client.post(baseUrl + "/echo", "text/plain", true, out -> out.write("some text".getBytes(StandardCharsets.UTF_8)),
+                in -> assertEquals('s', in.read()));
+        assertFalse(client.post(baseUrl + "/fail", "text/plain", false, out -> out.write('x')).isSuccessful());
+        assertEquals("ok", client.get(baseUrl + "/ping").getBody());
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void warmUp_opensTheConnectionTheRequestUses() throws IOException {
+        ApiClient client = new ApiClient();
+        assertTrue(client.warmUp(baseUrl + "/ping"));
+        assertEquals(1, clientPorts.size());
+        client.post(baseUrl + "/echo", "text/plain", false, out -> out.write('x'));
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void errorResponse_isReadAndTheConnectionKept() throws IOException {
+        ApiClient client = new ApiClient();
+        ApiClient.Response response = client.post(baseUrl + "/fail", "application/json", false, out -> out.write('x'));
+        assertEquals(500, response.getStatusCode());
+        assertFalse(response.isSuccessful());
+        assertEquals("{\"error\":\"overloaded\"}", response.getBody());
+        assertTrue(client.get(baseUrl + "/ping").isSuccessful());
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void gzippedRequest_isSmallerOnTheWireAndRoundTrips() throws IOException {
+        // A Gemini-like body: Base64 of incompressible JPEG data, which gzip brings back toward the binary size.
+        byte[][] images = new byte[6][30_000];
+        Random random = new Random(11);
+        for (byte[] image : images) {
+            random.nextBytes(image);
+        }
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        GeminiRequestWriter.write(expected, "prompt", images.length, index -> images[index]);
+
+        ApiClient client = new ApiClient();
+        ApiClient.Response response = client.post(baseUrl + "/echo", "application/json", true,
+                out -> GeminiRequestWriter.write(out, "prompt", images.length, index -> images[index]));
+        assertEquals(expected.toString("UTF-8"), response.getBody()); // Echoed back gzipped, inflated by the client.
+        assertTrue("Sent " + lastWireLength + " of " + expected.size() + " bytes",
+                lastWireLength < expected.size() * 0.8);
+
+        client.post(baseUrl + "/echo", "application/json", true, out -> out.write('x'));
+        assertEquals(1, clientPorts.size());
+    }
+
+    @Test
+    public void warmUp_ofAnUnreachableHost_returnsFalse() throws IOException {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            port = socket.getLocalPort();
+        }
+        assertFalse(new ApiClient(2000, 2000, ApiClient.DEFAULT_CHUNK_SIZE).warmUp("http://127.0.0.1:" + port + "/"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroChunkSize_isRejected() {
+        new ApiClient(1000, 1000, 0);
+    }
+
+    /**
+     * Records the client's connection and sends a body, gzipped if the client accepts that.
+     */
+    private void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        clientPorts.add(exchange.getRemoteAddress().getPort());
+        String accept = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        if (accept != null && accept.contains("gzip")) {
+            ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (GZIPOutputStream gzip = new GZIPOutputStream(gzipped)) {
+                gzip.write(body);
+            }
+            body = gzipped.toByteArray();
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+        }
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (int n; (n = in.read(buffer)) != -1; ) {
+            out.write(buffer, 0, n);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cubesolver.net;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.apache.commons.codec.binary.Base64;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the streaming Gemini request writer.
+ */
+public class GeminiRequestWriterTest {
+
+    private static byte[][] randomImages(int count, int size) {
+        Random random = new Random(7);
+        byte[][] images = new byte[count][size + count];
+        for (byte[] image : images) {
+            random.nextBytes(image);
+        }
+        return images;
+    }
+
+    @Test
+    public void request_hasPromptAndImagesInOrder() throws IOException {
+        byte[][] images = randomImages(6, 40_000);
+        String prompt = "Six faces, \"quoted\" and\nmulti-line";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GeminiRequestWriter.write(out, prompt, images.length, index -> images[index]);
+
+        JsonNode parts = new ObjectMapper().readTree(out.toByteArray()).get("contents").get(0).get("parts");
+        assertEquals(7, parts.size());
+        assertEquals(prompt, parts.get(0).get("text").asText());
+        for (int i = 0; i < images.length; i++) {
+            JsonNode inlineData = parts.get(i + 1).get("inline_data");
+            assertEquals("image/jpeg", inlineData.get("mime_type").asText());
+            String data = inlineData.get("data").asText();
+            assertFalse(data.contains("\n"));
+            assertArrayEquals(images[i], Base64.decodeBase64(data));
+        }
+    }
+
+    @Test
+    public void eachImage_isWrittenBeforeTheNextIsRequested() throws IOException {
+        byte[][] images = randomImages(6, 100_000);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long[] writtenBefore = new long[images.length];
+        GeminiRequestWriter.write(out, "prompt", images.length, index -> {
+            writtenBefore[index] = out.size();
+            return images[index];
+        });
+        for (int i = 1; i < images.length; i++) {
+            // Everything up to the previous image has reached the stream, not just the writer's buffer.
+            long previousBase64 = (images[i - 1].length + 2) / 3 * 4;
+            assertTrue(writtenBefore[i] - writtenBefore[i - 1] >= previousBase64);
+        }
+    }
+
+    @Test
+    public void missingImage_abandonsTheRequest() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            GeminiRequestWriter.write(out, "prompt", 6, index -> {
+                if (index == 2) {
+                    throw new IOException("Face 3 failed");
+                }
+                return new byte[100];
+            });
+            fail("Expected the failure of image 2");
+        } catch (IOException e) {
+            assertEquals("Face 3 failed", e.getMessage());
+        }
+    }
+}
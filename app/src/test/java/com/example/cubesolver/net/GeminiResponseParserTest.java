@@ -0,0 +1,85 @@
+package com.example.cubesolver.net;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.junit.Test;
+
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the Gemini response parser.
+ */
+public class GeminiResponseParserTest {
+
+    /**
+     * Wraps a model answer in a generateContent response envelope.
+     */
+    static String envelope(String text) {
+        ObjectMapper mapper = new ObjectMapper();
+        ObjectNode response = mapper.createObjectNode();
+        response.putArray("candidates").addObject().putObject("content").putArray("parts").addObject().put("text", text);
+        return response.toString();
+    }
+
+    /**
+     * Returns an answer in the format the prompt asks for, with every sticker of face n named colors[n].
+     */
+    static String answer(String cubeSize, int size, String... colors) {
+        StringBuilder json = new StringBuilder("{\"cube_size\": \"" + cubeSize + "\", \"faces\": [");
+        for (int face = 0; face < colors.length; face++) {
+            json.append(face > 0 ? ", " : "").append("{\"face_number\": ").append(face + 1).append(", \"matrix\": [");
+            for (int row = 0; row < size; row++) {
+                json.append(row > 0 ? ", " : "").append('[');
+                for (int col = 0; col < size; col++) {
+                    json.append(col > 0 ? ", " : "").append('"').append(colors[face]).append('"');
+                }
+                json.append(']');
+            }
+            json.append("]}");
+        }
+        return json.append("]}").toString();
+    }
+
+    @Test
+    public void jsonAnswer_isParsedIntoMatrices() throws IOException {
+        String text = "```json\n" + answer("3x3", 3, "White", "Red", "Green", "Yellow", "Orange", "Blue") + "\n```";
+        GeminiResponseParser.Result result = GeminiResponseParser.parse(envelope(text));
+        assertEquals(3, result.getCubeSize());
+        assertEquals(6, result.getMatrices().size());
+        assertEquals("Face #1:\n\nWhite White White \nWhite White White \nWhite White White \n", result.getMatrices().get(0));
+        assertTrue(result.getMatrices().get(5).startsWith("Face #6:\n\nBlue Blue Blue "));
+    }
+
+    @Test
+    public void twoByTwoMatrices_overrideTheStatedSize() throws IOException {
+        String text = answer("3x3", 2, "White", "Red", "Green", "Yellow", "Orange", "Blue");
+        GeminiResponseParser.Result result = GeminiResponseParser.parse(envelope(text));
+        assertEquals(2, result.getCubeSize());
+        assertEquals("Face #4:\n\nYellow Yellow \nYellow Yellow \n", result.getMatrices().get(3));
+    }
+
+    @Test
+    public void lenientJson_isAccepted() throws IOException {
+        String text = answer("3x3", 3, "White", "Red", "Green", "Yellow", "Orange", "Blue")
+                .replace("\"faces\": [", "// Faces in URFDLB order\n'faces': [");
+        GeminiResponseParser.Result result = GeminiResponseParser.parse(envelope(text));
+        assertTrue(result.getMatrices().get(2).contains("Green"));
+    }
+
+    @Test
+    public void missingFace_fallsBackToRawFragments() throws IOException {
+        String text = answer("2x2", 2, "White", "Red", "Green", "Yellow", "Orange") + "\nFace #6: blue everywhere";
+        GeminiResponseParser.Result result = GeminiResponseParser.parse(envelope(text));
+        assertEquals(2, result.getCubeSize());
+        assertEquals("Face #6:\n\nRaw response fragment:\n6: blue everywhere\n", result.getMatrices().get(5));
+        assertEquals("Face #1:\n\nCould not parse matrix data.", result.getMatrices().get(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void malformedEnvelope_isRejected() throws IOException {
+        GeminiResponseParser.parse("<html>502 Bad Gateway</html>");
+    }
+}
@@ -0,0 +1,183 @@
+package com.example.cubesolver.net;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the streamed Gemini response reader. A stand-in server replays a recorded answer the way
+ * streamGenerateContent?alt=sse sends it: small GenerateContentResponse events over a chunked response, with a
+ * pause before each.
+ */
+public class GeminiStreamReaderTest {
+
+    // A 3x3 answer as the model writes it, code fence included.
+    private static final String ANSWER_3X3 = "```json\n{\n  \"cube_size\": \"3x3\",\n  \"faces\": [\n"
+            + face(1, "White", 3) + ",\n" + face(2, "Red", 3) + ",\n" + face(3, "Green", 3) + ",\n"
+            + face(4, "Yellow", 3) + ",\n" + face(5, "Orange", 3) + ",\n" + face(6, "Blue", 3) + "\n  ]\n}\n```";
+    private static final int CHUNK_LENGTH = 40; // Characters of answer per event, about what the API sends.
+    private static final int CHUNK_DELAY_MILLIS = 15;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private HttpServer server;
+    private volatile List<String> replayedEvents;
+    private volatile int sentEvents; // Events the server has written so far.
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/stream", exchange -> {
+            try (InputStream in = exchange.getRequestBody()) {
+                while (in.read() != -1) {
+                    // The request does not matter.
+                }
+            }
+            exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+            exchange.sendResponseHeaders(200, 0); // Chunked.
+            try (OutputStream out = exchange.getResponseBody()) {
+                for (String event : replayedEvents) {
+                    try {
+                        Thread.sleep(CHUNK_DELAY_MILLIS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    out.write(event.getBytes(StandardCharsets.UTF_8));
+                    out.flush();
+                    sentEvents++;
+                }
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void facesArrive_beforeTheStreamEnds() throws IOException {
+        replayedEvents = events(ANSWER_3X3, CHUNK_LENGTH);
+        List<Integer> sentAtArrival = new ArrayList<>();
+        List<String> faces = new ArrayList<>();
+        GeminiStreamReader reader = new GeminiStreamReader((index, size, text) -> {
+            sentAtArrival.add(sentEvents);
+            faces.add(text);
+            assertEquals(faces.size() - 1, index);
+            assertEquals(3, size);
+        });
+
+        ApiClient.Response response = new ApiClient().post("http://127.0.0.1:" + server.getAddress().getPort()
+                + "/stream", "application/json", false, out -> out.write('x'), reader::readFrom);
+
+        assertTrue(response.isSuccessful());
+        assertEquals(6, reader.getFaceCount());
+        // Each face is reported while the rest of the answer is still on its way: the first after about a sixth.
+        int events = replayedEvents.size();
+        String arrivals = "Faces reported after events " + sentAtArrival + " of " + events;
+        assertTrue(arrivals, sentAtArrival.get(0) < events / 3);
+        for (int face = 0; face < 5; face++) {
+            assertTrue(arrivals, sentAtArrival.get(face) < events);
+        }
+
+        GeminiResponseParser.Result whole = GeminiResponseParser.parseText(ANSWER_3X3);
+        assertEquals(whole.getMatrices(), faces);
+        assertEquals(whole.getMatrices(), reader.getResult().getMatrices());
+        assertEquals(3, reader.getResult().getCubeSize());
+    }
+
+    @Test
+    public void anySplitOfTheAnswer_givesTheSameFaces() throws IOException {
+        List<String> expected = GeminiResponseParser.parseText(ANSWER_3X3).getMatrices();
+        for (int chunkLength = 1; chunkLength < 30; chunkLength += 4) {
+            List<String> faces = new ArrayList<>();
+            GeminiStreamReader reader = new GeminiStreamReader((index, size, text) -> faces.add(text));
+            reader.readFrom(stream(events(ANSWER_3X3, chunkLength)));
+            assertEquals("Chunks of " + chunkLength, expected, faces);
+        }
+    }
+
+    @Test
+    public void lenientTwoByTwoAnswer_isStreamed() throws IOException {
+        // Comments, single quotes and trailing commas, like GeminiResponseParser accepts.
+        String answer = "Here is the cube:\n{ // analysis\n 'cube_size': '3x3', faces: [\n" + face(1, "Red", 2)
+                + ",\n" + face(2, "Blue", 2) + ",\n" + face(3, "White", 2) + ",\n" + face(4, "Green", 2) + ",\n"
+                + face(5, "Yellow", 2) + ",\n" + face(6, "Orange", 2) + ",\n ],\n}";
+        List<Integer> sizes = new ArrayList<>();
+        GeminiStreamReader reader = new GeminiStreamReader((index, size, text) -> sizes.add(size));
+        reader.readFrom(stream(events(answer, 17)));
+        assertEquals(6, sizes.size());
+        assertTrue(sizes.stream().allMatch(size -> size == 2));
+        assertEquals(2, reader.getResult().getCubeSize());
+    }
+
+    @Test
+    public void freeTextAnswer_reportsNoFacesButIsStillParsed() throws IOException {
+        String answer = "Face #1: White White White\nFace #2: Red Red Red";
+        GeminiStreamReader reader = new GeminiStreamReader((index, size, text) -> fail("No JSON faces expected"));
+        reader.readFrom(stream(events(answer, 10)));
+        assertEquals(0, reader.getFaceCount());
+        assertEquals(answer, reader.getText());
+        assertTrue(reader.getResult().getMatrices().get(1).contains("Red Red Red"));
+    }
+
+    @Test(expected = IOException.class)
+    public void errorEvent_isThrown() throws IOException {
+        List<String> events = new ArrayList<>(events(ANSWER_3X3, 200).subList(0, 1));
+        events.add("data: {\"error\": {\"code\": 503, \"message\": \"The model is overloaded.\"}}\r\n\r\n");
+        new GeminiStreamReader((index, size, text) -> { }).readFrom(stream(events));
+    }
+
+    /**
+     * Returns one face object of an answer, a single color for simplicity.
+     */
+    private static String face(int number, String color, int size) {
+        StringBuilder face = new StringBuilder("    {\n      \"face_number\": " + number + ",\n      \"matrix\": [");
+        for (int row = 0; row < size; row++) {
+            face.append(row == 0 ? "" : ", ").append('[');
+            for (int col = 0; col < size; col++) {
+                face.append(col == 0 ? "" : ", ").append('"').append(color).append('"');
+            }
+            face.append(']');
+        }
+        return face.append("]\n    }").toString();
+    }
+
+    /**
+     * Splits an answer into server-sent events the way the API frames them: one GenerateContentResponse per event.
+     */
+    private List<String> events(String answer, int chunkLength) {
+        List<String> events = new ArrayList<>();
+        for (int start = 0; start < answer.length(); start += chunkLength) {
+            ObjectNode chunk = mapper.createObjectNode();
+            ObjectNode content = chunk.putArray("candidates").addObject().putObject("content");
+            content.putArray("parts").addObject().put("text",
+                    answer.substring(start, Math.min(answer.length(), start + chunkLength)));
+            content.put("role", "model");
+            chunk.put("modelVersion", "gemini-2.0-flash");
+            events.add("data: " + chunk + "\r\n\r\n");
+        }
+        return events;
+    }
+
+    private static InputStream stream(List<String> events) {
+        return new ByteArrayInputStream(String.join("", events).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.cubesolver.pipeline;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the per-face thread pool and the stage timings.
+ */
+public class FaceTaskRunnerTest {
+
+    private final FaceTaskRunner runner = new FaceTaskRunner(3);
+
+    @After
+    public void tearDown() {
+        runner.close();
+    }
+
+    @Test
+    public void results_areInFaceOrder() throws Exception {
+        // Later faces finish first, so completion order is the reverse of face order.
+        List<String> results = runner.runAll(6, face -> {
+            Thread.sleep((6 - face) * 10L);
+            return "face" + face;
+        });
+        assertEquals(Arrays.asList("face0", "face1", "face2", "face3", "face4", "face5"), results);
+    }
+
+    @Test
+    public void concurrency_isBoundedByThreadCount() throws Exception {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        runner.runAll(12, face -> {
+            int now = running.incrementAndGet();
+            maxRunning.accumulateAndGet(now, Math::max);
+            Thread.sleep(20);
+            running.decrementAndGet();
+            return face;
+        });
+        assertEquals(3, maxRunning.get());
+    }
+
+    @Test
+    public void wallClockTime_scalesWithThreads() throws Exception {
+        long start = System.nanoTime();
+        runner.runAll(6, face -> {
+            Thread.sleep(100);
+            return face;
+        });
+        long millis = (System.nanoTime() - start) / 1_000_000;
+        // Six 100 ms faces on three threads take two rounds, not six.
+        assertTrue("Took " + millis + " ms", millis >= 200 && millis < 450);
+    }
+
+    @Test
+    public void failure_cancelsRemainingFaces() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(2);
+        AtomicInteger started = new AtomicInteger();
+        try {
+            runner.runAll(6, face -> {
+                started.incrementAndGet();
+                if (face == 0) {
+                    Thread.sleep(20);
+                    throw new IOException("Could not decode face 0");
+                }
+                try {
+                    Thread.sleep(10_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                    throw e;
+                }
+                return face;
+            });
+            fail("Expected the failure of face 0");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        // Faces 1 and 2 were running and get interrupted; faces 3 to 5 never start.
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        assertEquals(3, started.get());
+    }
+
+    @Test
+    public void batch_returnsEarlyFacesBeforeLaterOnesFinish() throws Exception {
+        CountDownLatch lastFace = new CountDownLatch(1);
+        FaceTaskRunner.Batch<Integer> batch = runner.submitAll(6, face -> {
+            if (face == 5) {
+                lastFace.await();
+            }
+            return face * 10;
+        });
+        assertEquals(Integer.valueOf(0), batch.get(0));
+        assertEquals(Integer.valueOf(40), batch.get(4));
+        lastFace.countDown();
+        assertEquals(Integer.valueOf(50), batch.get(5));
+    }
+
+    @Test
+    public void batch_reportsLaterFailureWhileWaitingForEarlierFace() throws Exception {
+        FaceTaskRunner.Batch<Integer> batch = runner.submitAll(3, face -> {
+            if (face == 2) {
+                throw new IOException("Could not decode face 2");
+            }
+            Thread.sleep(10_000);
+            return face;
+        });
+        try {
+            batch.get(0);
+            fail("Expected the failure of face 2");
+        } catch (ExecutionException e) {
+            assertEquals("Could not decode face 2", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    public void stageTimings_addUpToTotal() throws Exception {
+        StageTimings timings = new StageTimings();
+        Thread.sleep(20);
+        timings.mark("decode");
+        Thread.sleep(10);
+        timings.mark("encode");
+        assertTrue(timings.getNanos("decode") >= 20_000_000);
+        assertTrue(timings.getNanos("encode") >= 10_000_000);
+        assertEquals(0, timings.getNanos("scale"));
+        assertEquals(timings.getNanos("decode") + timings.getNanos("encode"), timings.getTotalNanos());
+        assertTrue(timings.toString(), timings.toString().matches("decode \\d+\\.\\d ms, encode \\d+\\.\\d ms \\(total \\d+\\.\\d ms\\)"));
+    }
+}
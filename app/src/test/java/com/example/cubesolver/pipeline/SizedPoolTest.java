@@ -0,0 +1,94 @@
+package com.example.cubesolver.pipeline;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the bitmap reuse pool and the sample size calculation.
+ */
+public class SizedPoolTest {
+
+    private final List<String> evicted = new ArrayList<>();
+    private final SizedPool<String> pool = new SizedPool<>(1000, evicted::add);
+
+    @Test
+    public void acquire_returnsSmallestItemThatFits() {
+        pool.release("small", 100);
+        pool.release("medium", 300);
+        pool.release("large", 500);
+        assertEquals("medium", pool.acquire(250, 1000));
+        assertEquals("large", pool.acquire(250, 1000));
+        assertNull(pool.acquire(250, 1000));
+        assertEquals(100, pool.getPooledBytes());
+        assertEquals(2, pool.getHits());
+        assertEquals(1, pool.getMisses());
+    }
+
+    @Test
+    public void acquire_skipsItemsThatWasteTooMuch() {
+        pool.release("large", 900);
+        assertNull(pool.acquire(100, 200));
+        assertEquals("large", pool.acquire(800, 200));
+    }
+
+    @Test
+    public void release_evictsOldestOverBudget() {
+        pool.release("first", 400);
+        pool.release("second", 400);
+        pool.release("third", 400);
+        assertEquals(List.of("first"), evicted);
+        assertEquals(800, pool.getPooledBytes());
+
+        pool.release("huge", 2000);
+        assertEquals(List.of("first", "huge"), evicted);
+    }
+
+    @Test
+    public void acquire_onlyReturnsItemsWithTheSameKey() {
+        // Like a released RGB_565 preview, which must not become the buffer of an ARGB_8888 decode.
+        pool.release("rgb565", "RGB_565", 400);
+        assertNull(pool.acquire("ARGB_8888", 400, 1000));
+        assertNull(pool.acquire(400, 1000));
+        pool.release("argb8888", "ARGB_8888", 500);
+        assertEquals("argb8888", pool.acquire("ARGB_8888", 400, 1000));
+        assertEquals("rgb565", pool.acquire("RGB_565", 400, 1000));
+        assertEquals(0, pool.getPooledBytes());
+    }
+
+    @Test
+    public void release_evictsOldestAcrossKeys() {
+        pool.release("first", "a", 400);
+        pool.release("second", "b", 400);
+        pool.release("third", "a", 400);
+        assertEquals(List.of("first"), evicted);
+        assertEquals("third", pool.acquire("a", 400, 0));
+        assertEquals("second", pool.acquire("b", 400, 0));
+    }
+
+    @Test
+    public void clear_evictsEverything() {
+        pool.release("a", 100);
+        pool.release("b", 200);
+        pool.clear();
+        assertEquals(2, evicted.size());
+        assertEquals(0, pool.getPooledBytes());
+        assertNull(pool.acquire(1, 1000));
+    }
+
+    @Test
+    public void sampleSize_keepsDecodedImageAtLeastTargetSize() {
+        // A 12 MP photo for a 540x450 preview: 4000/4 = 1000 and 3000/4 = 750, another halving would be too small.
+        assertEquals(4, SampleSize.toFill(4000, 3000, 540, 450));
+        assertEquals(1, SampleSize.toFill(400, 300, 540, 450));
+        // For a 300 px upload the longer side stays at least 300 before scaling.
+        assertEquals(8, SampleSize.toFit(4000, 3000, 300));
+        assertEquals(16, SampleSize.toFit(8160, 6120, 300));
+        assertEquals(1, SampleSize.toFit(200, 100, 300));
+        assertEquals(1000, SampleSize.sampled(4000, 4));
+        assertEquals(511, SampleSize.sampled(4081, 8));
+    }
+}
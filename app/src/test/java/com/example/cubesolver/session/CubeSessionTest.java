@@ -0,0 +1,156 @@
+package com.example.cubesolver.session;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the cube session and its binary snapshot.
+ */
+public class CubeSessionTest {
+
+    // Colors of the U, R, F, D, L and B centers in the standard Western color scheme.
+    private static final CubeColor[] SCHEME = {
+        CubeColor.WHITE, CubeColor.RED, CubeColor.GREEN, CubeColor.YELLOW, CubeColor.ORANGE, CubeColor.BLUE
+    };
+
+    static CubeSession scanned() {
+        CubeState solved = CubeState.solved(3, SCHEME);
+        List<String> faces = new ArrayList<>();
+        for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+            faces.add(solved.toMatrixString(face));
+        }
+        faces.set(5, "Face #6:\n\nError: Could not parse matrix data.");
+        return CubeSession.fromScan(3, faces, Arrays.asList("content://photos/1", null, "content://photos/3"));
+    }
+
+    private static byte[] snapshot(CubeSession session) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        session.writeTo(out);
+        return out.toByteArray();
+    }
+
+    @Test
+    public void fromScan_parsesTheFacesOnce() {
+        CubeSession session = scanned();
+        assertEquals(3, session.getSize());
+        assertEquals(CubeColor.RED, session.getState().getCenter(1));
+        assertEquals(CubeColor.WHITE, session.getState().getCenter(5)); // The failed face defaults to white.
+        assertEquals(Arrays.asList("content://photos/1", "", "content://photos/3"), session.getImageUris());
+        assertNull(session.getSolverString());
+    }
+
+    @Test
+    public void facesWithoutText_arePending() {
+        assertTrue(scanned().isComplete()); // A face that failed to parse has its error text; it is not pending.
+
+        List<String> firstTwo = new ArrayList<>(scanned().getFaceTexts().subList(0, 2));
+        firstTwo.add("");
+        CubeSession partial = CubeSession.fromScan(3, firstTwo, new ArrayList<>());
+        assertFalse(partial.isComplete());
+        assertFalse(partial.isPending(1));
+        assertTrue(partial.isPending(2));
+        assertTrue(partial.isPending(5));
+    }
+
+    @Test
+    public void streamedSession_isStreamingUntilReplacedAndNotInSnapshots() throws IOException {
+        assertFalse(scanned().isStreaming());
+        List<String> faces = new ArrayList<>(scanned().getFaceTexts());
+        CubeSession streamed = CubeSession.fromStreamedScan(3, faces, new ArrayList<>());
+        assertTrue(streamed.isStreaming());
+        assertTrue(streamed.isComplete()); // All six faces are in, but the final answer may still differ.
+        assertEquals(scanned().getState(), streamed.getState());
+        assertTrue(streamed.withSolverString("solver").isStreaming());
+        assertFalse(CubeSession.readFrom(new ByteArrayInputStream(snapshot(streamed))).isStreaming());
+    }
+
+    @Test
+    public void withState_rewritesEditedFacesAndDropsTheSolverString() {
+        CubeSession session = scanned().withSolverString("solver");
+        CubeState edited = session.getState().withColor(5, 1, 1, CubeColor.BLUE);
+        CubeSession corrected = session.withState(edited);
+        assertEquals(edited, corrected.getState());
+        assertEquals(edited.toMatrixString(5), corrected.getFaceTexts().get(5));
+        assertSame(session.getFaceTexts().get(0), corrected.getFaceTexts().get(0));
+        assertNull(corrected.getSolverString());
+        assertSame(corrected, corrected.withState(edited));
+    }
+
+    @Test
+    public void snapshot_roundTrips() throws IOException {
+        CubeSession session = scanned();
+        session = session.withState(session.getState().withColor(0, 0, 0, CubeColor.GREEN)).withSolverString("UUU");
+        byte[] bytes = snapshot(session);
+        assertTrue("Snapshot has " + bytes.length + " bytes", bytes.length < 1024);
+
+        CubeSession read = CubeSession.readFrom(new ByteArrayInputStream(bytes));
+        assertEquals(session.getSize(), read.getSize());
+        assertEquals(session.getState(), read.getState());
+        assertEquals(session.getFaceTexts(), read.getFaceTexts());
+        assertEquals(session.getImageUris(), read.getImageUris());
+        assertEquals("UUU", read.getSolverString());
+    }
+
+    @Test
+    public void pocketSnapshot_roundTripsWithoutSolverString() throws IOException {
+        CubeSession session = CubeSession.fromScan(2, new ArrayList<>(), new ArrayList<>());
+        CubeSession read = CubeSession.readFrom(new ByteArrayInputStream(snapshot(session)));
+        assertEquals(2, read.getSize());
+        assertEquals(session.getState(), read.getState());
+        assertNull(read.getSolverString());
+    }
+
+    @Test
+    public void confidences_surviveCorrectionsAndSnapshots() throws IOException {
+        CubeSession session = scanned();
+        float[] confidences = new float[session.getState().getStickerCount() * CubeColor.COUNT];
+        for (int i = 0; i < confidences.length; i++) {
+            confidences[i] = i % CubeColor.COUNT == 0 ? 0.95f : 0.01f;
+        }
+        session = session.withConfidences(confidences);
+        confidences[0] = 0f;
+        assertEquals(0.95f, session.getConfidences()[0], 0f);
+
+        CubeSession corrected = session.withState(session.getState().withColor(0, 0, 0, CubeColor.GREEN));
+        assertArrayEquals(session.getConfidences(), corrected.getConfidences(), 0f);
+        CubeSession read = CubeSession.readFrom(new ByteArrayInputStream(snapshot(corrected)));
+        assertArrayEquals(session.getConfidences(), read.getConfidences(), 0f);
+        assertEquals(corrected.getState(), read.getState());
+        assertNull(CubeSession.readFrom(new ByteArrayInputStream(snapshot(scanned()))).getConfidences());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void confidences_mustCoverEveryStickerAndColor() {
+        CubeSession session = scanned();
+        session.withConfidences(new float[session.getState().getStickerCount()]);
+    }
+
+    @Test
+    public void damagedSnapshots_areRejected() throws IOException {
+        byte[] bytes = snapshot(scanned());
+        byte[] flipped = bytes.clone();
+        flipped[bytes.length / 2] ^= 1;
+        byte[] truncated = Arrays.copyOf(bytes, bytes.length - 3);
+        byte[] newer = bytes.clone();
+        newer[4] = (byte) (CubeSession.FORMAT_VERSION + 1);
+        for (byte[] damaged : new byte[][]{flipped, truncated, newer}) {
+            try {
+                CubeSession.readFrom(new ByteArrayInputStream(damaged));
+                fail("Expected an IOException");
+            } catch (IOException expected) {
+                // The store then starts without a session.
+            }
+        }
+    }
+}
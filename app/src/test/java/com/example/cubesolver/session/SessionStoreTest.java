@@ -0,0 +1,95 @@
+package com.example.cubesolver.session;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the session store and its recovery snapshot.
+ */
+public class SessionStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void put_isVisibleAtOnceAndSnapshotInTheBackground() throws IOException {
+        File file = new File(folder.getRoot(), SessionStore.FILE_NAME);
+        Queue<Runnable> writes = new ArrayDeque<>();
+        SessionStore store = new SessionStore(file, writes::add);
+        assertNull(store.get());
+
+        CubeSession session = CubeSessionTest.scanned();
+        store.put(session);
+        assertSame(session, store.get());
+        assertFalse(file.exists());
+
+        writes.poll().run();
+        assertEquals(session.getState(), SessionStore.readSnapshot(file).getState());
+    }
+
+    @Test
+    public void putsDuringAWrite_areCoalesced() {
+        File file = new File(folder.getRoot(), SessionStore.FILE_NAME);
+        Queue<Runnable> writes = new ArrayDeque<>();
+        SessionStore store = new SessionStore(file, writes::add);
+        CubeSession first = CubeSessionTest.scanned();
+        CubeSession last = first.withSolverString("last");
+        store.put(first);
+        store.put(first.withSolverString("middle"));
+        store.put(last);
+        assertEquals(1, writes.size());
+
+        writes.poll().run();
+        assertEquals("last", SessionStore.readSnapshot(file).getSolverString());
+    }
+
+    @Test
+    public void listeners_seeEveryPutUntilRemoved() {
+        SessionStore store = new SessionStore(new File(folder.getRoot(), SessionStore.FILE_NAME), runnable -> { });
+        List<CubeSession> seen = new ArrayList<>();
+        SessionStore.Listener listener = seen::add;
+        store.addListener(listener);
+        CubeSession first = CubeSessionTest.scanned();
+        CubeSession second = first.withSolverString("UUU");
+        store.put(first);
+        store.put(second);
+        store.removeListener(listener);
+        store.put(first);
+        assertEquals(2, seen.size());
+        assertSame(first, seen.get(0));
+        assertSame(second, seen.get(1));
+    }
+
+    @Test
+    public void newProcess_restoresTheSnapshot() {
+        File file = new File(folder.getRoot(), SessionStore.FILE_NAME);
+        CubeSession session = CubeSessionTest.scanned().withSolverString("UUU");
+        new SessionStore(file, Runnable::run).put(session);
+
+        SessionStore restarted = new SessionStore(file, Runnable::run);
+        CubeSession restored = restarted.get();
+        assertEquals(session.getState(), restored.getState());
+        assertEquals("UUU", restored.getSolverString());
+        assertSame(restored, restarted.get());
+    }
+
+    @Test
+    public void damagedSnapshot_isIgnored() throws IOException {
+        File file = new File(folder.getRoot(), SessionStore.FILE_NAME);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[]{1, 2, 3});
+        }
+        assertNull(new SessionStore(file, Runnable::run).get());
+    }
+}
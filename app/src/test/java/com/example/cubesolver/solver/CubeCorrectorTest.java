@@ -0,0 +1,183 @@
+package com.example.cubesolver.solver;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the cube corrector, on scrambled cubes with injected detection errors.
+ */
+public class CubeCorrectorTest {
+
+    // Colors of the U, R, F, D, L and B centers in the standard Western color scheme.
+    private static final CubeColor[] SCHEME = {
+        CubeColor.WHITE, CubeColor.RED, CubeColor.GREEN, CubeColor.YELLOW, CubeColor.ORANGE, CubeColor.BLUE
+    };
+    private static final String[] MOVES = {
+        "U", "U2", "U'", "R", "R2", "R'", "F", "F2", "F'", "D", "D2", "D'", "L", "L2", "L'", "B", "B2", "B'"
+    };
+
+    private static CubeState scrambled(long seed) {
+        Random random = new Random(seed);
+        CubieCube cube = new CubieCube();
+        StringBuilder scramble = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            scramble.append(MOVES[random.nextInt(MOVES.length)]).append(' ');
+        }
+        cube.applySequence(scramble.toString());
+        String facelets = new FaceCube(cube).toString();
+        byte[] stickers = new byte[facelets.length()];
+        for (int i = 0; i < stickers.length; i++) {
+            stickers[i] = (byte) SCHEME[FaceCube.FACES.indexOf(facelets.charAt(i))].ordinal();
+        }
+        return CubeState.of(3, stickers);
+    }
+
+    private static CubeState pocketOf(CubeState state) {
+        byte[] stickers = new byte[24];
+        for (int face = 0; face < 6; face++) {
+            for (int row = 0; row < 2; row++) {
+                for (int col = 0; col < 2; col++) {
+                    stickers[(face * 2 + row) * 2 + col] = (byte) state.getColor(face, row * 2, col * 2).ordinal();
+                }
+            }
+        }
+        return CubeState.of(2, stickers);
+    }
+
+    private static CubeState recolor(CubeState state, int sticker, int color) {
+        byte[] stickers = new byte[state.getStickerCount()];
+        state.copyStickers(stickers);
+        stickers[sticker] = (byte) color;
+        return CubeState.of(state.getSize(), stickers);
+    }
+
+    /**
+     * Lowers the confidence in the detected color of a sticker, as a detector does for an ambiguous one, and gives
+     * the rest to a second color.
+     */
+    private static void doubt(float[] confidences, CubeState state, int sticker, int alternative) {
+        int row = sticker * CubeColor.COUNT;
+        for (int color = 0; color < CubeColor.COUNT; color++) {
+            confidences[row + color] = 0.01f;
+        }
+        confidences[row + state.getOrdinal(sticker)] = 0.55f;
+        confidences[row + alternative] = 0.4f;
+    }
+
+    @Test
+    public void validCube_isLeftAlone() {
+        CubeState state = scrambled(1);
+        CubeCorrector.Correction correction = CubeCorrector.correct(state);
+        assertFalse(correction.hasChanges());
+        assertSame(state, correction.getState());
+        assertEquals(0f, correction.getCost(), 0f);
+    }
+
+    @Test
+    public void misreadStickers_areRestored() {
+        CubeState original = scrambled(2);
+        CubeState detected = recolor(original, 12, (original.getOrdinal(12) + 1) % 6);
+        detected = recolor(detected, 47, (original.getOrdinal(47) + 2) % 6);
+        CubeCorrector.Correction correction = CubeCorrector.correct(detected);
+        assertEquals(original, correction.getState());
+        assertArrayEquals(new int[]{12, 47}, correction.getChangedStickers());
+        assertTrue(correction.getCost() > 0f);
+    }
+
+    @Test
+    public void misreadCenter_isRestored() {
+        CubeState original = scrambled(3);
+        CubeState detected = recolor(original, 22, original.getOrdinal(4)); // F center read as the U color.
+        assertEquals(original, CubeCorrector.correct(detected).getState());
+    }
+
+    @Test
+    public void flippedEdge_isFixedWhereTheDetectorHadDoubts() {
+        CubeState original = scrambled(4);
+        int[] edge = FaceCube.EDGE_FACELET[7];
+        CubeState detected = recolor(recolor(original, edge[0], original.getOrdinal(edge[1])),
+                edge[1], original.getOrdinal(edge[0]));
+        assertEquals(CubeValidator.Kind.FLIPPED_EDGE,
+                CubeValidator.validate(detected).getProblems().get(0).getKind());
+
+        float[] confidences = CubeCorrector.confidences(detected, 0.95f);
+        doubt(confidences, detected, edge[0], original.getOrdinal(edge[0]));
+        doubt(confidences, detected, edge[1], original.getOrdinal(edge[1]));
+        CubeCorrector.Correction correction = CubeCorrector.correct(detected, confidences);
+        assertEquals(original, correction.getState());
+    }
+
+    @Test
+    public void twistedCorner_isFixedWhereTheDetectorHadDoubts() {
+        CubeState original = scrambled(5);
+        int[] corner = FaceCube.CORNER_FACELET[5];
+        CubeState detected = original;
+        for (int k = 0; k < 3; k++) {
+            detected = recolor(detected, corner[k], original.getOrdinal(corner[(k + 1) % 3]));
+        }
+        float[] confidences = CubeCorrector.confidences(detected, 0.95f);
+        for (int k = 0; k < 3; k++) {
+            doubt(confidences, detected, corner[k], original.getOrdinal(corner[k]));
+        }
+        assertEquals(original, CubeCorrector.correct(detected, confidences).getState());
+    }
+
+    @Test
+    public void pocketCube_misreadStickerIsRestored() {
+        assertEquals(30, CubeCorrector.pocketSchemeCount());
+        CubeState original = pocketOf(scrambled(6));
+        CubeState detected = recolor(original, 9, (original.getOrdinal(9) + 3) % 6);
+        CubeCorrector.Correction correction = CubeCorrector.correct(detected);
+        assertEquals(original, correction.getState());
+        assertArrayEquals(new int[]{9}, correction.getChangedStickers());
+    }
+
+    @Test
+    public void injectedErrors_withConfidences_areRestoredQuickly() {
+        Random random = new Random(42);
+        long slowest = 0;
+        for (int trial = 0; trial < 60; trial++) {
+            CubeState original = trial % 3 == 2 ? pocketOf(scrambled(trial)) : scrambled(trial);
+            CubeState detected = original;
+            float[] confidences = CubeCorrector.confidences(original, 0.95f);
+            int errors = 1 + random.nextInt(3);
+            for (int i = 0; i < errors; i++) {
+                int sticker = random.nextInt(original.getStickerCount());
+                int wrong = (original.getOrdinal(sticker) + 1 + random.nextInt(5)) % 6;
+                detected = recolor(detected, sticker, wrong);
+                confidences = CubeCorrector.confidences(detected, 0.95f);
+            }
+            // The detector was unsure about exactly the stickers it got wrong.
+            for (int sticker = 0; sticker < original.getStickerCount(); sticker++) {
+                if (detected.getOrdinal(sticker) != original.getOrdinal(sticker)) {
+                    doubt(confidences, detected, sticker, original.getOrdinal(sticker));
+                }
+            }
+            long start = System.nanoTime();
+            CubeCorrector.Correction correction = CubeCorrector.correct(detected, confidences);
+            slowest = Math.max(slowest, System.nanoTime() - start);
+            assertEquals("Trial " + trial, original, correction.getState());
+        }
+        assertTrue("Slowest correction took " + slowest / 1_000_000 + " ms", slowest < 50_000_000L);
+    }
+
+    @Test
+    public void randomStickers_stillGiveAValidCube() {
+        Random random = new Random(7);
+        for (int size = 2; size <= 3; size++) {
+            byte[] stickers = new byte[6 * size * size];
+            for (int i = 0; i < stickers.length; i++) {
+                stickers[i] = (byte) random.nextInt(6);
+            }
+            CubeCorrector.Correction correction = CubeCorrector.correct(CubeState.of(size, stickers));
+            assertTrue(CubeValidator.validate(correction.getState()).getSummary(),
+                    CubeValidator.validate(correction.getState()).isValid());
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.cubesolver.solver;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the cube symmetries and the canonical form used as a cache key.
+ */
+public class CubeSymmetryTest {
+
+    private static final String SOLVED = "UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB";
+    private static final String[] MOVES = {
+        "U", "U2", "U'", "R", "R2", "R'", "F", "F2", "F'", "D", "D2", "D'", "L", "L2", "L'", "B", "B2", "B'"
+    };
+
+    private static String apply(String sequence) {
+        CubieCube cube = new CubieCube();
+        cube.applySequence(sequence);
+        return new FaceCube(cube).toString();
+    }
+
+    private static String randomScramble(Random random, int length) {
+        StringBuilder scramble = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            scramble.append(MOVES[random.nextInt(MOVES.length)]).append(' ');
+        }
+        return scramble.toString();
+    }
+
+    @Test
+    public void symmetries_areDistinctAndHalfMirrored() {
+        String cube = apply("R U F' D2 L B'");
+        Set<String> transforms = new HashSet<>();
+        int mirrored = 0;
+        for (int sym = 0; sym < CubeSymmetry.N_SYM; sym++) {
+            transforms.add(CubeSymmetry.transform(cube, sym));
+            if (CubeSymmetry.isMirrored(sym)) {
+                mirrored++;
+            }
+        }
+        assertEquals(48, transforms.size());
+        assertEquals(24, mirrored);
+        assertEquals(cube, CubeSymmetry.transform(cube, CubeSymmetry.IDENTITY));
+        assertEquals(SOLVED, CubeSymmetry.transform(SOLVED, 17));
+    }
+
+    @Test
+    public void transforms_ofValidCubes_areValid() throws SolverException {
+        String cube = apply(randomScramble(new Random(1), 30));
+        for (int sym = 0; sym < CubeSymmetry.N_SYM; sym++) {
+            new FaceCube(CubeSymmetry.transform(cube, sym)).toCubieCube().verify();
+        }
+    }
+
+    @Test
+    public void everyMove_mapsToTheTranslatedMove() {
+        // If Y on the transformed cube translates to X on the original, transforming "X applied" gives "Y applied".
+        for (int sym = 0; sym < CubeSymmetry.N_SYM; sym++) {
+            for (String move : MOVES) {
+                String original = CubeSymmetry.translateSolution(move, sym);
+                assertEquals("Symmetry " + sym + ", move " + move, apply(move), CubeSymmetry.transform(apply(original), sym));
+            }
+        }
+    }
+
+    @Test
+    public void canonicalForm_isSharedByAllOrientations() throws SolverException {
+        Random random = new Random(2);
+        for (int i = 0; i < 20; i++) {
+            String cube = apply(randomScramble(random, 25));
+            String canonical = CubeSymmetry.canonicalize(cube).getFacelets();
+            for (int sym = 0; sym < CubeSymmetry.N_SYM; sym++) {
+                assertEquals(canonical, CubeSymmetry.canonicalize(CubeSymmetry.transform(cube, sym)).getFacelets());
+            }
+        }
+    }
+
+    @Test
+    public void solutionOfCanonicalForm_solvesOriginal() throws SolverException {
+        Search search = new Search(SolverTables.getInstance());
+        Random random = new Random(3);
+        for (int i = 0; i < 10; i++) {
+            String cube = apply(randomScramble(random, 25));
+            CubeSymmetry.Canonical canonical = CubeSymmetry.canonicalize(cube);
+            String solution = canonical.toOriginalSolution(search.solve(canonical.getFacelets()));
+
+            CubieCube check = new FaceCube(cube).toCubieCube();
+            check.applySequence(solution);
+            assertTrue("Symmetry " + canonical.getSymmetry(), check.isSolved());
+        }
+    }
+
+    @Test
+    public void urfRotation_cyclesTheAxes() {
+        String cube = apply("R U F' D2 L B'");
+        String once = CubeSymmetry.transform(cube, CubeSymmetry.URF_ROTATION);
+        String twice = CubeSymmetry.transform(once, CubeSymmetry.URF_ROTATION);
+        assertEquals(CubeSymmetry.transform(cube, CubeSymmetry.URF_ROTATION_TWICE), twice);
+        assertEquals(cube, CubeSymmetry.transform(twice, CubeSymmetry.URF_ROTATION));
+        assertFalse(CubeSymmetry.isMirrored(CubeSymmetry.URF_ROTATION));
+        // An R turn becomes a U turn, so the R-L axis is the one phase 1 works on after the rotation.
+        assertEquals(apply("U"), CubeSymmetry.transform(apply("R"), CubeSymmetry.URF_ROTATION));
+    }
+
+    @Test(expected = SolverException.class)
+    public void invalidLetters_areRejected() throws SolverException {
+        CubeSymmetry.canonicalize(SOLVED.replace('B', 'X'));
+    }
+}
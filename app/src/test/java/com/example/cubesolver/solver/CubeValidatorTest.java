@@ -0,0 +1,201 @@
+package com.example.cubesolver.solver;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the cube validator, on scrambled cubes with one injected scanning error each.
+ */
+public class CubeValidatorTest {
+
+    // Colors of the U, R, F, D, L and B centers in the standard Western color scheme.
+    private static final CubeColor[] SCHEME = {
+        CubeColor.WHITE, CubeColor.RED, CubeColor.GREEN, CubeColor.YELLOW, CubeColor.ORANGE, CubeColor.BLUE
+    };
+    private static final String[] MOVES = {
+        "U", "U2", "U'", "R", "R2", "R'", "F", "F2", "F'", "D", "D2", "D'", "L", "L2", "L'", "B", "B2", "B'"
+    };
+
+    private static CubeState scrambled(long seed) {
+        Random random = new Random(seed);
+        CubieCube cube = new CubieCube();
+        StringBuilder scramble = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            scramble.append(MOVES[random.nextInt(MOVES.length)]).append(' ');
+        }
+        cube.applySequence(scramble.toString());
+        return fromFacelets(new FaceCube(cube).toString());
+    }
+
+    private static CubeState fromFacelets(String facelets) {
+        byte[] stickers = new byte[facelets.length()];
+        for (int i = 0; i < stickers.length; i++) {
+            stickers[i] = (byte) SCHEME[FaceCube.FACES.indexOf(facelets.charAt(i))].ordinal();
+        }
+        return CubeState.of(3, stickers);
+    }
+
+    /**
+     * Returns the 2x2 made of the corners of a 3x3 state.
+     */
+    private static CubeState pocketOf(CubeState state) {
+        byte[] stickers = new byte[24];
+        for (int face = 0; face < 6; face++) {
+            for (int row = 0; row < 2; row++) {
+                for (int col = 0; col < 2; col++) {
+                    stickers[(face * 2 + row) * 2 + col] = (byte) state.getColor(face, row * 2, col * 2).ordinal();
+                }
+            }
+        }
+        return CubeState.of(2, stickers);
+    }
+
+    /**
+     * Exchanges the colors of stickers, which keeps the color counts right.
+     */
+    private static CubeState swap(CubeState state, int[] from, int[] to) {
+        byte[] stickers = new byte[state.getStickerCount()];
+        state.copyStickers(stickers);
+        byte[] original = stickers.clone();
+        for (int i = 0; i < from.length; i++) {
+            stickers[to[i]] = original[from[i]];
+        }
+        return CubeState.of(state.getSize(), stickers);
+    }
+
+    private static CubeValidator.Kind onlyKind(CubeValidator.Result result) {
+        assertFalse(result.isValid());
+        assertEquals(result.getProblems().toString(), 1, result.getProblems().size());
+        return result.getProblems().get(0).getKind();
+    }
+
+    @Test
+    public void validCubes_haveNoProblems() {
+        assertTrue(CubeValidator.validate(CubeState.solved(3, SCHEME)).isValid());
+        assertTrue(CubeValidator.validate(CubeState.solved(2, SCHEME)).isValid());
+        for (long seed = 0; seed < 50; seed++) {
+            CubeState state = scrambled(seed);
+            assertTrue(CubeValidator.validate(state).getSummary(), CubeValidator.validate(state).isValid());
+            assertTrue(CubeValidator.validate(pocketOf(state)).isValid());
+        }
+    }
+
+    @Test
+    public void twistedCorner_implicatesAllCorners() {
+        int[] urf = FaceCube.CORNER_FACELET[0];
+        CubeState state = swap(scrambled(1), urf, new int[]{urf[1], urf[2], urf[0]});
+        CubeValidator.Result result = CubeValidator.validate(state);
+        assertEquals(CubeValidator.Kind.TWISTED_CORNER, onlyKind(result));
+        assertEquals(24, result.getProblems().get(0).getStickers().length);
+        assertTrue(result.isImplicated(urf[0]));
+        assertFalse(result.isImplicated(4));
+    }
+
+    @Test
+    public void twistedCorner_onPocketCube() {
+        CubeState pocket = pocketOf(scrambled(2));
+        // The URF corner of a 2x2: U (1, 1), R (0, 0) and F (0, 1).
+        int[] urf = {3, 4, 9};
+        CubeState twisted = swap(pocket, urf, new int[]{urf[1], urf[2], urf[0]});
+        assertEquals(CubeValidator.Kind.TWISTED_CORNER, onlyKind(CubeValidator.validate(twisted)));
+    }
+
+    @Test
+    public void flippedEdge_implicatesAllEdges() {
+        int[] ur = FaceCube.EDGE_FACELET[0];
+        CubeState state = swap(scrambled(3), ur, new int[]{ur[1], ur[0]});
+        CubeValidator.Result result = CubeValidator.validate(state);
+        assertEquals(CubeValidator.Kind.FLIPPED_EDGE, onlyKind(result));
+        assertEquals(24, result.getProblems().get(0).getStickers().length);
+    }
+
+    @Test
+    public void swappedEdges_failParity() {
+        int[] a = FaceCube.EDGE_FACELET[0];
+        int[] b = FaceCube.EDGE_FACELET[5];
+        CubeState state = swap(scrambled(4), new int[]{a[0], a[1], b[0], b[1]}, new int[]{b[0], b[1], a[0], a[1]});
+        assertEquals(CubeValidator.Kind.PARITY, onlyKind(CubeValidator.validate(state)));
+    }
+
+    @Test
+    public void duplicateCenters_implicateBothCenters() {
+        CubeState state = swap(scrambled(5), new int[]{4, 13}, new int[]{13, 4}); // U and R centers exchanged...
+        state = state.withColor(1, 1, 1, state.getColor(0, 1, 1)); // ...then R painted like U.
+        CubeValidator.Result result = CubeValidator.validate(state);
+        assertFalse(result.isValid());
+        CubeValidator.Problem center = null;
+        for (CubeValidator.Problem problem : result.getProblems()) {
+            if (problem.getKind() == CubeValidator.Kind.DUPLICATE_CENTER) {
+                center = problem;
+            }
+        }
+        assertNotNull(result.getSummary(), center);
+        assertArrayEquals(new int[]{4, 13}, center.getStickers());
+    }
+
+    @Test
+    public void misreadSticker_reportsCountsAndTheBrokenPiece() {
+        CubeState state = scrambled(6);
+        int facelet = FaceCube.EDGE_FACELET[2][0];
+        CubeColor original = CubeColor.of(state.getOrdinal(facelet));
+        CubeColor wrong = original == CubeColor.RED ? CubeColor.ORANGE : CubeColor.RED;
+        state = state.withColor(facelet / 9, facelet % 9 / 3, facelet % 3, wrong);
+
+        CubeValidator.Result result = CubeValidator.validate(state);
+        int countProblems = 0;
+        boolean edgeProblem = false;
+        for (CubeValidator.Problem problem : result.getProblems()) {
+            if (problem.getKind() == CubeValidator.Kind.COLOR_COUNT) {
+                countProblems++;
+            } else if (problem.getKind() == CubeValidator.Kind.INVALID_EDGE
+                    || problem.getKind() == CubeValidator.Kind.DUPLICATE_EDGE) {
+                edgeProblem = true;
+            }
+        }
+        assertEquals(2, countProblems);
+        assertTrue(result.getSummary(), result.getSummary().contains("Found 10 " + wrong.getDisplayName()));
+        assertTrue(edgeProblem);
+        assertTrue(result.isImplicated(facelet));
+    }
+
+    @Test
+    public void invalidPocketCorner_implicatesItsStickers() {
+        CubeState pocket = pocketOf(scrambled(7));
+        // Paint one sticker of the URF corner (U at (1, 1)) like another sticker of the same corner.
+        CubeState broken = pocket.withColor(0, 1, 1, pocket.getColor(1, 0, 0));
+        CubeValidator.Result result = CubeValidator.validate(broken);
+        assertFalse(result.isValid());
+        boolean invalidCorner = false;
+        for (CubeValidator.Problem problem : result.getProblems()) {
+            if (problem.getKind() == CubeValidator.Kind.INVALID_CORNER) {
+                invalidCorner = true;
+                int[] stickers = problem.getStickers();
+                Arrays.sort(stickers);
+                assertArrayEquals(new int[]{3, 4, 9}, stickers);
+            }
+        }
+        assertTrue(result.getSummary(), invalidCorner);
+    }
+
+    @Test
+    public void validate_takesMicroseconds() {
+        CubeState state = scrambled(8);
+        for (int i = 0; i < 2000; i++) {
+            CubeValidator.validate(state); // Warm up.
+        }
+        int runs = 2000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            CubeValidator.validate(state);
+        }
+        long perRun = (System.nanoTime() - start) / runs;
+        assertTrue("Validation took " + perRun + " ns", perRun < 1_000_000);
+    }
+}
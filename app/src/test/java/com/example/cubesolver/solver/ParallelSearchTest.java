@@ -0,0 +1,125 @@
+package com.example.cubesolver.solver;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the multi-threaded two-phase search and the cube variants it searches.
+ */
+public class ParallelSearchTest {
+
+    private static final String SUPERFLIP = "UBULURUFURURFRBRDRFUFLFRFDFDFDLDRDBDLULBLFLDLBUBRBLBDB";
+
+    private static ParallelSearch search;
+
+    @BeforeClass
+    public static void setUp() {
+        search = new ParallelSearch(SolverTables.getInstance(), ParallelSearch.MAX_VARIANTS);
+    }
+
+    @AfterClass
+    public static void tearDown() {
+        search.close();
+    }
+
+    @Test
+    public void inverseCube_undoesCube() {
+        CubieCube cube = new CubieCube();
+        cube.applySequence("R U2 F' D L2 B R' U");
+        CubieCube product = cube.copy();
+        product.multiply(cube.inverse());
+        assertTrue(product.isSolved());
+    }
+
+    @Test
+    public void invertedSequence_solvesInverseCube() {
+        String sequence = "R U2 F' D L2 B";
+        assertEquals("B' L2 D' F U2 R'", ParallelSearch.invert(sequence));
+        CubieCube cube = new CubieCube();
+        cube.applySequence(sequence);
+        CubieCube inverse = cube.inverse();
+        inverse.applySequence(ParallelSearch.invert(ParallelSearch.invert(sequence)));
+        assertTrue(inverse.isSolved());
+    }
+
+    @Test
+    public void solutions_solveOriginalCube() throws SolverException {
+        Random random = new Random(21);
+        for (int i = 0; i < 10; i++) {
+            String state = scrambled(random);
+            List<Integer> lengths = new ArrayList<>();
+            String best = search.solveProgressively(state, 0, 300, (solution, length) -> {
+                assertEquals(length, solution.split(" ").length);
+                assertSolves(state, solution);
+                lengths.add(length);
+            });
+            assertSolves(state, best);
+            for (int j = 1; j < lengths.size(); j++) {
+                assertTrue(lengths.toString(), lengths.get(j) < lengths.get(j - 1));
+            }
+        }
+    }
+
+    @Test
+    public void search_stopsAtTargetLength() throws SolverException {
+        String state = scrambled(new Random(22));
+        long start = System.currentTimeMillis();
+        String best = search.solveProgressively(state, 22, 10_000, null);
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        assertTrue(best, best.split(" ").length <= 22);
+        assertSolves(state, best);
+    }
+
+    @Test
+    public void symmetricCube_isSolved() throws SolverException {
+        // Every variant of the superflip is the superflip itself, so only one worker searches it.
+        assertSolves(SUPERFLIP, search.solveProgressively(SUPERFLIP, 20, 100, null));
+    }
+
+    @Test
+    public void singleThread_findsSameFirstSolutionAsSearch() throws SolverException {
+        String state = scrambled(new Random(23));
+        List<String> first = new ArrayList<>();
+        try (ParallelSearch single = new ParallelSearch(SolverTables.getInstance(), 1)) {
+            single.solveProgressively(state, 0, 0, (solution, length) -> first.add(solution));
+        }
+        assertEquals(new Search(SolverTables.getInstance()).solve(state, 30, 5000), first.get(0));
+    }
+
+    @Test(expected = SolverException.class)
+    public void invalidCube_isRejected() throws SolverException {
+        search.solveProgressively(SUPERFLIP.substring(1), 20, 100, null);
+    }
+
+    /**
+     * Returns the facelet string of a random 25-move scramble.
+     */
+    private static String scrambled(Random random) {
+        String[] faces = {"U", "R", "F", "D", "L", "B"};
+        String[] powers = {"", "2", "'"};
+        StringBuilder scramble = new StringBuilder();
+        for (int j = 0; j < 25; j++) {
+            scramble.append(faces[random.nextInt(6)]).append(powers[random.nextInt(3)]).append(' ');
+        }
+        CubieCube cube = new CubieCube();
+        cube.applySequence(scramble.toString());
+        return new FaceCube(cube).toString();
+    }
+
+    private static void assertSolves(String state, String solution) {
+        try {
+            CubieCube cube = new FaceCube(state).toCubieCube();
+            cube.applySequence(solution);
+            assertTrue("Solution " + solution + " does not solve " + state, cube.isSolved());
+        } catch (SolverException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.cubesolver.solver;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the optimal 2x2 solver.
+ */
+public class PocketSolverTest {
+
+    private static final String SOLVED = "GGGGRRRRBBBBOOOOWWWWYYYY";
+    // The number of 2x2 states at each optimal distance in the face turn metric.
+    private static final int[] STATES_AT_DEPTH = {1, 9, 54, 321, 1847, 9992, 50136, 227536, 870072, 1887748, 623800, 2644};
+
+    private static PocketSolver solver;
+
+    @BeforeClass
+    public static void buildTables() {
+        solver = PocketSolver.getInstance();
+    }
+
+    @Test
+    public void solvedCube_returnsEmptySolution() throws SolverException {
+        assertEquals("", solver.solve(SOLVED));
+    }
+
+    @Test
+    public void singleTurns_areUndone() throws SolverException {
+        assertEquals("R'", solver.solve(toPocketString("R")));
+        assertEquals("F2", solver.solve(toPocketString("F2")));
+        // D and L turns move the fixed DBL corner, so they are solved by turning the opposite face.
+        assertEquals("U", solver.solve(toPocketString("D'")));
+    }
+
+    @Test
+    public void randomScrambles_areSolvedOptimally() throws SolverException {
+        Random random = new Random(7);
+        String[] faces = {"U", "R", "F", "D", "L", "B"};
+        String[] powers = {"", "2", "'"};
+        for (int i = 0; i < 200; i++) {
+            int length = 1 + random.nextInt(15);
+            StringBuilder scramble = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                scramble.append(faces[random.nextInt(6)]).append(powers[random.nextInt(3)]).append(' ');
+            }
+            String state = toPocketString(scramble.toString());
+
+            String solution = solver.solve(state);
+            int moves = solution.isEmpty() ? 0 : solution.split(" ").length;
+            assertTrue(scramble + " -> " + solution, moves <= Math.min(length, PocketSolver.GODS_NUMBER));
+            assertFacesUniform(toPocketString(scramble + " " + solution));
+        }
+    }
+
+    @Test
+    public void otherColorScheme_isAccepted() throws SolverException {
+        // The same R turn with every color swapped for another letter.
+        String state = toPocketString("R").replace('G', '1').replace('R', '2').replace('B', '3')
+                .replace('O', '4').replace('W', '5').replace('Y', '6');
+        assertEquals("R'", solver.solve(state));
+    }
+
+    @Test
+    public void distanceTable_matchesKnownDistribution() {
+        int[] counts = new int[PocketSolver.GODS_NUMBER + 1];
+        for (int state = 0; state < PocketSolver.N_STATES; state++) {
+            counts[solver.depth(state)]++;
+        }
+        assertArrayEquals(STATES_AT_DEPTH, counts);
+    }
+
+    @Test(expected = SolverException.class)
+    public void wrongLength_isRejected() throws SolverException {
+        solver.solve(SOLVED.substring(1));
+    }
+
+    @Test(expected = SolverException.class)
+    public void twistedCorner_isRejected() throws SolverException {
+        // Rotate the stickers of the URF corner (F top-right, R top-left, U bottom-right) in place.
+        char[] s = SOLVED.toCharArray();
+        s[1] = 'W';
+        s[4] = 'G';
+        s[18] = 'R';
+        solver.solve(new String(s));
+    }
+
+    @Test(expected = SolverException.class)
+    public void wrongColorCount_isRejected() throws SolverException {
+        solver.solve("GGGGRRRRBBBBOOOOWWWWYYYR");
+    }
+
+    /**
+     * Asserts that every face has a single color. D, L and B turns in a scramble rotate the whole cube relative
+     * to the fixed DBL corner, so the solved cube may not be in the orientation of SOLVED.
+     */
+    private static void assertFacesUniform(String pocketString) {
+        for (int i = 0; i < 24; i++) {
+            assertEquals(pocketString, pocketString.charAt(i - i % 4), pocketString.charAt(i));
+        }
+    }
+
+    /**
+     * Applies a move sequence to a solved cube and returns its 2x2 solver string, taking the corner stickers of the
+     * 3x3 facelet string and coloring U, R, F, D, L, B as W, R, G, Y, O, B.
+     */
+    private static String toPocketString(String sequence) {
+        CubieCube cube = new CubieCube();
+        cube.applySequence(sequence);
+        String facelets = new FaceCube(cube).toString();
+        int[] faceOrder = {2, 1, 5, 4, 0, 3};
+        int[] cornerOffsets = {0, 2, 8, 6};
+        StringBuilder pocket = new StringBuilder();
+        for (int face : faceOrder) {
+            for (int offset : cornerOffsets) {
+                pocket.append("WRGYOB".charAt("URFDLB".indexOf(facelets.charAt(face * 9 + offset))));
+            }
+        }
+        return pocket.toString();
+    }
+}
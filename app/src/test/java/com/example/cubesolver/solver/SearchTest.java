@@ -0,0 +1,198 @@
+package com.example.cubesolver.solver;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the two-phase solver, run against a corpus of known scrambles.
+ */
+public class SearchTest {
+
+    private static final String SOLVED = "UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB";
+
+    // Scrambles paired with the facelet string they produce from the solved state.
+    private static final String[][] KNOWN_SCRAMBLES = {
+        {"R", "UUFUUFUUFRRRRRRRRRFFDFFDFFDDDBDDBDDBLLLLLLLLLUBBUBBUBB"},
+        {"U", "UUUUUUUUUBBBRRRRRRRRRFFFFFFDDDDDDDDDFFFLLLLLLLLLBBBBBB"},
+        {"F", "UUUUUULLLURRURRURRFFFFFFFFFRRRDDDDDDLLDLLDLLDBBBBBBBBB"},
+    };
+
+    // Facelet strings in the format SolutionActivity produces: a random state, the superflip,
+    // the checkerboard pattern and a PLL case.
+    private static final String[] REAL_STATES = {
+        "DRLUUBFBRBLURRLRUBLRDDFDLFUFUFFDBRDUBRUFLLFDDBFLUBLRBD",
+        "UBULURUFURURFRBRDRFUFLFRFDFDFDLDRDBDLULBLFLDLBUBRBLBDB",
+        "UDUDUDUDURLRLRLRLRFBFBFBFBFDUDUDUDUDLRLRLRLRLBFBFBFBFB",
+        "UUUUUUUUULRRRRRRRRFFBFFFFFFDDDDDDDDDRBLLLLLLLBLFBBBBBB",
+    };
+
+    private static Search search;
+
+    @BeforeClass
+    public static void buildTables() {
+        search = new Search(SolverTables.getInstance());
+    }
+
+    @Test
+    public void knownScrambles_produceExpectedFacelets() {
+        for (String[] known : KNOWN_SCRAMBLES) {
+            CubieCube cube = new CubieCube();
+            cube.applySequence(known[0]);
+            assertEquals(known[0], known[1], new FaceCube(cube).toString());
+        }
+    }
+
+    @Test
+    public void faceletString_roundTripsThroughCubies() throws SolverException {
+        for (String state : REAL_STATES) {
+            assertEquals(state, new FaceCube(new FaceCube(state).toCubieCube()).toString());
+        }
+    }
+
+    @Test
+    public void solvedCube_returnsEmptySolution() throws SolverException {
+        assertEquals("", search.solve(SOLVED));
+    }
+
+    @Test
+    public void realStates_areSolved() throws SolverException {
+        for (String state : REAL_STATES) {
+            assertSolves(state, search.solve(state));
+        }
+    }
+
+    @Test
+    public void randomScrambles_areSolvedWithinDepthLimit() throws SolverException {
+        Random random = new Random(42);
+        for (int i = 0; i < 100; i++) {
+            String state = scrambled(random);
+            String solution = search.solve(state);
+            assertTrue(solution, solution.split(" ").length <= Search.DEFAULT_MAX_DEPTH);
+            assertSolves(state, solution);
+        }
+    }
+
+    @Test
+    public void progressiveSolutions_getShorterAndAllSolve() throws SolverException {
+        Random random = new Random(43);
+        for (int i = 0; i < 3; i++) {
+            String state = scrambled(random);
+            List<Integer> lengths = new ArrayList<>();
+            String best = search.solveProgressively(state, 0, 500, (solution, length) -> {
+                assertEquals(length, solution.split(" ").length);
+                lengths.add(length);
+            });
+            assertSolves(state, best);
+            assertFalse(lengths.isEmpty());
+            for (int j = 1; j < lengths.size(); j++) {
+                assertTrue(lengths.toString(), lengths.get(j) < lengths.get(j - 1));
+            }
+            assertEquals(lengths.get(lengths.size() - 1).intValue(), best.split(" ").length);
+        }
+    }
+
+    @Test
+    public void progressiveSolve_stopsAtTargetLength() throws SolverException {
+        String state = REAL_STATES[0];
+        List<Integer> lengths = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        String best = search.solveProgressively(state, 25, 10_000, (solution, length) -> lengths.add(length));
+        // The first solution is already within 25 moves, so there is nothing to wait for.
+        assertTrue(System.currentTimeMillis() - start < 1000);
+        assertEquals(1, lengths.size());
+        assertSolves(state, best);
+    }
+
+    @Test
+    public void progressiveSolve_isNoLongerThanDefaultSolve() throws SolverException {
+        Random random = new Random(44);
+        for (int i = 0; i < 3; i++) {
+            String state = scrambled(random);
+            String best = search.solveProgressively(state, 0, 300, null);
+            assertTrue(best.split(" ").length <= search.solve(state).split(" ").length);
+        }
+    }
+
+    @Test
+    public void progressiveSolve_returnsBestSoFarWhenInterrupted() throws SolverException {
+        String state = REAL_STATES[0];
+        List<String> solutions = new ArrayList<>();
+        try {
+            // Interrupt the search as soon as it has a first solution, as the activity does when it is closed.
+            String best = search.solveProgressively(state, 0, 10_000, (solution, length) -> {
+                solutions.add(solution);
+                Thread.currentThread().interrupt();
+            });
+            assertEquals(Collections.singletonList(best), solutions);
+            assertSolves(state, best);
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test(expected = SolverException.class)
+    public void wrongLength_isRejected() throws SolverException {
+        search.solve(SOLVED.substring(1));
+    }
+
+    @Test(expected = SolverException.class)
+    public void twistedCorner_isRejected() throws SolverException {
+        // Rotate the stickers of the URF corner (U9, R1, F3) in place.
+        char[] f = SOLVED.toCharArray();
+        f[8] = 'F';
+        f[9] = 'U';
+        f[20] = 'R';
+        search.solve(new String(f));
+    }
+
+    @Test(expected = SolverException.class)
+    public void flippedEdge_isRejected() throws SolverException {
+        // Swap the stickers of the UR edge (U6, R2).
+        char[] f = SOLVED.toCharArray();
+        f[5] = 'R';
+        f[10] = 'U';
+        search.solve(new String(f));
+    }
+
+    @Test(expected = SolverException.class)
+    public void swappedEdges_areRejected() throws SolverException {
+        // Exchange the UR and UF edges, which leaves the permutation parities unequal.
+        char[] f = SOLVED.toCharArray();
+        f[5] = 'U';
+        f[10] = 'F';
+        f[7] = 'U';
+        f[19] = 'R';
+        search.solve(new String(f));
+    }
+
+    /**
+     * Returns the facelet string of a random 25-move scramble.
+     */
+    private static String scrambled(Random random) {
+        String[] faces = {"U", "R", "F", "D", "L", "B"};
+        String[] powers = {"", "2", "'"};
+        StringBuilder scramble = new StringBuilder();
+        for (int j = 0; j < 25; j++) {
+            scramble.append(faces[random.nextInt(6)]).append(powers[random.nextInt(3)]).append(' ');
+        }
+        CubieCube cube = new CubieCube();
+        cube.applySequence(scramble.toString());
+        return new FaceCube(cube).toString();
+    }
+
+    /**
+     * Applies the solution to the state and asserts that the result is the solved cube.
+     */
+    private static void assertSolves(String state, String solution) throws SolverException {
+        CubieCube cube = new FaceCube(state).toCubieCube();
+        cube.applySequence(solution);
+        assertTrue("Solution " + solution + " does not solve " + state, cube.isSolved());
+    }
+}
@@ -0,0 +1,109 @@
+package com.example.cubesolver.solver;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the persistent solution cache.
+ */
+public class SolutionCacheTest {
+
+    private static final String CUBE = "DUUBULDBFRBFRRULLLBRDFFFBLURDBFDFDRFRULBLUFDURRBLBDUDL";
+    private static final String SOLUTION = "D2 R' D' F2 B D R2 D2 R' F2 D' F2 U' B2 L2 U2 D R2 U";
+    private static final String SOLVED = "UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String cube(int i) {
+        return String.format("%054d", i);
+    }
+
+    @Test
+    public void storedSolution_isReturnedAndCounted() throws IOException {
+        SolutionCache cache = new SolutionCache(folder.newFolder(), SolutionCache.DEFAULT_MAX_BYTES);
+        assertNull(cache.get(3, 1, CUBE));
+        cache.put(3, 1, CUBE, SOLUTION);
+        cache.put(3, 1, SOLVED, "");
+        assertEquals(SOLUTION, cache.get(3, 1, CUBE));
+        assertEquals("", cache.get(3, 1, SOLVED));
+        assertEquals(2, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals("hits 2, misses 1, 2 entries, 8 KB", cache.toString());
+    }
+
+    @Test
+    public void otherSizeOrSolverVersion_misses() throws IOException {
+        SolutionCache cache = new SolutionCache(folder.newFolder(), SolutionCache.DEFAULT_MAX_BYTES);
+        cache.put(3, 1, CUBE, SOLUTION);
+        assertNull(cache.get(3, 2, CUBE));
+        assertNull(cache.get(2, 1, CUBE));
+    }
+
+    @Test
+    public void entries_surviveReopening() throws IOException {
+        File directory = folder.newFolder();
+        new SolutionCache(directory, SolutionCache.DEFAULT_MAX_BYTES).put(3, 1, CUBE, SOLUTION);
+        SolutionCache reopened = new SolutionCache(directory, SolutionCache.DEFAULT_MAX_BYTES);
+        assertEquals(1, reopened.getEntryCount());
+        assertEquals(SOLUTION, reopened.get(3, 1, CUBE));
+    }
+
+    @Test
+    public void leastRecentlyUsed_isEvictedOverBudget() throws IOException {
+        SolutionCache cache = new SolutionCache(folder.newFolder(), 3 * 4096);
+        cache.put(3, 1, cube(1), "R");
+        cache.put(3, 1, cube(2), "U");
+        cache.put(3, 1, cube(3), "F");
+        assertEquals("R", cache.get(3, 1, cube(1))); // Cube 2 is now the least recently used.
+        cache.put(3, 1, cube(4), "D");
+        assertEquals(3, cache.getEntryCount());
+        assertEquals(3 * 4096, cache.getDiskBytes());
+        assertNull(cache.get(3, 1, cube(2)));
+        assertEquals("R", cache.get(3, 1, cube(1)));
+        assertEquals("D", cache.get(3, 1, cube(4)));
+    }
+
+    @Test
+    public void recency_survivesReopening() throws IOException {
+        File directory = folder.newFolder();
+        SolutionCache cache = new SolutionCache(directory, 2 * 4096);
+        cache.put(3, 1, cube(1), "R");
+        cache.put(3, 1, cube(2), "U");
+        // Recency is stored in file times; make cube 1 clearly older on filesystems with coarse timestamps.
+        long now = System.currentTimeMillis();
+        entryFile(directory, cube(1)).setLastModified(now - 60_000);
+        entryFile(directory, cube(2)).setLastModified(now);
+
+        SolutionCache reopened = new SolutionCache(directory, 2 * 4096);
+        reopened.put(3, 1, cube(3), "F");
+        assertFalse(entryFile(directory, cube(1)).exists());
+        assertEquals("U", reopened.get(3, 1, cube(2)));
+        assertEquals("F", reopened.get(3, 1, cube(3)));
+    }
+
+    @Test
+    public void damagedEntry_isAMissAndRemoved() throws IOException {
+        File directory = folder.newFolder();
+        SolutionCache cache = new SolutionCache(directory, SolutionCache.DEFAULT_MAX_BYTES);
+        cache.put(3, 1, CUBE, SOLUTION);
+        File entry = directory.listFiles()[0];
+        try (FileOutputStream out = new FileOutputStream(entry)) {
+            out.write("garbage".getBytes());
+        }
+        assertNull(cache.get(3, 1, CUBE));
+        assertEquals(0, cache.getEntryCount());
+        assertFalse(entry.exists());
+    }
+
+    private static File entryFile(File directory, String cube) {
+        return new File(directory, SolutionCache.fileName(SolutionCache.key(3, 1, cube)));
+    }
+}
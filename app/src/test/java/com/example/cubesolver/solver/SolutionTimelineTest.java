@@ -0,0 +1,85 @@
+package com.example.cubesolver.solver;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for expanding a solution into a timeline of cube states.
+ */
+public class SolutionTimelineTest {
+
+    // Colors of the U, R, F, D, L and B centers in the standard Western color scheme.
+    private static final CubeColor[] SCHEME = {
+        CubeColor.WHITE, CubeColor.RED, CubeColor.GREEN, CubeColor.YELLOW, CubeColor.ORANGE, CubeColor.BLUE
+    };
+
+    private static int[] parse(String sequence) {
+        String[] tokens = sequence.split(" ");
+        int[] moves = new int[tokens.length];
+        for (int i = 0; i < tokens.length; i++) {
+            moves[i] = StickerMoves.parse(tokens[i]);
+        }
+        return moves;
+    }
+
+    @Test
+    public void everyStep_matchesReplayingTheMoves() {
+        CubeState start = CubeState.solved(3, SCHEME);
+        int[] moves = parse("R U R' U' F2 D L' B2 U2 R");
+        SolutionTimeline timeline = SolutionTimeline.expand(start, moves);
+        assertEquals(10, timeline.getMoveCount());
+        assertEquals(start, timeline.getState(0));
+
+        CubeState replayed = start;
+        for (int step = 1; step <= moves.length; step++) {
+            replayed = StickerMoves.forSize(3).apply(replayed, moves[step - 1]);
+            assertEquals("Step " + step, replayed, timeline.getState(step));
+            assertEquals(moves[step - 1], timeline.getMove(step - 1));
+        }
+    }
+
+    @Test
+    public void solution_endsSolved() {
+        CubeState solved = CubeState.solved(3, SCHEME);
+        CubeState scrambled = SolutionTimeline.expand(solved, parse("F R' D2 B L U'")).getState(6);
+        SolutionTimeline timeline = SolutionTimeline.expand(scrambled, parse("U L' B' D2 R F'"));
+        assertEquals(solved, timeline.getState(timeline.getMoveCount()));
+        // Seeking backwards is a lookup, not a replay.
+        assertEquals(scrambled, timeline.getState(0));
+        assertEquals(scrambled.getOrdinal(17), timeline.getOrdinal(0, 17));
+    }
+
+    @Test
+    public void pocketCube_usesItsOwnStickers() {
+        CubeState solved = CubeState.solved(2, SCHEME);
+        SolutionTimeline timeline = SolutionTimeline.expand(solved, parse("R U2 R'"));
+        byte[] stickers = new byte[24];
+        timeline.copyState(3, stickers);
+        assertEquals(2, timeline.getSize());
+        assertEquals(StickerMoves.forSize(2).apply(StickerMoves.forSize(2).apply(StickerMoves.forSize(2)
+                .apply(solved, StickerMoves.parse("R")), StickerMoves.parse("U2")), StickerMoves.parse("R'")),
+                CubeState.of(2, stickers));
+    }
+
+    @Test
+    public void emptySolution_hasOnlyTheStart() {
+        CubeState solved = CubeState.solved(3, SCHEME);
+        SolutionTimeline timeline = SolutionTimeline.expand(solved, new int[0]);
+        assertEquals(0, timeline.getMoveCount());
+        assertEquals(solved, timeline.getState(0));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void stepPastTheEnd_isRejected() {
+        SolutionTimeline.expand(CubeState.solved(3, SCHEME), parse("R U")).getState(3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidMove_isRejected() {
+        SolutionTimeline.expand(CubeState.solved(3, SCHEME), new int[]{0, 18});
+    }
+}
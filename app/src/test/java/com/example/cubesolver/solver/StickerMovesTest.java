@@ -0,0 +1,98 @@
+package com.example.cubesolver.solver;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the sticker permutation tables, checked against the cubie-level moves.
+ */
+public class StickerMovesTest {
+
+    // Colors of the U, R, F, D, L and B centers in the standard Western color scheme.
+    private static final CubeColor[] SCHEME = {
+        CubeColor.WHITE, CubeColor.RED, CubeColor.GREEN, CubeColor.YELLOW, CubeColor.ORANGE, CubeColor.BLUE
+    };
+    private static final String[] MOVES = {
+        "U", "U2", "U'", "R", "R2", "R'", "F", "F2", "F'", "D", "D2", "D'", "L", "L2", "L'", "B", "B2", "B'"
+    };
+
+    private static CubeState fromCubies(CubieCube cube) {
+        String facelets = new FaceCube(cube).toString();
+        byte[] stickers = new byte[facelets.length()];
+        for (int i = 0; i < stickers.length; i++) {
+            stickers[i] = (byte) SCHEME[FaceCube.FACES.indexOf(facelets.charAt(i))].ordinal();
+        }
+        return CubeState.of(3, stickers);
+    }
+
+    private static CubeState pocketOf(CubeState state) {
+        byte[] stickers = new byte[24];
+        for (int face = 0; face < 6; face++) {
+            for (int row = 0; row < 2; row++) {
+                for (int col = 0; col < 2; col++) {
+                    stickers[(face * 2 + row) * 2 + col] = (byte) state.getColor(face, row * 2, col * 2).ordinal();
+                }
+            }
+        }
+        return CubeState.of(2, stickers);
+    }
+
+    @Test
+    public void everyMove_matchesTheCubieMove() {
+        for (int move = 0; move < StickerMoves.MOVE_COUNT; move++) {
+            assertEquals(move, StickerMoves.parse(MOVES[move]));
+            CubieCube cube = new CubieCube();
+            cube.applySequence("R U F' D2 L B'"); // Start from a mixed cube so every table entry matters.
+            CubeState before = fromCubies(cube);
+            cube.move(move);
+            assertEquals(MOVES[move], fromCubies(cube), StickerMoves.forSize(3).apply(before, move));
+        }
+    }
+
+    @Test
+    public void sequences_matchOnBothSizes() {
+        Random random = new Random(11);
+        CubieCube cube = new CubieCube();
+        CubeState cubeState = fromCubies(cube);
+        CubeState pocketState = pocketOf(cubeState);
+        for (int i = 0; i < 200; i++) {
+            int move = random.nextInt(StickerMoves.MOVE_COUNT);
+            cube.move(move);
+            cubeState = StickerMoves.forSize(3).apply(cubeState, move);
+            pocketState = StickerMoves.forSize(2).apply(pocketState, move);
+        }
+        assertEquals(fromCubies(cube), cubeState);
+        assertEquals(pocketOf(cubeState), pocketState);
+    }
+
+    @Test
+    public void inverse_undoesTheMove() {
+        CubeState start = fromCubies(new CubieCube());
+        StickerMoves moves = StickerMoves.forSize(3);
+        for (int move = 0; move < StickerMoves.MOVE_COUNT; move++) {
+            int inverse = StickerMoves.inverse(move);
+            assertEquals(StickerMoves.getFace(move), StickerMoves.getFace(inverse));
+            assertEquals(4, StickerMoves.getQuarterTurns(move) + StickerMoves.getQuarterTurns(inverse));
+            assertEquals(start, moves.apply(moves.apply(start, move), inverse));
+        }
+    }
+
+    @Test
+    public void faceTurn_leavesOtherStickersInPlace() {
+        StickerMoves moves = StickerMoves.forSize(3);
+        int moving = 0;
+        for (int sticker = 0; sticker < 54; sticker++) {
+            if (moves.getSource(0, sticker) != sticker) {
+                moving++;
+            }
+        }
+        assertEquals(20, moving); // 8 on the U face, 12 on the sides.
+        assertEquals(4, moves.getSource(0, 4)); // The U center.
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.cubesolver.solver;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the memory-mapped table file. The startup time of openOrCreate is measured by
+ * TableStartupBenchmark in the benchmark module.
+ */
+public class TableFileTest {
+
+    private static final String STATE = "DRLUUBFBRBLURRLRUBLRDDFDLFUFUFFDBRDUBRUFLLFDDBFLUBLRBD";
+
+    @ClassRule
+    public static final TemporaryFolder folder = new TemporaryFolder();
+
+    private static SolverTables generated;
+    private static File written;
+
+    @BeforeClass
+    public static void writeTables() throws IOException {
+        generated = SolverTables.generate();
+        written = folder.newFile(TableFile.FILE_NAME);
+        TableFile.write(generated, written);
+    }
+
+    @Test
+    public void writtenTables_matchGeneratedTables() throws IOException {
+        SolverTables mapped = SolverTables.open(written);
+        for (SolverTables.Table table : SolverTables.Table.values()) {
+            if (table.pruning) {
+                assertEquals(table.toString(), generated.pruning(table).duplicate().rewind(),
+                        mapped.pruning(table).duplicate().rewind());
+            } else {
+                assertEquals(table.toString(), generated.moves(table).duplicate().rewind(),
+                        mapped.moves(table).duplicate().rewind());
+            }
+        }
+    }
+
+    @Test
+    public void mappedTables_areOnlyLoadedWhenRead() throws IOException, SolverException {
+        SolverTables mapped = SolverTables.open(written);
+        assertFalse(mapped.isLoaded(SolverTables.Table.SLICE_TWIST_PRUNE));
+        String solution = new Search(mapped).solve(STATE);
+        assertTrue(mapped.isLoaded(SolverTables.Table.SLICE_TWIST_PRUNE));
+        assertEquals(new Search(generated).solve(STATE), solution);
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFormatVersion_isRejected() throws IOException {
+        File file = copy(written, "version.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4);
+            raf.write(TableFile.FORMAT_VERSION + 1);
+        }
+        TableFile.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void corruptDirectory_isRejected() throws IOException {
+        File file = copy(written, "directory.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(20); // The row count of the first directory entry.
+            raf.write(0x7f);
+        }
+        TableFile.open(file);
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFile_isRejected() throws IOException {
+        File file = copy(written, "truncated.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() / 2);
+        }
+        TableFile.open(file);
+    }
+
+    @Test
+    public void openOrCreate_regeneratesMissingFile() throws IOException, SolverException {
+        File file = new File(folder.getRoot(), "missing.bin");
+        SolverTables tables = SolverTables.openOrCreate(file);
+        assertTrue(file.isFile());
+        assertEquals(new Search(generated).solve(STATE), new Search(tables).solve(STATE));
+        // The file written by openOrCreate is valid for the next start.
+        TableFile.open(file);
+    }
+
+    @Test
+    public void openOrCreate_mapsTablesOnlyWhenRead() throws IOException, SolverException {
+        File file = copy(written, "lazy.bin");
+        SolverTables tables = SolverTables.openOrCreate(file);
+        assertTrue(tables.isMapped());
+        for (SolverTables.Table table : SolverTables.Table.values()) {
+            assertFalse(table.toString(), tables.isLoaded(table));
+        }
+        assertEquals(new Search(generated).solve(STATE), new Search(tables).solve(STATE));
+        assertTrue(tables.isLoaded(SolverTables.Table.SLICE_TWIST_PRUNE));
+    }
+
+    @Test
+    public void openOrCreate_regeneratesCorruptTableDataWhenFirstRead() throws IOException, SolverException {
+        File file = copy(written, "data.bin");
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(4096 + 10); // Inside the first table; the directory still checks out.
+            raf.write(raf.read() ^ 0x55);
+        }
+        TableFile.open(file);
+
+        SolverTables tables = SolverTables.openOrCreate(file);
+        assertFalse(tables.isLoaded(SolverTables.Table.TWIST_MOVE));
+        assertEquals(new Search(generated).solve(STATE), new Search(tables).solve(STATE));
+        assertEquals(new Search(generated).solve(STATE), new Search(tables).solve(STATE));
+        // The corrupt file was replaced by a good one.
+        SolverTables reopened = SolverTables.open(file);
+        for (SolverTables.Table table : SolverTables.Table.values()) {
+            if (table.pruning) {
+                reopened.pruning(table);
+            } else {
+                reopened.moves(table);
+            }
+        }
+    }
+
+    @Test
+    public void openOrCreate_keepsGeneratedTablesWhenTheFileCannotBeWritten() {
+        File file = new File(new File(folder.getRoot(), "missing-directory"), TableFile.FILE_NAME);
+        SolverTables tables = SolverTables.openOrCreate(file);
+        assertFalse(file.exists());
+        assertSame(tables, SolverTables.openOrCreate(file));
+    }
+
+    private static File copy(File source, String name) throws IOException {
+        File target = folder.newFile(name);
+        Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return target;
+    }
+}
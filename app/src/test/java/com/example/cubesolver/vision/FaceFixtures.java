@@ -0,0 +1,147 @@
+package com.example.cubesolver.vision;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.solver.CubieCube;
+import com.example.cubesolver.solver.FaceCube;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Pictures of cube faces rendered from known cube states, shared by the vision tests: stickers in typical plastic
+ * colors on a black body, lying on a table. A face is drawn first and then exposed, which adds the lighting and the
+ * sensor noise, so a test can put its own processing (a blur, a YUV conversion) in between.
+ */
+final class FaceFixtures {
+
+    // sRGB colors of real stickers, in CubeColor order.
+    static final int[][] STICKER_RGB = {
+        {232, 232, 226}, // White
+        {246, 214, 24},  // Yellow
+        {186, 18, 32},   // Red
+        {255, 108, 12},  // Orange
+        {0, 68, 172},    // Blue
+        {0, 154, 72},    // Green
+    };
+    static final float GAP = 0.08f; // Body visible on each side of a sticker, in cells.
+    static final int BODY = 0x0c0c0c; // The black plastic between the stickers.
+    static final int DARK_TABLE = 0x1e1c1a; // Dark slate.
+    static final int LIGHT_TABLE = 0xa88058; // Light wood.
+    static final float[] NEUTRAL = {1f, 1f, 1f}; // Channel gains of daylight.
+
+    // Colors of the U, R, F, D, L and B centers.
+    private static final CubeColor[] SCHEME = {
+        CubeColor.WHITE, CubeColor.RED, CubeColor.GREEN, CubeColor.YELLOW, CubeColor.ORANGE, CubeColor.BLUE
+    };
+
+    private FaceFixtures() {
+    }
+
+    /**
+     * Returns a randomly scrambled cube in the SCHEME colors. 2x2 cubes use the corner stickers of a 3x3 scramble.
+     */
+    static CubeState scrambled(Random random, int size) {
+        CubieCube cube = new CubieCube();
+        String[] faces = {"U", "R", "F", "D", "L", "B"};
+        String[] powers = {"", "2", "'"};
+        StringBuilder scramble = new StringBuilder();
+        for (int i = 0; i < 25; i++) {
+            scramble.append(faces[random.nextInt(6)]).append(powers[random.nextInt(3)]).append(' ');
+        }
+        cube.applySequence(scramble.toString());
+        String facelets = new FaceCube(cube).toString();
+
+        byte[] stickers = new byte[6 * size * size];
+        for (int face = 0; face < 6; face++) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int r = size == 3 ? row : row * 2, c = size == 3 ? col : col * 2;
+                    char letter = facelets.charAt(face * 9 + r * 3 + c);
+                    stickers[(face * size + row) * size + col] = (byte) SCHEME["URFDLB".indexOf(letter)].ordinal();
+                }
+            }
+        }
+        return CubeState.of(size, stickers);
+    }
+
+    /**
+     * Returns the color at a point of a face: a sticker, or the body in the gaps around it.
+     * @param u The position across the face, from 0 to 1.
+     * @param v The position down the face, from 0 to 1.
+     * @return The color as 0xRRGGBB.
+     */
+    static int faceColor(CubeState state, int face, float u, float v) {
+        int size = state.getSize();
+        int col = Math.min(size - 1, (int) (u * size)), row = Math.min(size - 1, (int) (v * size));
+        float inX = u * size - col, inY = v * size - row;
+        if (inX < GAP || inY < GAP || inX > 1f - GAP || inY > 1f - GAP) {
+            return BODY;
+        }
+        int[] rgb = STICKER_RGB[state.getColor(face, row, col).ordinal()];
+        return (rgb[0] << 16) | (rgb[1] << 8) | rgb[2];
+    }
+
+    /**
+     * Draws one face as an upright square on a table.
+     * @return The picture as 0xRRGGBB pixels, row by row.
+     */
+    static int[] drawFace(CubeState state, int face, int width, int height, float left, float top, float side,
+                          int table) {
+        int[] rgb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float u = (x - left) / side, v = (y - top) / side;
+                boolean onFace = u >= 0 && v >= 0 && u < 1 && v < 1;
+                rgb[y * width + x] = onFace ? faceColor(state, face, u, v) : table;
+            }
+        }
+        return rgb;
+    }
+
+    /**
+     * Draws one face with the given outline on a table, by mapping a fine grid of face points through the quad,
+     * several per pixel, so turned and oblique faces are drawn without holes.
+     * @return The picture as 0xRRGGBB pixels, row by row.
+     */
+    static int[] drawFace(CubeState state, int face, int width, int height, FaceQuad outline, int table) {
+        int[] rgb = new int[width * height];
+        Arrays.fill(rgb, table);
+        int steps = Math.round(3 * (float) Math.sqrt(outline.getArea()) * 1.2f);
+        for (int j = 0; j < steps; j++) {
+            float v = (j + 0.5f) / steps;
+            for (int i = 0; i < steps; i++) {
+                float u = (i + 0.5f) / steps;
+                int x = Math.round(outline.mapX(u, v)), y = Math.round(outline.mapY(u, v));
+                if (x >= 0 && y >= 0 && x < width && y < height) {
+                    rgb[y * width + x] = faceColor(state, face, u, v);
+                }
+            }
+        }
+        return rgb;
+    }
+
+    /**
+     * Exposes a drawn picture: scales each channel by its gain and the brightness by a falloff from the left edge
+     * to the right one, then adds Gaussian sensor noise.
+     * @param gains The red, green and blue gains; further entries are ignored.
+     * @param falloff The fraction of brightness lost at the right edge.
+     * @param noise The standard deviation of the noise, in 8-bit levels.
+     * @return The photo as opaque ARGB pixels.
+     */
+    static int[] expose(int[] rgb, int width, float[] gains, float falloff, double noise, Random random) {
+        int[] pixels = new int[rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            float light = 1f - falloff * (i % width) / width;
+            int r = channel(((rgb[i] >> 16) & 0xff) * gains[0] * light + random.nextGaussian() * noise);
+            int g = channel(((rgb[i] >> 8) & 0xff) * gains[1] * light + random.nextGaussian() * noise);
+            int b = channel((rgb[i] & 0xff) * gains[2] * light + random.nextGaussian() * noise);
+            pixels[i] = 0xff000000 | (r << 16) | (g << 8) | b;
+        }
+        return pixels;
+    }
+
+    static int channel(double value) {
+        return (int) Math.max(0, Math.min(255, Math.round(value)));
+    }
+}
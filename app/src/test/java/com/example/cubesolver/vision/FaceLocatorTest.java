@@ -0,0 +1,148 @@
+package com.example.cubesolver.vision;
+
+import com.example.cubesolver.model.CubeState;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.example.cubesolver.vision.FaceFixtures.DARK_TABLE;
+import static com.example.cubesolver.vision.FaceFixtures.GAP;
+import static com.example.cubesolver.vision.FaceFixtures.LIGHT_TABLE;
+import static com.example.cubesolver.vision.FaceFixtures.NEUTRAL;
+import static com.example.cubesolver.vision.FaceFixtures.channel;
+import static com.example.cubesolver.vision.FaceFixtures.drawFace;
+import static com.example.cubesolver.vision.FaceFixtures.expose;
+import static com.example.cubesolver.vision.FaceFixtures.scrambled;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for face localization. The fixtures are 320x240 photos of a face that does not fill the frame:
+ * off-center, 45% to 75% of the shorter side, turned by up to 10 degrees and seen slightly at an angle, on a dark
+ * or a light table, with sensor noise.
+ */
+public class FaceLocatorTest {
+
+    private static final int PHOTO_WIDTH = 320;
+    private static final int PHOTO_HEIGHT = 240;
+
+    private static final int[] TABLES = {DARK_TABLE, LIGHT_TABLE};
+
+    private final FaceLocator locator = new FaceLocator();
+
+    @Test
+    public void quad_mapsTheUnitSquareOntoItsCorners() {
+        FaceQuad quad = new FaceQuad().setCorners(10, 20, 110, 30, 100, 140, 5, 120);
+        float[][] unit = {{0, 0}, {1, 0}, {1, 1}, {0, 1}};
+        for (int corner = 0; corner < 4; corner++) {
+            assertEquals(quad.getCornerX(corner), quad.mapX(unit[corner][0], unit[corner][1]), 1e-3f);
+            assertEquals(quad.getCornerY(corner), quad.mapY(unit[corner][0], unit[corner][1]), 1e-3f);
+        }
+        // The center of the unit square maps to where the diagonals cross.
+        FaceQuad square = new FaceQuad().setSquare(4, 8, 100);
+        assertEquals(54f, square.mapX(0.5f, 0.5f), 1e-4f);
+        assertEquals(58f, square.mapY(0.5f, 0.5f), 1e-4f);
+        assertEquals(10000f, square.getArea(), 1e-2f);
+    }
+
+    @Test
+    public void offCenterTiltedFaces_areLocated() {
+        Random random = new Random(31);
+        for (int fixture = 0; fixture < 24; fixture++) {
+            int size = fixture % 2 == 0 ? 3 : 2;
+            CubeState state = scrambled(random, size);
+            FaceQuad expected = randomPlacement(random);
+            FaceImage photo = render(state, fixture % CubeState.FACE_COUNT, expected, TABLES[fixture / 2 % 2], random);
+
+            FaceQuad located = new FaceQuad();
+            assertTrue("Fixture " + fixture, locator.locate(photo, located));
+            // The locator finds the outline of the stickers, just inside the rim of the cube body.
+            float inset = GAP / size;
+            float[][] stickerCorners = {{inset, inset}, {1 - inset, inset}, {1 - inset, 1 - inset}, {inset, 1 - inset}};
+            float tolerance = 0.05f * (float) Math.sqrt(expected.getArea());
+            for (int corner = 0; corner < 4; corner++) {
+                float u = stickerCorners[corner][0], v = stickerCorners[corner][1];
+                float distance = (float) Math.hypot(located.getCornerX(corner) - expected.mapX(u, v),
+                        located.getCornerY(corner) - expected.mapY(u, v));
+                assertTrue("Fixture " + fixture + " corner " + corner + " is off by " + distance + " px",
+                        distance < tolerance);
+            }
+        }
+    }
+
+    @Test
+    public void offCenterTiltedFaces_areClassifiedExactly() {
+        Random random = new Random(32);
+        StickerClassifier classifier = new StickerClassifier();
+        for (int fixture = 0; fixture < 6; fixture++) {
+            CubeState expected = scrambled(random, fixture % 2 == 0 ? 3 : 2);
+            FaceImage[] photos = new FaceImage[CubeState.FACE_COUNT];
+            for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+                photos[face] = render(expected, face, randomPlacement(random), TABLES[face % 2], random);
+            }
+            assertEquals("Fixture " + fixture, expected, classifier.classify(photos).getState());
+        }
+    }
+
+    @Test
+    public void featurelessPhoto_isNotLocated() {
+        Random random = new Random(33);
+        int[] pixels = new int[PHOTO_WIDTH * PHOTO_HEIGHT];
+        for (int i = 0; i < pixels.length; i++) {
+            int gray = channel(120 + random.nextGaussian() * 6);
+            pixels[i] = 0xff000000 | (gray << 16) | (gray << 8) | gray;
+        }
+        FaceQuad quad = new FaceQuad().setSquare(1, 2, 3);
+        assertFalse(locator.locate(new FaceImage(pixels, PHOTO_WIDTH, PHOTO_HEIGHT), quad));
+        assertEquals(1f, quad.getCornerX(0), 0f); // Left unchanged.
+    }
+
+    @Test
+    public void face_isLocatedWellUnder20Milliseconds() {
+        Random random = new Random(34);
+        FaceImage photo = render(scrambled(random, 3), 0, randomPlacement(random), TABLES[1], random);
+        FaceQuad quad = new FaceQuad();
+        for (int i = 0; i < 50; i++) {
+            locator.locate(photo, quad); // Warm up the JIT like a long-running app process would be.
+        }
+        int runs = 100;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            locator.locate(photo, quad);
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / runs;
+        assertTrue("Locating a face in a " + PHOTO_WIDTH + "x" + PHOTO_HEIGHT + " photo took " + millis + " ms",
+                millis < 20);
+    }
+
+    /**
+     * Returns a face outline somewhere inside the photo: a square of 45% to 75% of the shorter side, turned by up to
+     * 10 degrees, with every corner moved by up to 3% of the side to mimic a slightly oblique view.
+     */
+    private static FaceQuad randomPlacement(Random random) {
+        float side = PHOTO_HEIGHT * (0.45f + 0.3f * random.nextFloat());
+        double angle = Math.toRadians(random.nextFloat() * 20f - 10f);
+        float radius = side * 0.75f; // Enough room for the turned square and the jitter.
+        float centerX = radius + random.nextFloat() * (PHOTO_WIDTH - 2 * radius);
+        float centerY = radius + random.nextFloat() * (PHOTO_HEIGHT - 2 * radius);
+        float[] corners = new float[8];
+        float[][] unit = {{-0.5f, -0.5f}, {0.5f, -0.5f}, {0.5f, 0.5f}, {-0.5f, 0.5f}};
+        for (int corner = 0; corner < 4; corner++) {
+            float x = unit[corner][0] * side, y = unit[corner][1] * side;
+            corners[2 * corner] = centerX + (float) (x * Math.cos(angle) - y * Math.sin(angle))
+                    + (random.nextFloat() * 2f - 1f) * 0.03f * side;
+            corners[2 * corner + 1] = centerY + (float) (x * Math.sin(angle) + y * Math.cos(angle))
+                    + (random.nextFloat() * 2f - 1f) * 0.03f * side;
+        }
+        return new FaceQuad().setCorners(corners[0], corners[1], corners[2], corners[3],
+                corners[4], corners[5], corners[6], corners[7]);
+    }
+
+    /**
+     * Renders one face of a cube into a photo: the face with the given outline on a table, with Gaussian sensor noise.
+     */
+    private static FaceImage render(CubeState state, int face, FaceQuad outline, int table, Random random) {
+        int[] rgb = drawFace(state, face, PHOTO_WIDTH, PHOTO_HEIGHT, outline, table);
+        return new FaceImage(expose(rgb, PHOTO_WIDTH, NEUTRAL, 0f, 6, random), PHOTO_WIDTH, PHOTO_HEIGHT);
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.cubesolver.vision;
+
+import com.example.cubesolver.model.CubeState;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.example.cubesolver.vision.FaceFixtures.DARK_TABLE;
+import static com.example.cubesolver.vision.FaceFixtures.NEUTRAL;
+import static com.example.cubesolver.vision.FaceFixtures.channel;
+import static com.example.cubesolver.vision.FaceFixtures.drawFace;
+import static com.example.cubesolver.vision.FaceFixtures.expose;
+import static com.example.cubesolver.vision.FaceFixtures.scrambled;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the live scanner. The fixtures are recorded-style camera frames: a face rendered into the
+ * guide square of a 320x240 picture with sensor noise, stored as NV21 (interleaved V/U) or I420 (planar) planes.
+ */
+public class LiveFaceScannerTest {
+
+    private static final int FRAME_WIDTH = 320;
+    private static final int FRAME_HEIGHT = 240;
+
+    // Per-channel gains of a warm indoor light.
+    private static final float[] WARM = {1.00f, 0.90f, 0.72f};
+
+    @Test
+    public void steadyFace_isCapturedAfterStableFrames() {
+        Random random = new Random(21);
+        CubeState cube = scrambled(random, 3);
+        LiveFaceScanner scanner = new LiveFaceScanner(3);
+        YuvFrame frame = new YuvFrame();
+        for (int i = 1; i < LiveFaceScanner.DEFAULT_STABLE_FRAMES; i++) {
+            assertEquals(LiveFaceScanner.Status.STEADYING, scanner.analyze(nv21(frame, cube, 0, NEUTRAL, random, 0), 0));
+        }
+        assertEquals(LiveFaceScanner.Status.CAPTURED, scanner.analyze(nv21(frame, cube, 0, NEUTRAL, random, 0), 0));
+        assertEquals(1, scanner.getCaptureCount());
+        for (int cell = 0; cell < 9; cell++) {
+            assertEquals(cube.getColor(0, cell / 3, cell % 3).ordinal(), scanner.getLabel(cell));
+        }
+        // Holding the same face longer does not capture it twice.
+        assertEquals(LiveFaceScanner.Status.ALREADY_CAPTURED, scanner.analyze(nv21(frame, cube, 0, NEUTRAL, random, 0), 0));
+    }
+
+    @Test
+    public void changingPicture_isNotCaptured() {
+        Random random = new Random(22);
+        CubeState cube = scrambled(random, 3);
+        LiveFaceScanner scanner = new LiveFaceScanner(3);
+        YuvFrame frame = new YuvFrame();
+        for (int i = 0; i < 30; i++) {
+            // Panning across faces: every frame shows a different face.
+            LiveFaceScanner.Status status = scanner.analyze(nv21(frame, cube, i % 6, NEUTRAL, random, 0), 0);
+            assertNotEquals(LiveFaceScanner.Status.CAPTURED, status);
+        }
+        byte[] y = new byte[FRAME_WIDTH * FRAME_HEIGHT];
+        byte[] vu = new byte[FRAME_WIDTH * FRAME_HEIGHT / 2];
+        random.nextBytes(y);
+        random.nextBytes(vu);
+        frame.set(y, FRAME_WIDTH, vu, 1, vu, 0, FRAME_WIDTH, 2, FRAME_WIDTH, FRAME_HEIGHT);
+        assertEquals(LiveFaceScanner.Status.NO_FACE, scanner.analyze(frame, 0));
+        assertEquals(0, scanner.getCaptureCount());
+    }
+
+    @Test
+    public void sixCapturedFaces_classifyToTheCube() {
+        for (int size = 2; size <= 3; size++) {
+            Random random = new Random(23 + size);
+            CubeState cube = scrambled(random, size);
+            LiveFaceScanner scanner = new LiveFaceScanner(size);
+            YuvFrame frame = new YuvFrame();
+            for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+                LiveFaceScanner.Status status;
+                do {
+                    status = scanner.analyze(nv21(frame, cube, face, WARM, random, 0), 0);
+                } while (status == LiveFaceScanner.Status.STEADYING);
+                assertEquals("Face " + face, LiveFaceScanner.Status.CAPTURED, status);
+            }
+            assertEquals(LiveFaceScanner.Status.COMPLETE, scanner.analyze(nv21(frame, cube, 0, WARM, random, 0), 0));
+
+            float[] lab = new float[cube.getStickerCount() * 3];
+            scanner.copyCapturedLab(lab);
+            assertEquals(cube, new StickerClassifier().classify(lab, size).getState());
+        }
+    }
+
+    @Test
+    public void rotatedAndPlanarFrames_followTheUprightPicture() {
+        Random random = new Random(26);
+        CubeState cube = scrambled(random, 3);
+        for (int rotation = 0; rotation < 360; rotation += 90) {
+            LiveFaceScanner scanner = new LiveFaceScanner(3, 1, LiveFaceScanner.DEFAULT_GUIDE_FRACTION);
+            YuvFrame frame = rotation == 0 ? i420(cube, 2, random) : nv21(new YuvFrame(), cube, 2, NEUTRAL, random, rotation);
+            assertEquals("Rotation " + rotation, LiveFaceScanner.Status.CAPTURED, scanner.analyze(frame, rotation));
+            for (int cell = 0; cell < 9; cell++) {
+                assertEquals("Rotation " + rotation + ", cell " + cell,
+                        cube.getColor(2, cell / 3, cell % 3).ordinal(), scanner.getLabel(cell));
+            }
+        }
+    }
+
+    @Test
+    public void frameAnalysis_fitsA30FpsBudgetEasily() {
+        Random random = new Random(27);
+        CubeState cube = scrambled(random, 3);
+        YuvFrame frame = nv21(new YuvFrame(), cube, 0, WARM, random, 90);
+        LiveFaceScanner scanner = new LiveFaceScanner(3, Integer.MAX_VALUE, LiveFaceScanner.DEFAULT_GUIDE_FRACTION);
+        for (int i = 0; i < 2000; i++) {
+            scanner.analyze(frame, 90); // Warm up.
+        }
+        int runs = 2000;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            scanner.analyze(frame, 90);
+        }
+        long perFrame = (System.nanoTime() - start) / runs;
+        assertTrue("Frame analysis took " + perFrame + " ns", perFrame < 2_000_000L);
+    }
+
+    /**
+     * Renders one face centered in the guide square of an upright picture, with noise, and stores it as NV21 for
+     * a sensor that needs the given clockwise rotation to be upright.
+     */
+    private static YuvFrame nv21(YuvFrame frame, CubeState cube, int face, float[] lighting, Random random, int rotation) {
+        int[] upright = render(cube, face, lighting, random, rotation % 180 == 0);
+        boolean sideways = rotation % 180 != 0;
+        int uprightWidth = sideways ? FRAME_HEIGHT : FRAME_WIDTH;
+        byte[] y = new byte[FRAME_WIDTH * FRAME_HEIGHT];
+        byte[] vu = new byte[FRAME_WIDTH * FRAME_HEIGHT / 2];
+        for (int py = 0; py < FRAME_HEIGHT; py++) {
+            for (int px = 0; px < FRAME_WIDTH; px++) {
+                // The upright pixel that ends up at this sensor pixel.
+                int ux, uy;
+                switch (rotation) {
+                    case 90: ux = FRAME_HEIGHT - 1 - py; uy = px; break;
+                    case 180: ux = FRAME_WIDTH - 1 - px; uy = FRAME_HEIGHT - 1 - py; break;
+                    case 270: ux = py; uy = FRAME_WIDTH - 1 - px; break;
+                    default: ux = px; uy = py; break;
+                }
+                int rgb = upright[uy * uprightWidth + ux];
+                y[py * FRAME_WIDTH + px] = (byte) luma(rgb);
+                if (px % 2 == 0 && py % 2 == 0) {
+                    int chroma = (py / 2) * FRAME_WIDTH + px;
+                    vu[chroma] = (byte) chromaV(rgb);
+                    vu[chroma + 1] = (byte) chromaU(rgb);
+                }
+            }
+        }
+        return frame.set(y, FRAME_WIDTH, vu, 1, vu, 0, FRAME_WIDTH, 2, FRAME_WIDTH, FRAME_HEIGHT);
+    }
+
+    /**
+     * Renders one face into an upright I420 frame with padded rows, as some camera HALs deliver them.
+     */
+    private static YuvFrame i420(CubeState cube, int face, Random random) {
+        int[] upright = render(cube, face, NEUTRAL, random, true);
+        int stride = FRAME_WIDTH + 16;
+        int chromaStride = stride / 2;
+        byte[] y = new byte[stride * FRAME_HEIGHT];
+        byte[] u = new byte[chromaStride * FRAME_HEIGHT / 2];
+        byte[] v = new byte[chromaStride * FRAME_HEIGHT / 2];
+        for (int py = 0; py < FRAME_HEIGHT; py++) {
+            for (int px = 0; px < FRAME_WIDTH; px++) {
+                int rgb = upright[py * FRAME_WIDTH + px];
+                y[py * stride + px] = (byte) luma(rgb);
+                if (px % 2 == 0 && py % 2 == 0) {
+                    u[(py / 2) * chromaStride + px / 2] = (byte) chromaU(rgb);
+                    v[(py / 2) * chromaStride + px / 2] = (byte) chromaV(rgb);
+                }
+            }
+        }
+        return new YuvFrame().set(y, stride, u, 0, v, 0, chromaStride, 1, FRAME_WIDTH, FRAME_HEIGHT);
+    }
+
+    /**
+     * Renders the upright picture: a face filling the guide square on a dark table, with Gaussian noise.
+     * @return ARGB pixels, FRAME_WIDTH wide if landscape, else FRAME_HEIGHT wide.
+     */
+    private static int[] render(CubeState cube, int face, float[] lighting, Random random, boolean landscape) {
+        int width = landscape ? FRAME_WIDTH : FRAME_HEIGHT;
+        int height = landscape ? FRAME_HEIGHT : FRAME_WIDTH;
+        float side = LiveFaceScanner.DEFAULT_GUIDE_FRACTION * Math.min(width, height);
+        int[] rgb = drawFace(cube, face, width, height, (width - side) / 2f, (height - side) / 2f, side, DARK_TABLE);
+        return expose(rgb, width, lighting, 0f, 4, random);
+    }
+
+    // Full-range BT.601, the inverse of LiveFaceScanner.toLab's YUV conversion.
+    private static int luma(int rgb) {
+        return channel(0.299 * (rgb >> 16 & 0xff) + 0.587 * (rgb >> 8 & 0xff) + 0.114 * (rgb & 0xff));
+    }
+
+    private static int chromaU(int rgb) {
+        return channel(-0.168736 * (rgb >> 16 & 0xff) - 0.331264 * (rgb >> 8 & 0xff) + 0.5 * (rgb & 0xff) + 128);
+    }
+
+    private static int chromaV(int rgb) {
+        return channel(0.5 * (rgb >> 16 & 0xff) - 0.418688 * (rgb >> 8 & 0xff) - 0.081312 * (rgb & 0xff) + 128);
+    }
+}
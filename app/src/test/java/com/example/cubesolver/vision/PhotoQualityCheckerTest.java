@@ -0,0 +1,156 @@
+package com.example.cubesolver.vision;
+
+import com.example.cubesolver.model.CubeState;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.example.cubesolver.vision.FaceFixtures.DARK_TABLE;
+import static com.example.cubesolver.vision.FaceFixtures.channel;
+import static com.example.cubesolver.vision.FaceFixtures.drawFace;
+import static com.example.cubesolver.vision.FaceFixtures.expose;
+import static com.example.cubesolver.vision.FaceFixtures.scrambled;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the photo quality gate. The fixtures are 256 px face photos, the size MainActivity decodes
+ * for the classifier: FaceFixtures faces, softened slightly like a downscaled camera photo,
+ * then blurred, darkened or overexposed.
+ */
+public class PhotoQualityCheckerTest {
+
+    private static final int IMAGE_SIZE = 256;
+
+    // Overall light levels of acceptable photos: daylight, indoor light and a dim room.
+    private static final float[] GOOD_LIGHT = {1.0f, 0.8f, 0.55f};
+
+    private final PhotoQualityChecker checker = new PhotoQualityChecker();
+
+    @Test
+    public void focusedPhotos_areAccepted() {
+        Random random = new Random(41);
+        for (int fixture = 0; fixture < 12; fixture++) {
+            PhotoQualityChecker.Result result = checker.check(fixture(random, fixture, GOOD_LIGHT[fixture % 3], 1));
+            assertEquals("Fixture " + fixture + ", sharpness " + result.getSharpness(),
+                    PhotoQualityChecker.Problem.NONE, result.getProblem());
+            assertTrue(result.isAcceptable());
+        }
+    }
+
+    @Test
+    public void blurredPhotos_areRejectedAsBlurry() {
+        Random random = new Random(42);
+        for (int fixture = 0; fixture < 12; fixture++) {
+            int radius = fixture % 2 == 0 ? 2 : 3;
+            PhotoQualityChecker.Result result = checker.check(fixture(random, fixture, GOOD_LIGHT[fixture % 3], radius));
+            assertEquals("Fixture " + fixture + ", sharpness " + result.getSharpness(),
+                    PhotoQualityChecker.Problem.BLURRY, result.getProblem());
+        }
+    }
+
+    @Test
+    public void darkPhotos_areRejectedAsTooDark() {
+        Random random = new Random(43);
+        for (int fixture = 0; fixture < 12; fixture++) {
+            PhotoQualityChecker.Result result = checker.check(fixture(random, fixture, 0.15f, 1));
+            assertEquals("Fixture " + fixture, PhotoQualityChecker.Problem.TOO_DARK, result.getProblem());
+        }
+    }
+
+    @Test
+    public void overexposedPhotos_areRejectedAsOverexposed() {
+        Random random = new Random(44);
+        for (int fixture = 0; fixture < 12; fixture++) {
+            PhotoQualityChecker.Result result = checker.check(fixture(random, fixture, 4f, 1));
+            assertEquals("Fixture " + fixture + ", clipped " + result.getClippedFraction(),
+                    PhotoQualityChecker.Problem.OVEREXPOSED, result.getProblem());
+        }
+    }
+
+    @Test
+    public void thresholds_areConfigurable() {
+        Random random = new Random(45);
+        FaceImage blurred = fixture(random, 0, 1f, 4);
+        assertFalse(checker.check(blurred).isAcceptable());
+        PhotoQualityChecker lenient = new PhotoQualityChecker(0f, 1f, 0);
+        assertTrue(lenient.check(blurred).isAcceptable());
+        PhotoQualityChecker strict = new PhotoQualityChecker(PhotoQualityChecker.DEFAULT_MIN_SHARPNESS,
+                PhotoQualityChecker.DEFAULT_MAX_CLIPPED_FRACTION, 255);
+        assertEquals(PhotoQualityChecker.Problem.TOO_DARK, strict.check(fixture(random, 1, 1f, 1)).getProblem());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void clippedFractionAboveOne_isRejected() {
+        new PhotoQualityChecker(0f, 1.5f, 0);
+    }
+
+    @Test
+    public void photo_isCheckedWellUnderAMillisecond() {
+        Random random = new Random(46);
+        FaceImage photo = fixture(random, 0, 1f, 1);
+        for (int i = 0; i < 200; i++) {
+            checker.check(photo); // Warm up the JIT like a long-running app process would be.
+        }
+        int runs = 500;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            checker.check(photo);
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / runs;
+        assertTrue("Checking a " + IMAGE_SIZE + " px photo took " + millis + " ms", millis < 1);
+    }
+
+    /**
+     * Renders one face of a scrambled cube, 3x3 for even fixtures and 2x2 for odd ones.
+     */
+    private static FaceImage fixture(Random random, int fixture, float light, int blurRadius) {
+        CubeState state = scrambled(random, fixture % 2 == 0 ? 3 : 2);
+        return render(state, fixture % CubeState.FACE_COUNT, light, blurRadius, random);
+    }
+
+    /**
+     * Renders one face photo: the face on a dark table, box-blurred twice with the given radius (1 is the softness
+     * of a downscaled sharp photo), then scaled by a light level, with sensor noise.
+     */
+    private static FaceImage render(CubeState state, int face, float light, int blurRadius, Random random) {
+        int margin = 10 + random.nextInt(6);
+        int[] rgb = drawFace(state, face, IMAGE_SIZE, IMAGE_SIZE, margin, margin, IMAGE_SIZE - 2f * margin, DARK_TABLE);
+        float[][] planes = new float[3][rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            for (int c = 0; c < 3; c++) {
+                planes[c][i] = (rgb[i] >> (16 - 8 * c)) & 0xff;
+            }
+        }
+        for (float[] plane : planes) {
+            for (int pass = 0; pass < 2; pass++) {
+                boxBlur(plane, blurRadius, true);
+                boxBlur(plane, blurRadius, false);
+            }
+        }
+        for (int i = 0; i < rgb.length; i++) {
+            rgb[i] = (channel(planes[0][i]) << 16) | (channel(planes[1][i]) << 8) | channel(planes[2][i]);
+        }
+        float[] gains = {light, light, light};
+        return new FaceImage(expose(rgb, IMAGE_SIZE, gains, 0f, 3, random), IMAGE_SIZE, IMAGE_SIZE);
+    }
+
+    /**
+     * Averages every pixel with its neighbors within a radius along rows or columns, clamping at the borders.
+     */
+    private static void boxBlur(float[] plane, int radius, boolean horizontal) {
+        float[] line = new float[IMAGE_SIZE];
+        for (int a = 0; a < IMAGE_SIZE; a++) {
+            for (int b = 0; b < IMAGE_SIZE; b++) {
+                line[b] = horizontal ? plane[a * IMAGE_SIZE + b] : plane[b * IMAGE_SIZE + a];
+            }
+            for (int b = 0; b < IMAGE_SIZE; b++) {
+                float sum = 0f;
+                for (int k = -radius; k <= radius; k++) {
+                    sum += line[Math.max(0, Math.min(IMAGE_SIZE - 1, b + k))];
+                }
+                plane[horizontal ? a * IMAGE_SIZE + b : b * IMAGE_SIZE + a] = sum / (2 * radius + 1);
+            }
+        }
+    }
+}
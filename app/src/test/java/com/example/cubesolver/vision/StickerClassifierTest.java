@@ -0,0 +1,154 @@
+package com.example.cubesolver.vision;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static com.example.cubesolver.vision.FaceFixtures.DARK_TABLE;
+import static com.example.cubesolver.vision.FaceFixtures.STICKER_RGB;
+import static com.example.cubesolver.vision.FaceFixtures.channel;
+import static com.example.cubesolver.vision.FaceFixtures.drawFace;
+import static com.example.cubesolver.vision.FaceFixtures.expose;
+import static com.example.cubesolver.vision.FaceFixtures.scrambled;
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the sticker color classifier. The fixtures are FaceFixtures photos of known cube states that
+ * fill most of the frame, with noise, uneven lighting and colored casts.
+ */
+public class StickerClassifierTest {
+
+    private static final int IMAGE_SIZE = 240;
+
+    /**
+     * Lighting applied to a rendered fixture: per-channel gains and a brightness falloff from left to right.
+     */
+    private static final float[][] LIGHTING = {
+        {1.00f, 1.00f, 1.00f, 0.00f}, // Neutral daylight.
+        {1.00f, 0.90f, 0.72f, 0.10f}, // Warm indoor light.
+        {0.86f, 0.95f, 1.00f, 0.10f}, // Cool shade.
+        {0.62f, 0.62f, 0.62f, 0.25f}, // Dim with a strong gradient.
+    };
+
+    private final StickerClassifier classifier = new StickerClassifier();
+
+    @Test
+    public void scrambled3x3_isClassifiedExactly() {
+        Random random = new Random(11);
+        for (int fixture = 0; fixture < 20; fixture++) {
+            CubeState expected = scrambled(random, 3);
+            float[] lighting = LIGHTING[fixture % LIGHTING.length];
+            StickerClassifier.Result result = classifier.classify(render(expected, lighting, random));
+            assertEquals("Fixture " + fixture, expected, result.getState());
+        }
+    }
+
+    @Test
+    public void scrambled2x2_isClassifiedExactly() {
+        Random random = new Random(12);
+        for (int fixture = 0; fixture < 20; fixture++) {
+            CubeState expected = scrambled(random, 2);
+            float[] lighting = LIGHTING[fixture % LIGHTING.length];
+            StickerClassifier.Result result = classifier.classify(render(expected, lighting, random));
+            assertEquals("Fixture " + fixture, expected, result.getState());
+        }
+    }
+
+    @Test
+    public void cubeSize_isDetected() {
+        Random random = new Random(13);
+        assertEquals(3, classifier.detectSize(render(scrambled(random, 3), LIGHTING[0], random)));
+        assertEquals(2, classifier.detectSize(render(scrambled(random, 2), LIGHTING[0], random)));
+    }
+
+    @Test
+    public void cleanFixture_hasNoAmbiguousStickers() {
+        Random random = new Random(14);
+        StickerClassifier.Result result = classifier.classify(render(scrambled(random, 3), LIGHTING[0], random), 3);
+        assertEquals(0, result.getAmbiguousStickers());
+    }
+
+    @Test
+    public void confidences_favorTheDetectedColorAndSplitOnAmbiguousStickers() {
+        Random random = new Random(15);
+        CubeState cube = scrambled(random, 3);
+        float[] samples = new float[cube.getStickerCount() * 3];
+        for (int i = 0; i < cube.getStickerCount(); i++) {
+            int[] rgb = STICKER_RGB[cube.getOrdinal(i)];
+            LabColor.fromArgb(0xff000000 | (channel(rgb[0] + random.nextGaussian() * 3) << 16)
+                    | (channel(rgb[1] + random.nextGaussian() * 3) << 8) | channel(rgb[2] + random.nextGaussian() * 3),
+                    samples, i * 3);
+        }
+        // Wash one red sticker out halfway to orange, as glare does.
+        int glare = -1;
+        for (int i = 0; i < cube.getStickerCount() && glare < 0; i++) {
+            if (i % 9 != 4 && cube.getOrdinal(i) == CubeColor.RED.ordinal()) {
+                glare = i;
+            }
+        }
+        LabColor.fromArgb(0xffdc3e16, samples, glare * 3);
+
+        StickerClassifier.Result result = classifier.classify(samples, 3);
+        float[] confidences = result.getConfidences();
+        for (int i = 0; i < cube.getStickerCount(); i++) {
+            float sum = 0f;
+            for (int color = 0; color < CubeColor.COUNT; color++) {
+                sum += confidences[i * CubeColor.COUNT + color];
+            }
+            assertEquals(1f, sum, 1e-4f);
+            if (i != glare) {
+                assertTrue("Sticker " + i, confidences[i * CubeColor.COUNT + result.getState().getOrdinal(i)] > 0.99f);
+            }
+        }
+        float red = confidences[glare * CubeColor.COUNT + CubeColor.RED.ordinal()];
+        float orange = confidences[glare * CubeColor.COUNT + CubeColor.ORANGE.ordinal()];
+        assertTrue("Red " + red + ", orange " + orange, red > 0.05f && orange > 0.05f && red + orange > 0.99f);
+    }
+
+    @Test
+    public void assignment_isOptimal() {
+        float[][] cost = {
+            {4, 1, 3},
+            {2, 0, 5},
+            {3, 2, 2},
+        };
+        // Rows 0 and 1 both prefer column 1; giving it to row 0 costs 1 + 2 + 2, less than any other choice.
+        assertArrayEquals(new int[]{1, 0, 2}, StickerClassifier.assign(cost));
+    }
+
+    @Test
+    public void sixFaces_areClassifiedWellUnder100Milliseconds() {
+        Random random = new Random(15);
+        FaceImage[] faces = render(scrambled(random, 3), LIGHTING[1], random);
+        for (int i = 0; i < 20; i++) {
+            classifier.classify(faces); // Warm up the JIT like a long-running app process would be.
+        }
+        int runs = 50;
+        long start = System.nanoTime();
+        for (int i = 0; i < runs; i++) {
+            classifier.classify(faces);
+        }
+        double millis = (System.nanoTime() - start) / 1e6 / runs;
+        assertTrue("Classifying six faces took " + millis + " ms", millis < 100);
+    }
+
+    /**
+     * Renders six face photos: the face slightly shifted from the center, on a dark table, with Gaussian sensor
+     * noise and the given lighting.
+     */
+    private static FaceImage[] render(CubeState state, float[] lighting, Random random) {
+        FaceImage[] images = new FaceImage[6];
+        for (int face = 0; face < 6; face++) {
+            int margin = 8 + random.nextInt(6);
+            int shiftX = random.nextInt(7) - 3, shiftY = random.nextInt(7) - 3;
+            int[] rgb = drawFace(state, face, IMAGE_SIZE, IMAGE_SIZE, margin + shiftX, margin + shiftY,
+                    IMAGE_SIZE - 2f * margin, DARK_TABLE);
+            images[face] = new FaceImage(expose(rgb, IMAGE_SIZE, lighting, lighting[3], 6, random),
+                    IMAGE_SIZE, IMAGE_SIZE);
+        }
+        return images;
+    }
+}
@@ -0,0 +1,57 @@
+// JMH benchmarks for the app's pure-Java hot paths: the solvers, facelet-string generation,
+// Gemini response parsing and image preparation. They run on a desktop JVM, not on a device.
+//
+// Run all benchmarks:            ./gradlew :benchmark:jmh
+// Run a subset:                  ./gradlew :benchmark:jmh -PbenchmarkInclude=Solver
+// Tag the results with a commit: ./gradlew :benchmark:jmh -PbenchmarkTag=$(git rev-parse --short HEAD)
+// Results are written as JSON to benchmark/build/results/jmh/, one file per tag, so runs from different
+// commits can be compared side by side.
+plugins {
+    // The plain Java plugin: this module has no Android code.
+    java
+    // Generates the JMH harness from the classes in src/jmh/java and adds the `jmh` task.
+    alias(libs.plugins.jmh)
+}
+
+java {
+    // Same language level as the app.
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            // Compile the app's Android-free packages directly, so the benchmarks always measure the current code.
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/cubesolver/model/**",
+                "com/example/cubesolver/net/**",
+                "com/example/cubesolver/pipeline/**",
+                "com/example/cubesolver/solver/**",
+                "com/example/cubesolver/vision/**"
+            )
+        }
+    }
+}
+
+dependencies {
+    // The libraries the included app packages use.
+    implementation(libs.jackson.databind)
+    implementation(libs.commons.codec)
+    implementation(libs.commons.io)
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    val tag = (findProperty("benchmarkTag") as String?) ?: "latest"
+    resultFormat.set("JSON")
+    resultsFile.set(layout.buildDirectory.file("results/jmh/results-$tag.json"))
+    (findProperty("benchmarkInclude") as String?)?.let { includes.set(listOf(it)) }
+    // Enough for stable numbers on a build box without making a full run take long.
+    fork.set(1)
+    warmupIterations.set(3)
+    warmup.set("1s")
+    iterations.set(5)
+    timeOnIteration.set("1s")
+}
@@ -0,0 +1,62 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.vision.FaceImage;
+import com.example.cubesolver.vision.FaceLocator;
+import com.example.cubesolver.vision.FaceQuad;
+import com.example.cubesolver.vision.StickerClassifier;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * On-device color detection of six 256 px face images, with and without size detection, and locating the face in
+ * one of them, which the classifier does for every image.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ClassifierBenchmark {
+
+    private static final int IMAGE_SIZE = 256; // MainActivity.CLASSIFIER_IMAGE_SIZE
+
+    private final StickerClassifier classifier = new StickerClassifier();
+    private final FaceLocator locator = new FaceLocator();
+    private final FaceQuad quad = new FaceQuad();
+    private FaceImage[] faces;
+
+    @Setup
+    public void setUp() {
+        CubeState cube = Fixtures.cubeStates(7, 3)[0];
+        Random random = new Random(8);
+        faces = new FaceImage[CubeState.FACE_COUNT];
+        for (int face = 0; face < faces.length; face++) {
+            int[] rgb = Fixtures.drawFace(cube, face, IMAGE_SIZE, IMAGE_SIZE, 0, 0, IMAGE_SIZE);
+            faces[face] = new FaceImage(Fixtures.addNoise(rgb, 6, random), IMAGE_SIZE, IMAGE_SIZE);
+        }
+    }
+
+    @Benchmark
+    public StickerClassifier.Result classifyWithSizeDetection() {
+        return classifier.classify(faces);
+    }
+
+    @Benchmark
+    public StickerClassifier.Result classify3x3() {
+        return classifier.classify(faces, 3);
+    }
+
+    @Benchmark
+    public FaceQuad locateFace() {
+        locator.locate(faces[0], quad);
+        return quad;
+    }
+}
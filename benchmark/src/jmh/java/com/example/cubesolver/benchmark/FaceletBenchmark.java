@@ -0,0 +1,78 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.model.CubeState;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cube-state conversions SolutionActivity and AlgorithmSolutionActivity run: parsing the matrix text,
+ * building the solver strings (generateKociembaStringAndProceed) and the JSON round trip between the screens.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class FaceletBenchmark {
+
+    private List<List<String>> matrices;
+    private CubeState[] cubes;
+    private CubeState[] pocketCubes;
+    private String[] json;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cubes = Fixtures.cubeStates(3, 3);
+        pocketCubes = Fixtures.cubeStates(4, 2);
+        matrices = new ArrayList<>();
+        json = new String[cubes.length];
+        for (int i = 0; i < cubes.length; i++) {
+            List<String> faces = new ArrayList<>();
+            for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+                faces.add(cubes[i].toMatrixString(face));
+            }
+            matrices.add(faces);
+            json[i] = cubes[i].toJson();
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % Fixtures.COUNT;
+        return next;
+    }
+
+    @Benchmark
+    public CubeState parseMatrices() {
+        return CubeState.parseFaces(3, matrices.get(nextIndex()));
+    }
+
+    @Benchmark
+    public String kociembaString() {
+        return cubes[nextIndex()].toSolverString();
+    }
+
+    @Benchmark
+    public String pocketString() {
+        return pocketCubes[nextIndex()].toSolverString();
+    }
+
+    @Benchmark
+    public String toJson() {
+        return cubes[nextIndex()].toJson();
+    }
+
+    @Benchmark
+    public CubeState fromJson() throws IOException {
+        return CubeState.fromJson(3, json[nextIndex()]);
+    }
+}
@@ -0,0 +1,112 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.solver.CubieCube;
+import com.example.cubesolver.solver.FaceCube;
+
+import java.util.Random;
+
+/**
+ * Deterministic inputs shared by the benchmarks, so every run and every commit measures the same work.
+ */
+final class Fixtures {
+
+    static final int COUNT = 64; // Inputs per benchmark; cycling through them keeps one lucky case from dominating.
+
+    private static final String[] MOVES = {
+        "U", "U2", "U'", "R", "R2", "R'", "F", "F2", "F'", "D", "D2", "D'", "L", "L2", "L'", "B", "B2", "B'"
+    };
+    // Colors of the U, R, F, D, L and B centers.
+    private static final CubeColor[] SCHEME = {
+        CubeColor.WHITE, CubeColor.RED, CubeColor.GREEN, CubeColor.YELLOW, CubeColor.ORANGE, CubeColor.BLUE
+    };
+    // sRGB colors of real stickers, in CubeColor order.
+    private static final int[] STICKER_RGB = {0xe8e8e2, 0xf6d618, 0xba1220, 0xff6c0c, 0x0044ac, 0x009a48};
+    private static final float GAP = 0.08f; // Body visible on each side of a sticker, in cells.
+    private static final int BODY = 0x101010;
+    private static final int TABLE = 0x1e1c1a;
+
+    private Fixtures() {
+    }
+
+    /**
+     * Returns random 3x3 facelet strings, each 25 random moves from solved.
+     */
+    static String[] faceletStrings(long seed) {
+        Random random = new Random(seed);
+        String[] cubes = new String[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            CubieCube cube = new CubieCube();
+            StringBuilder scramble = new StringBuilder();
+            for (int move = 0; move < 25; move++) {
+                scramble.append(MOVES[random.nextInt(MOVES.length)]).append(' ');
+            }
+            cube.applySequence(scramble.toString());
+            cubes[i] = new FaceCube(cube).toString();
+        }
+        return cubes;
+    }
+
+    /**
+     * Returns random cubes of the given size in the standard color scheme. 2x2 cubes use the corners of a 3x3.
+     */
+    static CubeState[] cubeStates(long seed, int size) {
+        String[] facelets = faceletStrings(seed);
+        CubeState[] states = new CubeState[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            byte[] stickers = new byte[6 * size * size];
+            for (int face = 0; face < 6; face++) {
+                for (int row = 0; row < size; row++) {
+                    for (int col = 0; col < size; col++) {
+                        int r = size == 3 ? row : row * 2, c = size == 3 ? col : col * 2;
+                        char letter = facelets[i].charAt(face * 9 + r * 3 + c);
+                        stickers[(face * size + row) * size + col] = (byte) SCHEME[FaceCube.FACES.indexOf(letter)].ordinal();
+                    }
+                }
+            }
+            states[i] = CubeState.of(size, stickers);
+        }
+        return states;
+    }
+
+    /**
+     * Draws one face of a cube as an upright square on a dark table, with the black body showing around every
+     * sticker.
+     * @return The picture as 0xRRGGBB pixels, row by row.
+     */
+    static int[] drawFace(CubeState cube, int face, int width, int height, float left, float top, float side) {
+        int size = cube.getSize();
+        int[] rgb = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float u = (x - left) / side * size, v = (y - top) / side * size;
+                int color = TABLE;
+                if (u >= 0 && v >= 0 && u < size && v < size) {
+                    int col = (int) u, row = (int) v;
+                    float inX = u - col, inY = v - row;
+                    boolean gap = inX < GAP || inY < GAP || inX > 1f - GAP || inY > 1f - GAP;
+                    color = gap ? BODY : STICKER_RGB[cube.getColor(face, row, col).ordinal()];
+                }
+                rgb[y * width + x] = color;
+            }
+        }
+        return rgb;
+    }
+
+    /**
+     * Adds the same random offset of up to amplitude levels to the three channels of every pixel, as sensor noise.
+     * @return Opaque ARGB pixels.
+     */
+    static int[] addNoise(int[] rgb, int amplitude, Random random) {
+        int[] pixels = new int[rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            int noise = random.nextInt(2 * amplitude + 1) - amplitude;
+            int r = Math.max(0, Math.min(255, ((rgb[i] >> 16) & 0xff) + noise));
+            int g = Math.max(0, Math.min(255, ((rgb[i] >> 8) & 0xff) + noise));
+            int b = Math.max(0, Math.min(255, (rgb[i] & 0xff) + noise));
+            pixels[i] = 0xff000000 | (r << 16) | (g << 8) | b;
+        }
+        return pixels;
+    }
+}
@@ -0,0 +1,180 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.net.GeminiRequestWriter;
+import com.example.cubesolver.pipeline.SampleSize;
+
+import org.apache.commons.codec.binary.Base64;
+import org.apache.commons.io.output.NullOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * The image preparation of ImageUtils.imageToJpegWithEnhancedCompression and the Gemini request upload.
+ * Bitmap and BitmapFactory only exist on Android, so the decode, scale and JPEG stages run on ImageIO and Java2D
+ * with the same parameters: a subsampled decode of the saved 1024 px photo, a bilinear scale to 300 px and a JPEG
+ * at quality 80. Absolute numbers differ from a phone; the relative cost of the stages and of the request body
+ * strategies is what these track.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ImageEncodingBenchmark {
+
+    private static final int SAVED_SIZE = 1024; // ImageUtils.MAX_SAVED_IMAGE_SIZE
+    private static final int UPLOAD_SIZE = 300; // ImageUtils.UPLOAD_IMAGE_SIZE
+    private static final String PROMPT = "Identify the color of each square of these 6 cube faces.";
+
+    private byte[] savedPhoto;
+    private BufferedImage decoded;
+    private BufferedImage scaled;
+    private byte[] uploadJpeg;
+
+    @Setup
+    public void setUp() throws IOException {
+        savedPhoto = jpeg(renderFace(SAVED_SIZE, SAVED_SIZE * 3 / 4), 0.4f);
+        decoded = decode();
+        scaled = scale(decoded);
+        uploadJpeg = jpeg(scaled, 0.8f);
+    }
+
+    @Benchmark
+    public BufferedImage decodeSubsampled() throws IOException {
+        return decode();
+    }
+
+    @Benchmark
+    public BufferedImage scaleToUploadSize() {
+        return scale(decoded);
+    }
+
+    @Benchmark
+    public byte[] encodeJpeg() throws IOException {
+        return jpeg(scaled, 0.8f);
+    }
+
+    @Benchmark
+    public byte[] prepareFace() throws IOException {
+        return jpeg(scale(decode()), 0.8f);
+    }
+
+    /**
+     * The request body as it used to be built: six Base64 strings, then the whole body as one byte array.
+     */
+    @Benchmark
+    public byte[] requestBodyInMemory() throws IOException {
+        String[] base64 = new String[6];
+        for (int i = 0; i < base64.length; i++) {
+            base64[i] = new String(Base64.encodeBase64(uploadJpeg));
+        }
+        StringBuilder body = new StringBuilder("{\"contents\":[{\"parts\":[{\"text\":\"" + PROMPT + "\"}");
+        for (String image : base64) {
+            body.append(",{\"inline_data\":{\"mime_type\":\"image/jpeg\",\"data\":\"").append(image).append("\"}}");
+        }
+        return body.append("]}]}").toString().getBytes("utf-8");
+    }
+
+    /**
+     * The request body as GeminiRequestWriter streams it into the connection.
+     */
+    @Benchmark
+    public void requestBodyStreamed() throws IOException {
+        GeminiRequestWriter.write(NullOutputStream.NULL_OUTPUT_STREAM, PROMPT, 6, index -> uploadJpeg);
+    }
+
+    private BufferedImage decode() throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(savedPhoto))) {
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input);
+                int sampleSize = SampleSize.toFit(reader.getWidth(0), reader.getHeight(0), UPLOAD_SIZE);
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(sampleSize, sampleSize, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static BufferedImage scale(BufferedImage source) {
+        float scale = ((float) UPLOAD_SIZE) / Math.max(source.getWidth(), source.getHeight());
+        int width = Math.max(1, Math.round(source.getWidth() * scale));
+        int height = Math.max(1, Math.round(source.getHeight() * scale));
+        BufferedImage target = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = target.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(source, 0, 0, width, height, null);
+        graphics.dispose();
+        return target;
+    }
+
+    private static byte[] jpeg(BufferedImage image, float quality) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(output);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Draws a photo-like cube face: a 3x3 grid of colored stickers on a dark body, with sensor noise.
+     */
+    private static BufferedImage renderFace(int width, int height) {
+        int[] colors = {0xe8e8e2, 0xf6d618, 0xba1220, 0xff6c0c, 0x0044ac, 0x009a48};
+        Random random = new Random(6);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int cell = height / 3;
+        int left = (width - height) / 2;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int rgb = 0x1e1c1a;
+                int bx = x - left;
+                if (bx >= 0 && bx < 3 * cell && bx % cell > cell / 12 && y % cell > cell / 12) {
+                    rgb = colors[(bx / cell + 3 * (y / cell)) % colors.length];
+                }
+                int noise = random.nextInt(13) - 6;
+                int r = clamp(((rgb >> 16) & 0xff) + noise);
+                int g = clamp(((rgb >> 8) & 0xff) + noise);
+                int b = clamp((rgb & 0xff) + noise);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.vision.LiveFaceScanner;
+import com.example.cubesolver.vision.YuvFrame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Live preview analysis of one 640x480 NV21 camera frame, as LiveScanActivity receives it from a portrait phone
+ * (sensor rotated by 90 degrees). The budget at 30 fps is 33 ms per frame.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class LiveScanBenchmark {
+
+    private static final int WIDTH = 640;
+    private static final int HEIGHT = 480;
+
+    // Never captures, so every frame is sampled and compared like a face that is still steadying.
+    private final LiveFaceScanner scanner =
+            new LiveFaceScanner(3, Integer.MAX_VALUE, LiveFaceScanner.DEFAULT_GUIDE_FRACTION);
+    private final YuvFrame frame = new YuvFrame();
+
+    @Setup
+    public void setUp() {
+        CubeState cube = Fixtures.cubeStates(7, 3)[0];
+        Random random = new Random(9);
+        // The upright picture is HEIGHT wide and WIDTH high; the guide square is centered in it.
+        float side = LiveFaceScanner.DEFAULT_GUIDE_FRACTION * HEIGHT;
+        int[] upright = Fixtures.addNoise(Fixtures.drawFace(cube, 0, HEIGHT, WIDTH, (HEIGHT - side) / 2f,
+                (WIDTH - side) / 2f, side), 4, random);
+        byte[] y = new byte[WIDTH * HEIGHT];
+        byte[] vu = new byte[WIDTH * HEIGHT / 2];
+        for (int py = 0; py < HEIGHT; py++) {
+            for (int px = 0; px < WIDTH; px++) {
+                // The sensor is turned by 90 degrees: this pixel shows upright column HEIGHT - 1 - py, row px.
+                int rgb = upright[px * HEIGHT + HEIGHT - 1 - py];
+                int r = (rgb >> 16) & 0xff, g = (rgb >> 8) & 0xff, b = rgb & 0xff;
+                y[py * WIDTH + px] = (byte) clamp(0.299 * r + 0.587 * g + 0.114 * b);
+                if (px % 2 == 0 && py % 2 == 0) {
+                    vu[(py / 2) * WIDTH + px] = (byte) clamp(0.5 * r - 0.418688 * g - 0.081312 * b + 128);
+                    vu[(py / 2) * WIDTH + px + 1] = (byte) clamp(-0.168736 * r - 0.331264 * g + 0.5 * b + 128);
+                }
+            }
+        }
+        frame.set(y, WIDTH, vu, 1, vu, 0, WIDTH, 2, WIDTH, HEIGHT);
+    }
+
+    private static int clamp(double value) {
+        return (int) Math.max(0, Math.min(255, Math.round(value)));
+    }
+
+    @Benchmark
+    public LiveFaceScanner.Status analyzeFrame() {
+        return scanner.analyze(frame, 90);
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.solver.ParallelSearch;
+import com.example.cubesolver.solver.SolverException;
+import com.example.cubesolver.solver.SolverTables;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time until the multi-threaded search has a 3x3 solution of at most TARGET_LENGTH moves, by thread count.
+ * One thread searches only the cube itself, like Search.solveProgressively; each further thread adds a rotated or
+ * inverted variant. Speedup is the one-thread score divided by the others. Part of it comes from the variants
+ * themselves, so even a single core gains from more than one thread.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelSearchBenchmark {
+
+    private static final int TARGET_LENGTH = 20;
+    private static final long BUDGET_MILLIS = 5000; // Caps the rare cube where one thread needs longer.
+
+    @Param({"1", "2", "4", "6"})
+    public int threads;
+
+    private String[] cubes;
+    private ParallelSearch search;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cubes = Fixtures.faceletStrings(3);
+        search = new ParallelSearch(SolverTables.getInstance(), threads);
+    }
+
+    @TearDown
+    public void tearDown() {
+        search.close();
+    }
+
+    @Benchmark
+    public String solveToTargetLength() throws SolverException {
+        next = (next + 1) % Fixtures.COUNT;
+        return search.solveProgressively(cubes[next], TARGET_LENGTH, BUDGET_MILLIS, null);
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.vision.FaceImage;
+import com.example.cubesolver.vision.PhotoQualityChecker;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The blur and exposure check MainActivity runs on every photo right after it is taken, over the six 256 px faces
+ * of a cube, once focused and once blurred. The blurred set is rejected, so both paths through the check are timed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PhotoQualityBenchmark {
+
+    private static final int IMAGE_SIZE = 256; // MainActivity.CLASSIFIER_IMAGE_SIZE
+    private static final int BLUR_RADIUS = 3;
+    private static final int MARGIN = 12; // Table visible around the face.
+
+    private final PhotoQualityChecker checker = new PhotoQualityChecker();
+    private FaceImage[] focused;
+    private FaceImage[] blurred;
+
+    @Setup
+    public void setUp() {
+        CubeState cube = Fixtures.cubeStates(7, 3)[0];
+        Random random = new Random(10);
+        focused = new FaceImage[CubeState.FACE_COUNT];
+        blurred = new FaceImage[CubeState.FACE_COUNT];
+        for (int face = 0; face < focused.length; face++) {
+            int[] rgb = Fixtures.drawFace(cube, face, IMAGE_SIZE, IMAGE_SIZE, MARGIN, MARGIN, IMAGE_SIZE - 2 * MARGIN);
+            focused[face] = new FaceImage(Fixtures.addNoise(rgb, 4, random), IMAGE_SIZE, IMAGE_SIZE);
+            blurred[face] = new FaceImage(Fixtures.addNoise(blur(rgb), 4, random), IMAGE_SIZE, IMAGE_SIZE);
+        }
+    }
+
+    @Benchmark
+    public int checkFocusedFaces() {
+        int acceptable = 0;
+        for (FaceImage face : focused) {
+            acceptable += checker.check(face).isAcceptable() ? 1 : 0;
+        }
+        return acceptable;
+    }
+
+    @Benchmark
+    public int checkBlurredFaces() {
+        int acceptable = 0;
+        for (FaceImage face : blurred) {
+            acceptable += checker.check(face).isAcceptable() ? 1 : 0;
+        }
+        return acceptable;
+    }
+
+    /**
+     * Box-blurs every channel of a picture twice along rows and columns, like an out-of-focus photo.
+     * @return The blurred 0xRRGGBB pixels.
+     */
+    private static int[] blur(int[] rgb) {
+        int[][] planes = new int[3][rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            planes[0][i] = (rgb[i] >> 16) & 0xff;
+            planes[1][i] = (rgb[i] >> 8) & 0xff;
+            planes[2][i] = rgb[i] & 0xff;
+        }
+        for (int[] plane : planes) {
+            for (int pass = 0; pass < 2; pass++) {
+                boxBlur(plane, true);
+                boxBlur(plane, false);
+            }
+        }
+        int[] blurred = new int[rgb.length];
+        for (int i = 0; i < rgb.length; i++) {
+            blurred[i] = (planes[0][i] << 16) | (planes[1][i] << 8) | planes[2][i];
+        }
+        return blurred;
+    }
+
+    /**
+     * Averages every pixel with its neighbors within BLUR_RADIUS along rows or columns, clamping at the borders.
+     */
+    private static void boxBlur(int[] plane, boolean horizontal) {
+        int[] line = new int[IMAGE_SIZE];
+        for (int a = 0; a < IMAGE_SIZE; a++) {
+            for (int b = 0; b < IMAGE_SIZE; b++) {
+                line[b] = horizontal ? plane[a * IMAGE_SIZE + b] : plane[b * IMAGE_SIZE + a];
+            }
+            for (int b = 0; b < IMAGE_SIZE; b++) {
+                int sum = 0;
+                for (int k = -BLUR_RADIUS; k <= BLUR_RADIUS; k++) {
+                    sum += line[Math.max(0, Math.min(IMAGE_SIZE - 1, b + k))];
+                }
+                plane[horizontal ? a * IMAGE_SIZE + b : b * IMAGE_SIZE + a] = sum / (2 * BLUR_RADIUS + 1);
+            }
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.net.GeminiResponseParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing a Gemini generateContent response into the six matrices, as MainActivity does after the API call.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ResponseParsingBenchmark {
+
+    private String response;
+    private String freeTextResponse;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper mapper = new ObjectMapper();
+        CubeState cube = Fixtures.cubeStates(5, 3)[0];
+
+        // The answer the prompt asks for, fenced the way the model usually returns it.
+        ObjectNode answer = mapper.createObjectNode();
+        answer.put("cube_size", "3x3");
+        ArrayNode faces = answer.putArray("faces");
+        StringBuilder freeText = new StringBuilder("Here are the colors of the 3x3 cube.\n");
+        for (int face = 0; face < CubeState.FACE_COUNT; face++) {
+            ObjectNode faceNode = faces.addObject();
+            faceNode.put("face_number", face + 1);
+            ArrayNode matrix = faceNode.putArray("matrix");
+            freeText.append("Face #").append(face + 1).append(":\n");
+            for (int row = 0; row < 3; row++) {
+                ArrayNode rowNode = matrix.addArray();
+                for (int col = 0; col < 3; col++) {
+                    CubeColor color = cube.getColor(face, row, col);
+                    rowNode.add(color.getDisplayName());
+                    freeText.append(color.getDisplayName()).append(' ');
+                }
+                freeText.append('\n');
+            }
+        }
+        response = envelope(mapper, "```json\n" + answer.toPrettyString() + "\n```");
+        freeTextResponse = envelope(mapper, freeText.toString());
+    }
+
+    private static String envelope(ObjectMapper mapper, String text) {
+        ObjectNode envelope = mapper.createObjectNode();
+        ObjectNode candidate = envelope.putArray("candidates").addObject();
+        candidate.putObject("content").putArray("parts").addObject().put("text", text);
+        candidate.put("finishReason", "STOP");
+        envelope.putObject("usageMetadata").put("promptTokenCount", 1806).put("candidatesTokenCount", 412);
+        return envelope.toString();
+    }
+
+    @Benchmark
+    public GeminiResponseParser.Result jsonAnswer() throws IOException {
+        return GeminiResponseParser.parse(response);
+    }
+
+    @Benchmark
+    public GeminiResponseParser.Result freeTextAnswer() throws IOException {
+        return GeminiResponseParser.parse(freeTextResponse);
+    }
+}
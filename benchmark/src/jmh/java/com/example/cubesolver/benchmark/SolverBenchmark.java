@@ -0,0 +1,65 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.solver.CubeSymmetry;
+import com.example.cubesolver.solver.PocketSolver;
+import com.example.cubesolver.solver.Search;
+import com.example.cubesolver.solver.SolverException;
+import com.example.cubesolver.solver.SolverTables;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solve times of the on-device solvers, after their tables are built. Table setup is measured by TableStartupBenchmark.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SolverBenchmark {
+
+    private String[] cubes;
+    private String[] pocketCubes;
+    private Search search;
+    private PocketSolver pocketSolver;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        cubes = Fixtures.faceletStrings(1);
+        CubeState[] pocketStates = Fixtures.cubeStates(2, 2);
+        pocketCubes = new String[pocketStates.length];
+        for (int i = 0; i < pocketStates.length; i++) {
+            pocketCubes[i] = pocketStates[i].toSolverString();
+        }
+        search = new Search(SolverTables.getInstance());
+        pocketSolver = PocketSolver.getInstance();
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % Fixtures.COUNT;
+        return next;
+    }
+
+    @Benchmark
+    public String twoPhase3x3() throws SolverException {
+        return search.solve(cubes[nextIndex()]);
+    }
+
+    @Benchmark
+    public String optimal2x2() throws SolverException {
+        return pocketSolver.solve(pocketCubes[nextIndex()]);
+    }
+
+    @Benchmark
+    public CubeSymmetry.Canonical canonicalize3x3() throws SolverException {
+        return CubeSymmetry.canonicalize(cubes[nextIndex()]);
+    }
+}
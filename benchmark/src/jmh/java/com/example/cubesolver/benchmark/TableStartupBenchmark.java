@@ -0,0 +1,81 @@
+package com.example.cubesolver.benchmark;
+
+import com.example.cubesolver.solver.Search;
+import com.example.cubesolver.solver.SolverException;
+import com.example.cubesolver.solver.SolverTables;
+import com.example.cubesolver.solver.TableFile;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time until the first 3x3 solution is available after a process start, with the tables from
+ * SolverTables.openOrCreate, as the app and the command line tool get them, versus generated in memory.
+ * Every iteration opens a fresh copy of the table file, so openOrCreate cannot hand back the tables of the previous
+ * one; the copy is in the page cache, as it is on a warm app start. openOnly shows the part that does not depend on
+ * the solve: with lazily mapped tables it is only the header and directory, and the first solve maps the tables it
+ * reads.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TableStartupBenchmark {
+
+    private File directory;
+    private File written; // The table file every iteration copies.
+    private File tableFile; // This iteration's copy.
+    private String cube;
+    private int iteration;
+
+    @Setup(Level.Trial)
+    public void writeTables() throws IOException {
+        directory = Files.createTempDirectory("tables").toFile();
+        written = new File(directory, TableFile.FILE_NAME);
+        TableFile.write(SolverTables.generate(), written);
+        cube = Fixtures.faceletStrings(4)[0];
+    }
+
+    @Setup(Level.Iteration)
+    public void copyTables() throws IOException {
+        tableFile = new File(directory, "copy-" + iteration++ + ".bin");
+        Files.copy(written.toPath(), tableFile.toPath());
+    }
+
+    @TearDown(Level.Iteration)
+    public void deleteCopy() {
+        tableFile.delete();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteTables() {
+        written.delete();
+        directory.delete();
+    }
+
+    @Benchmark
+    public String openOrCreateFirstSolve() throws SolverException {
+        return new Search(SolverTables.openOrCreate(tableFile)).solve(cube);
+    }
+
+    @Benchmark
+    public SolverTables openOnly() {
+        return SolverTables.openOrCreate(tableFile);
+    }
+
+    @Benchmark
+    public String generateFirstSolve() throws SolverException {
+        return new Search(SolverTables.generate()).solve(cube);
+    }
+}
@@ -0,0 +1,44 @@
+// Headless batch solver: reads cubes from a file or stdin, solves them on all cores with the app's solvers and
+// writes one JSON line per cube, followed by a throughput and latency summary on stderr.
+//
+// Build a runnable distribution:  ./gradlew :cli:installDist
+// Solve a file:                   cli/build/install/cli/bin/cli scrambles.txt > results.jsonl
+// Solve from stdin:               cat scrambles.txt | cli/build/install/cli/bin/cli --threads 4
+plugins {
+    // The plain Java plugin: this module has no Android code.
+    java
+    // Adds the `run` and `installDist` tasks and the start scripts.
+    application
+}
+
+java {
+    // Same language level as the app.
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+sourceSets {
+    main {
+        java {
+            // Compile the app's cube model and solvers directly, so the CLI always runs the current code.
+            srcDir("../app/src/main/java")
+            include(
+                "com/example/cubesolver/cli/**",
+                "com/example/cubesolver/model/**",
+                "com/example/cubesolver/solver/**"
+            )
+        }
+    }
+}
+
+dependencies {
+    // CubeState reads and the CLI writes JSON with Jackson.
+    implementation(libs.jackson.databind)
+    testImplementation(libs.junit)
+}
+
+application {
+    mainClass.set("com.example.cubesolver.cli.BatchSolve")
+    // The 3x3 tables are built in memory at startup; solving itself needs little heap.
+    applicationDefaultJvmArgs = listOf("-Xmx512m")
+}
@@ -0,0 +1,201 @@
+package com.example.cubesolver.cli;
+
+import com.example.cubesolver.solver.SolverTables;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * BatchSolve is the command line entry point: it reads one cube per line, solves the cubes on a thread pool and
+ * writes one JSON line per cube to stdout, in input order, as soon as it and every cube before it are done:
+ * <pre>
+ * {"line":1,"size":3,"solution":"R U R' ...","moves":20,"millis":1.84}
+ * {"line":2,"size":3,"error":"Parity error: two corners or two edges have to be exchanged","millis":0.05}
+ * </pre>
+ * A line is a 54-character facelet string, a 24-character 2x2 solver string, or the color-matrix JSON written by
+ * CubeState.toJson. Blank lines and lines starting with '#' are skipped.
+ * At the end, a summary with throughput and latency percentiles is written to stderr as one JSON line.
+ * The exit code is 0 if every cube was solved, 1 if any failed and 2 for bad arguments.
+ */
+public final class BatchSolve {
+
+    private static final String USAGE =
+            "Usage: cli [--threads N] [--target MOVES --budget MILLIS] [--tables FILE] [FILE | -]\n"
+            + "  --threads N       Solve N cubes at a time (default: one per core).\n"
+            + "  --target MOVES    Stop improving a 3x3 solution at this length (default: 20).\n"
+            + "  --budget MILLIS   Keep looking for shorter 3x3 solutions this long (default: 0, first solution).\n"
+            + "  --tables FILE     Map the 3x3 tables from FILE, writing it first if needed (default: build in memory).\n"
+            + "  FILE              Read cubes from FILE; '-' or nothing reads stdin.";
+    private static final int PENDING_PER_THREAD = 4; // Solves queued ahead of the output, per thread.
+
+    private final BatchSolver solver;
+    private final int threads;
+
+    /**
+     * Creates a batch run.
+     * @param solver Solves single lines.
+     * @param threads The number of cubes solved at the same time.
+     */
+    public BatchSolve(BatchSolver solver, int threads) {
+        this.solver = solver;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int target = 20;
+        long budget = 0;
+        String tablePath = null;
+        String inputPath = "-";
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--threads": threads = Integer.parseInt(args[++i]); break;
+                    case "--target": target = Integer.parseInt(args[++i]); break;
+                    case "--budget": budget = Long.parseLong(args[++i]); break;
+                    case "--tables": tablePath = args[++i]; break;
+                    case "--help": System.out.println(USAGE); return;
+                    default:
+                        if (args[i].startsWith("--") || i != args.length - 1) {
+                            throw new IllegalArgumentException("Unexpected argument " + args[i]);
+                        }
+                        inputPath = args[i];
+                }
+            }
+            if (threads < 1) {
+                throw new IllegalArgumentException("--threads must be at least 1");
+            }
+        } catch (RuntimeException e) {
+            // Covers a missing option value and numbers that do not parse.
+            System.err.println(e instanceof IllegalArgumentException ? e.getMessage() : "Missing option value");
+            System.err.println(USAGE);
+            System.exit(2);
+            return;
+        }
+
+        long tablesStart = System.nanoTime();
+        SolverTables tables = (tablePath != null)
+                ? SolverTables.openOrCreate(new File(tablePath))
+                : SolverTables.getInstance();
+        System.err.printf("Solver tables ready in %.0f ms%n", (System.nanoTime() - tablesStart) / 1e6);
+
+        BatchSolve batch = new BatchSolve(new BatchSolver(tables, target, budget), threads);
+        try (InputStream in = inputPath.equals("-") ? System.in : new FileInputStream(inputPath)) {
+            boolean allSolved = batch.run(new InputStreamReader(in, StandardCharsets.UTF_8), System.out, System.err);
+            System.exit(allSolved ? 0 : 1);
+        } catch (IOException e) {
+            System.err.println("Could not read " + inputPath + ": " + e.getMessage());
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Solves every cube of the input and writes the results and the summary.
+     * @param input One cube per line.
+     * @param out Receives one JSON line per cube; not closed.
+     * @param summary Receives the summary line.
+     * @return True if every cube was solved.
+     * @throws IOException If reading the input or writing the results fails.
+     */
+    public boolean run(Reader input, OutputStream out, PrintStream summary) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        LatencyStats stats = new LatencyStats();
+        int failures = 0;
+        long start = System.nanoTime();
+        JsonGenerator json = new JsonFactory().createGenerator(out);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null); // Each line ends with a newline instead.
+        try (BufferedReader reader = new BufferedReader(input)) {
+            // Results are written in input order; the queue bounds how far solving runs ahead of the slowest cube.
+            Deque<Future<BatchSolver.Result>> pending = new ArrayDeque<>();
+            int lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                String trimmed = line.trim();
+                if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                    continue;
+                }
+                int number = lineNumber;
+                pending.add(executor.submit(() -> solver.solve(number, trimmed)));
+                if (pending.size() >= threads * PENDING_PER_THREAD) {
+                    failures += write(json, out, pending.poll(), stats);
+                }
+            }
+            while (!pending.isEmpty()) {
+                failures += write(json, out, pending.poll(), stats);
+            }
+        } finally {
+            executor.shutdownNow();
+            json.close();
+        }
+        long wallNanos = System.nanoTime() - start;
+        writeSummary(summary, stats, failures, wallNanos);
+        return failures == 0;
+    }
+
+    /**
+     * Waits for one result and writes it as a JSON line.
+     * @return 1 if the cube could not be solved, else 0.
+     */
+    private int write(JsonGenerator json, OutputStream out, Future<BatchSolver.Result> future, LatencyStats stats)
+            throws IOException {
+        BatchSolver.Result result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a solve", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Solver failed", e.getCause()); // BatchSolver.solve reports its own failures.
+        }
+        stats.record(result.getNanos());
+        json.writeStartObject();
+        json.writeNumberField("line", result.getLineNumber());
+        if (result.getSize() != 0) {
+            json.writeNumberField("size", result.getSize());
+        }
+        if (result.isSolved()) {
+            json.writeStringField("solution", result.getSolution());
+            json.writeNumberField("moves", result.getMoveCount());
+        } else {
+            json.writeStringField("error", result.getError());
+        }
+        json.writeNumberField("millis", millis(result.getNanos()));
+        json.writeEndObject();
+        json.flush();
+        out.write('\n');
+        return result.isSolved() ? 0 : 1;
+    }
+
+    private void writeSummary(PrintStream summary, LatencyStats stats, int failures, long wallNanos) {
+        summary.printf(Locale.ROOT,
+                "{\"cubes\":%d,\"failures\":%d,\"threads\":%d,\"wallMillis\":%.2f,\"solvesPerSecond\":%.1f,"
+                        + "\"meanMillis\":%.3f,\"p50Millis\":%.3f,\"p99Millis\":%.3f,\"maxMillis\":%.3f}%n",
+                stats.getCount(), failures, threads, wallNanos / 1e6, stats.getThroughput(wallNanos),
+                stats.getMeanNanos() / 1e6, stats.getPercentileNanos(50) / 1e6,
+                stats.getPercentileNanos(99) / 1e6, stats.getPercentileNanos(100) / 1e6);
+    }
+
+    private static double millis(long nanos) {
+        // Whole microseconds keep the lines short; a 2x2 solve takes a few of them.
+        return Math.round(nanos / 1e3) / 1000.0;
+    }
+}
@@ -0,0 +1,163 @@
+package com.example.cubesolver.cli;
+
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.solver.CubeSymmetry;
+import com.example.cubesolver.solver.PocketSolver;
+import com.example.cubesolver.solver.Search;
+import com.example.cubesolver.solver.SolverException;
+import com.example.cubesolver.solver.SolverTables;
+
+import java.io.IOException;
+
+/**
+ * BatchSolver solves one input line the way the app does: color-matrix JSON becomes a CubeState and then a solver
+ * string, a 3x3 is solved in its canonical orientation with the two-phase search and translated back, and a 2x2 is
+ * solved optimally by PocketSolver.
+ * solve may be called from several threads at once; each thread gets its own Search.
+ */
+public final class BatchSolver {
+
+    /**
+     * The outcome of one input line.
+     */
+    public static final class Result {
+
+        private final int lineNumber;
+        private final int size; // 3 or 2, or 0 if the line could not be read as a cube.
+        private final String solution; // Null if the cube could not be solved.
+        private final String error; // Null if the cube was solved.
+        private final long nanos; // Time spent parsing and solving this line.
+
+        private Result(int lineNumber, int size, String solution, String error, long nanos) {
+            this.lineNumber = lineNumber;
+            this.size = size;
+            this.solution = solution;
+            this.error = error;
+            this.nanos = nanos;
+        }
+
+        public int getLineNumber() {
+            return lineNumber;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        /**
+         * Returns the solution as space-separated moves, empty for a solved cube, or null if solving failed.
+         */
+        public String getSolution() {
+            return solution;
+        }
+
+        /**
+         * Returns the number of moves in the solution, or -1 if solving failed.
+         */
+        public int getMoveCount() {
+            if (solution == null) {
+                return -1;
+            }
+            return solution.isEmpty() ? 0 : solution.split(" ").length;
+        }
+
+        /**
+         * Returns why the line could not be solved, or null if it was.
+         */
+        public String getError() {
+            return error;
+        }
+
+        public boolean isSolved() {
+            return error == null;
+        }
+
+        public long getNanos() {
+            return nanos;
+        }
+    }
+
+    private final SolverTables tables;
+    private final int targetLength;
+    private final long budgetMillis;
+    private final ThreadLocal<Search> searches;
+
+    /**
+     * Creates a solver that returns the first 3x3 solution found, like Search.solve.
+     * @param tables The 3x3 move and pruning tables.
+     */
+    public BatchSolver(SolverTables tables) {
+        this(tables, Search.DEFAULT_MAX_DEPTH, 0);
+    }
+
+    /**
+     * Creates a solver that keeps improving 3x3 solutions, like the app does.
+     * @param tables The 3x3 move and pruning tables.
+     * @param targetLength A 3x3 solution length that is good enough to stop at.
+     * @param budgetMillis How long to look for shorter 3x3 solutions after the first one; 0 for the first solution
+     *                     within Search.DEFAULT_MAX_DEPTH.
+     */
+    public BatchSolver(SolverTables tables, int targetLength, long budgetMillis) {
+        this.tables = tables;
+        this.targetLength = targetLength;
+        this.budgetMillis = budgetMillis;
+        searches = ThreadLocal.withInitial(() -> new Search(this.tables));
+    }
+
+    /**
+     * Parses and solves one line. Never throws; failures are reported in the result.
+     * @param lineNumber The line number, from 1, copied to the result.
+     * @param line A 54-character facelet string, a 24-character 2x2 solver string, or color-matrix JSON.
+     * @return The result.
+     */
+    public Result solve(int lineNumber, String line) {
+        long start = System.nanoTime();
+        int size = 0;
+        try {
+            String solverString;
+            String input = line.trim();
+            if (input.startsWith("{")) {
+                CubeState state = parseJson(input);
+                size = state.getSize();
+                solverString = state.toSolverString();
+            } else if (input.length() == 6 * 9) {
+                size = 3;
+                solverString = input;
+            } else if (input.length() == 6 * 4) {
+                size = 2;
+                solverString = input;
+            } else {
+                throw new SolverException("Expected a facelet string, a 2x2 solver string or cube JSON, got "
+                        + input.length() + " characters");
+            }
+            String solution = (size == 3) ? solve3x3(solverString) : PocketSolver.getInstance().solve(solverString);
+            return new Result(lineNumber, size, solution, null, System.nanoTime() - start);
+        } catch (SolverException | IOException | RuntimeException e) {
+            return new Result(lineNumber, size, null, e.getMessage(), System.nanoTime() - start);
+        }
+    }
+
+    private String solve3x3(String facelets) throws SolverException {
+        CubeSymmetry.Canonical canonical = CubeSymmetry.canonicalize(facelets);
+        Search search = searches.get();
+        String solution = (budgetMillis > 0)
+                ? search.solveProgressively(canonical.getFacelets(), targetLength, budgetMillis, null)
+                : search.solve(canonical.getFacelets());
+        return canonical.toOriginalSolution(solution);
+    }
+
+    /**
+     * Reads the color-matrix JSON written by CubeState.toJson; the size follows from the matrices.
+     */
+    static CubeState parseJson(String json) throws IOException {
+        try {
+            return CubeState.fromJson(3, json);
+        } catch (IOException e3) {
+            try {
+                return CubeState.fromJson(2, json);
+            } catch (IOException e2) {
+                throw e3; // Most inputs are 3x3, so its error is the more useful one.
+            }
+        }
+    }
+}
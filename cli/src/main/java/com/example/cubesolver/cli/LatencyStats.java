@@ -0,0 +1,67 @@
+package com.example.cubesolver.cli;
+
+import java.util.Arrays;
+
+/**
+ * LatencyStats collects per-solve times and reports throughput and latency percentiles.
+ * All samples are kept, a few hundred kilobytes even for a hundred thousand solves, so percentiles are exact.
+ * Not thread-safe; BatchSolve records from its output thread only.
+ */
+public final class LatencyStats {
+
+    private long[] samples = new long[1024];
+    private int count;
+
+    /**
+     * Records the time of one solve.
+     * @param nanos The solve time in nanoseconds.
+     */
+    public void record(long nanos) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = nanos;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * Returns a percentile of the recorded times using the nearest-rank method.
+     * @param percentile The percentile, from 0 (exclusive) to 100.
+     * @return The smallest recorded time that at least this percentage of the samples do not exceed, or 0 if none.
+     */
+    public long getPercentileNanos(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        int rank = (int) Math.ceil(percentile / 100 * count);
+        return sorted[Math.max(0, Math.min(count, rank) - 1)];
+    }
+
+    /**
+     * Returns the mean of the recorded times, or 0 if none.
+     */
+    public double getMeanNanos() {
+        if (count == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = 0; i < count; i++) {
+            sum += samples[i];
+        }
+        return sum / count;
+    }
+
+    /**
+     * Returns the number of solves per second over a wall-clock interval.
+     * @param wallNanos The elapsed time from the first solve starting to the last one finishing.
+     * @return The throughput, or 0 if the interval is empty.
+     */
+    public double getThroughput(long wallNanos) {
+        return wallNanos > 0 ? count * 1e9 / wallNanos : 0;
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.cubesolver.cli;
+
+import com.example.cubesolver.solver.CubieCube;
+import com.example.cubesolver.solver.FaceCube;
+import com.example.cubesolver.solver.SolverTables;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the batch run: ordering of the JSON lines, failures and the summary.
+ */
+public class BatchSolveTest {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    @Test
+    public void results_areWrittenInInputOrder() throws Exception {
+        Random random = new Random(31);
+        StringBuilder input = new StringBuilder("# Regression scrambles\n");
+        for (int i = 0; i < 40; i++) {
+            input.append(scrambled(random)).append('\n');
+            if (i % 10 == 0) {
+                input.append('\n'); // Blank lines are skipped but still counted.
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        BatchSolve batch = new BatchSolve(new BatchSolver(SolverTables.getInstance()), 3);
+        assertTrue(batch.run(new StringReader(input.toString()), out, new PrintStream(summary, true, "UTF-8")));
+
+        String[] lines = out.toString("UTF-8").split("\n");
+        assertEquals(40, lines.length);
+        String[] inputLines = input.toString().split("\n", -1);
+        int previous = 0;
+        for (String line : lines) {
+            JsonNode result = MAPPER.readTree(line);
+            int number = result.get("line").asInt();
+            assertTrue(number > previous);
+            previous = number;
+            String facelets = inputLines[number - 1];
+            CubieCube cube = new FaceCube(facelets).toCubieCube();
+            cube.applySequence(result.get("solution").asText());
+            assertTrue(cube.isSolved());
+            assertEquals(result.get("solution").asText().split(" ").length, result.get("moves").asInt());
+            assertTrue(result.get("millis").asDouble() > 0);
+        }
+
+        JsonNode stats = MAPPER.readTree(summary.toString("UTF-8"));
+        assertEquals(40, stats.get("cubes").asInt());
+        assertEquals(0, stats.get("failures").asInt());
+        assertEquals(3, stats.get("threads").asInt());
+        assertTrue(stats.get("solvesPerSecond").asDouble() > 0);
+        assertTrue(stats.get("p50Millis").asDouble() <= stats.get("p99Millis").asDouble());
+    }
+
+    @Test
+    public void failures_areReportedAndCounted() throws Exception {
+        String input = "UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB\nnot a cube\n";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ByteArrayOutputStream summary = new ByteArrayOutputStream();
+        BatchSolve batch = new BatchSolve(new BatchSolver(SolverTables.getInstance()), 2);
+        assertFalse(batch.run(new StringReader(input), out, new PrintStream(summary, true, "UTF-8")));
+
+        String[] lines = new String(out.toByteArray(), StandardCharsets.UTF_8).split("\n");
+        assertEquals("", MAPPER.readTree(lines[0]).get("solution").asText());
+        JsonNode failed = MAPPER.readTree(lines[1]);
+        assertEquals(2, failed.get("line").asInt());
+        assertTrue(failed.has("error"));
+        assertFalse(failed.has("solution"));
+        assertEquals(1, MAPPER.readTree(summary.toString("UTF-8")).get("failures").asInt());
+    }
+
+    private static String scrambled(Random random) {
+        String[] faces = {"U", "R", "F", "D", "L", "B"};
+        String[] powers = {"", "2", "'"};
+        StringBuilder scramble = new StringBuilder();
+        for (int j = 0; j < 25; j++) {
+            scramble.append(faces[random.nextInt(6)]).append(powers[random.nextInt(3)]).append(' ');
+        }
+        CubieCube cube = new CubieCube();
+        cube.applySequence(scramble.toString());
+        return new FaceCube(cube).toString();
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.cubesolver.cli;
+
+import com.example.cubesolver.model.CubeColor;
+import com.example.cubesolver.model.CubeState;
+import com.example.cubesolver.solver.CubieCube;
+import com.example.cubesolver.solver.FaceCube;
+import com.example.cubesolver.solver.PocketSolver;
+import com.example.cubesolver.solver.SolverException;
+import com.example.cubesolver.solver.SolverTables;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for solving single input lines in each of the accepted formats.
+ */
+public class BatchSolverTest {
+
+    private static final String SCRAMBLE = "R U2 F' D L2 B R' U F2 D' L B2";
+    // Colors of the U, R, F, D, L and B centers.
+    private static final CubeColor[] SCHEME = {
+        CubeColor.WHITE, CubeColor.RED, CubeColor.GREEN, CubeColor.YELLOW, CubeColor.ORANGE, CubeColor.BLUE
+    };
+
+    private static BatchSolver solver;
+
+    @BeforeClass
+    public static void setUp() {
+        solver = new BatchSolver(SolverTables.getInstance());
+    }
+
+    @Test
+    public void faceletString_isSolved() throws SolverException {
+        String facelets = scrambled();
+        BatchSolver.Result result = solver.solve(7, facelets);
+        assertTrue(result.getError(), result.isSolved());
+        assertEquals(7, result.getLineNumber());
+        assertEquals(3, result.getSize());
+        assertTrue(result.getMoveCount() <= 21);
+        assertSolves(facelets, result.getSolution());
+        assertTrue(result.getNanos() > 0);
+    }
+
+    @Test
+    public void cubeJson_isSolvedInItsOwnOrientation() throws SolverException {
+        String facelets = scrambled();
+        BatchSolver.Result result = solver.solve(1, toState(facelets, 3).toJson());
+        assertEquals(3, result.getSize());
+        assertSolves(facelets, result.getSolution());
+    }
+
+    @Test
+    public void pocketJsonAndString_giveTheSameOptimalSolution() {
+        CubeState pocket = toState(scrambled(), 2);
+        BatchSolver.Result fromJson = solver.solve(1, pocket.toJson());
+        BatchSolver.Result fromString = solver.solve(2, pocket.toPocketString());
+        assertEquals(2, fromJson.getSize());
+        assertEquals(fromString.getSolution(), fromJson.getSolution());
+        assertTrue(fromJson.getMoveCount() <= PocketSolver.GODS_NUMBER);
+    }
+
+    @Test
+    public void solvedCube_hasEmptySolution() {
+        BatchSolver.Result result = solver.solve(1, "UUUUUUUUURRRRRRRRRFFFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB");
+        assertEquals("", result.getSolution());
+        assertEquals(0, result.getMoveCount());
+    }
+
+    @Test
+    public void badLines_areReportedNotThrown() {
+        BatchSolver.Result garbage = solver.solve(3, "not a cube");
+        assertFalse(garbage.isSolved());
+        assertEquals(0, garbage.getSize());
+        assertEquals(-1, garbage.getMoveCount());
+
+        BatchSolver.Result parity = solver.solve(4, "UUUUUFUUURURRRRRRRFRFFFFFFFDDDDDDDDDLLLLLLLLLBBBBBBBBB");
+        assertFalse(parity.isSolved());
+        assertEquals(3, parity.getSize());
+
+        assertFalse(solver.solve(5, "{\"U\": [[\"White\"]]}").isSolved());
+    }
+
+    @Test
+    public void budget_keepsImprovingTheSolution() throws SolverException {
+        String facelets = scrambled();
+        BatchSolver improving = new BatchSolver(SolverTables.getInstance(), 0, 200);
+        BatchSolver.Result result = improving.solve(1, facelets);
+        assertSolves(facelets, result.getSolution());
+        assertTrue(result.getMoveCount() <= solver.solve(1, facelets).getMoveCount());
+    }
+
+    private static String scrambled() {
+        CubieCube cube = new CubieCube();
+        cube.applySequence(SCRAMBLE);
+        return new FaceCube(cube).toString();
+    }
+
+    /**
+     * Colors a facelet string with SCHEME; a 2x2 keeps the corner stickers of each face.
+     */
+    private static CubeState toState(String facelets, int size) {
+        byte[] stickers = new byte[6 * size * size];
+        for (int face = 0; face < 6; face++) {
+            for (int row = 0; row < size; row++) {
+                for (int col = 0; col < size; col++) {
+                    int r = size == 3 ? row : row * 2, c = size == 3 ? col : col * 2;
+                    char letter = facelets.charAt(face * 9 + r * 3 + c);
+                    stickers[(face * size + row) * size + col] = (byte) SCHEME["URFDLB".indexOf(letter)].ordinal();
+                }
+            }
+        }
+        return CubeState.of(size, stickers);
+    }
+
+    private static void assertSolves(String facelets, String solution) throws SolverException {
+        CubieCube cube = new FaceCube(facelets).toCubieCube();
+        cube.applySequence(solution);
+        assertTrue("Solution " + solution + " does not solve " + facelets, cube.isSolved());
+    }
+}
@@ -0,0 +1,45 @@
+package com.example.cubesolver.cli;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the latency percentiles and throughput.
+ */
+public class LatencyStatsTest {
+
+    @Test
+    public void percentiles_useNearestRank() {
+        LatencyStats stats = new LatencyStats();
+        // Recorded out of order and past the initial capacity.
+        for (int i = 2000; i >= 1; i--) {
+            stats.record(i * 1000L);
+        }
+        assertEquals(2000, stats.getCount());
+        assertEquals(1_000_000, stats.getPercentileNanos(50));
+        assertEquals(1_980_000, stats.getPercentileNanos(99));
+        assertEquals(2_000_000, stats.getPercentileNanos(100));
+        assertEquals(1000, stats.getPercentileNanos(0.01));
+        assertEquals(1_000_500, stats.getMeanNanos(), 0.001);
+    }
+
+    @Test
+    public void singleSample_isEveryPercentile() {
+        LatencyStats stats = new LatencyStats();
+        stats.record(42);
+        assertEquals(42, stats.getPercentileNanos(50));
+        assertEquals(42, stats.getPercentileNanos(99));
+    }
+
+    @Test
+    public void throughput_isSolvesPerWallSecond() {
+        LatencyStats stats = new LatencyStats();
+        for (int i = 0; i < 500; i++) {
+            stats.record(1_000_000);
+        }
+        assertEquals(1000, stats.getThroughput(500_000_000L), 0.001);
+        assertEquals(0, stats.getThroughput(0), 0);
+        assertEquals(0, new LatencyStats().getPercentileNanos(50));
+    }
+}
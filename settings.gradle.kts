@@ -21,4 +21,6 @@ dependencyResolutionManagement {
 
 rootProject.name = "Cube Solver"
 include(":app")
+include(":benchmark")
+include(":cli")
  
\ No newline at end of file